@@ -16,6 +16,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -35,11 +36,14 @@ import com.osiris.autoplug.client.console.Commands;
 import com.osiris.autoplug.client.console.ThreadUserInput;
 import com.osiris.autoplug.client.managers.SyncFilesManager;
 import com.osiris.autoplug.client.network.local.ConPluginCommandReceive;
+import com.osiris.autoplug.client.network.local.MetricsServer;
+import com.osiris.autoplug.client.network.local.MirrorServer;
 import com.osiris.autoplug.client.network.online.ConMain;
 import com.osiris.autoplug.client.tasks.SSHManager;
 import com.osiris.autoplug.client.ui.MainWindow;
 import com.osiris.autoplug.client.utils.GD;
 import static com.osiris.autoplug.client.utils.GD.WORKING_DIR;
+import com.osiris.autoplug.client.utils.Profiler;
 import com.osiris.autoplug.client.utils.UpdateCheckerThread;
 import com.osiris.autoplug.client.utils.UtilsConfig;
 import com.osiris.autoplug.client.utils.UtilsJar;
@@ -72,12 +76,21 @@ public class Main {
             Collections.addAll(args, _args);
         // Check various things to ensure an fully functioning application.
         // If one of these checks fails this application is stopped.
-        long now = System.currentTimeMillis();
         try {
             System.out.println();
             System.out.println("Initialising " + GD.VERSION);
             // SELF-UPDATER: Are we in the downloads directory? If yes, it means that this jar is an update and we need to install it.
             try {
+                File thisJar = new UtilsJar().getThisJar();
+                if (SelfInstaller.isStagedJar(thisJar)) {
+                    // We are the staged update, which could not be renamed over the running jar
+                    new SelfInstaller().installStagedUpdateAndStartIt(thisJar);
+                    return;
+                }
+                File stagedJar = SelfInstaller.getStagedJar(thisJar);
+                if (stagedJar.exists()) stagedJar.delete(); // Left over from a previous self-update
+
+                // Self-updates of older versions start the update jar inside the downloads directory
                 File curDir = new File(System.getProperty("user.dir"));
                 if (curDir.getName().equals("downloads")) {
                     // We are inside ./autoplug/downloads
@@ -108,10 +121,12 @@ public class Main {
             }
 
             if (!args.contains("skipSystemCheck")) {
-                SystemChecker system = new SystemChecker();
-                system.checkReadWritePermissions();
-                system.checkInternetAccess();
-                system.addShutDownHook();
+                try (Profiler.Span ignored = Profiler.start("init", "System check")) {
+                    SystemChecker system = new SystemChecker();
+                    system.checkReadWritePermissions();
+                    system.checkInternetAccess();
+                    system.addShutDownHook();
+                }
             }
 
             // Set default SysOut to TeeOutput, for the OnlineConsole
@@ -189,11 +204,14 @@ public class Main {
             AL.info(GD.VERSION + " by " + GD.AUTHOR);
             AL.info("Web-Panel: " + GD.OFFICIAL_WEBSITE);
             AL.info("| ------------------------------------------- |");
-            Server.getServerExecutable(); // Make sure this is called here first and not in a task later
-            // to avoid infinite initialising
+            try (Profiler.Span ignored = Profiler.start("init", "Find server executable")) {
+                Server.getServerExecutable(); // Make sure this is called here first and not in a task later
+                // to avoid infinite initialising
+            }
 
             //AL.info("Checking configurations...");
-            now = System.currentTimeMillis();
+            // Not closed on failure, since AutoPlug exits without writing the startup trace then anyway
+            Profiler.Span span = Profiler.start("init", "Load configs");
             UtilsConfig utilsConfig = new UtilsConfig();
             utilsConfig.convertToNewNames();
 
@@ -252,13 +270,18 @@ public class Main {
             ModsConfig modsConfig = new ModsConfig();
 
             utilsConfig.printAllModulesToDebugExceptServerKey(allModules, generalConfig.server_key.asString());
-            AL.info("Checked configs, took " + (System.currentTimeMillis() - now) + "ms");
+            span.close();
+            AL.info("Checked configs, took " + span.getMs() + "ms");
 
             try {
                 if (sharedFilesConfig.enable.asBoolean()) {
-                    now = System.currentTimeMillis();
-                    new SyncFilesManager(sharedFilesConfig);
-                    AL.info("Enabled sync for " + sharedFilesConfig.copy_from.getValues().size() + " directories, took " + (System.currentTimeMillis() - now) + "ms");
+                    span = Profiler.start("init", "Enable shared files sync");
+                    try {
+                        new SyncFilesManager(sharedFilesConfig);
+                    } finally {
+                        span.close();
+                    }
+                    AL.info("Enabled sync for " + sharedFilesConfig.copy_from.getValues().size() + " directories, took " + span.getMs() + "ms");
                 }
             } catch (Exception e) {
                 AL.warn(e);
@@ -266,9 +289,13 @@ public class Main {
 
             try {
                 if (generalConfig.autoplug_system_tray.asBoolean()) {
-                    now = System.currentTimeMillis();
-                    new MainWindow();
-                    AL.info("Started system-tray GUI, took " + (System.currentTimeMillis() - now) + "ms");
+                    span = Profiler.start("init", "Start system-tray GUI");
+                    try {
+                        new MainWindow();
+                    } finally {
+                        span.close();
+                    }
+                    AL.info("Started system-tray GUI, took " + span.getMs() + "ms");
                 }
             } catch (Exception e) {
                 AL.warn(e);
@@ -284,19 +311,48 @@ public class Main {
 
             try {
                 if (updaterConfig.global_recurring_checks.asBoolean()) {
-                    now = System.currentTimeMillis();
-                    UPDATE_CHECKER_THREAD = new UpdateCheckerThread();
-                    UPDATE_CHECKER_THREAD.start();
-                    AL.info("Started update-checker thread with " + updaterConfig.global_recurring_checks_intervall.asString() + "h intervall, took " + (System.currentTimeMillis() - now) + "ms");
+                    span = Profiler.start("init", "Start update-checker thread");
+                    try {
+                        UPDATE_CHECKER_THREAD = new UpdateCheckerThread();
+                        UPDATE_CHECKER_THREAD.start();
+                    } finally {
+                        span.close();
+                    }
+                    AL.info("Started update-checker thread with " + updaterConfig.global_recurring_checks_intervall.asString() + "h intervall, took " + span.getMs() + "ms");
                 }
             } catch (Exception e) {
                 AL.warn(e);
             }
             
-            SSHManager.start(false);
+            try {
+                if (generalConfig.autoplug_metrics.asBoolean()) {
+                    MetricsServer.start(generalConfig.autoplug_metrics_host.asString(), generalConfig.autoplug_metrics_port.asInt());
+                    AL.info("Serving metrics at http://" + generalConfig.autoplug_metrics_host.asString() + ":"
+                            + generalConfig.autoplug_metrics_port.asInt() + "/metrics");
+                }
+            } catch (Exception e) {
+                AL.warn("Failed to start metrics server.", e);
+            }
+
+            try {
+                if (updaterConfig.global_mirror_server.asBoolean()) {
+                    MirrorServer.start(updaterConfig.global_mirror_server_host.asString(), updaterConfig.global_mirror_server_port.asInt(),
+                            TimeUnit.MINUTES.toMillis(updaterConfig.global_mirror_server_ttl.asInt()));
+                    AL.info("Started mirror server at " + updaterConfig.global_mirror_server_host.asString() + ":"
+                            + updaterConfig.global_mirror_server_port.asInt());
+                }
+            } catch (Exception e) {
+                AL.warn("Failed to start mirror server.", e);
+            }
 
-            CON = new ConMain();
-            CON.open();
+            try (Profiler.Span ignored = Profiler.start("init", "Start SSH server")) {
+                SSHManager.start(false);
+            }
+
+            try (Profiler.Span ignored = Profiler.start("init", "Connect to AutoPlug-Web")) {
+                CON = new ConMain();
+                CON.open();
+            }
 
             AL.info("Initialised successfully.");
             AL.info("| ------------------------------------------- |");
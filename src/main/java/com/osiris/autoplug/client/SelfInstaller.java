@@ -21,6 +21,87 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
 
 public class SelfInstaller {
+    /**
+     * Appended to the name of the installed jar to get the name of the staged update jar,
+     * which is located next to the installed jar.
+     */
+    public static final String STAGED_SUFFIX = ".update";
+    /**
+     * How often to check if the installed jar is still in use,
+     * before giving up on installing the staged jar.
+     */
+    int maxInstallAttempts = 10;
+    long msBetweenInstallAttempts = 1000;
+
+    @NotNull
+    public static File getStagedJar(@NotNull File installedJar) {
+        return new File(installedJar.getAbsolutePath() + STAGED_SUFFIX);
+    }
+
+    public static boolean isStagedJar(@NotNull File jar) {
+        return jar.getName().endsWith(STAGED_SUFFIX);
+    }
+
+    /**
+     * Replaces the installed jar with the already verified staged jar
+     * and starts it. Does not return on success. <br>
+     * On most systems the running jar can be renamed over directly,
+     * otherwise (Windows) the staged jar is started instead, which then
+     * installs itself via {@link #installStagedUpdateAndStartIt(File)} once this jar is closed.
+     */
+    public void swapStagedUpdateAndRestart(@NotNull File installedJar) throws Exception {
+        File stagedJar = getStagedJar(installedJar);
+        try {
+            Files.move(stagedJar.toPath(), installedJar.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            startJarFromPath(installedJar, installedJar.getParentFile());
+        } catch (IOException e) {
+            // Installed jar is locked, since it's running
+            startJarFromPath(stagedJar, installedJar.getParentFile());
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Called when the staged jar was started (see {@link #swapStagedUpdateAndRestart(File)}).
+     * Waits until the installed jar is not in use anymore, replaces it atomically and starts it.
+     * The left over staged jar gets deleted by the installed jar at startup.
+     * If the installed jar could not be replaced, the old jar is not started
+     * and the staged jar is kept, so that the update can be retried.
+     *
+     * @param stagedJar the currently running jar.
+     * @throws Exception if the installed jar was still in use after all attempts, or couldn't be replaced.
+     */
+    public void installStagedUpdateAndStartIt(@NotNull File stagedJar) throws Exception {
+        String name = stagedJar.getName();
+        File installedJar = new File(stagedJar.getParentFile(), name.substring(0, name.length() - STAGED_SUFFIX.length()));
+        File tmp = new File(installedJar.getAbsolutePath() + ".tmp");
+        System.out.println("Installing update for jar file: '" + installedJar + "'...");
+        boolean isInstalled = false;
+        for (int i = 1; i <= maxInstallAttempts; i++) {
+            try {
+                if (!installedJar.exists() || !isFileInUse(installedJar)) {
+                    // Copy, since this jar is running, then rename to never leave a partially written jar behind
+                    Files.copy(stagedJar.toPath(), tmp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    Files.move(tmp.toPath(), installedJar.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    isInstalled = true;
+                    break;
+                }
+            } catch (Exception e) {
+                if (i == maxInstallAttempts) {
+                    tmp.delete();
+                    throw e;
+                }
+            }
+            if (i < maxInstallAttempts) Thread.sleep(msBetweenInstallAttempts);
+        }
+        if (!isInstalled)
+            throw new Exception("Self-Update failed! Cause: The installed jar '" + installedJar + "' was still in use after " + maxInstallAttempts + " attempts." +
+                    " Make sure the previous AutoPlug process exited and start '" + stagedJar.getName() + "' to retry.");
+        System.out.println("Successfully installed update!");
+        startJarFromPath(installedJar, installedJar.getParentFile());
+        System.exit(0);
+    }
+
 
     /**
      * Note that this RELIES on running this jar via a start script that ends with "pause"
@@ -79,11 +160,13 @@ public class SelfInstaller {
         // Note: Deletion of the current jar and the copy jar are done
         // at startup.
         System.out.println("Installing update for jar file: '" + oldAutoPlugJar + "'...");
+        boolean isInstalled = false;
         for (int i = 1; i < 11; i++) {
             try {
                 if (!isFileInUse(oldAutoPlugJar)) {
                     System.out.println("Old jar is not in use. Installing update...");
                     Files.copy(copyJar.toPath(), oldAutoPlugJar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    isInstalled = true;
                     break;
                 }
             } catch (Exception e) {
@@ -93,6 +176,9 @@ public class SelfInstaller {
             }
             Thread.sleep(1000);
         }
+        if (!isInstalled)
+            throw new Exception("Self-Update failed! Cause: The old jar '" + oldAutoPlugJar + "' was still in use after 10 attempts." +
+                    " Make sure the previous AutoPlug process exited and restart AutoPlug to retry.");
         System.out.println("Successfully installed update!");
         // Start that updated old jar and close this one
         startJarFromPath(oldAutoPlugJar, oldAutoPlugJar.getParentFile());
@@ -14,7 +14,9 @@ import com.osiris.autoplug.client.configs.UpdaterConfig;
 import com.osiris.autoplug.client.managers.FileManager;
 import com.osiris.autoplug.client.network.online.connections.ConAutoPlugConsoleSend;
 import com.osiris.autoplug.client.tasks.BeforeServerStartupTasks;
+import com.osiris.autoplug.client.tasks.PreparedRestart;
 import com.osiris.autoplug.client.utils.*;
+import com.osiris.autoplug.client.utils.Threads;
 import com.osiris.autoplug.client.utils.io.AsyncInputStream;
 import com.osiris.dyml.SmartString;
 import com.osiris.dyml.YamlSection;
@@ -31,19 +33,39 @@ import org.jetbrains.annotations.Nullable;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 
 public final class Server {
 
     private static final AtomicBoolean isKill = new AtomicBoolean(false);
+    /**
+     * True while {@link #stop()} is waiting for the server to exit,
+     * to not mistake a non-zero exit code caused by stopping for a crash.
+     */
+    private static final AtomicBoolean isStopping = new AtomicBoolean(false);
+    /**
+     * Notified directly (from the servers' exit-watcher thread) once the server process exited,
+     * after the built-in crash detection and restart-on-crash handling.
+     */
+    public static final List<ExitListener> exitListeners = new CopyOnWriteArrayList<>();
+    /**
+     * Notified of each line of the servers' output, for all started server processes.
+     */
+    public static final List<Consumer<String>> outputListeners = new CopyOnWriteArrayList<>();
     @Nullable
     public static AsyncInputStream ASYNC_SERVER_IN;
     private static Process process;
-    private static Thread threadServerAliveChecker;
+    /**
+     * Completed with the exit code once the current {@link #process} exited.
+     */
+    private static CompletableFuture<Integer> processExit = CompletableFuture.completedFuture(0);
     private static boolean colorServerLog;
 
     public static File getServerExecutable() throws NotLoadedException, YamlReaderException, YamlWriterException, IOException, IllegalKeyException, DuplicateKeyException, IllegalListException {
@@ -109,19 +131,36 @@ public final class Server {
             }
 
             if (isRunning()) throw new Exception("Server already running!");
+            Profiler.beginStartup();
+
+            // Install updates that were staged while the server was running
+            boolean isPrepared;
+            try (Profiler.Span ignored = Profiler.start("init", "Install staged updates")) {
+                isPrepared = PreparedRestart.applyBeforeStart();
+            }
 
             // Runs all processes before starting the server
-            new BeforeServerStartupTasks();
+            BeforeServerStartupTasks tasks;
+            try (Profiler.Span ignored = Profiler.start("init", "Pre-startup tasks")) {
+                tasks = new BeforeServerStartupTasks(isPrepared);
+            }
 
             // Find server jar
-            File serverExe = getServerExecutable();
+            File serverExe;
+            try (Profiler.Span ignored = Profiler.start("init", "Find server executable")) {
+                serverExe = getServerExecutable();
+            }
             if (serverExe == null || !serverExe.exists())
                 throw new Exception("Failed to find your server executable! " +
                         "Please check your config, you may need to specify its name/path! " +
                         "Searched dir: '" + GD.WORKING_DIR + "'");
 
             AL.info("Starting server: " + serverExe.getName());
-            createProcess();
+            try (Profiler.Span ignored = Profiler.start("init", "Create server process")) {
+                createProcess();
+            }
+            Metrics.SERVER_STARTS.increment();
+            Profiler.endStartup(tasks.getCriticalPath());
             AL.debug(Server.class, "process: " + process);
             AL.debug(Server.class, "ASYNC_SERVER_IN: " + ASYNC_SERVER_IN);
         } catch (Exception e) {
@@ -132,6 +171,7 @@ public final class Server {
     public static void restart() {
         //Before starting make backups and check for updates
         AL.info("Restarting server...");
+        Metrics.SERVER_RESTARTS.increment();
         try {
             stop();
             start();
@@ -156,23 +196,20 @@ public final class Server {
                 AL.warn("No stop command provided in " + new UtilsLists().toString(stopCommand.getKeys()));
                 return;
             }
-            for (SmartString v : values) {
-                AL.debug(Server.class, "Stopping server with command: \"" + v.asString() + "\"");
-                submitCommand(v.asString());
-            }
-            int maxSeconds = 60 * 10;
-            int seconds = 0;
-            boolean inKillMode = false;
-            while (Server.isRunning()) {
-                Thread.sleep(1000);
-                seconds++;
-                if (seconds >= maxSeconds) {
-                    if (inKillMode)
-                        throw new IOException("Failed to stop and kill server (waited 20 minutes in total).");
-                    inKillMode = true;
+            // Set before sending the command, otherwise a fast exit with a non-zero code counts as crash
+            isStopping.set(true);
+            try {
+                for (SmartString v : values) {
+                    AL.debug(Server.class, "Stopping server with command: \"" + v.asString() + "\"");
+                    submitCommand(v.asString());
+                }
+                if (!awaitExit(10, TimeUnit.MINUTES)) {
                     AL.warn("10 minutes have passed and the server is still running, killing it...");
-                    kill();
+                    if (!kill())
+                        throw new IOException("Failed to stop and kill server (waited 20 minutes in total).");
                 }
+            } finally {
+                isStopping.set(false);
             }
 
             ASYNC_SERVER_IN = null;
@@ -191,22 +228,15 @@ public final class Server {
         try {
 
             if (isRunning()) {
-                process.destroyForcibly().waitFor();
+                process.destroyForcibly();
             } else {
                 AL.warn("Server is not running!");
             }
 
-            int maxSeconds = 60 * 10;
-            int seconds = 0;
-            while (Server.isRunning()) {
-                Thread.sleep(1000);
-                seconds++;
-                if (seconds >= maxSeconds) {
-                    throw new RuntimeException("Failed to kill server (waited 10 minutes).");
-                }
-            }
+            if (!awaitExit(10, TimeUnit.MINUTES))
+                throw new RuntimeException("Failed to kill server (waited 10 minutes).");
             AL.info("Server killed!");
-            //isKill.set(false); // Gets set to false in thread alive checker
+            //isKill.set(false); // Gets set to false in exit watcher
             return true;
         } catch (InterruptedException e) {
             AL.warn(e);
@@ -219,6 +249,49 @@ public final class Server {
         return process != null && process.isAlive();
     }
 
+    /**
+     * @return the process id of the running server, or -1 if not running or unknown.
+     */
+    public static long getPid() {
+        Process process = Server.process;
+        if (process == null || !process.isAlive()) return -1;
+        try { // Process.pid() requires Java 9
+            return (long) Process.class.getMethod("pid").invoke(process);
+        } catch (Exception ignored) {
+        }
+        try { // Java 8 on Unix
+            Field pid = process.getClass().getDeclaredField("pid");
+            pid.setAccessible(true);
+            return pid.getInt(process);
+        } catch (Exception ignored) {
+        }
+        return -1;
+    }
+
+    /**
+     * Blocks until the server process exited, or the timeout elapsed.
+     * Returns directly if the server is not running.
+     *
+     * @return true if the server is not running anymore.
+     */
+    public static boolean awaitExit(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            processExit.get(timeout, unit);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) { // Not expected, since never completed exceptionally
+            return !isRunning();
+        }
+    }
+
+    /**
+     * Returns a future that completes with the exit code, once the current server process exited.
+     */
+    public static CompletableFuture<Integer> onExit() {
+        return processExit;
+    }
+
     private static void createProcess() throws Exception {
         GeneralConfig config = new GeneralConfig();
         String startCommand = config.server_start_command.asString();
@@ -299,6 +372,7 @@ public final class Server {
         //processBuilder.inheritIO(); // BACK TO PIPED, BECAUSE OF MASSIVE ERRORS LIKE COMMANDS NOT BEEING EXECUTED, which affects the restarter
         processBuilder.redirectInput(ProcessBuilder.Redirect.PIPE);
         processBuilder.redirectOutput(ProcessBuilder.Redirect.PIPE);
+        isKill.set(false);
         process = processBuilder.start();
 
         // Server OutputStream writes to our process InputStream, thus we can read its output:
@@ -328,45 +402,61 @@ public final class Server {
                 AL.warn(e);
             }
         });
+        ASYNC_SERVER_IN.listeners.add(line -> {
+            for (Consumer<String> listener : outputListeners) {
+                listener.accept(line);
+            }
+        });
 
-        // Also create a thread which checks if the server is running or not.
-        if (threadServerAliveChecker == null) {
-            threadServerAliveChecker = new Thread(() -> {
+        // Wait for the process to exit in a separate thread (Process.onExit() requires Java 9),
+        // which gets notified directly by the OS, instead of polling isRunning().
+        Process thisProcess = process;
+        CompletableFuture<Integer> thisProcessExit = new CompletableFuture<>();
+        processExit = thisProcessExit;
+        Threads.start("Server-Exit-Watcher", () -> {
+            int exitCode;
+            while (true) {
                 try {
-                    boolean lastIsRunningCheck = false;
-                    boolean currentIsRunningCheck;
-                    while (true) {
-                        Thread.sleep(2000);
-                        currentIsRunningCheck = Server.isRunning();
-                        if (!currentIsRunningCheck && lastIsRunningCheck) {
-                            AL.info("Server was stopped.");
-                            if (new GeneralConfig().autoplug_auto_stop.asBoolean()) {
-                                AL.info("Stopping AutoPlug too, since 'autoplug-stop' is enabled.");
-                                System.exit(0);
-                            } else {
-                                AL.info("To stop AutoPlug too, enter '.stop both'.");
-                            }
-
-                            if (process.exitValue() != 0) {
-                                if (isKill.get()) {
-                                    isKill.set(false);
-                                } else {
-                                    AL.warn("Server crash was detected! Exit-Code should be 0, but is '" + process.exitValue() + "'!");
-                                    if (new GeneralConfig().server_restart_on_crash.asBoolean()) {
-                                        AL.info("Restart on crash is enabled, thus the server is restarting...");
-                                        Server.start();
-                                    }
-                                }
-
-                            }
-                        }
-                        lastIsRunningCheck = currentIsRunningCheck;
-                    }
+                    exitCode = thisProcess.waitFor();
+                    break;
+                } catch (InterruptedException ignored) {
+                }
+            }
+            // Determine this before completing, since stop() resets isStopping once completed
+            boolean isCrash = exitCode != 0 && !isKill.getAndSet(false) && !isStopping.get();
+            thisProcessExit.complete(exitCode);
+            onProcessExit(exitCode, isCrash);
+        });
+    }
+
+    private static void onProcessExit(int exitCode, boolean isCrash) {
+        try {
+            AL.info("Server was stopped.");
+            if (isCrash) {
+                Metrics.SERVER_CRASHES.increment();
+                AL.warn("Server crash was detected! Exit-Code should be 0, but is '" + exitCode + "'!");
+            }
+            for (ExitListener listener : exitListeners) {
+                try {
+                    listener.onExit(exitCode, isCrash);
                 } catch (Exception e) {
-                    AL.error("Thread for checking if Server is alive was stopped due to an error.", e);
+                    AL.warn(e);
                 }
-            });
-            threadServerAliveChecker.start();
+            }
+
+            if (new GeneralConfig().autoplug_auto_stop.asBoolean()) {
+                AL.info("Stopping AutoPlug too, since 'autoplug-stop' is enabled.");
+                System.exit(0);
+            } else {
+                AL.info("To stop AutoPlug too, enter '.stop both'.");
+            }
+
+            if (isCrash && new GeneralConfig().server_restart_on_crash.asBoolean()) {
+                AL.info("Restart on crash is enabled, thus the server is restarting...");
+                Server.start();
+            }
+        } catch (Exception e) {
+            AL.warn("Error while handling server exit.", e);
         }
     }
 
@@ -405,6 +495,18 @@ public final class Server {
         }
     }
 
+    /**
+     * Listener for server process exits, see {@link #exitListeners}.
+     */
+    public interface ExitListener {
+        /**
+         * @param exitCode exit code of the server process.
+         * @param isCrash  true if the server exited with a non-zero exit code,
+         *                 without being stopped or killed by AutoPlug.
+         */
+        void onExit(int exitCode, boolean isCrash) throws Exception;
+    }
+
     public static String getMCVersion() throws Exception {
         String mcVersion = new GeneralConfig().server_version.asString();
         if (mcVersion == null) mcVersion = new UtilsMinecraft().getInstalledVersion();
@@ -27,6 +27,11 @@ public class GeneralConfig extends MyYaml {
     public YamlSection autoplug_start_on_boot;
     public YamlSection autoplug_system_tray;
     public YamlSection autoplug_system_tray_theme;
+    public YamlSection autoplug_hardware_sampler_interval;
+    public YamlSection autoplug_virtual_threads;
+    public YamlSection autoplug_metrics;
+    public YamlSection autoplug_metrics_host;
+    public YamlSection autoplug_metrics_port;
 
     public YamlSection server_key;
     public YamlSection server_version;
@@ -114,6 +119,20 @@ public class GeneralConfig extends MyYaml {
         autoplug_system_tray = put(name, "autoplug", "system-tray", "enable").setDefValues("false");
         autoplug_system_tray_theme = put(name, "autoplug", "system-tray", "theme").setDefValues("light")
                 .setComments("Select between: light, dark and darcula.");
+        autoplug_hardware_sampler_interval = put(name, "autoplug", "hardware-sampler-interval").setDefValues("5").setComments(
+                "Time in seconds between measuring the CPU and memory usage of this machine and the server process.",
+                "The measurements are shared by AutoPlug-Web, the metrics and the '.server info' command.");
+        autoplug_virtual_threads = put(name, "autoplug", "virtual-threads").setDefValues("false").setComments(
+                "If true and running on Java 21 or newer, tasks that mostly wait for the network or other processes",
+                "(update checks, connections, console readers, SSH sessions) run on virtual threads, which need a lot less memory.",
+                "On older Java versions the update checks run on a limited amount of regular threads instead.",
+                "Requires a restart of AutoPlug.");
+        autoplug_metrics = put(name, "autoplug", "metrics", "enable").setDefValues("false").setComments(
+                "Serves metrics about AutoPlug (update checks, downloads, backups, restarts, memory, etc.)",
+                "in the Prometheus text format at http://<host>:<port>/metrics.");
+        autoplug_metrics_host = put(name, "autoplug", "metrics", "host").setDefValues("127.0.0.1").setComments(
+                "The address to bind to. Keep the default to only allow access from this machine.");
+        autoplug_metrics_port = put(name, "autoplug", "metrics", "port").setDefValues("9940");
 
         put(name, "server").setCountTopLineBreaks(1);
         server_key = put(name, "server", "key").setDefValues("INSERT_KEY_HERE").setComments(
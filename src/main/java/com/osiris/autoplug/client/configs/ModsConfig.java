@@ -54,11 +54,12 @@ public class ModsConfig extends MyYaml {
                         "alternatives.jenkins.project-url: Example: 'https://ci.ender.zone/job/EssentialsX/'\n" +
                         "alternatives.jenkins.artifact-name: Example: 'EssentialsX' (wrong: 'EssentialsX-1.7.23.jar', we discard the version info).\n" +
                         "alternatives.jenkins.build-id: The currently installed build identifier. Don't touch this.\n" +
-                        "If a modrinth-id is not given, AutoPlug will try and find the matching id by using its unique search-algorithm (if it succeeds the modrinth-id gets set, else it stays 0).\n" +
+                        "If a modrinth-id is not given, AutoPlug will try and find the matching id by using its unique search-algorithm (if it succeeds the id is remembered in /autoplug/system/update-state.log, this file is only for your values).\n" +
                         "If both (bukkit and modrinth) ids are provided, the modrinth-id will be used.\n" +
                         "The configuration for uninstalled mods wont be removed from this file, but they are automatically excluded from future checks (the exclude value is ignored).\n" +
                         "If multiple authors are provided, only the first author will be used by the search-algorithm.\n" +
-                        "Note: Remember, that the values for exclude, version and author get overwritten if new data is available.\n");
+                        "Installed and latest versions, found ids and check results are stored in /autoplug/system/update-state.log, values set in here take precedence.\n" +
+                        "Note: Remember, that the values for exclude and author get overwritten if new data is available.\n");
 
         keep_removed = put(name, "general", "keep-removed").setDefValues("true")
                 .setComments("Keep the mods entry in this file even after its removal/uninstallation?");
@@ -49,12 +49,10 @@ public class PluginsConfig extends MyYaml {
                         "Example configuration for the EssentialsX plugin with each setting explained:\n" +
                         "  Essentials: \n" +
                         "    exclude: false #### If a name/author/version is missing, the plugin gets excluded automatically\n " +
-                        "    version: 1434 #### Gets fetched from 'plugin.yml' and refreshed after each check\n " +
-                        "    latest-version: 1434 #### Gets refreshed after each check\n " +
                         "    author: Zenexer #### Gets fetched from 'plugin.yml' and refreshed after each check #### If multiple names are provided, only the first author will be used.\n" +
                         "    #### Note that only one id is necessary, provided both for demonstration purposes.\n" +
-                        "    spigot-id: 871 #### Gets found by AutoPlugs' smart search algorithm and set in a check or can be set by you #### You can find it directly in the url. Example URLs id is 78414. Example URL: https://www.spigotmc.org/resources/autoplug-automatic-plugin-updater.78414/\n " +
-                        "    bukkit-id: 93271 #### Gets found by AutoPlugs' smart search algorithm and set in a check or can be set by you #### Is the 'Project-ID' and can be found on the plugins bukkit site inside of the 'About' box at the right.\n " +
+                        "    spigot-id: 871 #### Gets found by AutoPlugs' smart search algorithm in a check or can be set by you #### You can find it directly in the url. Example URLs id is 78414. Example URL: https://www.spigotmc.org/resources/autoplug-automatic-plugin-updater.78414/\n " +
+                        "    bukkit-id: 93271 #### Gets found by AutoPlugs' smart search algorithm in a check or can be set by you #### Is the 'Project-ID' and can be found on the plugins bukkit site inside of the 'About' box at the right.\n " +
                         "    custom-check-url: #### Must link to a json file which contains a list/array of plugin versions where each item/object contains specific keys for version (\"version_number\", \"version\") and download URL (\"download_url\", \"download\", \"file\", \"download_file\").\n" +
                         "    custom-download-url: #### Must be a static url to the plugins latest jar file.\n" +
                         "    ignore-content-type: false #### When downloading a file the file host is asked for the file-type which must be .jar, when true this check is not performed.\n" +
@@ -67,6 +65,7 @@ public class PluginsConfig extends MyYaml {
                         "        project-url: https://ci.ender.zone/job/EssentialsX/ #### Provided by you ### Note that each plugins jenkins url looks different.\n" +
                         "        artifact-name: EssentialsX #### Provided by you #### Wrong: 'EssentialsX-1.7.23.jar', we discard the version information.\n" +
                         "        build-id: 1434\n #### The currently installed build identifier. Don't touch this." +
+                        "Installed and latest versions, found ids and check results are stored in /autoplug/system/update-state.log, values set in here take precedence.\n" +
                         "The configuration for uninstalled plugins wont be removed from this file, but they are automatically excluded from future checks (the exclude value is ignored).\n" +
                         "Note for plugin devs: You can add your spigot/bukkit-id to your plugin.yml file. For more information visit " + GD.OFFICIAL_WEBSITE + "faq/2\n");
 
@@ -37,6 +37,9 @@ public class RestarterConfig extends MyYaml {
     public YamlSection c_restarter_cron;
     public YamlSection c_restarter_commands;
 
+    public YamlSection prepared_restart_enabled;
+    public YamlSection prepared_restart_minutes;
+
 
     public RestarterConfig() throws IOException, DuplicateKeyException, YamlReaderException, IllegalListException, YamlWriterException, NotLoadedException, IllegalKeyException {
         super(System.getProperty("user.dir") + "/autoplug/restarter.yml");
@@ -122,6 +125,16 @@ public class RestarterConfig extends MyYaml {
                 getAllInEdit().add(m); // So that these don't get marked as deprecated
         }
 
+        put(name, "prepared-restart").setCountTopLineBreaks(1);
+        prepared_restart_enabled = put(name, "prepared-restart", "enable").setDefValues("false").setComments(
+                "If enabled, the updaters (java, server, plugins and mods) check for and download updates while the server is still running,\n" +
+                        "before a scheduled restart of the schedulers above. The updates get installed once the server was stopped,\n" +
+                        "thus the server is only down for stopping, installing and starting.\n" +
+                        "The self-updater is not part of this and runs at the next regular start.");
+        prepared_restart_minutes = put(name, "prepared-restart", "minutes-before").setDefValues("5").setComments(
+                "Start preparing this many minutes before the scheduled restart.\n" +
+                        "If 0 preparing starts together with the restart countdown.");
+
         save();
         unlockFile();
     }
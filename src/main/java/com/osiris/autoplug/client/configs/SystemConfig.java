@@ -23,6 +23,8 @@ public class SystemConfig extends MyYaml {
     public YamlSection autoplug_web_ssl;
     public YamlSection autoplug_web_ip;
     public YamlSection autoplug_web_port;
+    public YamlSection autoplug_web_multiplex;
+    public YamlSection autoplug_web_compact_results;
     public YamlSection autoplug_plugin_key;
     public YamlSection is_autostart_registered;
 
@@ -55,6 +57,14 @@ public class SystemConfig extends MyYaml {
         autoplug_web_ip = put(name, "autoplug-web-ip").setDefValues("144.91.78.158").setComments("Set to localhost to test on the local server.",
                 "Otherwise set to 144.91.78.158 or autoplug.one to connect with the default production server (remember to enable autoplug-web-ssl in this case too).");
         autoplug_web_port = put(name, "autoplug-web-port").setDefValues("35555");
+        autoplug_web_multiplex = put(name, "autoplug-web-multiplex").setDefValues("false").setComments(
+                "If true, all secondary connections (online console, file manager etc.) are carried as channels",
+                "over a single authenticated connection, instead of each opening its own socket.",
+                "Only enable this if the AutoPlug-Web server you connect to supports it.");
+        autoplug_web_compact_results = put(name, "autoplug-web-compact-results").setDefValues("false").setComments(
+                "If true, update check results are sent as a single compressed batch, that only contains",
+                "the plugins that changed since the last report, instead of all details of all plugins.",
+                "Only enable this if the AutoPlug-Web server you connect to supports it.");
 
         autoplug_plugin_key = put(name, "autoplug-plugin-key");
         if (autoplug_plugin_key.asString() == null)
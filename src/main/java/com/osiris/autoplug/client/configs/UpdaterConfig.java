@@ -9,6 +9,8 @@
 package com.osiris.autoplug.client.configs;
 
 import com.osiris.autoplug.client.Main;
+import com.osiris.autoplug.client.tasks.updater.ArtifactCache;
+import com.osiris.autoplug.client.tasks.updater.Mirror;
 import com.osiris.autoplug.client.utils.UpdateCheckerThread;
 import com.osiris.dyml.Yaml;
 import com.osiris.dyml.YamlSection;
@@ -22,6 +24,19 @@ public class UpdaterConfig extends MyYaml {
     public YamlSection global_cool_down;
     public YamlSection global_recurring_checks;
     public YamlSection global_recurring_checks_intervall;
+    public YamlSection global_adaptive_checks;
+    public YamlSection global_adaptive_checks_min_interval;
+    public YamlSection global_adaptive_checks_max_interval;
+    public YamlSection global_delta_updates;
+    public YamlSection global_artifact_cache;
+    public YamlSection global_artifact_cache_path;
+    public YamlSection global_artifact_cache_max_url_age;
+    public YamlSection global_mirror_url;
+    public YamlSection global_mirror_hosts;
+    public YamlSection global_mirror_server;
+    public YamlSection global_mirror_server_host;
+    public YamlSection global_mirror_server_port;
+    public YamlSection global_mirror_server_ttl;
 
     public YamlSection self_updater;
     public YamlSection self_updater_profile;
@@ -68,6 +83,8 @@ public class UpdaterConfig extends MyYaml {
         super(System.getProperty("user.dir") + "/autoplug/updater.yml");
 
         addSingletonConfigFileEventListener(e -> {
+            ArtifactCache.reset();
+            Mirror.reset();
             if (Main.UPDATE_CHECKER_THREAD != null) Main.UPDATE_CHECKER_THREAD.isRunning = false;
             if (global_recurring_checks.asBoolean()) {
                 Main.UPDATE_CHECKER_THREAD = new UpdateCheckerThread();
@@ -106,12 +123,56 @@ public class UpdaterConfig extends MyYaml {
         put(name, "global-recurring-checks").setComments("If enabled runs an additional thread that checks for updates regularly.",
                 "Not recommended to enable, unless you are running AutoPlug as a background service.",
                 "When running AutoPlug as a server-wrapper then update checks already are",
-                "done automatically at server-restarts via the daily or custom server-restarter (see restarter.yml for more info).");
+                "done automatically at server-restarts via the daily or custom server-restarter (see restarter.yml for more info).",
+                "While the server is running, updates are only downloaded and installed at the next restart, which then is faster.",
+                "With global-adaptive-checks enabled, plugins and mods that are due are also checked in between.");
         global_recurring_checks = put(name, "global-recurring-checks", "enable").setDefValues("false");
         global_recurring_checks_intervall = put(name, "global-recurring-checks", "intervall").setDefValues("12")
                 .setComments("Intervall in hours between each update check.",
                         "Note that the value cannot be below 12h. This is done to protect the underlying online services from spam.");
         if (global_recurring_checks_intervall.asInt() < 12) global_recurring_checks_intervall.setValues("12");
+        put(name, "global-adaptive-checks").setComments(
+                "If enabled, each plugin and mod has its own time for its next update check, instead of all being checked at each run.",
+                "Plugins and mods that released an update recently are checked more often than ones that didn't for a long time.",
+                "The plugins and mods updaters then also run while the global-cool-down is active, but only check what is due.",
+                "Plugins and mods with errors or available updates are always checked. Use '.check plugins' to check all.");
+        global_adaptive_checks = put(name, "global-adaptive-checks", "enable").setDefValues("false");
+        global_adaptive_checks_min_interval = put(name, "global-adaptive-checks", "min-interval").setDefValues("1").setComments(
+                "Min time in hours between checks of the same plugin or mod.");
+        global_adaptive_checks_max_interval = put(name, "global-adaptive-checks", "max-interval").setDefValues("24").setComments(
+                "Max time in hours between checks of the same plugin or mod.");
+        global_delta_updates = put(name, "global-delta-updates").setDefValues("false").setComments(
+                "If enabled, the self, java and server updaters first ask the update source for a patch against the installed file",
+                "and only download the full file if there is none. Saves a lot of bandwidth for large files like server jars.",
+                "Note that the official update sources do not provide patches, only a mirror (like another AutoPlug instance) does.",
+                "Patched files are verified via their hash, thus enabling this is safe.");
+        put(name, "global-artifact-cache").setComments(
+                "Download cache shared by all AutoPlug instances on this machine, that have this enabled and the same path set.",
+                "The first instance downloads an update and the others link it from the cache (or copy it, if the cache is on another drive),",
+                "which saves bandwidth and disk space if you run multiple servers with the same plugins, server software or Java.");
+        global_artifact_cache = put(name, "global-artifact-cache", "enable").setDefValues("false");
+        global_artifact_cache_path = put(name, "global-artifact-cache", "path").setComments(
+                "Leave empty to use the default path: <user-home>/.autoplug/artifact-cache");
+        global_artifact_cache_max_url_age = put(name, "global-artifact-cache", "max-url-age").setDefValues("12").setComments(
+                "Time in hours a download-url is served from the cache, if the version it delivers is not known.",
+                "Needed, since some download-urls always point to the latest version.",
+                "Downloads of a known version or hash (most updates) do not expire.");
+        put(name, "global-mirror").setComments(
+                "Lets multiple AutoPlug instances on the same network share update checks and downloads.",
+                "One instance enables the mirror-server, the others set its url, for example: http://192.168.1.10:9941",
+                "If the mirror is not reachable, the update sources are used directly.");
+        global_mirror_url = put(name, "global-mirror", "url").setComments(
+                "Url of the AutoPlug instance running the mirror-server. Leave empty to not use a mirror.");
+        global_mirror_hosts = put(name, "global-mirror", "hosts").setDefValues(Mirror.DEFAULT_HOSTS.toArray(new String[0])).setComments(
+                "Hosts of the update sources that are requested via the mirror.",
+                "On the mirror-server these are the only hosts it requests, so it cannot be used as an open proxy.");
+        global_mirror_server = put(name, "global-mirror", "server", "enable").setDefValues("false");
+        global_mirror_server_host = put(name, "global-mirror", "server", "host").setDefValues("0.0.0.0");
+        global_mirror_server_port = put(name, "global-mirror", "server", "port").setDefValues("9941");
+        global_mirror_server_ttl = put(name, "global-mirror", "server", "ttl").setDefValues("10").setComments(
+                "Time in minutes responses (like update-checks) are served from the mirrors' cache.",
+                "Downloads requested by AutoPlug contain the expected version and are cached until not used for 30 days,",
+                "since their content does not change, even if the download-url always points to the latest version.");
 
         put(name, "self-updater").setCountTopLineBreaks(1);
         self_updater = put(name, "self-updater", "enable").setDefValues("true").setComments(
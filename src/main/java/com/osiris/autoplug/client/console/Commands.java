@@ -34,7 +34,6 @@ import com.osiris.autoplug.client.Server;
 import com.osiris.autoplug.client.configs.SSHConfig;
 import com.osiris.autoplug.client.configs.UpdaterConfig;
 import com.osiris.autoplug.client.managers.FileManager;
-import com.osiris.autoplug.client.network.online.connections.ConSendPrivateDetails;
 import com.osiris.autoplug.client.network.online.connections.ConSendPublicDetails;
 import com.osiris.autoplug.client.tasks.BeforeServerStartupTasks;
 import com.osiris.autoplug.client.tasks.SSHManager;
@@ -52,6 +51,8 @@ import com.osiris.autoplug.client.tasks.updater.search.SearchResult;
 import com.osiris.autoplug.client.tasks.updater.self.TaskSelfUpdater;
 import com.osiris.autoplug.client.tasks.updater.server.TaskServerUpdater;
 import com.osiris.autoplug.client.utils.GD;
+import com.osiris.autoplug.client.utils.HardwareSampler;
+import com.osiris.autoplug.client.utils.Profiler;
 import com.osiris.autoplug.client.utils.UtilsFile;
 import com.osiris.autoplug.client.utils.UtilsMinecraft;
 import com.osiris.autoplug.client.utils.tasks.MyBThreadManager;
@@ -103,6 +104,7 @@ public final class Commands {
                     AL.info(".backup | Ignores cool-down and does an backup (.b)");
                     AL.info(".env info | Shows environment details (.ei)");
                     AL.info(".find java | Finds all Java installations and lists current Javas binaries (.fj)");
+                    AL.info(".profile | Shows where the time of the last server startup went (.pr)");
                     AL.info("");
                     AL.info("Server related commands:");
                     AL.info(".start | Starts the server (.s)");
@@ -179,7 +181,6 @@ public final class Commands {
                 } else if (command.equals(".server info") || command.equals(".si")) {
                     AL.info("AutoPlug-Version: " + GD.VERSION);
                     ConSendPublicDetails conPublic = Main.CON.CON_PUBLIC_DETAILS;
-                    ConSendPrivateDetails conPrivate = Main.CON.CON_PRIVATE_DETAILS;
                     AL.info("Running: " + Server.isRunning());
                     String ip;
                     try (BufferedReader in = new BufferedReader(new InputStreamReader(new URL("http://checkip.amazonaws.com").openStream()))) {
@@ -201,14 +202,8 @@ public final class Commands {
                             AL.info("Ping result: " + conPublic.mineStat.pingResult.name());
                         } else
                             AL.info("Ping result: -");
-                        AL.info("Details from " + conPrivate.getClass().getSimpleName() + ":");
-                        AL.info("CPU usage: " + conPrivate.cpuUsage + "%");
-                        AL.info("CPU current: " + conPrivate.cpuSpeed + " GHz");
-                        AL.info("CPU max: " + conPrivate.cpuMaxSpeed + " GHz");
-                        AL.info("MEM free: " + conPrivate.memAvailable + " Gb");
-                        AL.info("MEM used: " + conPrivate.memUsed + " Gb");
-                        AL.info("MEM total: " + conPrivate.memTotal + " Gb");
                     }
+                    logHardware();
                     return true;
                 } else if (command.equals(".env info") || command.equals(".ei")) {
 
@@ -232,6 +227,21 @@ public final class Commands {
                         AL.info(key + ": " + value);
                     }
 
+                    AL.info("###################################################");
+                    AL.info("HARDWARE:");
+                    AL.info("###################################################");
+                    logHardware();
+
+                    return true;
+                } else if (command.equals(".profile") || command.equals(".pr")) {
+                    String summary = Profiler.getLastStartupSummary();
+                    if (summary == null) {
+                        AL.info("There was no server startup yet.");
+                        return true;
+                    }
+                    for (String line : summary.split("\n")) {
+                        AL.info(line);
+                    }
                     return true;
                 } else if (command.equals(".find java") || command.equals(".fj")) {
                     Path directoryPath = new File(System.getProperty("java.home")).toPath();
@@ -285,12 +295,16 @@ public final class Commands {
                     return true;
                 } else if (command.equals(".check plugins") || command.equals(".cp")) {
                     MyBThreadManager myManager = new UtilsTasks().createManagerAndPrinter();
-                    new TaskPluginsUpdater("PluginsUpdater", myManager.manager).start();
+                    TaskPluginsUpdater task = new TaskPluginsUpdater("PluginsUpdater", myManager.manager);
+                    task.ignoreSchedule = true;
+                    task.start();
                     new UtilsTasks().printResultsWhenDone(myManager.manager);
                     return true;
                 } else if (command.equals(".check mods") || command.equals(".cm")) {
                     MyBThreadManager myManager = new UtilsTasks().createManagerAndPrinter();
-                    new TaskModsUpdater("ModsUpdater", myManager.manager).start();
+                    TaskModsUpdater task = new TaskModsUpdater("ModsUpdater", myManager.manager);
+                    task.ignoreSchedule = true;
+                    task.start();
                     new UtilsTasks().printResultsWhenDone(myManager.manager);
                     return true;
                 } else if (command.startsWith(".install plugin") || command.startsWith(".ip")) {
@@ -332,6 +346,28 @@ public final class Commands {
         }
     }
 
+    private static void logHardware() {
+        HardwareSampler.Snapshot hardware = HardwareSampler.get();
+        if (hardware == HardwareSampler.EMPTY) {
+            AL.info("Hardware is being measured, try again in a few seconds.");
+            return;
+        }
+        float gb = 1073741824.0f;
+        float ghz = 1000000000.0f;
+        AL.info("CPU usage: " + Math.round(hardware.cpuUsage * 100) + "%");
+        AL.info("CPU current: " + hardware.cpuSpeed / ghz + " GHz");
+        AL.info("CPU max: " + hardware.cpuMaxSpeed / ghz + " GHz");
+        AL.info("MEM free: " + hardware.memAvailable / gb + " Gb");
+        AL.info("MEM used: " + hardware.getMemUsed() / gb + " Gb");
+        AL.info("MEM total: " + hardware.memTotal / gb + " Gb");
+        if (hardware.serverPid > 0) {
+            AL.info("Server process: " + hardware.serverPid);
+            AL.info("Server CPU usage: " + Math.round(hardware.serverCpuUsage * 100) + "%");
+            AL.info("Server MEM used: " + hardware.serverMemory / gb + " Gb");
+            AL.info("Server threads: " + hardware.serverThreads);
+        }
+    }
+
     public static List<String> findJavaInstallations() {
         List<String> installations = new ArrayList<>();
 
@@ -14,15 +14,12 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 import static com.osiris.jprocesses2.util.OS.isWindows;
 
@@ -119,12 +116,13 @@ public class FileManager {
     public List<File> serverExecutables(File dir) {
         List<File> files = new ArrayList<>();
         for (File f : dir.listFiles()) {
-            if (f.isFile() && // Can't be directory
-                    !f.getName().toLowerCase().contains("crashhandler") // Avoid unity crash handler exe
-                    && !jarContainsAutoPlugProperties(f) // Can't be AutoPlug.jar
+            // Cheap name checks first, since the AutoPlug.jar check must open the jar (if not cached)
+            if (!f.getName().toLowerCase().contains("crashhandler") // Avoid unity crash handler exe
                     && (f.getName().endsWith(".jar")
                     || f.getName().endsWith(".exe")
                     || (!isWindows && !f.getName().contains("."))) // On Unix binaries/exes names usually don't contain dots
+                    && f.isFile() // Can't be directory
+                    && !jarContainsAutoPlugProperties(f) // Can't be AutoPlug.jar
             ) files.add(f);
         }
         return files;
@@ -259,48 +257,7 @@ public class FileManager {
 
     private boolean jarContainsAutoPlugProperties(File jar) {
         if (!jar.getName().endsWith(".jar")) return false;
-        FileInputStream fis = null;
-        ZipInputStream zis = null;
-        ZipEntry ze = null;
-        try {
-            fis = new FileInputStream(jar);
-            zis = new ZipInputStream(fis);
-            ze = zis.getNextEntry();
-
-            while (ze != null) {
-                if (ze.getName().equals("autoplug.properties")) {
-                    return true;
-                }
-                // Get next file in zip
-                zis.closeEntry();
-                ze = zis.getNextEntry();
-            } // Loop end
-            // Close last ZipEntry
-            zis.closeEntry();
-            zis.close();
-            fis.close();
-        } catch (Exception e) {
-            AL.warn("Failed to get information for: " + jar.getName(), e);
-        } finally {
-            try {
-                if (zis != null && ze != null)
-                    zis.closeEntry();
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-            try {
-                if (zis != null)
-                    zis.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            try {
-                if (fis != null) fis.close();
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
-        return false;
+        return JarProbeCache.isAutoPlugJar(jar);
     }
 
     //Walks through files (skips AutoPlug.jar and all other subdirectories) and finds ALL files
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.managers;
+
+import com.osiris.jlib.logger.AL;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Properties;
+import java.util.zip.ZipFile;
+
+/**
+ * Persisted cache that remembers if a jar contains the autoplug.properties file (thus is an AutoPlug jar).
+ * Entries are keyed by the jars' absolute path, size and last modified time,
+ * thus a changed jar is probed again. <br>
+ * Probing reads the zips' central directory via {@link ZipFile#getEntry(String)}
+ * instead of inflating all entries.
+ */
+public class JarProbeCache {
+    public static final File FILE = new File(System.getProperty("user.dir") + "/autoplug/system/jar-probe-cache.properties");
+    private static final Object LOCK = new Object();
+    @Nullable
+    private static Properties cache;
+
+    /**
+     * @return true if the provided jar contains the autoplug.properties file at its root.
+     */
+    public static boolean isAutoPlugJar(File jar) {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(jar.toPath(), BasicFileAttributes.class);
+        } catch (IOException e) {
+            AL.warn("Failed to get information for: " + jar.getName(), e);
+            return false;
+        }
+        String key = jar.getAbsolutePath() + "|" + attrs.size() + "|" + attrs.lastModifiedTime().toMillis();
+        synchronized (LOCK) {
+            String cached = getCache().getProperty(key);
+            if (cached != null) return Boolean.parseBoolean(cached);
+        }
+        boolean result = containsAutoPlugProperties(jar);
+        synchronized (LOCK) {
+            Properties cache = getCache();
+            // Remove outdated entries of this jar
+            String prefix = jar.getAbsolutePath() + "|";
+            for (String k : cache.stringPropertyNames()) { // Returns a copy, thus safe to remove while iterating
+                if (k.startsWith(prefix)) cache.remove(k);
+            }
+            cache.setProperty(key, String.valueOf(result));
+            save(cache);
+        }
+        return result;
+    }
+
+    private static boolean containsAutoPlugProperties(File jar) {
+        try (ZipFile zip = new ZipFile(jar)) {
+            return zip.getEntry("autoplug.properties") != null;
+        } catch (Exception e) {
+            AL.warn("Failed to get information for: " + jar.getName(), e);
+            return false;
+        }
+    }
+
+    private static Properties getCache() {
+        if (cache == null) {
+            cache = new Properties();
+            if (FILE.exists()) {
+                try (InputStream in = new BufferedInputStream(new FileInputStream(FILE))) {
+                    cache.load(in);
+                } catch (Exception e) {
+                    AL.debug(JarProbeCache.class, "Failed to load jar probe cache, creating new one: " + e.getMessage());
+                    cache.clear();
+                }
+            }
+        }
+        return cache;
+    }
+
+    private static void save(Properties cache) {
+        try {
+            FILE.getParentFile().mkdirs();
+            File tmp = new File(FILE.getAbsolutePath() + ".tmp");
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp))) {
+                cache.store(out, "Cache of AutoPlug jar detection (path|size|last-modified=is-autoplug-jar), safe to delete.");
+            }
+            Files.move(tmp.toPath(), FILE.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (Exception e) {
+            AL.debug(JarProbeCache.class, "Failed to save jar probe cache: " + e.getMessage());
+        }
+    }
+}
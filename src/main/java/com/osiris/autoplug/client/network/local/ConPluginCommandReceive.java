@@ -12,6 +12,7 @@ package com.osiris.autoplug.client.network.local;
 import com.osiris.autoplug.client.Server;
 import com.osiris.autoplug.client.configs.SystemConfig;
 import com.osiris.autoplug.client.console.Commands;
+import com.osiris.autoplug.client.utils.Threads;
 import com.osiris.dyml.exceptions.*;
 import com.osiris.jlib.logger.AL;
 
@@ -74,7 +75,7 @@ public class ConPluginCommandReceive {
                         socket.setSoTimeout(0);
                         AL.info("AutoPlug-Plugin with matching private plugin key connected.");
 
-                        Thread thread = new Thread(() -> {
+                        Thread thread = Threads.newThread("AutoPlug-Plugin-Commands", () -> {
                             try {
                                 InputStream in = socket.getInputStream();
                                 try (BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
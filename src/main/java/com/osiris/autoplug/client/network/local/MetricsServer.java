@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.network.local;
+
+import com.osiris.autoplug.client.utils.HardwareSampler;
+import com.osiris.autoplug.client.utils.Metrics;
+import com.osiris.autoplug.client.utils.Threads;
+import com.sun.net.httpserver.HttpServer;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Serves {@link Metrics#scrape()} at /metrics for Prometheus or similar. <br>
+ * Uses the HTTP server built into the JDK, thus no additional dependencies.
+ */
+public class MetricsServer {
+    @Nullable
+    private static HttpServer server;
+    @Nullable
+    private static ExecutorService executor;
+
+    public static synchronized void start(String host, int port) throws IOException {
+        stop();
+        HardwareSampler.start();
+        HttpServer server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext("/metrics", exchange -> {
+            try {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                byte[] body = Metrics.scrape().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+        executor = Threads.newIoExecutor("MetricsServer", 1);
+        server.setExecutor(executor);
+        server.start();
+        MetricsServer.server = server;
+    }
+
+    public static synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    public static synchronized boolean isRunning() {
+        return server != null;
+    }
+}
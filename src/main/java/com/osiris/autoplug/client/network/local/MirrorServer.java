@@ -0,0 +1,384 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.network.local;
+
+import com.osiris.autoplug.client.tasks.updater.DeltaDownload;
+import com.osiris.autoplug.client.tasks.updater.Mirror;
+import com.osiris.autoplug.client.utils.BinaryDelta;
+import com.osiris.autoplug.client.utils.Threads;
+import com.osiris.autoplug.client.utils.UtilsByte;
+import com.osiris.autoplug.client.utils.UtilsCrypto;
+import com.osiris.jlib.logger.AL;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pull-through mirror of the update sources for other AutoPlug instances on the same network (see {@link Mirror}). <br>
+ * Serves GET {@link Mirror#PATH}?url=upstream-url from its cache and only contacts the upstream source
+ * if the cached response is older than its ttl. Concurrent requests for the same url wait for a single upstream request. <br>
+ * Requests with the expected version ({@link Mirror#VERSION_PARAM}) are cached per version and don't expire,
+ * since some download-urls always point to the latest version. The api key (if any) is part of the cache key too. <br>
+ * Responses are stored by their SHA-256 hash in {@link #getDir()}, which also allows serving
+ * {@link BinaryDelta} patches between previously served versions (see {@link DeltaDownload}). <br>
+ * Redirects are only followed to mirrored hosts, others are passed on to the client, thus it's not an open proxy.
+ */
+public class MirrorServer {
+    public static final File DEFAULT_DIR = new File(System.getProperty("user.dir") + "/autoplug/mirror");
+    /**
+     * Max size of both versions of a file together to create a patch, since {@link BinaryDelta#create(File, File, File)}
+     * reads them fully into memory. Larger files (like Java archives) are served fully.
+     */
+    public static final long MAX_DELTA_INPUT_SIZE = 128L * 1024 * 1024;
+    private static final int MAX_REDIRECTS = 5;
+    private static final long MS_MAX_UNUSED = TimeUnit.DAYS.toMillis(30);
+    private static final Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+    /**
+     * Patches are created one at a time, for the same memory reason as {@link #MAX_DELTA_INPUT_SIZE}.
+     */
+    private static final Semaphore deltaPermits = new Semaphore(1);
+    private static final OkHttpClient client = new OkHttpClient.Builder()
+            .followRedirects(false).followSslRedirects(false).build(); // Redirect targets must be checked too
+    private static volatile File dir = DEFAULT_DIR;
+    @Nullable
+    private static HttpServer server;
+    @Nullable
+    private static ExecutorService executor;
+    private static long msTtl;
+    private static Set<String> hosts = Collections.emptySet();
+
+    /**
+     * Mirrors the hosts of {@link Mirror#getHosts()}.
+     *
+     * @param msTtl max age of cached responses without expected version.
+     */
+    public static synchronized void start(String host, int port, long msTtl) throws IOException {
+        start(host, port, msTtl, Mirror.getHosts());
+    }
+
+    /**
+     * @param msTtl max age of cached responses without expected version.
+     * @param hosts the only hosts that are requested.
+     */
+    public static synchronized void start(String host, int port, long msTtl, @NotNull Set<String> hosts) throws IOException {
+        stop();
+        MirrorServer.msTtl = msTtl;
+        Set<String> lowerCaseHosts = new HashSet<>();
+        for (String h : hosts) {
+            lowerCaseHosts.add(h.trim().toLowerCase());
+        }
+        MirrorServer.hosts = lowerCaseHosts;
+        deleteUnused();
+        HttpServer server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext(Mirror.PATH, exchange -> {
+            try {
+                handle(exchange);
+            } catch (Exception e) {
+                AL.debug(MirrorServer.class, "Failed to serve " + exchange.getRequestURI() + " " + e.getMessage());
+                try {
+                    exchange.sendResponseHeaders(502, -1);
+                } catch (Exception ignored) {
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+        executor = Threads.newIoExecutor("AutoPlug-Mirror", 8);
+        server.setExecutor(executor);
+        server.start();
+        MirrorServer.server = server;
+    }
+
+    public static synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * @return the port the server listens on, useful if started with port 0, or -1 if not running.
+     */
+    public static synchronized int getPort() {
+        return server == null ? -1 : server.getAddress().getPort();
+    }
+
+    @NotNull
+    public static File getDir() {
+        return dir;
+    }
+
+    /**
+     * Changes the directory responses are cached in, takes effect at the next request.
+     */
+    public static void setDir(@NotNull File dir) {
+        MirrorServer.dir = dir;
+    }
+
+    private static void handle(HttpExchange exchange) throws Exception {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        String url = query.get("url");
+        if (url == null || !isMirrored(url)) {
+            exchange.sendResponseHeaders(403, -1); // Not an open proxy
+            return;
+        }
+
+        String deltaFrom = query.get(DeltaDownload.QUERY_PARAM);
+        Properties entry = fetch(url, query.get(Mirror.VERSION_PARAM), exchange.getRequestHeaders().getFirst("x-api-key"));
+        if (entry.getProperty("code") != null) {
+            exchange.sendResponseHeaders(Integer.parseInt(entry.getProperty("code")), -1);
+            return;
+        }
+        if (entry.getProperty("location") != null) {
+            if (deltaFrom != null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            // Redirect to a host that is not mirrored, thus the client requests it directly
+            exchange.getResponseHeaders().set("Location", entry.getProperty("location"));
+            exchange.sendResponseHeaders(302, -1);
+            return;
+        }
+        String sha256 = entry.getProperty("sha256");
+        File body = getBodyFile(sha256);
+
+        if (deltaFrom != null) {
+            File delta = getDelta(deltaFrom, sha256);
+            if (delta == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", DeltaDownload.CONTENT_TYPE);
+            send(exchange, delta);
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", entry.getProperty("content-type", "application/octet-stream"));
+        if (entry.getProperty("content-disposition") != null)
+            exchange.getResponseHeaders().set("Content-Disposition", entry.getProperty("content-disposition"));
+        send(exchange, body);
+    }
+
+    private static boolean isMirrored(String url) {
+        URI uri;
+        try {
+            uri = URI.create(url);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return uri.getHost() != null && hosts.contains(uri.getHost().toLowerCase())
+                && ("https".equals(uri.getScheme()) || "http".equals(uri.getScheme()));
+    }
+
+    /**
+     * @param version the version or SHA-256 hash the url is expected to deliver, null if unknown.
+     * @return the cached entry of the url, fetched from upstream if missing or expired.
+     * Contains the "code" if upstream responded with an error, or the "location"
+     * if upstream redirected to a host that is not mirrored, which are not cached.
+     */
+    private static Properties fetch(String url, @Nullable String version, @Nullable String apiKey) throws Exception {
+        if (version != null && version.trim().isEmpty()) version = null;
+        String expectedSha256 = version != null && version.trim().matches("[0-9a-fA-F]{64}") ? version.trim().toLowerCase() : null;
+        String key = sha256(url + "\n" + (version == null ? "" : version.trim()) + "\n" + (apiKey == null ? "" : sha256(apiKey)));
+        File dir = MirrorServer.dir;
+        File entryFile = new File(dir, "urls/" + key + ".properties");
+        ReentrantLock lock = locks.computeIfAbsent(key, k -> new ReentrantLock());
+        lock.lock();
+        try {
+            Properties entry = new Properties();
+            if (entryFile.exists()) {
+                try (InputStream in = new FileInputStream(entryFile)) {
+                    entry.load(in);
+                }
+                File body = getBodyFile(entry.getProperty("sha256"));
+                if ((version != null || System.currentTimeMillis() - Long.parseLong(entry.getProperty("time", "0")) < msTtl)
+                        && body.exists()) {
+                    body.setLastModified(System.currentTimeMillis()); // Mark as used
+                    return entry;
+                }
+            }
+
+            String currentUrl = url;
+            for (int redirects = 0; ; redirects++) {
+                Request.Builder request = new Request.Builder().url(currentUrl)
+                        .header("User-Agent", "AutoPlug Client - https://autoplug.one");
+                // Only sent to the host it was meant for
+                if (apiKey != null && isSameHost(url, currentUrl)) request.header("x-api-key", apiKey);
+                try (Response response = client.newCall(request.build()).execute()) {
+                    if (response.isRedirect()) {
+                        String location = response.header("Location");
+                        HttpUrl next = location == null ? null : response.request().url().resolve(location);
+                        if (next == null || redirects >= MAX_REDIRECTS) return error(502);
+                        if (!isMirrored(next.toString())) {
+                            Properties redirect = new Properties();
+                            redirect.setProperty("location", next.toString());
+                            return redirect;
+                        }
+                        currentUrl = next.toString();
+                        continue;
+                    }
+                    ResponseBody responseBody = response.body();
+                    if (response.code() != 200 || responseBody == null)
+                        return error(response.code() == 200 ? 502 : response.code());
+                    dir.mkdirs();
+                    File tmp = File.createTempFile("download", ".tmp", dir);
+                    String sha256;
+                    try {
+                        MessageDigest digest = UtilsCrypto.getSHA256Digest();
+                        try (InputStream in = responseBody.byteStream(); OutputStream out = new FileOutputStream(tmp)) {
+                            byte[] buffer = new byte[65536];
+                            int count;
+                            while ((count = in.read(buffer)) != -1) {
+                                out.write(buffer, 0, count);
+                                digest.update(buffer, 0, count);
+                            }
+                        }
+                        sha256 = UtilsByte.encode(digest.digest()).toLowerCase();
+                        File body = getBodyFile(sha256);
+                        body.getParentFile().mkdirs();
+                        Files.move(tmp.toPath(), body.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    } finally {
+                        tmp.delete();
+                    }
+
+                    entry = new Properties();
+                    entry.setProperty("url", url);
+                    entry.setProperty("sha256", sha256);
+                    entry.setProperty("time", String.valueOf(System.currentTimeMillis()));
+                    if (responseBody.contentType() != null)
+                        entry.setProperty("content-type", responseBody.contentType().toString());
+                    if (response.header("content-disposition") != null)
+                        entry.setProperty("content-disposition", response.header("content-disposition"));
+                    if (expectedSha256 != null && !expectedSha256.equals(sha256)) {
+                        // Served, since the client verifies it anyway, but not cached for this hash
+                        AL.debug(MirrorServer.class, "Not caching " + url + ", expected hash " + expectedSha256 + " but got " + sha256);
+                        return entry;
+                    }
+                    entryFile.getParentFile().mkdirs();
+                    try (OutputStream out = new FileOutputStream(entryFile)) {
+                        entry.store(out, null);
+                    }
+                    return entry;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Properties error(int code) {
+        Properties error = new Properties();
+        error.setProperty("code", String.valueOf(code));
+        return error;
+    }
+
+    private static boolean isSameHost(String url, String otherUrl) {
+        String host = URI.create(url).getHost();
+        return host != null && host.equalsIgnoreCase(URI.create(otherUrl).getHost());
+    }
+
+    private static String sha256(String s) {
+        return UtilsByte.encode(UtilsCrypto.getSHA256Digest().digest(s.getBytes(StandardCharsets.UTF_8))).toLowerCase();
+    }
+
+    /**
+     * @return the patch from the old to the new version, or null if the old version is unknown or the files are too large.
+     */
+    @Nullable
+    private static File getDelta(String fromSha256, String toSha256) throws IOException, InterruptedException {
+        if (!fromSha256.matches("[0-9a-fA-F]{64}")) return null;
+        fromSha256 = fromSha256.toLowerCase();
+        File from = getBodyFile(fromSha256);
+        File to = getBodyFile(toSha256);
+        if (!from.exists() || from.length() + to.length() > MAX_DELTA_INPUT_SIZE) return null;
+        File delta = new File(dir, "deltas/" + fromSha256 + "-" + toSha256);
+        ReentrantLock lock = locks.computeIfAbsent(delta.getName(), k -> new ReentrantLock());
+        lock.lock();
+        try {
+            if (!delta.exists()) {
+                delta.getParentFile().mkdirs();
+                File tmp = new File(delta.getAbsolutePath() + ".tmp");
+                deltaPermits.acquire();
+                try {
+                    BinaryDelta.create(from, to, tmp);
+                } finally {
+                    deltaPermits.release();
+                }
+                Files.move(tmp.toPath(), delta.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            delta.setLastModified(System.currentTimeMillis());
+            return delta;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static File getBodyFile(String sha256) {
+        return new File(dir, "sha256/" + sha256);
+    }
+
+    private static void send(HttpExchange exchange, File file) throws IOException {
+        exchange.sendResponseHeaders(200, file.length());
+        try (OutputStream out = exchange.getResponseBody()) {
+            Files.copy(file.toPath(), out);
+        }
+    }
+
+    private static Map<String, String> parseQuery(@Nullable String rawQuery) throws UnsupportedEncodingException {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) return query;
+        for (String pair : rawQuery.split("&")) {
+            int i = pair.indexOf('=');
+            if (i <= 0) continue;
+            query.put(URLDecoder.decode(pair.substring(0, i), "UTF-8"), URLDecoder.decode(pair.substring(i + 1), "UTF-8"));
+        }
+        return query;
+    }
+
+    /**
+     * Deletes cached responses and patches that were not served for a long time.
+     */
+    private static void deleteUnused() {
+        for (String dirName : new String[]{"sha256", "deltas"}) {
+            File[] files = new File(dir, dirName).listFiles();
+            if (files == null) continue;
+            for (File file : files) {
+                if (System.currentTimeMillis() - file.lastModified() > MS_MAX_UNUSED) file.delete();
+            }
+        }
+    }
+}
@@ -9,10 +9,13 @@
 package com.osiris.autoplug.client.network.online;
 
 import com.osiris.autoplug.client.network.online.connections.*;
+import com.osiris.autoplug.client.utils.Metrics;
 import com.osiris.jlib.logger.AL;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.security.InvalidKeyException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -23,6 +26,11 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * If it receives a true boolean it means that the user is logged in and opens new connections.
  */
 public class ConMain extends DefaultConnection {
+    /**
+     * Only opened if enabled, see {@link ConMultiplexer#isEnabled()}.
+     * Must be opened before all other connections, since they use it if it's alive.
+     */
+    public final ConMultiplexer CON_MULTIPLEXER = new ConMultiplexer();
     public final ConSendPublicDetails CON_PUBLIC_DETAILS = new ConSendPublicDetails();
 
     // Secondary connections:
@@ -36,7 +44,14 @@ public class ConMain extends DefaultConnection {
     public AtomicBoolean isUserActive = new AtomicBoolean(false);
     public boolean isUserActiveOld = false; // Local variable that holds the auth boolean before the current one
 
-    public int msUntilRetry = 30000;
+    /**
+     * Failed reconnect attempts since the last successful connection,
+     * used to calculate the delay until the next attempt, see {@link ConnectionScheduler#getBackoffMs(int)}.
+     */
+    public int reconnectAttempts = 0;
+    private long msLastPing = 0;
+    @Nullable
+    private ScheduledFuture<?> reconnectTask;
 
     public ConMain() {
         super((byte) 0);
@@ -48,7 +63,8 @@ public class ConMain extends DefaultConnection {
             AL.info("Authenticating server...");
             super.open();
             AL.info("Authentication success!");
-            socket.setSoTimeout(60000); // 60 seconds for when AP-Web is overloaded
+            socket.setSoTimeout(ConnectionScheduler.MS_HEARTBEAT_TIMEOUT); // 60 seconds for when AP-Web is overloaded
+            openMultiplexer();
             CON_PUBLIC_DETAILS.open();
             isDone = true;
         } catch (Exception e) {
@@ -64,13 +80,20 @@ public class ConMain extends DefaultConnection {
                     AL.info("Authenticating server...");
                     super.open();
                     AL.info("Authentication success!");
+                    socket.setSoTimeout(ConnectionScheduler.MS_HEARTBEAT_TIMEOUT);
+                    openMultiplexer();
                     CON_PUBLIC_DETAILS.open();
-                    msUntilRetry = 30000;
                 }
+                reconnectAttempts = 0;
 
                 isDone = true;
                 while (true) {
-                    isUserActive.set(super.in.readBoolean()); // Ping
+                    // Ping, throws SocketTimeoutException if none was received within the heartbeat timeout
+                    isUserActive.set(super.in.readBoolean());
+                    // Only delay the pong if AutoPlug-Web pings more often than every 3 seconds
+                    long msSinceLastPing = System.currentTimeMillis() - msLastPing;
+                    if (msSinceLastPing < 3000) Thread.sleep(3000 - msSinceLastPing);
+                    msLastPing = System.currentTimeMillis();
                     super.out.writeBoolean(true); // Pong true/false doesn't matter
 
                     if (isUserActive.get()) {
@@ -105,7 +128,6 @@ public class ConMain extends DefaultConnection {
                         }
                     }
                     isUserActiveOld = isUserActive.get();
-                    Thread.sleep(3000);
                 }
             } catch (Exception e) {
                 isDone = true;
@@ -114,35 +136,49 @@ public class ConMain extends DefaultConnection {
                     return;
                 }
 
-                // Since we didn't meant to close, create a new thread that tries to reconnect
-                new Thread(() -> {
-                    try {
-                        while (true) {
-                            AL.warn("Connection problems! Reconnecting in " + msUntilRetry / 1000 + " seconds...", e);
-                            Thread.sleep(msUntilRetry);
-                            try {
-                                if (open())
-                                    break;
-                                else
-                                    AL.warn("Failed to reconnect!");
-                            } catch (Exception ex) {
-                                AL.warn("Failed to reconnect!", ex);
-                            }
-                            msUntilRetry += 30000;
-                        }
-                    } catch (Exception exception) {
-                        AL.warn("Connection problems, unexpected error! Reconnect manually by entering '.con reload'.", exception);
-                    }
-                }).start();
-
+                // Since we didn't meant to close, schedule a reconnect
                 close();
+                scheduleReconnect(e);
             }
         });
         return true; // Success
     }
 
+    /**
+     * Schedules a reconnect attempt on the {@link ConnectionScheduler}.
+     * The delay grows exponentially with each failed attempt and is reset once authenticated successfully.
+     */
+    private void scheduleReconnect(Exception cause) {
+        Metrics.WEB_RECONNECTS.increment();
+        long msUntilRetry = ConnectionScheduler.getBackoffMs(reconnectAttempts++);
+        AL.warn("Connection problems! Reconnecting in " + msUntilRetry / 1000 + " seconds...", cause);
+        reconnectTask = ConnectionScheduler.schedule(() -> {
+            try {
+                // Further failures are handled by the connections thread, which schedules the next attempt
+                if (!open())
+                    AL.warn("Failed to reconnect! Reconnect manually by entering '.con reload'.");
+            } catch (Exception ex) {
+                scheduleReconnect(ex);
+            }
+        }, msUntilRetry);
+    }
+
+    /**
+     * Opens {@link #CON_MULTIPLEXER} if enabled. On failure the
+     * other connections simply fall back to opening their own sockets.
+     */
+    private void openMultiplexer() {
+        if (!ConMultiplexer.isEnabled()) return;
+        try {
+            CON_MULTIPLEXER.open();
+        } catch (Exception e) {
+            AL.warn("Failed to open multiplexed connection, falling back to separate connections.", e);
+        }
+    }
+
     @Override
     public void close() {
+        if (reconnectTask != null) reconnectTask.cancel(false);
         closeTempCons();
         closePermCons();
     }
@@ -166,6 +202,13 @@ public class ConMain extends DefaultConnection {
         } catch (Exception e1) {
             AL.warn(e1);
         }
+
+        try {
+            if (CON_MULTIPLEXER.isAlive())
+                CON_MULTIPLEXER.close();
+        } catch (Exception e1) {
+            AL.warn(e1);
+        }
     }
 
     /**
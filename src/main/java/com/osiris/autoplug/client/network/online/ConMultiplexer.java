@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.network.online;
+
+import com.osiris.autoplug.client.configs.SystemConfig;
+import com.osiris.jlib.logger.AL;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Carries the secondary connections as {@link MultiplexedChannel}s over a single
+ * authenticated connection, instead of opening a separate socket (and doing a separate TLS handshake
+ * and server-key authentication) for each of them. <br>
+ * Only used if enabled via {@link SystemConfig#autoplug_web_multiplex}, since AutoPlug-Web must support it. <br>
+ * Each frame has the format: channel id (int), frame type (byte), payload length (int), payload.
+ */
+public class ConMultiplexer extends DefaultConnection {
+    /**
+     * Client → Web, payload: con_type (byte).
+     */
+    public static final byte FRAME_OPEN = 0;
+    /**
+     * Web → Client, payload: error code (byte), same codes as for the regular authentication.
+     */
+    public static final byte FRAME_OPEN_RESULT = 1;
+    /**
+     * Both directions, payload: data.
+     */
+    public static final byte FRAME_DATA = 2;
+    /**
+     * Both directions, payload: additional credit in bytes (int).
+     */
+    public static final byte FRAME_WINDOW_UPDATE = 3;
+    /**
+     * Both directions, no payload.
+     */
+    public static final byte FRAME_CLOSE = 4;
+
+    /**
+     * Frames with a larger payload are rejected and close the connection, since AutoPlug-Web
+     * never sends more than the window of a channel at once.
+     */
+    public static final int MAX_FRAME_SIZE = MultiplexedChannel.WINDOW_SIZE;
+
+    private final Map<Integer, MultiplexedChannel> channels = new ConcurrentHashMap<>();
+    private final AtomicInteger nextChannelId = new AtomicInteger(1);
+    private final Object writeLock = new Object();
+
+    public ConMultiplexer() {
+        super((byte) 9);
+    }
+
+    /**
+     * @return true if multiplexing is enabled in the system config.
+     */
+    public static boolean isEnabled() {
+        try {
+            return new SystemConfig().autoplug_web_multiplex.asBoolean();
+        } catch (Exception e) {
+            AL.warn(e);
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized boolean open() throws Exception {
+        super.open();
+        getSocket().setSoTimeout(0);
+        setAndStartAsync(() -> {
+            try {
+                while (true) {
+                    int channelId = in.readInt();
+                    byte frameType = in.readByte();
+                    int length = in.readInt();
+                    if (length < 0 || length > MAX_FRAME_SIZE)
+                        throw new IOException("Received invalid frame length " + length + " for channel " + channelId + ", closing connection.");
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    MultiplexedChannel channel = channels.get(channelId);
+                    if (channel == null) continue; // Already closed
+                    if (frameType == FRAME_DATA) channel.onData(payload);
+                    else if (frameType == FRAME_WINDOW_UPDATE)
+                        channel.onWindowUpdate(((payload[0] & 0xFF) << 24) | ((payload[1] & 0xFF) << 16)
+                                | ((payload[2] & 0xFF) << 8) | (payload[3] & 0xFF));
+                    else if (frameType == FRAME_OPEN_RESULT) channel.onOpenResult(payload[0]);
+                    else if (frameType == FRAME_CLOSE) {
+                        channels.remove(channelId);
+                        channel.onClosed();
+                    } else AL.warn("Received unknown frame type " + frameType + " for channel " + channelId + ".");
+                }
+            } finally {
+                closeAllChannels();
+            }
+        });
+        AL.debug(this.getClass(), "Connection '" + this.getClass().getSimpleName() + "' connected.");
+        return true;
+    }
+
+    /**
+     * Opens a new channel for the provided connection type and
+     * blocks until AutoPlug-Web accepted or rejected it.
+     *
+     * @throws ChannelRejectedException if AutoPlug-Web rejected the channel, contains the error code.
+     */
+    public MultiplexedChannel openChannel(byte conType) throws Exception {
+        MultiplexedChannel channel = new MultiplexedChannel(this, nextChannelId.getAndIncrement(), conType);
+        channels.put(channel.id, channel);
+        try {
+            sendFrame(channel.id, FRAME_OPEN, new byte[]{conType}, 0, 1);
+            flush();
+            byte errorCode = channel.awaitOpenResult(60000);
+            if (errorCode != 0) {
+                channels.remove(channel.id);
+                channel.onClosed();
+                throw new ChannelRejectedException(errorCode);
+            }
+            AL.debug(this.getClass(), "Opened channel " + channel.id + " for con_type " + conType + ".");
+            return channel;
+        } catch (Exception e) {
+            channels.remove(channel.id);
+            channel.onClosed();
+            throw e;
+        }
+    }
+
+    void removeChannel(MultiplexedChannel channel) {
+        channels.remove(channel.id);
+    }
+
+    void sendData(int channelId, byte[] b, int off, int len) throws IOException {
+        sendFrame(channelId, FRAME_DATA, b, off, len);
+    }
+
+    void sendWindowUpdate(int channelId, int credit) throws IOException {
+        sendFrame(channelId, FRAME_WINDOW_UPDATE,
+                new byte[]{(byte) (credit >>> 24), (byte) (credit >>> 16), (byte) (credit >>> 8), (byte) credit}, 0, 4);
+        flush();
+    }
+
+    void sendClose(int channelId) throws IOException {
+        sendFrame(channelId, FRAME_CLOSE, new byte[0], 0, 0);
+        flush();
+    }
+
+    void flush() throws IOException {
+        synchronized (writeLock) {
+            if (out == null) throw new EOFException("Multiplexed connection is closed.");
+            out.flush();
+        }
+    }
+
+    private void sendFrame(int channelId, byte frameType, byte[] b, int off, int len) throws IOException {
+        // Build the complete frame first, to write it with a single call to the (unbuffered) socket stream
+        byte[] frame = new byte[9 + len];
+        frame[0] = (byte) (channelId >>> 24);
+        frame[1] = (byte) (channelId >>> 16);
+        frame[2] = (byte) (channelId >>> 8);
+        frame[3] = (byte) channelId;
+        frame[4] = frameType;
+        frame[5] = (byte) (len >>> 24);
+        frame[6] = (byte) (len >>> 16);
+        frame[7] = (byte) (len >>> 8);
+        frame[8] = (byte) len;
+        System.arraycopy(b, off, frame, 9, len);
+        synchronized (writeLock) { // Frames must never interleave
+            if (out == null) throw new EOFException("Multiplexed connection is closed.");
+            out.write(frame);
+        }
+    }
+
+    private void closeAllChannels() {
+        for (MultiplexedChannel channel : channels.values()) {
+            channel.onClosed();
+        }
+        channels.clear();
+    }
+
+    @Override
+    public synchronized void close() throws Exception {
+        closeAllChannels();
+        super.close();
+    }
+
+    /**
+     * Thrown when AutoPlug-Web rejects opening a channel.
+     */
+    public static class ChannelRejectedException extends IOException {
+        public final byte errorCode;
+
+        public ChannelRejectedException(byte errorCode) {
+            super("Opening channel was rejected with error code " + errorCode + ".");
+            this.errorCode = errorCode;
+        }
+    }
+}
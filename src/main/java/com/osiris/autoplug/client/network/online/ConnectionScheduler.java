@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.network.online;
+
+import com.osiris.autoplug.client.utils.Threads;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.*;
+
+/**
+ * Shared event-loop for AutoPlug-Web connections. <br>
+ * Periodic work (like sending server details) and reconnect attempts
+ * are scheduled here, instead of each connection sleeping in its own dedicated thread.
+ * A single thread does the timing and hands the work to {@link #WORKERS}.
+ */
+public class ConnectionScheduler {
+    /**
+     * Delay before the first reconnect attempt.
+     */
+    public static final long MS_BACKOFF_MIN = 30000;
+    /**
+     * Maximum delay between reconnect attempts.
+     */
+    public static final long MS_BACKOFF_MAX = 600000; // 10 minutes
+    /**
+     * If no ping was received in this time, the connection is considered dead.
+     */
+    public static final int MS_HEARTBEAT_TIMEOUT = 60000;
+
+    /**
+     * Only used for timing, the actual work runs on {@link #WORKERS}, thus a slow
+     * task (like a reconnect with TLS handshake) does not delay the others.
+     */
+    public static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(Threads.factory("AutoPlug-Web-EventLoop"));
+    /**
+     * Runs the scheduled work, which usually blocks on network I/O.
+     */
+    public static final ExecutorService WORKERS = Threads.newCachedExecutor("AutoPlug-Web-Worker");
+
+    /**
+     * Runs the provided task on {@link #WORKERS} after the provided delay.
+     */
+    @NotNull
+    public static ScheduledFuture<?> schedule(@NotNull Runnable task, long msDelay) {
+        return EXECUTOR.schedule(() -> WORKERS.execute(task), msDelay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs the provided task on {@link #WORKERS} directly and then repeatedly,
+     * with the provided delay between the end of an execution and the start of the next one.
+     * Further executions stop once the task throws an exception or the returned task gets cancelled.
+     */
+    @NotNull
+    public static PeriodicTask schedulePeriodic(@NotNull Runnable task, long msDelay) {
+        PeriodicTask periodicTask = new PeriodicTask(task, msDelay);
+        periodicTask.schedule(0);
+        return periodicTask;
+    }
+
+    /**
+     * Capped exponential backoff with jitter, so that many AutoPlug instances
+     * that lost their connection at the same time don't reconnect all at once.
+     *
+     * @param attempt amount of failed attempts before this one, starting at 0.
+     * @return milliseconds to wait before the next attempt.
+     */
+    public static long getBackoffMs(int attempt) {
+        long ms = MS_BACKOFF_MIN << Math.min(attempt, 10);
+        ms = Math.min(ms, MS_BACKOFF_MAX);
+        double jitter = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4; // +-20%
+        return (long) (ms * jitter);
+    }
+
+    public static class PeriodicTask {
+        private final Runnable task;
+        private final long msDelay;
+        private volatile boolean isDone;
+        @Nullable
+        private volatile Future<?> future;
+
+        private PeriodicTask(Runnable task, long msDelay) {
+            this.task = task;
+            this.msDelay = msDelay;
+        }
+
+        private void schedule(long msDelay) {
+            if (isDone) return;
+            future = ConnectionScheduler.schedule(this::run, msDelay);
+        }
+
+        private void run() {
+            if (isDone) return;
+            try {
+                task.run();
+            } catch (Throwable e) {
+                isDone = true;
+                return;
+            }
+            schedule(msDelay);
+        }
+
+        /**
+         * Stops further executions, a currently running execution is not interrupted.
+         */
+        public void cancel() {
+            isDone = true;
+            Future<?> future = this.future;
+            if (future != null) future.cancel(false);
+        }
+
+        public boolean isDone() {
+            return isDone;
+        }
+    }
+}
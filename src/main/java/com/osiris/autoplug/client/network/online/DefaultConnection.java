@@ -8,16 +8,19 @@
 
 package com.osiris.autoplug.client.network.online;
 
+import com.osiris.autoplug.client.Main;
 import com.osiris.autoplug.client.configs.GeneralConfig;
 import com.osiris.autoplug.client.configs.SystemConfig;
 import com.osiris.autoplug.client.network.online.connections.ConAutoPlugConsoleReceive;
 import com.osiris.autoplug.client.network.online.connections.ConAutoPlugConsoleSend;
 import com.osiris.autoplug.client.network.online.connections.ConPluginsUpdateResult;
 import com.osiris.autoplug.client.utils.GD;
+import com.osiris.autoplug.client.utils.Threads;
 import com.osiris.autoplug.client.utils.UtilsLists;
 import com.osiris.jlib.logger.AL;
 import com.osiris.jprocesses2.JProcess;
 import com.osiris.jprocesses2.ProcessUtils;
+import org.jetbrains.annotations.Nullable;
 
 import javax.net.SocketFactory;
 import javax.net.ssl.SSLSession;
@@ -28,6 +31,7 @@ import java.io.DataOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
+import java.net.SocketException;
 import java.security.InvalidKeyException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -48,7 +52,15 @@ public class DefaultConnection implements AutoCloseable {
     public DataInputStream in;
     public DataOutputStream out;
     public AtomicBoolean isClosing = new AtomicBoolean(false);
+    /**
+     * Not null if this connection is carried over {@link ConMultiplexer},
+     * in that case {@link #socket} is null.
+     */
+    @Nullable
+    public MultiplexedChannel channel;
     private Thread thread;
+    @Nullable
+    private ConnectionScheduler.PeriodicTask periodicTask;
 
 
     /**
@@ -59,6 +71,7 @@ public class DefaultConnection implements AutoCloseable {
      *                 1 = {@link ConAutoPlugConsoleReceive}; <br>
      *                 2 = {@link ConAutoPlugConsoleSend}; <br>
      *                 3 = {@link ConPluginsUpdateResult}; <br>
+     *                 10 = {@link ConPluginsUpdateResult} in the compact format; <br>
      * @throws Exception if authentication fails. Details are in the message.
      */
     public DefaultConnection(byte con_type) {
@@ -80,17 +93,20 @@ public class DefaultConnection implements AutoCloseable {
     public synchronized void setAndStartAsync(RunnableWithException runnable) {
         if (this.thread != null)
             this.thread.interrupt();
+        if (this.periodicTask != null)
+            this.periodicTask.cancel();
         // Save instances to make sure NOT to close the wrong ones later.
         Socket _socket = this.socket;
+        MultiplexedChannel _channel = this.channel;
         InputStream _in = this.in;
         OutputStream _out = this.out;
-        this.thread = new Thread(() -> {
+        this.thread = Threads.newThread("AutoPlug-Web-" + conType, () -> {
             try {
                 runnable.run();
             } catch (Exception e) { // Exceptions caused by close() are ignored
                 if (!isClosing.get()) AL.warn(e);
                 try {
-                    _close(Thread.currentThread(), _in, _out, _socket);
+                    _close(Thread.currentThread(), _in, _out, _socket, _channel);
                 } catch (Exception ex) {
                     throw new RuntimeException(ex);
                 }
@@ -99,18 +115,84 @@ public class DefaultConnection implements AutoCloseable {
         this.thread.start();
     }
 
+    /**
+     * Cancels the old task and runs the provided task periodically
+     * on the shared {@link ConnectionScheduler}, instead of a dedicated thread. <br>
+     * The first execution happens directly. Exceptions are handled like in {@link #setAndStartAsync(RunnableWithException)}
+     * and stop further executions.
+     *
+     * @param msDelay delay between the end of an execution and the start of the next one.
+     */
+    public synchronized void setAndStartPeriodic(RunnableWithException task, long msDelay) {
+        if (this.thread != null)
+            this.thread.interrupt();
+        if (this.periodicTask != null)
+            this.periodicTask.cancel();
+        // Save instances to make sure NOT to close the wrong ones later.
+        Socket _socket = this.socket;
+        MultiplexedChannel _channel = this.channel;
+        InputStream _in = this.in;
+        OutputStream _out = this.out;
+        this.periodicTask = ConnectionScheduler.schedulePeriodic(() -> {
+            try {
+                task.run();
+            } catch (Exception e) { // Exceptions caused by close() are ignored
+                if (!isClosing.get()) AL.warn(e);
+                try {
+                    _close(null, _in, _out, _socket, _channel);
+                } catch (Exception ex) {
+                    AL.warn(ex);
+                }
+                throw new RuntimeException(e); // Stops further executions
+            }
+        }, msDelay);
+    }
+
     public synchronized boolean open() throws Exception {
         AL.debug(this.getClass(), "open()");
-        _open();
+        boolean isMultiplexed = isMultiplexable();
+        if (isMultiplexed) _openChannel();
+        else _open();
         if (errorCode == 2) { // Retry in 10 seconds because it might be
             // that we just reconnected (there is a timeout of 5 seconds for the old connection until it gets closed)
             Thread.sleep(10000); // at least 5 seconds
-            _open();
+            if (isMultiplexed) _openChannel();
+            else _open();
         }
         throwError();
         return errorCode == 0;
     }
 
+    /**
+     * Returns true if this connection can be opened as channel of an already authenticated {@link ConMultiplexer},
+     * instead of opening its own socket.
+     */
+    private boolean isMultiplexable() {
+        if (this instanceof ConMain || this instanceof ConMultiplexer) return false;
+        ConMain conMain = Main.CON;
+        return conMain != null && conMain.CON_MULTIPLEXER.isAlive();
+    }
+
+    private synchronized int _openChannel() throws Exception {
+        isClosing.set(false);
+        errorCode = 0;
+        close();
+        isClosing.set(false);
+        AL.debug(this.getClass(), "[CON_TYPE: " + conType + "] Opening multiplexed channel...");
+        socket = null; // Otherwise isAlive() and close() could use an old socket
+        try {
+            channel = Main.CON.CON_MULTIPLEXER.openChannel(conType);
+        } catch (ConMultiplexer.ChannelRejectedException e) {
+            this.errorCode = e.errorCode;
+            return errorCode;
+        }
+        input = channel.getInputStream();
+        output = channel.getOutputStream();
+        in = new DataInputStream(input);
+        out = new DataOutputStream(output);
+        return errorCode;
+    }
+
     private synchronized int _open() throws Exception {
         isClosing.set(false);
         errorCode = 0;
@@ -142,6 +224,7 @@ public class DefaultConnection implements AutoCloseable {
             }
 
             AL.debug(this.getClass(), "[CON_TYPE: " + conType + "] Connection to AutoPlug-Web throttled! Retrying in " + punishment / 1000 + " second(s).");
+            socket.close();
             Thread.sleep(punishment + 250); // + 250ms, just to be safe
         }
 
@@ -220,6 +303,7 @@ public class DefaultConnection implements AutoCloseable {
     public void createSSLConnection(String host, int port) throws Exception {
         //SSLContext ctx = SSLContext.getInstance("TLSv1.3");
         SocketFactory factory = SSLSocketFactory.getDefault();
+        channel = null; // Otherwise isAlive() and close() would use an old channel
         socket = factory.createSocket(host, port);
 
         //System.setProperty("javax.net.debug", "all");
@@ -243,6 +327,7 @@ public class DefaultConnection implements AutoCloseable {
 
     public void createInsecureConnection(String host, int port) throws Exception {
         AL.warn("Creating unencrypted connection, transmitted data can be read by a third-party.");
+        channel = null; // Otherwise isAlive() and close() would use an old channel
         socket = new Socket(host, port);
         input = socket.getInputStream();
         output = socket.getOutputStream();
@@ -251,9 +336,18 @@ public class DefaultConnection implements AutoCloseable {
     }
 
     public boolean isAlive() {
+        if (channel != null) return !channel.isClosed();
         return socket != null && !socket.isClosed() && socket.isConnected();
     }
 
+    /**
+     * Same as {@link Socket#setSoTimeout(int)}, but also works for multiplexed connections.
+     */
+    public void setTimeout(int timeoutMs) throws SocketException {
+        if (channel != null) channel.setTimeout(timeoutMs);
+        else if (socket != null) socket.setSoTimeout(timeoutMs);
+    }
+
     public Socket getSocket() {
         return socket;
     }
@@ -277,14 +371,18 @@ public class DefaultConnection implements AutoCloseable {
     @Override
     public synchronized void close() throws Exception {
         isClosing.set(true);
-        _close(thread, in, out, socket);
+        if (periodicTask != null) periodicTask.cancel();
+        _close(thread, in, out, socket, channel);
+        socket = null;
+        channel = null;
     }
 
-    private void _close(Thread thread, InputStream in, OutputStream out, Socket socket) throws Exception {
+    private void _close(Thread thread, InputStream in, OutputStream out, Socket socket, MultiplexedChannel channel) throws Exception {
         AL.debug(this.getClass(), "_close()");
         if (in != null) in.close();
         if (out != null) out.close();
         if (socket != null) socket.close();
+        if (channel != null) channel.close();
         if (thread != null) thread.interrupt(); // Close thread last, since it might be the current thread
     }
 
@@ -292,10 +390,12 @@ public class DefaultConnection implements AutoCloseable {
     public String toString() {
         return this.getClass().getSimpleName() + "{" +
                 "ssl=" + (socket != null && socket instanceof SSLSocket ? "true" : "false") +
+                ", multiplexed=" + (channel != null) +
                 ", isAlive=" + isAlive() +
                 ", errorCode=" + errorCode +
                 ", socket=" + socket +
                 ", threadRunning=" + (thread != null && !thread.isInterrupted() && thread.isAlive()) +
+                ", periodicTaskRunning=" + (periodicTask != null && !periodicTask.isDone()) +
                 '}';
     }
 
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.network.online;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+
+/**
+ * A logical connection (channel) carried over the single socket of {@link ConMultiplexer}. <br>
+ * Provides regular blocking streams, thus {@link DefaultConnection}s can use it
+ * like their own socket. <br>
+ * Flow control is credit based: the sender may only have {@link #WINDOW_SIZE} unacknowledged bytes
+ * in flight, the receiver grants more credit once the application consumed the received data.
+ */
+public class MultiplexedChannel implements AutoCloseable {
+    /**
+     * Initial send/receive window per channel in bytes.
+     */
+    public static final int WINDOW_SIZE = 256 * 1024;
+    /**
+     * Maximum payload size of a single data frame.
+     */
+    public static final int MAX_FRAME_SIZE = 16 * 1024;
+
+    public final int id;
+    public final byte conType;
+    private final ConMultiplexer multiplexer;
+    private final Object lock = new Object();
+    private final ArrayDeque<byte[]> receivedChunks = new ArrayDeque<>();
+    private final InputStream input = new ChannelInputStream();
+    private final OutputStream output = new ChannelOutputStream();
+    private byte[] currentChunk;
+    private int currentChunkPos;
+    private int sendWindow = WINDOW_SIZE;
+    /**
+     * Received bytes that were consumed, but for which no credit was granted to the sender yet.
+     */
+    private int consumedNotAcknowledged = 0;
+    private int timeoutMs = 0;
+    private volatile boolean isClosed = false;
+    /**
+     * Error code received for the open request, -1 while waiting for it.
+     */
+    private int openResult = -1;
+
+    MultiplexedChannel(@NotNull ConMultiplexer multiplexer, int id, byte conType) {
+        this.multiplexer = multiplexer;
+        this.id = id;
+        this.conType = conType;
+    }
+
+    /**
+     * Blocks until AutoPlug-Web responded to the open request of this channel.
+     *
+     * @return the error code, which has the same meaning as for {@link DefaultConnection#errorCode}.
+     */
+    byte awaitOpenResult(long timeoutMs) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (lock) {
+            while (openResult == -1) {
+                if (isClosed) throw new IOException("Channel " + id + " closed before it was opened.");
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0)
+                    throw new SocketTimeoutException("No response for opening channel " + id + " (con_type " + conType + ").");
+                lock.wait(remaining);
+            }
+            return (byte) openResult;
+        }
+    }
+
+    void onOpenResult(byte errorCode) {
+        synchronized (lock) {
+            openResult = errorCode & 0xFF;
+            lock.notifyAll();
+        }
+    }
+
+    void onData(byte[] data) {
+        synchronized (lock) {
+            if (isClosed) return;
+            receivedChunks.add(data);
+            lock.notifyAll();
+        }
+    }
+
+    void onWindowUpdate(int credit) {
+        synchronized (lock) {
+            sendWindow += credit;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Called once the remote side or the underlying connection closed this channel.
+     */
+    void onClosed() {
+        synchronized (lock) {
+            isClosed = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Same as {@link java.net.Socket#setSoTimeout(int)}.
+     */
+    public void setTimeout(int timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    public boolean isClosed() {
+        return isClosed;
+    }
+
+    public InputStream getInputStream() {
+        return input;
+    }
+
+    public OutputStream getOutputStream() {
+        return output;
+    }
+
+    @Override
+    public void close() throws IOException {
+        boolean wasClosed;
+        synchronized (lock) {
+            wasClosed = isClosed;
+            isClosed = true;
+            receivedChunks.clear();
+            lock.notifyAll();
+        }
+        multiplexer.removeChannel(this);
+        if (!wasClosed && multiplexer.isAlive()) multiplexer.sendClose(id);
+    }
+
+    @Override
+    public String toString() {
+        return "MultiplexedChannel{" +
+                "id=" + id +
+                ", conType=" + conType +
+                ", isClosed=" + isClosed +
+                '}';
+    }
+
+    private class ChannelInputStream extends InputStream {
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int count = read(b, 0, 1);
+            return count == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            int count;
+            int credit = 0;
+            synchronized (lock) {
+                long deadline = timeoutMs > 0 ? System.currentTimeMillis() + timeoutMs : 0;
+                while (currentChunk == null) {
+                    currentChunk = receivedChunks.poll();
+                    currentChunkPos = 0;
+                    if (currentChunk != null) break;
+                    if (isClosed) return -1;
+                    try {
+                        if (deadline == 0) lock.wait();
+                        else {
+                            long remaining = deadline - System.currentTimeMillis();
+                            if (remaining <= 0) throw new SocketTimeoutException("Read timed out");
+                            lock.wait(remaining);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while reading from channel " + id, e);
+                    }
+                }
+                count = Math.min(len, currentChunk.length - currentChunkPos);
+                System.arraycopy(currentChunk, currentChunkPos, b, off, count);
+                currentChunkPos += count;
+                if (currentChunkPos == currentChunk.length) currentChunk = null;
+                consumedNotAcknowledged += count;
+                if (consumedNotAcknowledged >= WINDOW_SIZE / 2) {
+                    credit = consumedNotAcknowledged;
+                    consumedNotAcknowledged = 0;
+                }
+            }
+            if (credit > 0) multiplexer.sendWindowUpdate(id, credit);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            synchronized (lock) {
+                int available = currentChunk == null ? 0 : currentChunk.length - currentChunkPos;
+                for (byte[] chunk : receivedChunks) {
+                    available += chunk.length;
+                }
+                return available;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            MultiplexedChannel.this.close();
+        }
+    }
+
+    private class ChannelOutputStream extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int count;
+                synchronized (lock) {
+                    while (sendWindow <= 0) { // Wait for credit from the receiver
+                        if (isClosed) throw new IOException("Channel " + id + " is closed.");
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new IOException("Interrupted while writing to channel " + id, e);
+                        }
+                    }
+                    if (isClosed) throw new IOException("Channel " + id + " is closed.");
+                    count = Math.min(Math.min(len, MAX_FRAME_SIZE), sendWindow);
+                    sendWindow -= count;
+                }
+                multiplexer.sendData(id, b, off, count);
+                off += count;
+                len -= count;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            multiplexer.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            MultiplexedChannel.this.close();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+package com.osiris.autoplug.client.network.online.connections;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Limits failed authentication attempts per remote address. <br>
+ * After {@link #maxFailures} failures within {@link #msWindow} the address gets blocked,
+ * for {@link #msWindow} the first time and twice as long each following time (up to one day),
+ * until it authenticates successfully. <br>
+ * Addresses are remembered (and thus their block durations keep growing) until they authenticate successfully,
+ * or did not fail for longer than the longest block.
+ */
+public class AuthThrottle {
+    private static final long MS_MAX_BLOCK = 24 * 60 * 60 * 1000L;
+    private static final int MAX_TRACKED_ADDRESSES = 10000;
+
+    public final int maxFailures;
+    public final long msWindow;
+    private final Map<String, Attempts> attempts = new ConcurrentHashMap<>();
+
+    public AuthThrottle(int maxFailures, long msWindow) {
+        this.maxFailures = maxFailures;
+        this.msWindow = msWindow;
+    }
+
+    public boolean isBlocked(String address) {
+        return isBlocked(address, System.currentTimeMillis());
+    }
+
+    public void onFailure(String address) {
+        onFailure(address, System.currentTimeMillis());
+    }
+
+    public void onSuccess(String address) {
+        attempts.remove(address);
+    }
+
+    boolean isBlocked(String address, long now) {
+        Attempts a = attempts.get(address);
+        return a != null && now < a.msBlockedUntil;
+    }
+
+    void onFailure(String address, long now) {
+        if (attempts.size() >= MAX_TRACKED_ADDRESSES) removeExpired(now);
+        attempts.compute(address, (key, a) -> {
+            if (a == null) a = new Attempts();
+            a.msLastFailure = now;
+            if (now - a.msWindowStart > msWindow) {
+                a.msWindowStart = now;
+                a.failures = 0;
+            }
+            a.failures++;
+            if (a.failures >= maxFailures) {
+                a.msBlockedUntil = now + Math.min(MS_MAX_BLOCK, msWindow << Math.min(a.blocks, 20));
+                a.blocks++;
+                a.failures = 0;
+                a.msWindowStart = now;
+            }
+            return a;
+        });
+    }
+
+    /**
+     * Removes addresses that did not fail for longer than the longest block,
+     * thus repeat offenders keep their block count.
+     * If that's not enough, addresses that were never blocked and whose window ended are removed too.
+     */
+    private void removeExpired(long now) {
+        attempts.entrySet().removeIf(e -> now >= e.getValue().msBlockedUntil
+                && now - e.getValue().msLastFailure > MS_MAX_BLOCK + msWindow);
+        if (attempts.size() >= MAX_TRACKED_ADDRESSES)
+            attempts.entrySet().removeIf(e -> e.getValue().blocks == 0
+                    && now - e.getValue().msWindowStart > msWindow);
+    }
+
+    int getTrackedAddresses() {
+        return attempts.size();
+    }
+
+    private static class Attempts {
+        long msLastFailure;
+        long msWindowStart;
+        int failures;
+        int blocks;
+        long msBlockedUntil;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+package com.osiris.autoplug.client.network.online.connections;
+
+import com.osiris.autoplug.client.utils.Threads;
+import com.osiris.jlib.logger.AL;
+import org.apache.sshd.common.config.keys.AuthorizedKeyEntry;
+import org.apache.sshd.common.config.keys.KeyUtils;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.PublicKey;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory index of the allowed public keys (fingerprint to key), so that authentication attempts
+ * do not read and parse the keys file each time. <br>
+ * The index gets rebuilt once the keys file changes.
+ */
+public class AuthorizedKeys implements AutoCloseable {
+    public final Path path;
+    private volatile Map<String, PublicKey> keys = Collections.emptyMap();
+    @Nullable
+    private WatchService watchService;
+    @Nullable
+    private Thread watcherThread;
+
+    public AuthorizedKeys(Path path) {
+        this.path = path.toAbsolutePath().normalize();
+        reload();
+    }
+
+    /**
+     * Reloads the index and keeps it up-to-date by watching the keys file.
+     */
+    public static AuthorizedKeys watch(Path path) {
+        AuthorizedKeys authorizedKeys = new AuthorizedKeys(path);
+        authorizedKeys.startWatcher();
+        return authorizedKeys;
+    }
+
+    public boolean isAuthorized(PublicKey key) {
+        PublicKey authorizedKey = keys.get(KeyUtils.getFingerPrint(key));
+        return authorizedKey != null && KeyUtils.compareKeys(authorizedKey, key);
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * Rebuilds the index from the keys file. Invalid lines are skipped.
+     */
+    public void reload() {
+        Map<String, PublicKey> keys = new HashMap<>();
+        if (Files.exists(path)) {
+            try {
+                List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+                for (String line : lines) {
+                    if (line.trim().isEmpty() || line.trim().startsWith("#")) continue;
+                    try {
+                        PublicKey key = AuthorizedKeyEntry.parseAuthorizedKeyEntry(line).resolvePublicKey(null, null);
+                        if (key != null) keys.put(KeyUtils.getFingerPrint(key), key);
+                    } catch (Exception e) {
+                        AL.warn("Skipped invalid key in " + path + ": " + e.getMessage());
+                    }
+                }
+            } catch (IOException e) {
+                AL.warn("Error reading authorized keys: " + e.getMessage());
+                return; // Keep the current keys
+            }
+        } else
+            AL.debug(this.getClass(), "Authorized keys file does not exist: " + path);
+        this.keys = keys;
+        AL.debug(this.getClass(), "Loaded " + keys.size() + " authorized keys from " + path);
+    }
+
+    private void startWatcher() {
+        Path dir = path.getParent();
+        if (dir == null || !Files.isDirectory(dir)) {
+            AL.warn("Cannot watch authorized keys file for changes, since its directory does not exist: " + path);
+            return;
+        }
+        try {
+            WatchService watchService = dir.getFileSystem().newWatchService();
+            dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            this.watchService = watchService;
+        } catch (IOException e) {
+            AL.warn("Cannot watch authorized keys file for changes: " + e.getMessage());
+            return;
+        }
+        watcherThread = Threads.start("AuthorizedKeysWatcher", () -> {
+            try {
+                while (true) {
+                    WatchKey watchKey = watchService.take();
+                    boolean isChanged = false;
+                    for (WatchEvent<?> event : watchKey.pollEvents()) {
+                        if (path.getFileName().equals(event.context())
+                                || event.kind() == StandardWatchEventKinds.OVERFLOW)
+                            isChanged = true;
+                    }
+                    watchKey.reset();
+                    if (isChanged) reload();
+                }
+            } catch (InterruptedException | ClosedWatchServiceException ignored) {
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+            }
+            watchService = null;
+        }
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+            watcherThread = null;
+        }
+    }
+}
@@ -18,7 +18,6 @@ import com.osiris.jlib.logger.AL;
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.net.Socket;
 
 /**
  * The user can send commands through the online console.<br>
@@ -37,12 +36,11 @@ public class ConAutoPlugConsoleReceive extends DefaultConnection {
             super.open();
             setAndStartAsync(() -> {
                 try {
-                    Socket socket = getSocket();
-                    socket.setSoTimeout(0);
-                    InputStream in = getSocket().getInputStream();
+                    setTimeout(0);
+                    InputStream in = getInput();
                     try (BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
                         String line;
-                        while (!socket.isClosed() && (line = reader.readLine()) != null) {
+                        while (isAlive() && (line = reader.readLine()) != null) {
                             AL.info("Received Web-Command for Console: " + line);
                             if (!Commands.execute(line))
                                 Server.submitCommand(line);
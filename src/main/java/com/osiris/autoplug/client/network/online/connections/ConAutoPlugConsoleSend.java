@@ -81,7 +81,7 @@ public class ConAutoPlugConsoleSend extends DefaultConnection {
     public boolean open() throws Exception {
         if (new WebConfig().online_console.asBoolean()) {
             super.open();
-            getSocket().setSoTimeout(0);
+            setTimeout(0);
             out = new BufferedWriter(new OutputStreamWriter(getOut()));
 
 
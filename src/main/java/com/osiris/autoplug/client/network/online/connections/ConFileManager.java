@@ -12,6 +12,9 @@ import com.osiris.autoplug.client.Main;
 import com.osiris.autoplug.client.configs.WebConfig;
 import com.osiris.autoplug.client.network.online.DefaultConnection;
 import com.osiris.autoplug.client.utils.GD;
+import com.osiris.autoplug.client.utils.UtilsCrypto;
+import com.osiris.autoplug.client.utils.io.DirectoryListing;
+import com.osiris.autoplug.client.utils.io.FileJob;
 import com.osiris.autoplug.client.utils.io.UFDataIn;
 import com.osiris.autoplug.client.utils.io.UFDataOut;
 import com.osiris.jlib.logger.AL;
@@ -19,15 +22,33 @@ import org.apache.commons.io.FileUtils;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 
 public class ConFileManager extends DefaultConnection {
+    /**
+     * Maximum size of a single chunk for chunked uploads, bigger chunks are rejected.
+     */
+    public static final int MAX_CHUNK_SIZE = 16 * 1024 * 1024; // 16MB
 
     @Nullable
     private UFDataOut dos;
     private UFDataIn dis;
+    /**
+     * Last listing sent via {@link #doProtocolForSendingDirectoryPage()},
+     * kept so that following pages don't require listing the directory again.
+     */
+    @Nullable
+    private DirectoryListing lastListing;
 
     public ConFileManager() {
         super((byte) 5);  // Each connection has its own auth_id.
@@ -37,7 +58,7 @@ public class ConFileManager extends DefaultConnection {
     public boolean open() throws Exception {
         if (new WebConfig().file_manager.asBoolean()) {
             super.open();
-            getSocket().setSoTimeout(0);
+            setTimeout(0);
             dos = new UFDataOut(out);
             dis = new UFDataIn(in);
 
@@ -45,7 +66,7 @@ public class ConFileManager extends DefaultConnection {
                 try {
                     while (true) {
                         byte requestType = dis.readByte(); // Blocks indefinitely
-                        getSocket().setSoTimeout(60000);
+                        setTimeout(60000);
                         if (requestType == 0) {
                             doProtocolForSendingFileDetails();
                         } else if (requestType == 1) {
@@ -62,10 +83,24 @@ public class ConFileManager extends DefaultConnection {
                             doProtocolForCopyOrCutFiles();
                         } else if (requestType == 7) {
                             doProtocolForSendingRoots();
+                        } else if (requestType == 8) {
+                            doProtocolForSendingDirectoryPage();
+                        } else if (requestType == 9) {
+                            doProtocolForStartingChunkedUpload();
+                        } else if (requestType == 10) {
+                            doProtocolForReceivingUploadChunk();
+                        } else if (requestType == 11) {
+                            doProtocolForCompletingChunkedUpload();
+                        } else if (requestType == 12) {
+                            doProtocolForSendingFilesAsZip();
+                        } else if (requestType == 13) {
+                            doProtocolForStartingFileJob();
+                        } else if (requestType == 14) {
+                            doProtocolForSendingFileJobStatus();
                         } else {
                             AL.warn("Unknown file operation / Unknown request type (" + requestType + ").");
                         }
-                        getSocket().setSoTimeout(0);
+                        setTimeout(0);
                     }
                 } catch (Exception e) {
                     if (!Main.CON.isUserActive.get()) return; // Ignore after logout
@@ -93,6 +128,100 @@ public class ConFileManager extends DefaultConnection {
         }
     }
 
+    /**
+     * Zips the selected files/directories on the fly and streams the zip,
+     * thus the web doesn't need to download each file separately. <br>
+     * Receives: files count, paths. <br>
+     * Sends: the zip stream, then true on success, otherwise false and the error message.
+     */
+    private void doProtocolForSendingFilesAsZip() throws IOException {
+        int filesCount = dis.readInt();
+        List<File> files = new ArrayList<>(filesCount);
+        for (int i = 0; i < filesCount; i++) {
+            files.add(new File(dis.readLine()));
+        }
+        Exception exception = null;
+        OutputStream stream = dos.openStream();
+        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(stream, 65536))) {
+            zip.setLevel(Deflater.BEST_SPEED); // Network is the bottleneck, not the size
+            for (File file : files) {
+                Path root = file.toPath();
+                Path base = root.getParent() == null ? root : root.getParent();
+                Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                        if (!dir.equals(base)) {
+                            zip.putNextEntry(new ZipEntry(base.relativize(dir).toString().replace('\\', '/') + "/"));
+                            zip.closeEntry();
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path f, BasicFileAttributes attrs) throws IOException {
+                        ZipEntry entry = new ZipEntry(base.relativize(f).toString().replace('\\', '/'));
+                        entry.setTime(attrs.lastModifiedTime().toMillis());
+                        zip.putNextEntry(entry);
+                        Files.copy(f, zip);
+                        zip.closeEntry();
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            }
+        } catch (Exception e) {
+            AL.warn(e);
+            exception = e;
+            stream.close(); // Make sure the EOF marker is sent, even if the zip is incomplete
+        }
+        if (exception == null) dos.writeBoolean(true);
+        else {
+            dos.writeBoolean(false);
+            dos.writeLine("Critical error while zipping files! Check your servers log for further details: " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Starts a recursive copy/move/delete or archive extraction in the background,
+     * see {@link FileJob}. <br>
+     * Receives: job type, files count, paths, target directory (empty for delete, or for extracting
+     * into the archives' directory). <br>
+     * Sends: the job id.
+     */
+    private void doProtocolForStartingFileJob() throws IOException {
+        byte type = dis.readByte();
+        int filesCount = dis.readInt();
+        List<File> files = new ArrayList<>(filesCount);
+        for (int i = 0; i < filesCount; i++) {
+            files.add(new File(dis.readLine()));
+        }
+        String targetPath = dis.readLine();
+        File targetDir = null;
+        if (!targetPath.isEmpty()) targetDir = new File(targetPath);
+        else if (type == FileJob.TYPE_EXTRACT && !files.isEmpty()) targetDir = files.get(0).getAbsoluteFile().getParentFile();
+        FileJob job = FileJob.start(new FileJob(type, files, targetDir));
+        AL.debug(this.getClass(), "Started file job " + job.id + " of type " + type + " for " + filesCount + " file(s).");
+        dos.writeInt(job.id);
+    }
+
+    /**
+     * Receives: job id. <br>
+     * Sends: true if the job exists, followed by its state, files done, files total, bytes done and message.
+     * Otherwise false.
+     */
+    private void doProtocolForSendingFileJobStatus() throws IOException {
+        FileJob job = FileJob.get(dis.readInt());
+        if (job == null) {
+            dos.writeBoolean(false);
+            return;
+        }
+        dos.writeBoolean(true);
+        dos.writeByte(job.state);
+        dos.writeLong(job.filesDone.get());
+        dos.writeLong(job.filesTotal.get());
+        dos.writeLong(job.bytesDone.get());
+        dos.writeLine(job.message);
+    }
+
     private void doProtocolForCopyOrCutFiles() throws IOException {
         int filesCount = dis.readInt();
         boolean isCopy = dis.readBoolean();
@@ -128,17 +257,156 @@ public class ConFileManager extends DefaultConnection {
     private void doProtocolForReceivingUploadedFile() throws IOException {
         String filePath = dis.readLine();
         File file = new File(filePath);
-        if (!file.exists()) file.createNewFile();
-        try (FileOutputStream fw = new FileOutputStream(file)) {
-            dis.readStream(fw);
+        // Write to a temporary file first, so that a dropped connection doesn't leave a truncated file behind
+        File partFile = getPartFile(file);
+        try {
+            try (FileOutputStream fw = new FileOutputStream(partFile)) {
+                dis.readStream(fw);
+            }
+            moveAtomically(partFile, file);
             dos.writeBoolean(true);
         } catch (Exception e) {
             AL.warn(e);
+            partFile.delete();
             dos.writeBoolean(false);
             dos.writeLine("Critical error while saving uploaded file! Check your servers log for further details: " + e.getMessage());
         }
     }
 
+    /**
+     * Starts or resumes a chunked upload. <br>
+     * Receives: path, total size in bytes. <br>
+     * Sends: offset in bytes from where to continue uploading (0 if this is a new upload).
+     */
+    private void doProtocolForStartingChunkedUpload() throws IOException {
+        File file = new File(dis.readLine());
+        long totalSize = dis.readLong();
+        File partFile = getPartFile(file);
+        long offset = 0;
+        if (partFile.exists()) {
+            offset = partFile.length();
+            if (offset > totalSize) { // Leftover from another upload, start over
+                partFile.delete();
+                offset = 0;
+            }
+        }
+        if (offset != 0)
+            AL.debug(this.getClass(), "Resuming upload of '" + file + "' at " + offset + "/" + totalSize + " bytes.");
+        dos.writeLong(offset);
+    }
+
+    /**
+     * Receives a single chunk of a chunked upload and appends it to the temporary file. <br>
+     * Receives: path, offset, length, CRC32 checksum of the chunk, raw chunk bytes. <br>
+     * Sends: true and the new acknowledged offset on success,
+     * otherwise false, the currently acknowledged offset and the error message.
+     */
+    private void doProtocolForReceivingUploadChunk() throws IOException {
+        File file = new File(dis.readLine());
+        long offset = dis.readLong();
+        int length = dis.readInt();
+        long checksum = dis.readLong();
+        File partFile = getPartFile(file);
+
+        if (length < 0 || length > MAX_CHUNK_SIZE) {
+            // Can't buffer the chunk, thus skip its bytes to keep the stream in sync
+            byte[] skipBuffer = new byte[8192];
+            for (long remaining = Math.max(length, 0); remaining > 0; remaining -= skipBuffer.length) {
+                dis.readFully(skipBuffer, 0, (int) Math.min(skipBuffer.length, remaining));
+            }
+            dos.writeBoolean(false);
+            dos.writeLong(partFile.length());
+            dos.writeLine("Chunk size of " + length + " bytes is invalid, the maximum is " + MAX_CHUNK_SIZE + " bytes.");
+            return;
+        }
+        byte[] chunk = new byte[length];
+        dis.readFully(chunk, 0, length);
+
+        long acknowledged = partFile.length();
+        if (offset != acknowledged) {
+            dos.writeBoolean(false);
+            dos.writeLong(acknowledged);
+            dos.writeLine("Chunk offset " + offset + " does not match the acknowledged offset " + acknowledged + ".");
+            return;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(chunk, 0, length);
+        if (crc.getValue() != checksum) {
+            dos.writeBoolean(false);
+            dos.writeLong(acknowledged);
+            dos.writeLine("Checksum mismatch for chunk at offset " + offset + ", resend it.");
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(partFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(chunk);
+            long position = offset;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            channel.force(false); // Make sure acknowledged bytes are actually on disk
+            dos.writeBoolean(true);
+            dos.writeLong(position);
+        } catch (Exception e) {
+            AL.warn(e);
+            dos.writeBoolean(false);
+            dos.writeLong(partFile.length());
+            dos.writeLine("Critical error while saving uploaded chunk! Check your servers log for further details: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Completes a chunked upload by verifying the temporary file and
+     * atomically moving it to its target location. <br>
+     * Receives: path, total size in bytes, SHA-256 hash of the complete file (empty to skip verification). <br>
+     * Sends: true on success, otherwise false and the error message.
+     */
+    private void doProtocolForCompletingChunkedUpload() throws IOException {
+        File file = new File(dis.readLine());
+        long totalSize = dis.readLong();
+        String sha256 = dis.readLine();
+        File partFile = getPartFile(file);
+        try {
+            if (!partFile.exists() || partFile.length() != totalSize) {
+                dos.writeBoolean(false);
+                dos.writeLine("Upload is incomplete, received " + (partFile.exists() ? partFile.length() : 0)
+                        + " of " + totalSize + " bytes.");
+                return;
+            }
+            if (!sha256.isEmpty()) {
+                String actualSha256 = UtilsCrypto.fastSHA256(partFile);
+                if (!sha256.equalsIgnoreCase(actualSha256)) {
+                    partFile.delete();
+                    dos.writeBoolean(false);
+                    dos.writeLine("SHA-256 hash mismatch (expected " + sha256 + " but got " + actualSha256 + "), upload must be restarted.");
+                    return;
+                }
+            }
+            moveAtomically(partFile, file);
+            dos.writeBoolean(true);
+        } catch (Exception e) {
+            AL.warn(e);
+            dos.writeBoolean(false);
+            dos.writeLine("Critical error while completing uploaded file! Check your servers log for further details: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Temporary file that holds the uploaded data until the upload completes.
+     * Located in the same directory as the target file to allow atomic renames.
+     */
+    private File getPartFile(File file) {
+        return new File(file.getAbsolutePath() + ".autoplug-part");
+    }
+
+    private void moveAtomically(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
     private void doProtocolForSavingFile() throws IOException {
         File file = new File(dis.readLine());
         try (BufferedWriter fw = new BufferedWriter(new FileWriter(file))) {
@@ -219,21 +487,17 @@ public class ConFileManager extends DefaultConnection {
         else requestedFile = new File(filePath);
         sendFileDetails(requestedFile);
         if (requestedFile.isDirectory()) {
-            File[] files = requestedFile.listFiles();
-            if (files == null) dos.writeInt(0);
-            else {
-                dos.writeInt(files.length);
-
-                for (File f :
-                        files) { // Send directories first and then files
-                    if (f.isDirectory())
-                        sendFileDetails(f);
-                }
-                for (File f :
-                        files) {
-                    if (!f.isDirectory())
-                        sendFileDetails(f);
-                }
+            DirectoryListing listing;
+            try {
+                listing = new DirectoryListing(requestedFile.toPath(), null, DirectoryListing.SORT_BY_NAME, false);
+            } catch (IOException e) {
+                AL.debug(this.getClass(), "Failed to list directory '" + requestedFile + "': " + e.getMessage());
+                dos.writeInt(0);
+                return;
+            }
+            dos.writeInt(listing.entries.size());
+            for (DirectoryListing.Entry entry : listing.entries) { // Directories first and then files
+                sendFileDetails(entry);
             }
         } else { // Is not a dir
             if (dis.readBoolean()) // Web checks the files size and responds with true if it wants its content
@@ -241,6 +505,65 @@ public class ConFileManager extends DefaultConnection {
         }
     }
 
+    /**
+     * Same as {@link #doProtocolForSendingFileDetails()} for directories,
+     * but sends only a single page of the sorted and optionally filtered directory content,
+     * together with a continuation token for the next page. <br>
+     * Receives: path, filter (glob, empty for none), sort-by, descending, token (empty for first page), limit. <br>
+     * Sends: details of the directory, total entries count, page entries count, page entries, next token (empty if last page). <br>
+     * If the directory changed since the token was created, the total entries count is -1 (followed by 0 and an empty token),
+     * since the offset would point to other entries. The client must then restart at the first page.
+     */
+    private void doProtocolForSendingDirectoryPage() throws IOException {
+        String filePath = dis.readLine();
+        String filter = dis.readLine();
+        byte sortBy = dis.readByte();
+        boolean descending = dis.readBoolean();
+        String token = dis.readLine();
+        int limit = dis.readInt();
+
+        File dir = filePath.isEmpty() ? GD.WORKING_DIR : new File(filePath);
+        sendFileDetails(dir);
+        Path dirPath = dir.toPath();
+        DirectoryListing listing = this.lastListing;
+        // Only re-use the cached listing for follow-up pages, a request for the first page always refreshes
+        if (token.isEmpty() || listing == null || !listing.isReusableFor(dirPath, filter, sortBy, descending)) {
+            try {
+                listing = new DirectoryListing(dirPath, filter, sortBy, descending);
+            } catch (IOException e) {
+                AL.debug(this.getClass(), "Failed to list directory '" + dir + "': " + e.getMessage());
+                lastListing = null;
+                dos.writeInt(0);
+                dos.writeInt(0);
+                dos.writeLine("");
+                return;
+            }
+            lastListing = listing;
+        }
+        int offset = token.isEmpty() ? 0 : listing.offsetOf(token);
+        if (offset < 0) {
+            AL.debug(this.getClass(), "Received stale or invalid continuation token '" + token + "', client must restart at the first page.");
+            dos.writeInt(-1);
+            dos.writeInt(0);
+            dos.writeLine("");
+            return;
+        }
+
+        List<DirectoryListing.Entry> page = listing.page(offset, limit);
+        dos.writeInt(listing.entries.size());
+        dos.writeInt(page.size());
+        for (DirectoryListing.Entry entry : page) {
+            sendFileDetails(entry);
+        }
+        int nextOffset = offset + page.size();
+        if (nextOffset < listing.entries.size())
+            dos.writeLine(listing.token(nextOffset));
+        else {
+            dos.writeLine("");
+            lastListing = null; // Free memory, since last page was sent
+        }
+    }
+
     private void sendFileContent(File file) throws IOException {
         //System.out.println("Sending file "+file);
         dos.writeFile(file);
@@ -263,10 +586,20 @@ public class ConFileManager extends DefaultConnection {
     }
 
     private void sendFileDetails(File file) throws IOException {
-        dos.writeLine(file.getAbsolutePath());
-        dos.writeBoolean(file.isDirectory());
-        long length = file.length(); // In bytes
-        dos.writeLong(length);
+        sendFileDetails(file.getAbsolutePath(), file.isDirectory(), file.length(), file.getName(),
+                file.lastModified(), file.isHidden());
+    }
+
+    private void sendFileDetails(DirectoryListing.Entry entry) throws IOException {
+        sendFileDetails(entry.path.toAbsolutePath().toString(), entry.isDir, entry.size, entry.name,
+                entry.lastModified, entry.isHidden);
+    }
+
+    private void sendFileDetails(String absolutePath, boolean isDir, long length, String name,
+                                 long lastModified, boolean isHidden) throws IOException {
+        dos.writeLine(absolutePath);
+        dos.writeBoolean(isDir);
+        dos.writeLong(length); // In bytes
         if (length < 1000) // Smaller than 1kb
             dos.writeLine(length + "B");
         else if (length < 1000000) // Smaller than 1mb
@@ -275,9 +608,9 @@ public class ConFileManager extends DefaultConnection {
             dos.writeLine(length / 1000000 + "MB");
         else // Bigger than 1 gb
             dos.writeLine(length / 1000000000 + "GB");
-        dos.writeLine(file.getName());
-        dos.writeLong(file.lastModified());
-        dos.writeBoolean(file.isHidden());
+        dos.writeLine(name);
+        dos.writeLong(lastModified);
+        dos.writeBoolean(isHidden);
     }
 
     private void sendParentDirDetails(File file) throws IOException {
@@ -8,23 +8,43 @@
 
 package com.osiris.autoplug.client.network.online.connections;
 
+import com.osiris.autoplug.client.configs.SystemConfig;
 import com.osiris.autoplug.client.network.online.DefaultConnection;
 import com.osiris.autoplug.client.tasks.updater.plugins.MinecraftPlugin;
 import com.osiris.autoplug.client.tasks.updater.search.SearchResult;
+import com.osiris.autoplug.client.utils.UtilsByte;
+import com.osiris.autoplug.client.utils.UtilsCrypto;
 import com.osiris.betterthread.BThread;
 import com.osiris.betterthread.BThreadManager;
+import com.osiris.jlib.logger.AL;
+import org.jetbrains.annotations.Nullable;
 
-import java.net.Socket;
-import java.util.List;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * This is a temporary connection, which gets closed after
  * finishing its tasks.
- * It starts a {@link BThread} which is attached to the given {@link BThreadManager} (or creates a new Manager if null).
+ * It starts a {@link BThread} which is attached to the given {@link BThreadManager} (or creates a new Manager if null). <br>
+ * If enabled via {@link SystemConfig#autoplug_web_compact_results} the results are sent as a single gzipped batch
+ * that only contains the plugins that changed since the last successful report (see {@link #sendCompactResults()}).
  */
 public class ConPluginsUpdateResult extends DefaultConnection {
+    public static final byte CON_TYPE_LEGACY = 3;
+    public static final byte CON_TYPE_COMPACT = 10;
+    /**
+     * Hashes of the plugin entries of the last successful compact report.
+     */
+    public static final File STATE_FILE = new File(System.getProperty("user.dir") + "/autoplug/system/plugins-update-result-state.properties");
+    private static final byte COMPACT_FORMAT_VERSION = 1;
+    private static final byte TYPE_EXCLUDED = -1;
     private final List<SearchResult> searchResults;
     private final List<MinecraftPlugin> excludedPlugins;
+    File stateFile = STATE_FILE;
 
     /**
      * To send the provided information to AutoPlug-Web make sure to call {@link #open()}.
@@ -34,18 +54,167 @@ public class ConPluginsUpdateResult extends DefaultConnection {
      */
     public ConPluginsUpdateResult(List<SearchResult> searchResults,
                                   List<MinecraftPlugin> excludedPlugins) {
-        super((byte) 3);
+        this(searchResults, excludedPlugins, isCompactEnabled());
+    }
+
+    ConPluginsUpdateResult(List<SearchResult> searchResults,
+                           List<MinecraftPlugin> excludedPlugins, boolean isCompact) {
+        super(isCompact ? CON_TYPE_COMPACT : CON_TYPE_LEGACY);
         this.searchResults = searchResults;
         this.excludedPlugins = excludedPlugins;
     }
 
+    private static boolean isCompactEnabled() {
+        try {
+            return new SystemConfig().autoplug_web_compact_results.asBoolean();
+        } catch (Exception e) {
+            AL.warn(e);
+            return false;
+        }
+    }
+
+    /**
+     * Sends the results and closes the connection afterwards.
+     */
     @Override
     public boolean open() throws Exception {
-        super.open();
-        Socket socket = getSocket();
-        socket.setSoTimeout(0);
-        sendResultsOfPluginCheck();
-        return true;
+        try {
+            super.open();
+            setTimeout(0);
+            sendResults();
+            return true;
+        } finally {
+            close();
+        }
+    }
+
+    void sendResults() throws Exception {
+        if (conType == CON_TYPE_COMPACT) sendCompactResults();
+        else sendResultsOfPluginCheck();
+    }
+
+    /**
+     * Format: <br>
+     * Web → Client: ms left of the cool-down (long), like for the legacy format. <br>
+     * Client → Web: id of the last successful report (long), 0 if none. <br>
+     * Web → Client: true if it knows that report (boolean), otherwise all plugins are sent. <br>
+     * Client → Web: length (int) and gzipped batch: format version (byte), id of this report (long),
+     * changed entries count (int) and entries, removed plugin names count (int) and names. <br>
+     * Web → Client: 0 if stored successfully (byte), only then this report becomes the last successful report. <br>
+     * Each entry starts with the plugin name, author, version and the result type id, which is -1 for excluded plugins,
+     * those are followed by the other result details, except for excluded plugins. Strings are nullable (boolean + UTF).
+     */
+    private void sendCompactResults() throws Exception {
+        long msLeft = in.readLong();
+        if (msLeft != 0)
+            throw new Exception("Failed to send update check result to web. Web cool-down is still active (" + (msLeft / 60000) + " minutes remaining).");
+
+        Properties lastState = loadState();
+        long lastReportId = Long.parseLong(lastState.getProperty("report-id", "0"));
+        out.writeLong(lastReportId);
+        out.flush();
+        if (!in.readBoolean()) lastState = new Properties(); // Web doesn't know the last report, send all
+
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (SearchResult result : searchResults) {
+            entries.put(String.valueOf(result.getPlugin().getName()), encodeEntry(result.getPlugin(), result));
+        }
+        for (MinecraftPlugin excludedPl : excludedPlugins) {
+            entries.put(String.valueOf(excludedPl.getName()), encodeEntry(excludedPl, null));
+        }
+
+        long reportId = new SecureRandom().nextLong();
+        if (reportId == 0) reportId = 1;
+        Properties newState = new Properties();
+        newState.setProperty("report-id", String.valueOf(reportId));
+        ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        try (DataOutputStream dos = new DataOutputStream(new GZIPOutputStream(batch))) {
+            dos.writeByte(COMPACT_FORMAT_VERSION);
+            dos.writeLong(reportId);
+            List<byte[]> changed = new ArrayList<>();
+            for (Map.Entry<String, byte[]> e : entries.entrySet()) {
+                String hash = UtilsByte.encode(UtilsCrypto.getSHA256Digest().digest(e.getValue()));
+                newState.setProperty("plugin." + e.getKey(), hash);
+                if (!hash.equals(lastState.getProperty("plugin." + e.getKey()))) changed.add(e.getValue());
+            }
+            dos.writeInt(changed.size());
+            for (byte[] entry : changed) {
+                dos.write(entry);
+            }
+            List<String> removed = new ArrayList<>();
+            for (String key : lastState.stringPropertyNames()) {
+                if (key.startsWith("plugin.") && !entries.containsKey(key.substring("plugin.".length())))
+                    removed.add(key.substring("plugin.".length()));
+            }
+            dos.writeInt(removed.size());
+            for (String name : removed) {
+                dos.writeUTF(name);
+            }
+            AL.debug(this.getClass(), "Sending " + changed.size() + "/" + entries.size() + " changed and " + removed.size() + " removed plugins.");
+        }
+        out.writeInt(batch.size());
+        batch.writeTo(out);
+        out.flush();
+
+        byte result = in.readByte();
+        if (result != 0)
+            throw new Exception("Failed to send update check result to web. AutoPlug-Web responded with error code " + result + ".");
+        saveState(newState);
+    }
+
+    private static byte[] encodeEntry(MinecraftPlugin plugin, @Nullable SearchResult result) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream dos = new DataOutputStream(bytes);
+        writeNullable(dos, plugin.getName());
+        writeNullable(dos, plugin.getAuthor());
+        writeNullable(dos, plugin.getVersion());
+        if (result == null) {
+            dos.writeByte(TYPE_EXCLUDED);
+        } else {
+            dos.writeByte(result.type.id);
+            writeNullable(dos, result.getDownloadType());
+            writeNullable(dos, result.getLatestVersion());
+            writeNullable(dos, result.getDownloadUrl());
+            writeNullable(dos, result.getSpigotId());
+            writeNullable(dos, result.getBukkitId());
+            writeNullable(dos, plugin.getGithubRepoName());
+            writeNullable(dos, plugin.getGithubAssetName());
+            writeNullable(dos, plugin.getJenkinsProjectUrl());
+            writeNullable(dos, plugin.getJenkinsArtifactName());
+        }
+        dos.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeNullable(DataOutputStream dos, @Nullable String s) throws IOException {
+        dos.writeBoolean(s != null);
+        if (s != null) dos.writeUTF(s);
+    }
+
+    private Properties loadState() {
+        Properties state = new Properties();
+        if (stateFile.exists()) {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(stateFile))) {
+                state.load(in);
+            } catch (Exception e) {
+                AL.debug(ConPluginsUpdateResult.class, "Failed to load last update result state, sending all: " + e.getMessage());
+                state.clear();
+            }
+        }
+        return state;
+    }
+
+    private void saveState(Properties state) {
+        try {
+            stateFile.getParentFile().mkdirs();
+            File tmp = new File(stateFile.getAbsolutePath() + ".tmp");
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp))) {
+                state.store(out, "Hashes of the plugins sent with the last update result to AutoPlug-Web, safe to delete.");
+            }
+            Files.move(tmp.toPath(), stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (Exception e) {
+            AL.debug(ConPluginsUpdateResult.class, "Failed to save update result state: " + e.getMessage());
+        }
     }
 
 
@@ -137,7 +306,7 @@ public class ConPluginsUpdateResult extends DefaultConnection {
                 out.writeUTF(plAuthor);
 
             String plVersion = excludedPl.getVersion();
-            if (plAuthor == null)
+            if (plVersion == null)
                 out.writeUTF("null");
             else
                 out.writeUTF(plVersion);
@@ -11,12 +11,9 @@ package com.osiris.autoplug.client.network.online.connections;
 import com.osiris.autoplug.client.Main;
 import com.osiris.autoplug.client.configs.WebConfig;
 import com.osiris.autoplug.client.network.online.DefaultConnection;
+import com.osiris.autoplug.client.utils.HardwareSampler;
 import com.osiris.autoplug.client.utils.io.UFDataOut;
 import com.osiris.jlib.logger.AL;
-import oshi.SystemInfo;
-import oshi.hardware.CentralProcessor;
-import oshi.hardware.GlobalMemory;
-import oshi.hardware.HardwareAbstractionLayer;
 
 
 /**
@@ -34,7 +31,6 @@ public class ConSendPrivateDetails extends DefaultConnection {
     public float memAvailable;
     public float memUsed;
     public float memTotal;
-    private Thread thread;
 
     public ConSendPrivateDetails() {
         super((byte) 6);  // Each connection has its own auth_id.
@@ -44,59 +40,27 @@ public class ConSendPrivateDetails extends DefaultConnection {
     public boolean open() throws Exception {
         if (new WebConfig().send_private_details.asBoolean()) {
             super.open();
-            getSocket().setSoTimeout(0);
+            setTimeout(0);
             UFDataOut dos = new UFDataOut(getOut());
             float oneGigaByteInBytes = 1073741824.0f;
             float oneGigaHertzInHertz = 1000000000.0f;
-            SystemInfo si = new SystemInfo();
-            setAndStartAsync(() -> {
+            setAndStartPeriodic(() -> {
                 try {
-                    while (true) {
-                        // Hardware info:
-                        HardwareAbstractionLayer hal = si.getHardware();
-                        CentralProcessor cpu = hal.getProcessor();
-                        GlobalMemory memory = hal.getMemory();
-                        // Calc average frequency in mhz
-                        long currentFrq = 0;
-                        int i = 0;
-                        if (cpu != null) {
-                            for (long frq :
-                                    cpu.getCurrentFreq()) {
-                                currentFrq = currentFrq + frq;
-                                i++;
-                            }
-                            currentFrq = currentFrq / i;
-                        }
+                    // Hardware info, measured in the background:
+                    HardwareSampler.Snapshot hardware = HardwareSampler.get();
+                    if (hardware == HardwareSampler.EMPTY) return; // Nothing measured yet, send at the next execution
+                    dos.writeFloat((cpuSpeed = (hardware.cpuSpeed / oneGigaHertzInHertz)));
+                    dos.writeFloat((cpuMaxSpeed = (hardware.cpuMaxSpeed / oneGigaHertzInHertz))); // Support for overclocking
+                    dos.writeByte((cpuUsage = (byte) Math.round(hardware.cpuUsage * 100)));
 
-                        if (cpu != null) {
-                            dos.writeFloat((cpuSpeed = (currentFrq / oneGigaHertzInHertz)));
-                            cpuMaxSpeed = (cpu.getMaxFreq() / oneGigaHertzInHertz);
-                            dos.writeFloat(Math.max(cpuMaxSpeed, cpuSpeed)); // Support for overclocking
-                            dos.writeByte((cpuUsage = (byte) Math.round(cpu.getSystemCpuLoad(1000) * 100)));
-                        } else {
-                            dos.writeFloat(0);
-                            dos.writeFloat(0);
-                            dos.writeByte((byte) 0);
-                        }
-
-
-                        if (memory != null) {
-                            dos.writeFloat((memAvailable = (memory.getAvailable() / oneGigaByteInBytes)));
-                            dos.writeFloat((memUsed = ((memory.getTotal() - memory.getAvailable()) / oneGigaByteInBytes)));
-                            dos.writeFloat((memTotal = (memory.getTotal() / oneGigaByteInBytes)));
-                        } else {
-                            dos.writeFloat(0);
-                            dos.writeFloat(0);
-                            dos.writeFloat(0);
-                        }
-
-                        Thread.sleep(5000);
-                    }
+                    dos.writeFloat((memAvailable = (hardware.memAvailable / oneGigaByteInBytes)));
+                    dos.writeFloat((memUsed = (hardware.getMemUsed() / oneGigaByteInBytes)));
+                    dos.writeFloat((memTotal = (hardware.memTotal / oneGigaByteInBytes)));
                 } catch (Exception e) {
-                    if (!Main.CON.isUserActive.get()) return; // Ignore after logout
+                    if (!Main.CON.isUserActive.get()) close(); // After logout, stop quietly
                     throw e;
                 }
-            });
+            }, 5000);
             AL.debug(this.getClass(), "Connection '" + this.getClass().getSimpleName() + "' connected.");
             return true;
         } else {
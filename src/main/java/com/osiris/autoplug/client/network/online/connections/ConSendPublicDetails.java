@@ -14,11 +14,15 @@ import com.osiris.autoplug.client.configs.WebConfig;
 import com.osiris.autoplug.client.network.online.DefaultConnection;
 import com.osiris.autoplug.client.utils.GD;
 import com.osiris.autoplug.client.utils.MineStat;
+import com.osiris.autoplug.client.utils.ServerStatus;
 import com.osiris.autoplug.client.utils.io.UFDataOut;
 import com.osiris.jlib.logger.AL;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.FileInputStream;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 /**
@@ -27,6 +31,10 @@ import java.util.Properties;
  * This connection should always stay active.
  */
 public class ConSendPublicDetails extends DefaultConnection {
+    /**
+     * Max time in ms the status is not sent if it did not change.
+     */
+    private static final long MS_MAX_UNCHANGED = 60000;
     public String host = "127.0.0.1"; // instead of localhost, use directly the resolved loop-back address
     public int port = 0;
     public boolean isRunning;
@@ -34,6 +42,8 @@ public class ConSendPublicDetails extends DefaultConnection {
     public String version;
     public int currentPlayers;
     public int maxPlayers;
+    @Nullable
+    public ServerStatus status;
 
     public ConSendPublicDetails() {
         super((byte) 4);  // Each connection has its own auth_id.
@@ -43,7 +53,7 @@ public class ConSendPublicDetails extends DefaultConnection {
     public boolean open() throws Exception {
         if (new WebConfig().send_public_details.asBoolean()) {
             super.open();
-            getSocket().setSoTimeout(0);
+            setTimeout(0);
             UFDataOut dos = new UFDataOut(getOut());
             WebConfig webConfig = new WebConfig();
             host = webConfig.send_server_status_ip.asString();
@@ -73,36 +83,35 @@ public class ConSendPublicDetails extends DefaultConnection {
                 }
             } else
                 port = webConfig.send_server_status_port.asInt();
-            setAndStartAsync(() -> {
+            ServerStatus status = new ServerStatus(host, port);
+            if (this.status != null) Server.outputListeners.remove(this.status.consoleListener);
+            Server.outputListeners.add(status.consoleListener);
+            this.status = status;
+            AtomicReference<ServerStatus.Snapshot> lastSent = new AtomicReference<>();
+            AtomicLong msLastSent = new AtomicLong();
+            setAndStartPeriodic(() -> {
                 try {
-                    while (true) {
-                        // MC server related info:
-                        mineStat = new MineStat(host, port);
-                        // mineStat.isServerUp(); // Before, but deprecated now to support
-                        // mc proxies and other servers like steam game servers.
-                        // This has one caveat since the server might be running, but we
-                        // actually want to know if players can join it, since it might still be blocked
-                        // by the firewall or another network issue.
-                        isRunning = Server.isRunning();
-                        version = mineStat.getVersion();
-                        if (version != null)
-                            version = version.replaceAll("[a-zA-Z]", "").trim();
-                        else
-                            version = "-";
-                        currentPlayers = mineStat.getCurrentPlayers();
-                        maxPlayers = mineStat.getMaximumPlayers();
+                    ServerStatus.Snapshot snapshot = status.update();
+                    mineStat = status.getLastPing();
+                    isRunning = snapshot.isRunning;
+                    version = snapshot.version;
+                    currentPlayers = snapshot.currentPlayers;
+                    maxPlayers = snapshot.maxPlayers;
 
-                        dos.writeBoolean(isRunning);
-                        dos.writeLine(version);
-                        dos.writeInt(currentPlayers);
-                        dos.writeInt(maxPlayers);
-                        Thread.sleep(5000);
-                    }
+                    // Only send changes, and the unchanged status once in a while to keep the connection alive
+                    if (snapshot.equals(lastSent.get()) && System.currentTimeMillis() - msLastSent.get() < MS_MAX_UNCHANGED)
+                        return;
+                    dos.writeBoolean(isRunning);
+                    dos.writeLine(version);
+                    dos.writeInt(currentPlayers);
+                    dos.writeInt(maxPlayers);
+                    lastSent.set(snapshot);
+                    msLastSent.set(System.currentTimeMillis());
                 } catch (Exception e) {
-                    if (!Main.CON.isUserActive.get()) return; // Ignore after logout
+                    if (!Main.CON.isUserActive.get()) close(); // After logout, stop quietly
                     throw e;
                 }
-            });
+            }, 5000);
             AL.debug(this.getClass(), "Connection '" + this.getClass().getSimpleName() + "' connected.");
             return true;
         } else {
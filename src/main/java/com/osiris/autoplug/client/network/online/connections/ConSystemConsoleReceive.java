@@ -16,7 +16,6 @@ import com.osiris.jlib.logger.AL;
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.net.Socket;
 
 /**
  * The user can send commands through the online console.<br>
@@ -34,12 +33,11 @@ public class ConSystemConsoleReceive extends DefaultConnection {
             super.open();
             setAndStartAsync(() -> {
                 try {
-                    Socket socket = getSocket();
-                    socket.setSoTimeout(0);
-                    InputStream in = getSocket().getInputStream();
+                    setTimeout(0);
+                    InputStream in = getInput();
                     try (BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
                         String line;
-                        while (!socket.isClosed() && (line = reader.readLine()) != null) {
+                        while (isAlive() && (line = reader.readLine()) != null) {
                             AL.info("Received Web-Command for S-Console: " + line);
                             if (ConSystemConsoleSend.asyncTerminal == null) {
                                 AL.warn("Failed to execute '" + line + "' because there is no system terminal active.");
@@ -64,7 +64,7 @@ public class ConSystemConsoleSend extends DefaultConnection {
     public boolean open() throws Exception {
         if (new WebConfig().online_system_console.asBoolean()) {
             super.open();
-            getSocket().setSoTimeout(0);
+            setTimeout(0);
             out = new BufferedWriter(new OutputStreamWriter(getOut()));
 
             if (asyncTerminal != null) asyncTerminal.close();
@@ -13,12 +13,14 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.sshd.server.Environment;
 import org.apache.sshd.server.ExitCallback;
@@ -27,20 +29,40 @@ import org.apache.sshd.server.command.Command;
 
 import com.osiris.autoplug.client.Server;
 import com.osiris.autoplug.client.console.Commands;
+import com.osiris.autoplug.client.utils.Metrics;
+import com.osiris.autoplug.client.utils.Threads;
 import com.osiris.jlib.logger.AL;
 import com.osiris.jlib.logger.LogFileWriter;
 
 public class SSHServerConsoleReceive implements Command {
 
+    /**
+     * Max bytes of console output queued per session. If a session can't keep up,
+     * its oldest queued output is skipped, instead of slowing down the other sessions.
+     */
+    private static final int MAX_QUEUED_BYTES = 1024 * 1024;
     private static final Set<SSHServerConsoleReceive> activeConnections = ConcurrentHashMap.newKeySet();
     private static final List<String> commandHistory = new ArrayList<>();
+    /**
+     * Reads the input of each session and writes queued output while there is some,
+     * thus the threads are shared between sessions.
+     */
+    private static final ExecutorService executor = Threads.newCachedExecutor("SSHConsoleThread");
     private int historyIndex = -1;
 
     private InputStream in;
     private OutputStream out;
     private OutputStream err;
     private ExitCallback exitCallback;
-    private ExecutorService executor;
+    private Future<?> inputReader;
+    private final AtomicBoolean isClosed = new AtomicBoolean();
+
+    private final ArrayDeque<byte[]> outputQueue = new ArrayDeque<>();
+    private int queuedBytes;
+    private long skippedBytes;
+    private boolean isWriting;
+    private volatile long sentBytes;
+    private volatile long droppedBytes;
 
     @Override
     public void setInputStream(InputStream in) {
@@ -65,12 +87,6 @@ public class SSHServerConsoleReceive implements Command {
     @Override
     public void start(ChannelSession channel, Environment env) throws IOException {
         AL.info("SSH session started.");
-        executor = Executors.newSingleThreadExecutor(r -> {
-            Thread t = new Thread(r);
-            t.setName("SSHConsoleThread-" + t.getId());
-            t.setDaemon(true);
-            return t;
-        });
 
         out.write("┌───────────────────────────────────────┐\r\n".getBytes(StandardCharsets.UTF_8));
         out.write("│  Welcome to the AutoPlug SSH Console  │\r\n".getBytes(StandardCharsets.UTF_8));
@@ -81,8 +97,9 @@ public class SSHServerConsoleReceive implements Command {
         out.flush();
 
         activeConnections.add(this);
+        Metrics.SSH_SESSIONS.set(activeConnections.size());
 
-        executor.submit(() -> {
+        inputReader = executor.submit(() -> {
             try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
                 StringBuilder commandBuffer = new StringBuilder();
                 int cursorPosition = 0;
@@ -181,11 +198,12 @@ public class SSHServerConsoleReceive implements Command {
         });
     }
 
+    /**
+     * Closes the session once, either after its input ended or writing to it failed.
+     */
     private void cleanup() {
-        activeConnections.remove(this);
-        if (executor != null && !executor.isShutdown()) {
-            executor.shutdownNow();
-        }
+        if (!isClosed.compareAndSet(false, true)) return;
+        close();
         try {
             if (out != null) out.close();
             if (err != null) err.close();
@@ -226,28 +244,100 @@ public class SSHServerConsoleReceive implements Command {
     }
 
     public void broadcast(String message) {
+        enqueue(encode(message));
+    }
+
+    /**
+     * Queues the message for all sessions, without waiting for them to send it.
+     */
+    public static void broadcastToAll(String message) {
+        if (activeConnections.isEmpty()) return;
+        byte[] bytes = encode(message); // Once for all sessions
+        for (SSHServerConsoleReceive connection : activeConnections) {
+            connection.enqueue(bytes);
+        }
+    }
+
+    private static byte[] encode(String message) {
+        if (!message.endsWith("\n")) {
+            message += "\n";
+        }
+        return message.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void enqueue(byte[] bytes) {
+        if (isClosed.get()) return;
+        synchronized (outputQueue) {
+            outputQueue.add(bytes);
+            queuedBytes += bytes.length;
+            while (queuedBytes > MAX_QUEUED_BYTES && outputQueue.size() > 1) {
+                byte[] skipped = outputQueue.poll();
+                queuedBytes -= skipped.length;
+                skippedBytes += skipped.length;
+                droppedBytes += skipped.length;
+                Metrics.SSH_BYTES_DROPPED.add(skipped.length);
+            }
+            if (isWriting) return; // Already being written
+            isWriting = true;
+        }
+        executor.submit(this::writeQueued);
+    }
+
+    private void writeQueued() {
         try {
-            if (!message.endsWith("\n")) {
-                message += "\n";
+            while (true) {
+                byte[] bytes;
+                long skipped;
+                synchronized (outputQueue) {
+                    bytes = outputQueue.poll();
+                    if (bytes == null) {
+                        isWriting = false;
+                        return;
+                    }
+                    queuedBytes -= bytes.length;
+                    skipped = skippedBytes;
+                    skippedBytes = 0;
+                }
+                if (skipped > 0)
+                    out.write(("[Skipped " + skipped + " bytes of output, since this connection is too slow]\r\n").getBytes(StandardCharsets.UTF_8));
+                out.write(bytes);
+                out.flush();
+                sentBytes += bytes.length;
+                Metrics.SSH_BYTES_SENT.add(bytes.length);
             }
-            out.write(message.getBytes(StandardCharsets.UTF_8));
-            out.flush();
         } catch (IOException e) {
-            AL.warn(e);
+            AL.debug(this.getClass(), "Failed to write to SSH session, closing it: " + e.getMessage());
+            // isWriting stays true, thus no other writer is started for the broken session
+            cleanup(); // Otherwise it would stay in the active connections and keep queueing output
         }
     }
 
-    public static void broadcastToAll(String message) {
-        for (SSHServerConsoleReceive connection : activeConnections) {
-            connection.broadcast(message);
+    public long getSentBytes() {
+        return sentBytes;
+    }
+
+    public long getDroppedBytes() {
+        return droppedBytes;
+    }
+
+    public static int getActiveSessionsCount() {
+        return activeConnections.size();
+    }
+
+    private void close() {
+        if (activeConnections.remove(this)) {
+            Metrics.SSH_SESSIONS.set(activeConnections.size());
+            AL.debug(this.getClass(), "SSH session ended, sent " + sentBytes + " bytes, skipped " + droppedBytes + " bytes.");
+        }
+        if (inputReader != null) inputReader.cancel(true);
+        synchronized (outputQueue) {
+            outputQueue.clear();
+            queuedBytes = 0;
         }
     }
 
     @Override
     public void destroy(ChannelSession channel) {
-        if (executor != null && !executor.isShutdown()) {
-            executor.shutdownNow();
-        }
-        activeConnections.remove(this);
+        close();
     }
 }
@@ -9,8 +9,9 @@ package com.osiris.autoplug.client.network.online.connections;
 
 import com.osiris.autoplug.client.configs.SSHConfig;
 import com.osiris.jlib.logger.AL;
-import org.apache.sshd.common.config.keys.AuthorizedKeyEntry;
-import org.apache.sshd.common.config.keys.KeyUtils;
+import org.apache.sshd.common.AttributeRepository;
+import org.apache.sshd.common.session.Session;
+import org.apache.sshd.common.session.SessionListener;
 import org.apache.sshd.server.SshServer;
 import org.apache.sshd.server.auth.password.PasswordAuthenticator;
 import org.apache.sshd.server.auth.pubkey.PublickeyAuthenticator;
@@ -18,17 +19,25 @@ import org.apache.sshd.server.channel.ChannelSession;
 import org.apache.sshd.server.command.Command;
 import org.apache.sshd.server.command.CommandFactory;
 import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.server.session.ServerSession;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.nio.file.Path;
-import java.security.PublicKey;
-import java.util.List;
 
 public class SSHServerSetup {
 
+    private static final AuthThrottle authThrottle = new AuthThrottle(10, 60000);
+    /**
+     * Set once a session tried to authenticate via public key.
+     */
+    private static final AttributeRepository.AttributeKey<Boolean> TRIED_PUBLIC_KEY = new AttributeRepository.AttributeKey<>();
     private static SshServer sshd;
+    @Nullable
+    private static AuthorizedKeys authorizedKeys;
 
     public static void start() throws Exception {
         if (sshd != null && sshd.isOpen()) {
@@ -62,6 +71,10 @@ public class SSHServerSetup {
             AL.info("SSH server closed.");
             sshd = null;
         }
+        if (authorizedKeys != null) {
+            authorizedKeys.close();
+            authorizedKeys = null;
+        }
     }
 
     public static void restart() throws Exception {
@@ -98,6 +111,23 @@ public class SSHServerSetup {
                 throw new IllegalArgumentException("Invalid authentication method: " + authMethod);
         }
 
+        sshd.addSessionListener(new SessionListener() {
+            @Override
+            public void sessionEvent(Session session, Event event) {
+                if (event == Event.Authenticated && session instanceof ServerSession)
+                    authThrottle.onSuccess(getAddress((ServerSession) session));
+            }
+
+            @Override
+            public void sessionClosed(Session session) {
+                // Clients offer each of their keys until one is accepted, thus a failed key is not a failed attempt,
+                // only a session that tried keys and still did not authenticate
+                if (!session.isAuthenticated() && session instanceof ServerSession
+                        && Boolean.TRUE.equals(session.getAttribute(TRIED_PUBLIC_KEY)))
+                    authThrottle.onFailure(getAddress((ServerSession) session));
+            }
+        });
+
         sshd.setCommandFactory(new CommandFactory() {
             @Override
             public Command createCommand(ChannelSession channel, String command) {
@@ -107,27 +137,46 @@ public class SSHServerSetup {
         sshd.setShellFactory(channel -> new SSHServerConsoleReceive());
     }
 
+    /**
+     * Each wrong password counts as failed attempt.
+     */
     private static PasswordAuthenticator getPasswordAuthenticator(String username, String password) {
-        return (inputUsername, inputPassword, session) ->
-                username.equals(inputUsername) && password.equals(inputPassword);
+        return (inputUsername, inputPassword, session) -> {
+            if (isBlocked(session)) return false;
+            boolean isAuthenticated = username.equals(inputUsername) && password.equals(inputPassword);
+            if (!isAuthenticated) authThrottle.onFailure(getAddress(session));
+            return isAuthenticated;
+        };
     }
 
+    /**
+     * Only counts as failed attempt once the session gets closed without authentication, see {@link #setupServer(int, String, Path, Path, String, String)}.
+     */
     private static PublickeyAuthenticator getPublickeyAuthenticator(Path authorizedKeysPath) {
+        if (authorizedKeys == null) authorizedKeys = AuthorizedKeys.watch(authorizedKeysPath);
+        AuthorizedKeys keys = authorizedKeys;
         return (username, key, session) -> {
-            try {
-                List<String> lines = Files.readAllLines(authorizedKeysPath);
-                for (String line : lines) {
-                    if (line.trim().isEmpty() || line.startsWith("#")) continue;
-                    AuthorizedKeyEntry entry = AuthorizedKeyEntry.parseAuthorizedKeyEntry(line);
-                    PublicKey authorizedKey = entry.resolvePublicKey(null, null);
-                    if (KeyUtils.compareKeys(authorizedKey, key)) {
-                        return true;
-                    }
-                }
-            } catch (Exception e) {
-                AL.warn("Error reading authorized keys: " + e.getMessage());
-            }
-            return false;
+            if (isBlocked(session)) return false;
+            session.setAttribute(TRIED_PUBLIC_KEY, Boolean.TRUE);
+            return keys.isAuthorized(key);
         };
     }
+
+    /**
+     * @return true if the remote address is blocked because of too many failed attempts.
+     */
+    private static boolean isBlocked(ServerSession session) {
+        String address = getAddress(session);
+        if (authThrottle.isBlocked(address)) {
+            AL.debug(SSHServerSetup.class, "Rejected SSH authentication from blocked address " + address);
+            return true;
+        }
+        return false;
+    }
+
+    private static String getAddress(ServerSession session) {
+        SocketAddress socketAddress = session.getClientAddress();
+        return socketAddress instanceof InetSocketAddress ?
+                ((InetSocketAddress) socketAddress).getAddress().getHostAddress() : String.valueOf(socketAddress);
+    }
 }
@@ -29,6 +29,7 @@ import com.osiris.betterthread.BThreadManager;
 import com.osiris.betterthread.BThreadPrinter;
 import com.osiris.jlib.logger.AL;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.text.SimpleDateFormat;
 import java.time.LocalDateTime;
@@ -40,8 +41,21 @@ import java.util.List;
  */
 public class BeforeServerStartupTasks {
     private LoggerConfig loggerConfig;
+    /**
+     * Critical path of the tasks, null if they didn't run.
+     */
+    @Nullable
+    private String criticalPath;
 
     public BeforeServerStartupTasks() {
+        this(false);
+    }
+
+    /**
+     * @param isPrepared true if the updaters already ran while the server was running (see {@link PreparedRestart}),
+     *                   thus they are skipped.
+     */
+    public BeforeServerStartupTasks(boolean isPrepared) {
         BThreadManager manager = null;
         BThreadPrinter printer = null; // We have our own way of displaying the warnings, that's why its set to false
         try {
@@ -50,7 +64,7 @@ public class BeforeServerStartupTasks {
 
             // Wait until the main connection stuff is done, so the log isn't a mess
             while (!Main.CON.isDone)
-                Thread.sleep(1000);
+                Thread.sleep(100);
 
             // Do cool-down check stuff
             boolean isUpdaterCoolDownActive = false;
@@ -61,7 +75,10 @@ public class BeforeServerStartupTasks {
                     config.global_cool_down.asInt(),
                     new SimpleDateFormat(format),
                     systemConfig.timestamp_last_updater_tasks.asString()); // Get the report first before saving any new values
-            if (coolDownReport.isInCoolDown()) {
+            if (isPrepared) {
+                AL.info("Skipped updater tasks. Updates were already checked while preparing the restart.");
+                isUpdaterCoolDownActive = true;
+            } else if (coolDownReport.isInCoolDown()) {
                 AL.info("Skipped updater tasks. Global updater cool-down still active (" + (((coolDownReport.getMsRemaining() / 1000) / 60)) + " minutes remaining).");
                 isUpdaterCoolDownActive = true;
             }
@@ -94,44 +111,39 @@ public class BeforeServerStartupTasks {
                 taskServerUpdater = new TaskServerUpdater("ServerUpdater", manager);
                 taskPluginsUpdater = new TaskPluginsUpdater("PluginsUpdater", manager);
                 taskModsUpdater = new TaskModsUpdater("ModsUpdater", manager);
+            } else if (!isPrepared && config.global_adaptive_checks.asBoolean()) {
+                // Each plugin and mod has its own cool-down, thus only the ones that are due get checked
+                taskPluginsUpdater = new TaskPluginsUpdater("PluginsUpdater", manager);
+                taskModsUpdater = new TaskModsUpdater("ModsUpdater", manager);
             }
 
 
-            // Start processes
-            if (!isUpdaterCoolDownActive) {
-                selfUpdater.start();
-                while (!selfUpdater.isFinished()) // Wait until the self updater finishes
-                    Thread.sleep(1000);
-            }
-
-            taskBackup.start();
-
-            // Wait till backup is done
-            while (!taskBackup.isFinished())
-                Thread.sleep(1000);
-
-            taskGeneral.start();
-
-            taskDailyRestarter.start();
-            taskCustomRestarter.start();
-
-            if (!isUpdaterCoolDownActive) {
-                taskJavaUpdater.start();
-                taskServerUpdater.start();
-                taskPluginsUpdater.start();
-                taskModsUpdater.start();
-            }
+            // Start processes, each as soon as its dependencies finished.
+            // The self updater may restart AutoPlug, thus runs first, and
+            // tasks that modify server files wait for the backup.
+            StartupTaskGraph graph = new StartupTaskGraph()
+                    .add(selfUpdater)
+                    .add(taskBackup, selfUpdater)
+                    .add(taskGeneral, taskBackup)
+                    .add(taskDailyRestarter)
+                    .add(taskCustomRestarter)
+                    .add(taskJavaUpdater, taskBackup)
+                    .add(taskServerUpdater, taskBackup)
+                    .add(taskPluginsUpdater, taskBackup)
+                    .add(taskModsUpdater, taskBackup);
+            graph.run();
 
             // Wait until the rest is finished
             if (loggerConfig.live_tasks.asBoolean()) {
                 // In this case we have to wait until the displayer thread finishes, because
                 // of some stuff related to the System.out and to avoid duplicate printing of the summary
-                while (printer.isAlive())
-                    Thread.sleep(1000);
+                printer.join();
             } else {
-                while (!manager.isFinished())
-                    Thread.sleep(1000);
+                while (!manager.isFinished()) // Only sub-tasks like downloads could still be running
+                    Thread.sleep(100);
             }
+            criticalPath = graph.getCriticalPathAsString();
+            AL.info("Pre-startup tasks took " + graph.getMsTotal() + "ms, critical path: " + criticalPath);
 
             // Update the updater global cool-down with current time
             systemConfig.lockFile();
@@ -178,6 +190,11 @@ public class BeforeServerStartupTasks {
 
     }
 
+    @Nullable
+    public String getCriticalPath() {
+        return criticalPath;
+    }
+
     private void writeFinalStatus(List<BThread> all) {
 
     }
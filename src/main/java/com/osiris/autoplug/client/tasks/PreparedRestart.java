@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.tasks;
+
+import com.osiris.autoplug.client.Server;
+import com.osiris.autoplug.client.configs.RestarterConfig;
+import com.osiris.autoplug.client.configs.SystemConfig;
+import com.osiris.autoplug.client.configs.UpdaterConfig;
+import com.osiris.autoplug.client.tasks.updater.StagedInstalls;
+import com.osiris.autoplug.client.tasks.updater.java.TaskJavaUpdater;
+import com.osiris.autoplug.client.tasks.updater.mods.TaskModsUpdater;
+import com.osiris.autoplug.client.tasks.updater.plugins.TaskPluginsUpdater;
+import com.osiris.autoplug.client.tasks.updater.server.TaskServerUpdater;
+import com.osiris.autoplug.client.utils.Threads;
+import com.osiris.autoplug.client.utils.UpdateCheckerThread;
+import com.osiris.autoplug.client.utils.UtilsConfig;
+import com.osiris.autoplug.client.utils.tasks.CoolDownReport;
+import com.osiris.autoplug.client.utils.tasks.MyBThreadManager;
+import com.osiris.autoplug.client.utils.tasks.UtilsTasks;
+import com.osiris.jlib.logger.AL;
+
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the update checks and downloads while the server is still running,
+ * with the installs being staged (see {@link StagedInstalls}). <br>
+ * Once the server was stopped for the restart, the staged installs get applied
+ * and {@link BeforeServerStartupTasks} skips the updaters, thus the downtime
+ * is only stop, install and start.
+ */
+public class PreparedRestart {
+    private static final String DATE_FORMAT = "dd/MM/yyyy HH:mm:ss";
+    /**
+     * Completes once the current/last preparation finished.
+     */
+    private static CompletableFuture<Void> preparation = CompletableFuture.completedFuture(null);
+    /**
+     * True if a preparation finished and the next server start should thus skip the updaters.
+     */
+    private static boolean isPrepared = false;
+
+    /**
+     * @return true if enabled in the restarter config.
+     */
+    public static boolean isEnabled() {
+        try {
+            return new RestarterConfig().prepared_restart_enabled.asBoolean();
+        } catch (Exception e) {
+            AL.warn(e);
+            return false;
+        }
+    }
+
+    /**
+     * Starts the preparation in the background, if the server is running
+     * and there is no preparation running or finished already.
+     *
+     * @return true if a preparation was started.
+     */
+    public static synchronized boolean prepare() {
+        if (!Server.isRunning() || !preparation.isDone() || isPrepared) return false;
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        preparation = future;
+        Threads.start("PreparedRestart", () -> {
+            try {
+                runUpdaters();
+            } catch (Exception e) {
+                AL.warn("Failed to prepare restart, updates will be checked at the next start instead.", e);
+            } finally {
+                future.complete(null);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Blocks until the running preparation (if any) finished, or the timeout is reached.
+     *
+     * @return true if there is no preparation running anymore.
+     */
+    public static boolean awaitPreparation(long timeout, TimeUnit unit) {
+        try {
+            preparation.get(timeout, unit);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Must be called while the server is stopped and before starting it. <br>
+     * Installs the staged updates, without waiting for a running preparation (for example if the server crashed),
+     * since that would delay the start. The running preparation keeps staging its installs,
+     * which then get installed at the next restart.
+     *
+     * @return true if the updaters can be skipped for this start, since they already ran during the preparation,
+     * or are still running.
+     */
+    public static boolean applyBeforeStart() {
+        int failed = StagedInstalls.applyAll();
+        synchronized (PreparedRestart.class) {
+            if (!preparation.isDone()) {
+                AL.info("Still checking for updates in the background, they get installed at the next restart.");
+                return true;
+            }
+            boolean wasPrepared = isPrepared;
+            isPrepared = false;
+            // Run the updaters again at startup, if something could not be installed
+            return wasPrepared && failed == 0;
+        }
+    }
+
+    /**
+     * Checks for updates and downloads them while the server is running, like {@link #prepare()},
+     * but blocks until done and also runs if prepared already. Used by the {@link UpdateCheckerThread}
+     * to fetch updates between restarts, so that the next start only has to install them.
+     *
+     * @param isFull if false, only the plugins and mods updaters run (which only check the plugins and mods that are due),
+     *               and the next start still runs the updaters.
+     * @return false if the server is not running or another preparation is running.
+     */
+    public static boolean prefetch(boolean isFull) throws Exception {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        synchronized (PreparedRestart.class) {
+            if (!Server.isRunning() || !preparation.isDone()) return false;
+            preparation = future;
+        }
+        try {
+            runUpdaters(isFull, false);
+        } finally {
+            future.complete(null);
+        }
+        return true;
+    }
+
+    private static void runUpdaters() throws Exception {
+        runUpdaters(true, true);
+    }
+
+    private static void runUpdaters(boolean isFull, boolean isCheckCoolDown) throws Exception {
+        UpdaterConfig updaterConfig = new UpdaterConfig();
+        SystemConfig systemConfig = new SystemConfig();
+        CoolDownReport coolDownReport = new UtilsConfig().getCoolDown(
+                updaterConfig.global_cool_down.asInt(),
+                new SimpleDateFormat(DATE_FORMAT),
+                systemConfig.timestamp_last_updater_tasks.asString());
+        if (isCheckCoolDown && coolDownReport.isInCoolDown()) {
+            AL.debug(PreparedRestart.class, "Skipped preparing restart, global updater cool-down still active.");
+            return;
+        }
+
+        if (isCheckCoolDown) AL.info("Preparing restart, checking for updates while the server is running...");
+        else AL.info("Checking for updates in the background, while the server is running...");
+        StagedInstalls.setStaging(true);
+        try {
+            MyBThreadManager myManager = new UtilsTasks().createManagerAndPrinter();
+            if (isFull) {
+                new TaskJavaUpdater("JavaUpdater", myManager.manager).start();
+                new TaskServerUpdater("ServerUpdater", myManager.manager).start();
+            }
+            new TaskPluginsUpdater("PluginsUpdater", myManager.manager).start();
+            new TaskModsUpdater("ModsUpdater", myManager.manager).start();
+            new UtilsTasks().printResultsWhenDone(myManager.manager);
+        } finally {
+            StagedInstalls.setStaging(false);
+        }
+        if (!isFull) {
+            if (StagedInstalls.count() > 0)
+                AL.info(StagedInstalls.count() + " update(s) are ready and will be installed at the next restart.");
+            return;
+        }
+
+        systemConfig.lockFile();
+        systemConfig.load();
+        systemConfig.timestamp_last_updater_tasks.setValues(LocalDateTime.now().format(DateTimeFormatter.ofPattern(DATE_FORMAT)));
+        systemConfig.save();
+        systemConfig.unlockFile();
+
+        synchronized (PreparedRestart.class) {
+            isPrepared = true;
+        }
+        AL.info("Prepared restart, " + StagedInstalls.count() + " update(s) will be installed at the next restart.");
+    }
+}
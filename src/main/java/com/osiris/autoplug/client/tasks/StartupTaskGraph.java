@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.tasks;
+
+import com.osiris.autoplug.client.utils.Profiler;
+import com.osiris.autoplug.client.utils.Threads;
+import com.osiris.betterthread.BThread;
+import com.osiris.jlib.logger.AL;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Runs tasks with declared dependencies. Each task is started as soon as all of its
+ * dependencies finished (successful or not), thus independent tasks run in parallel. <br>
+ * Dependencies must be added before the tasks that depend on them, which makes cycles impossible.
+ */
+public class StartupTaskGraph {
+    private final Map<BThread, Node> nodes = new LinkedHashMap<>();
+    private long msStart;
+    private long msEnd;
+
+    /**
+     * @param task         the task to add, ignored if null (for example if disabled).
+     * @param dependencies tasks that must finish before this task gets started. Null values are ignored.
+     */
+    public StartupTaskGraph add(@Nullable BThread task, @Nullable BThread... dependencies) {
+        if (task == null) return this;
+        List<Node> deps = new ArrayList<>();
+        for (BThread dependency : dependencies) {
+            if (dependency == null) continue;
+            Node dep = nodes.get(dependency);
+            if (dep == null)
+                throw new IllegalArgumentException("Dependency '" + dependency.getName() + "' of '" + task.getName() + "' must be added before it.");
+            deps.add(dep);
+        }
+        nodes.put(task, new Node(task, deps));
+        return this;
+    }
+
+    /**
+     * Starts all tasks and blocks until all of them finished.
+     */
+    public void run() throws InterruptedException {
+        msStart = System.currentTimeMillis();
+        for (Node node : nodes.values()) {
+            Threads.start("StartupTaskGraph-" + node.task.getName(), node::launch);
+        }
+        for (Node node : nodes.values()) {
+            node.finished.await();
+        }
+        msEnd = System.currentTimeMillis();
+    }
+
+    public long getMsTotal() {
+        return msEnd - msStart;
+    }
+
+    /**
+     * @return the chain of dependent tasks that determined the total duration,
+     * starting with the first task. Empty if not run yet.
+     */
+    @NotNull
+    public List<BThread> getCriticalPath() {
+        Node last = null;
+        for (Node node : nodes.values()) {
+            if (node.msEnd != 0 && (last == null || node.msEnd > last.msEnd)) last = node;
+        }
+        LinkedList<BThread> path = new LinkedList<>();
+        while (last != null) {
+            path.addFirst(last.task);
+            Node latestDep = null;
+            for (Node dep : last.dependencies) {
+                if (latestDep == null || dep.msEnd > latestDep.msEnd) latestDep = dep;
+            }
+            last = latestDep;
+        }
+        return path;
+    }
+
+    /**
+     * @return how long the provided task ran in milliseconds, excluding the time waiting for its dependencies.
+     */
+    public long getMsDuration(BThread task) {
+        Node node = nodes.get(task);
+        if (node == null || node.msEnd == 0) return 0;
+        return node.msEnd - node.msStart;
+    }
+
+    /**
+     * @return the critical path in a human readable format, like: "SelfUpdater (1200ms) -> BackupTask (3500ms)".
+     */
+    @NotNull
+    public String getCriticalPathAsString() {
+        StringBuilder sb = new StringBuilder();
+        for (BThread task : getCriticalPath()) {
+            if (sb.length() != 0) sb.append(" -> ");
+            sb.append(task.getName()).append(" (").append(getMsDuration(task)).append("ms)");
+        }
+        return sb.toString();
+    }
+
+    private static class Node {
+        final BThread task;
+        final List<Node> dependencies;
+        final CountDownLatch finished = new CountDownLatch(1);
+        volatile long msStart;
+        volatile long msEnd;
+
+        Node(BThread task, List<Node> dependencies) {
+            this.task = task;
+            this.dependencies = dependencies;
+        }
+
+        void launch() {
+            try {
+                for (Node dep : dependencies) {
+                    dep.finished.await();
+                }
+                msStart = System.currentTimeMillis();
+                task.start();
+                task.join();
+                msEnd = System.currentTimeMillis();
+                Profiler.record("task", task.getName(), msStart, msEnd, task.getName());
+            } catch (Exception e) {
+                AL.warn("Failed to run startup task '" + task.getName() + "'.", e);
+            } finally {
+                finished.countDown();
+            }
+        }
+    }
+}
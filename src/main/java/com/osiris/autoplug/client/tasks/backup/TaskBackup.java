@@ -11,9 +11,12 @@ package com.osiris.autoplug.client.tasks.backup;
 import com.osiris.autoplug.client.Server;
 import com.osiris.autoplug.client.configs.BackupConfig;
 import com.osiris.autoplug.client.configs.SystemConfig;
+import com.osiris.autoplug.client.utils.Metrics;
+import com.osiris.autoplug.client.utils.Profiler;
 import com.osiris.autoplug.client.utils.UtilsConfig;
 import com.osiris.autoplug.client.utils.UtilsFile;
 import com.osiris.autoplug.client.utils.tasks.CoolDownReport;
+import com.osiris.autoplug.client.utils.tasks.TaskProgress;
 import com.osiris.betterthread.BThread;
 import com.osiris.betterthread.BThreadManager;
 import com.osiris.betterthread.BWarning;
@@ -25,6 +28,7 @@ import net.lingala.zip4j.progress.ProgressMonitor;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.AgeFileFilter;
 import org.apache.commons.lang.time.DateUtils;
+import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.text.SimpleDateFormat;
@@ -35,12 +39,13 @@ import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 
-public class TaskBackup extends BThread {
+public class TaskBackup extends BThread implements TaskProgress.Owner {
 
     private File autoplug_backups;
     private final LocalDateTime date = LocalDateTime.now();
     private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd-HH.mm");
     private final String formattedDate = date.format(formatter);
+    private final TaskProgress progress = new TaskProgress();
     public boolean ignoreCooldown;
 
     public TaskBackup(String name, BThreadManager manager) {
@@ -106,56 +111,68 @@ public class TaskBackup extends BThread {
         if (config.backup.asBoolean()) {
             setStatus("Creating backup zip...");
             ZipFile zip = new ZipFile(server_backup_dest);
-            ProgressMonitor progress = zip.getProgressMonitor();
+            ProgressMonitor monitor = zip.getProgressMonitor();
             BThread _this = this;
+            progress.start(TaskProgress.Phase.BACKING_UP, null, 0);
             new Thread(() -> {
                 try {
-                    while (!_this.isFinished()) { // Parent thread
-                        setStatus("Backing up " + progress.getFileName() + " " + progress.getPercentDone() + "% - " + progress.getCurrentTask());
+                    while (!_this.isFinished() && progress.isActive()) { // Parent thread
+                        // Only copies the monitors values, the status text is built when displayed
+                        progress.set(monitor.getWorkCompleted(), monitor.getTotalWork());
+                        progress.setSubject(monitor.getFileName());
+                        progress.setDetail(monitor.getCurrentTask());
                         Thread.sleep(100);
                     }
                 } catch (Exception e) {
                     addWarning(new BWarning(this, e));
                 }
             }).start();
-            List<File> filesToBackup = new ArrayList<>();
-
-            if (config.backup_include.asBoolean()) filesToBackup.addAll(config.getIncludedFiles());
-            if (config.backup_exclude.asBoolean()) {
-                List<File> excludedFiles = config.getExcludedFiles();
-                for (File file :
-                        excludedFiles) {
-                    AL.debug(this.getClass(), "Excluded '" + file.getName() + "' from backup. Full path: " + file.getAbsolutePath());
-                }
-                ExcludeFileFilter excludeFileFilter = excludedFiles::contains;
-                setMax(filesToBackup.size());
-                for (File file : filesToBackup) { //Add each file to the zip
-                    try {
-                        ZipParameters zipParameters = new ZipParameters();
-                        zipParameters.setExcludeFileFilter(excludeFileFilter);
-                        if (file.isDirectory())
-                            zip.addFolder(file, zipParameters);
-                        else
-                            zip.addFile(file, zipParameters);
-                    } catch (Exception e) {
-                        getWarnings().add(new BWarning(this, e, "Failed to add " + file.getName() + " to zip."));
+            Profiler.Span compressSpan = Profiler.start("backup", "Compress backup");
+            try {
+                List<File> filesToBackup = new ArrayList<>();
+
+                if (config.backup_include.asBoolean()) filesToBackup.addAll(config.getIncludedFiles());
+                if (config.backup_exclude.asBoolean()) {
+                    List<File> excludedFiles = config.getExcludedFiles();
+                    for (File file :
+                            excludedFiles) {
+                        AL.debug(this.getClass(), "Excluded '" + file.getName() + "' from backup. Full path: " + file.getAbsolutePath());
                     }
-                    step();
-                }
-            } else {
-                setMax(filesToBackup.size());
-                for (File file : filesToBackup) { //Add each file to the zip
-                    try {
-                        if (file.isDirectory())
-                            zip.addFolder(file);
-                        else
-                            zip.addFile(file);
-                    } catch (Exception e) {
-                        getWarnings().add(new BWarning(this, e, "Failed to add " + file.getName() + " to zip."));
+                    ExcludeFileFilter excludeFileFilter = excludedFiles::contains;
+                    setMax(filesToBackup.size());
+                    for (File file : filesToBackup) { //Add each file to the zip
+                        try {
+                            ZipParameters zipParameters = new ZipParameters();
+                            zipParameters.setExcludeFileFilter(excludeFileFilter);
+                            if (file.isDirectory())
+                                zip.addFolder(file, zipParameters);
+                            else
+                                zip.addFile(file, zipParameters);
+                        } catch (Exception e) {
+                            getWarnings().add(new BWarning(this, e, "Failed to add " + file.getName() + " to zip."));
+                        }
+                        step();
+                    }
+                } else {
+                    setMax(filesToBackup.size());
+                    for (File file : filesToBackup) { //Add each file to the zip
+                        try {
+                            if (file.isDirectory())
+                                zip.addFolder(file);
+                            else
+                                zip.addFile(file);
+                        } catch (Exception e) {
+                            getWarnings().add(new BWarning(this, e, "Failed to add " + file.getName() + " to zip."));
+                        }
+                        step();
                     }
-                    step();
                 }
+            } finally {
+                progress.stop();
+                compressSpan.close();
             }
+            Metrics.BACKUP_DURATION.observe(compressSpan.getMs());
+            Metrics.BACKUP_LAST_SIZE.set(zip.getFile().length());
 
             //Upload
             if (config.backup_upload.asBoolean()) {
@@ -170,7 +187,7 @@ public class TaskBackup extends BThread {
                         zip.getFile());
 
                 String rsa = config.backup_upload_rsa.asString();
-                try {
+                try (Profiler.Span ignored = Profiler.start("backup", "Upload backup")) {
                     if (rsa == null || rsa.trim().isEmpty()) upload.ftps();
                     else upload.sftp(rsa.trim());
 
@@ -198,4 +215,9 @@ public class TaskBackup extends BThread {
         finish();
     }
 
+    @NotNull
+    @Override
+    public TaskProgress getProgress() {
+        return progress;
+    }
 }
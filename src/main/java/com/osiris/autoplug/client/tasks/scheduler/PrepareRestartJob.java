@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.tasks.scheduler;
+
+import com.osiris.autoplug.client.configs.RestarterConfig;
+import com.osiris.autoplug.client.tasks.PreparedRestart;
+import com.osiris.jlib.logger.AL;
+import org.jetbrains.annotations.NotNull;
+import org.quartz.*;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+/**
+ * Starts a {@link PreparedRestart} some minutes before the restart trigger fires
+ * and then re-schedules itself for the following restart.
+ */
+public class PrepareRestartJob implements Job {
+    private static final String KEY_RESTART_TRIGGER = "restartTrigger";
+
+    /**
+     * Schedules the preparation for the next restart of the provided trigger,
+     * if prepared restarts are enabled in the config.
+     */
+    public static void schedule(@NotNull Scheduler scheduler, @NotNull TriggerKey restartTriggerKey) throws Exception {
+        RestarterConfig config = new RestarterConfig();
+        if (!config.prepared_restart_enabled.asBoolean()) return;
+        long msBefore = config.prepared_restart_minutes.asInt() * 60000L;
+        if (msBefore <= 0) return; // Prepared at the start of the restart countdown instead
+
+        Trigger restartTrigger = scheduler.getTrigger(restartTriggerKey);
+        if (restartTrigger == null) return;
+        // First restart, for which there is still enough time to prepare
+        Date nextRestart = restartTrigger.getFireTimeAfter(new Date(System.currentTimeMillis() + msBefore));
+        if (nextRestart == null) return;
+        Date prepareAt = new Date(nextRestart.getTime() - msBefore);
+
+        String name = "prepare-" + restartTriggerKey.getName();
+        JobDetail job = newJob(PrepareRestartJob.class)
+                .withIdentity(name, "restartGroup")
+                .usingJobData(KEY_RESTART_TRIGGER, restartTriggerKey.getName())
+                .build();
+        Trigger trigger = newTrigger()
+                .withIdentity(name, "restartGroup")
+                .startAt(prepareAt)
+                .build();
+        scheduler.scheduleJob(job, Collections.singleton(trigger), true);
+        AL.debug(PrepareRestartJob.class, "Scheduled preparation for restart at " + nextRestart + " at " + prepareAt);
+    }
+
+    public void execute(JobExecutionContext context) throws JobExecutionException {
+        try {
+            PreparedRestart.prepare();
+        } catch (Exception e) {
+            AL.warn("Error while preparing restart!", e);
+        }
+        try {
+            schedule(context.getScheduler(), new TriggerKey(
+                    context.getJobDetail().getJobDataMap().getString(KEY_RESTART_TRIGGER), "restartGroup"));
+        } catch (Exception e) {
+            AL.warn("Failed to schedule preparation for the next restart!", e);
+        }
+    }
+}
@@ -10,6 +10,7 @@ package com.osiris.autoplug.client.tasks.scheduler;
 
 import com.osiris.autoplug.client.Server;
 import com.osiris.autoplug.client.configs.RestarterConfig;
+import com.osiris.autoplug.client.tasks.PreparedRestart;
 import com.osiris.dyml.YamlSection;
 import com.osiris.jlib.logger.AL;
 import org.jetbrains.annotations.NotNull;
@@ -21,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class RestartJob implements Job {
 
@@ -30,6 +32,9 @@ public class RestartJob implements Job {
             if (!Server.isRunning())
                 throw new Exception("Server is not running. Restart not possible.");
 
+            // Check for and download updates while the countdown is running, if not already done
+            if (PreparedRestart.isEnabled()) PreparedRestart.prepare();
+
             // Before restarting execute commands
             RestarterConfig config = new RestarterConfig();
             List<YamlSection> modules = config.restarter_commands.getChildSections();
@@ -66,6 +71,9 @@ public class RestartJob implements Job {
                 Thread.sleep(1000);
             }
 
+            // Keep the server running until the updates are staged
+            PreparedRestart.awaitPreparation(10, TimeUnit.MINUTES);
+
             //Restart the server
             Server.restart();
 
@@ -16,6 +16,7 @@ import org.jetbrains.annotations.NotNull;
 import org.quartz.CronTrigger;
 import org.quartz.JobDetail;
 import org.quartz.Scheduler;
+import org.quartz.TriggerKey;
 import org.quartz.impl.StdSchedulerFactory;
 
 import java.util.Collections;
@@ -57,6 +58,7 @@ public class TaskCustomRestarter extends BThread {
 
             String cron = config.c_restarter_cron.asString();
             createOrReplaceJob("customRestartJob", "customRestartTrigger", cron);
+            PrepareRestartJob.schedule(scheduler, new TriggerKey("customRestartTrigger", "restartGroup"));
             setStatus("Restart at cron: " + cron);
 
             scheduler.start(); // Create all jobs before starting the scheduler
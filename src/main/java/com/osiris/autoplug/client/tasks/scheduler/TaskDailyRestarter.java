@@ -17,6 +17,7 @@ import org.quartz.CronTrigger;
 import org.quartz.JobDetail;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
+import org.quartz.TriggerKey;
 import org.quartz.impl.StdSchedulerFactory;
 
 import java.util.Collections;
@@ -81,6 +82,10 @@ public class TaskDailyRestarter extends BThread {
                 step();
             }
 
+            for (int i = 0; i < size; i++) {
+                PrepareRestartJob.schedule(scheduler, new TriggerKey("restartTrigger" + i, "restartGroup"));
+            }
+
             scheduler.start(); // Create all jobs before starting the scheduler
             finish(stringJobs.toString(), true);
         } else {
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.tasks.updater;
+
+import com.osiris.autoplug.client.configs.UpdaterConfig;
+import com.osiris.autoplug.client.utils.UtilsByte;
+import com.osiris.autoplug.client.utils.UtilsCrypto;
+import com.osiris.jlib.logger.AL;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Download cache shared by all AutoPlug instances on the same host. <br>
+ * Artifacts are stored by their SHA-256 hash in {@code <root>/sha256}, the download-urls (together with the
+ * expected version or hash if known) point to them via small files in {@code <root>/urls}.
+ * Since some urls always point to the latest version, urls without an expected version are only used for {@link #msMaxUrlAge}. <br>
+ * Downloads of the same url are serialized via file locks, thus the first instance downloads
+ * and the others wait for it and then hard-link the artifact into their own directory
+ * (copy if links are not supported, for example if the cache is on another drive). <br>
+ * Linked files must never be written in place, owners delete or replace them instead
+ * (like {@link TaskDownloadBase} and {@link DeltaDownload} do), otherwise the cached artifact gets modified too.
+ * Modified artifacts are detected via their hash and removed from the cache.
+ */
+public class ArtifactCache {
+    private static final Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+    @Nullable
+    private static volatile ArtifactCache instance;
+    private static volatile boolean isLoaded;
+
+    public final File root;
+    public final long msMaxUrlAge;
+
+    public ArtifactCache(@NotNull File root, long msMaxUrlAge) {
+        this.root = root;
+        this.msMaxUrlAge = msMaxUrlAge;
+    }
+
+    /**
+     * @return the cache as configured in the updater config, or null if disabled.
+     */
+    @Nullable
+    public static ArtifactCache get() {
+        if (!isLoaded) {
+            synchronized (ArtifactCache.class) {
+                if (!isLoaded) {
+                    try {
+                        UpdaterConfig config = new UpdaterConfig();
+                        if (config.global_artifact_cache.asBoolean()) {
+                            String path = config.global_artifact_cache_path.asString();
+                            File root = path == null || path.trim().isEmpty() ?
+                                    new File(System.getProperty("user.home") + "/.autoplug/artifact-cache") : new File(path.trim());
+                            instance = new ArtifactCache(root, TimeUnit.HOURS.toMillis(config.global_artifact_cache_max_url_age.asInt()));
+                        } else instance = null;
+                    } catch (Exception e) {
+                        AL.warn("Failed to load artifact cache settings, the cache is disabled.", e);
+                        instance = null;
+                    }
+                    isLoaded = true;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Reloads the settings at the next {@link #get()}.
+     */
+    public static void reset() {
+        isLoaded = false;
+    }
+
+    /**
+     * See {@link #fetch(String, String, File, Callable)}, without an expected version.
+     */
+    @NotNull
+    public Artifact fetch(@NotNull String url, @NotNull File destDir, @NotNull Callable<Artifact> download) throws Exception {
+        return fetch(url, null, destDir, download);
+    }
+
+    /**
+     * Fetches the artifact of the provided url from the cache, or downloads it and adds it to the cache.
+     *
+     * @param url      the download-url.
+     * @param expected the version or SHA-256 hash the url is expected to deliver, null if unknown.
+     *                 Should be provided for urls that always point to the latest version.
+     *                 If it's a hash, cached and downloaded artifacts must match it to be cached.
+     * @param destDir  the directory to link the cached artifact into.
+     * @param download downloads the artifact and returns the downloaded file, together with its SHA-256 hash
+     *                 calculated while downloading, or null to hash the file afterwards. Only called if not cached.
+     * @return the cached (now linked) or downloaded artifact.
+     */
+    @NotNull
+    public Artifact fetch(@NotNull String url, @Nullable String expected, @NotNull File destDir, @NotNull Callable<Artifact> download) throws Exception {
+        if (expected != null && expected.trim().isEmpty()) expected = null;
+        String expectedSha256 = expected != null && isSHA256(expected.trim()) ? expected.trim().toLowerCase() : null;
+        String keyInput = expected == null ? url : url + "\n" + (expectedSha256 != null ? expectedSha256 : expected.trim());
+        String key = UtilsByte.encode(UtilsCrypto.getSHA256Digest().digest(keyInput.getBytes(StandardCharsets.UTF_8))).toLowerCase();
+        ReentrantLock lock = locks.computeIfAbsent(key, k -> new ReentrantLock());
+        lock.lock(); // File locks are per process, thus threads of this process must be serialized separately
+        try {
+            File lockFile = new File(root, "locks/" + key + ".lock");
+            lockFile.getParentFile().mkdirs();
+            try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock ignored = channel.lock()) {
+                Artifact cached = linkCached(key, expected != null, expectedSha256, destDir);
+                if (cached != null) {
+                    AL.debug(this.getClass(), "Using cached artifact " + cached.file + " for " + url);
+                    return cached;
+                }
+                Artifact result = download.call();
+                File downloaded = result.file;
+                String sha256 = result.sha256 != null ? result.sha256.toLowerCase() : hash(downloaded);
+                if (expectedSha256 != null && !expectedSha256.equals(sha256)) {
+                    // Broken download, the caller decides what to do with it, but it's not cached
+                    AL.debug(this.getClass(), "Not caching " + downloaded + " from " + url + ", expected hash " + expectedSha256 + " but got " + sha256);
+                    return new Artifact(downloaded, sha256);
+                }
+                store(key, downloaded, sha256);
+                return new Artifact(downloaded, sha256);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param isVersioned true if the key contains the expected version, thus the url file doesn't expire.
+     */
+    @Nullable
+    private Artifact linkCached(String key, boolean isVersioned, @Nullable String expectedSha256, File destDir) throws IOException {
+        File urlFile = new File(root, "urls/" + key);
+        if (!urlFile.exists()) return null;
+        if (!isVersioned && System.currentTimeMillis() - urlFile.lastModified() > msMaxUrlAge) return null;
+        List<String> lines = Files.readAllLines(urlFile.toPath(), StandardCharsets.UTF_8);
+        if (lines.size() < 2) return null;
+        String sha256 = lines.get(0).trim().toLowerCase();
+        if (!isSHA256(sha256)) return null;
+        if (expectedSha256 != null && !expectedSha256.equals(sha256)) return null;
+        File artifact = getArtifactFile(sha256);
+        if (!artifact.exists()) return null;
+        String actualSha256 = UtilsCrypto.fastSHA256(artifact);
+        if (actualSha256 == null || !actualSha256.equalsIgnoreCase(sha256)) {
+            AL.warn("Removed corrupted artifact from cache: " + artifact);
+            artifact.delete();
+            return null;
+        }
+
+        destDir.mkdirs();
+        File dest = new File(destDir, new File(lines.get(1).trim()).getName()); // Only the name, the cache is shared
+        Files.deleteIfExists(dest.toPath());
+        linkOrCopy(artifact, dest);
+        return new Artifact(dest, sha256);
+    }
+
+    private static boolean isSHA256(String s) {
+        return s.matches("[0-9a-fA-F]{64}");
+    }
+
+    private static String hash(File file) throws IOException {
+        String sha256 = UtilsCrypto.fastSHA256(file);
+        if (sha256 == null) throw new IOException("Failed to hash " + file);
+        return sha256.toLowerCase();
+    }
+
+    /**
+     * Creates a hard-link, or copies if that's not possible. The target must not exist.
+     */
+    private static void linkOrCopy(File source, File target) throws IOException {
+        try {
+            Files.createLink(target.toPath(), source.toPath());
+        } catch (IOException | UnsupportedOperationException e) {
+            AL.debug(ArtifactCache.class, "Failed to link " + target + ", copying instead: " + e.getMessage());
+            Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void store(String key, File downloaded, String sha256) throws IOException {
+        File artifact = getArtifactFile(sha256);
+        if (!artifact.exists()) {
+            artifact.getParentFile().mkdirs();
+            File tmp = new File(artifact.getAbsolutePath() + ".tmp");
+            Files.deleteIfExists(tmp.toPath());
+            linkOrCopy(downloaded, tmp);
+            Files.move(tmp.toPath(), artifact.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        File urlFile = new File(root, "urls/" + key);
+        urlFile.getParentFile().mkdirs();
+        Files.write(urlFile.toPath(), (sha256 + "\n" + downloaded.getName() + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private File getArtifactFile(String sha256) {
+        sha256 = sha256.toLowerCase();
+        return new File(root, "sha256/" + sha256.substring(0, 2) + "/" + sha256);
+    }
+
+    public static class Artifact {
+        public final File file;
+        /**
+         * Never null for artifacts returned by the cache.
+         */
+        public final String sha256;
+
+        public Artifact(File file, @Nullable String sha256) {
+            this.file = file;
+            this.sha256 = sha256;
+        }
+    }
+}
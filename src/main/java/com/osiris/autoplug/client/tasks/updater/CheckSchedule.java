@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.tasks.updater;
+
+import com.osiris.autoplug.client.configs.UpdaterConfig;
+import com.osiris.autoplug.client.tasks.updater.search.SearchResult;
+import com.osiris.jlib.logger.AL;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when a plugin or mod gets checked for updates next, see {@link UpdaterConfig#global_adaptive_checks}. <br>
+ * The time until the next check is a quarter of the time since its last release
+ * (or since its first check if no release was seen yet), between {@link #msMinInterval} and {@link #msMaxInterval}.
+ * Thus a plugin that released yesterday is checked again in 6 hours and one that didn't release
+ * for weeks only once per {@link #msMaxInterval}. The times are stored in {@link UpdateState}.
+ */
+public class CheckSchedule {
+    public final UpdateState state;
+    /**
+     * If false, everything is always due, but the check results are still recorded.
+     */
+    public final boolean isEnabled;
+    public final long msMinInterval;
+    public final long msMaxInterval;
+
+    public CheckSchedule(@NotNull UpdateState state, boolean isEnabled, long msMinInterval, long msMaxInterval) {
+        this.state = state;
+        this.isEnabled = isEnabled;
+        this.msMinInterval = msMinInterval;
+        this.msMaxInterval = Math.max(msMinInterval, msMaxInterval);
+    }
+
+    /**
+     * @return the schedule as configured in the updater config.
+     */
+    @NotNull
+    public static CheckSchedule get() {
+        try {
+            UpdaterConfig config = new UpdaterConfig();
+            return new CheckSchedule(UpdateState.get(), config.global_adaptive_checks.asBoolean(),
+                    TimeUnit.HOURS.toMillis(config.global_adaptive_checks_min_interval.asInt()),
+                    TimeUnit.HOURS.toMillis(config.global_adaptive_checks_max_interval.asInt()));
+        } catch (Exception e) {
+            AL.warn("Failed to load adaptive checks settings, checking everything.", e);
+            return new CheckSchedule(UpdateState.get(), false, 0, 0);
+        }
+    }
+
+    public boolean isDue(@NotNull String resource) {
+        return isDue(resource, System.currentTimeMillis());
+    }
+
+    /**
+     * Only resources that were up-to-date at their last check are scheduled,
+     * the others (errors, not found, available updates) are always due.
+     */
+    public boolean isDue(@NotNull String resource, long now) {
+        if (!isEnabled) return true;
+        if (!SearchResult.Type.UP_TO_DATE.name().equals(state.get(resource, UpdateState.RESULT))) return true;
+        return now >= state.getLong(resource, UpdateState.NEXT_CHECK, 0);
+    }
+
+    public void onChecked(@NotNull String resource, @NotNull SearchResult.Type type, @Nullable String latestVersion) {
+        onChecked(resource, type, latestVersion, System.currentTimeMillis());
+    }
+
+    /**
+     * Stores the check result and the time of the next check. Must be called before
+     * the latest version is stored elsewhere, since a changed latest version counts as release.
+     */
+    public void onChecked(@NotNull String resource, @NotNull SearchResult.Type type, @Nullable String latestVersion, long now) {
+        String lastLatestVersion = state.get(resource, UpdateState.LATEST_VERSION);
+        if (state.get(resource, UpdateState.FIRST_CHECK) == null) state.put(resource, UpdateState.FIRST_CHECK, now);
+        if (latestVersion != null && lastLatestVersion != null && !latestVersion.equals(lastLatestVersion))
+            state.put(resource, UpdateState.LAST_RELEASE, now);
+        long msSinceRelease = now - state.getLong(resource, UpdateState.LAST_RELEASE, state.getLong(resource, UpdateState.FIRST_CHECK, now));
+        long msInterval = Math.min(msMaxInterval, Math.max(msMinInterval, msSinceRelease / 4));
+        state.put(resource, UpdateState.RESULT, type.name());
+        state.put(resource, UpdateState.LAST_CHECK, now);
+        if (latestVersion != null) state.put(resource, UpdateState.LATEST_VERSION, latestVersion);
+        state.put(resource, UpdateState.NEXT_CHECK, now + msInterval);
+    }
+}
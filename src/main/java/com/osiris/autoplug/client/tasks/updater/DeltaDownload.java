@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.tasks.updater;
+
+import com.osiris.autoplug.client.utils.BinaryDelta;
+import com.osiris.autoplug.client.utils.Metrics;
+import com.osiris.autoplug.client.utils.Profiler;
+import com.osiris.autoplug.client.utils.UtilsCrypto;
+import com.osiris.jlib.logger.AL;
+import okhttp3.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+
+/**
+ * Downloads a {@link BinaryDelta} patch instead of the full file, if the update source supports it. <br>
+ * The request is the regular download-url with the {@link #QUERY_PARAM} parameter
+ * set to the SHA-256 hash of the installed file. Sources that support it respond
+ * with {@link #CONTENT_TYPE}, everything else is treated as not supported. <br>
+ * Used for large artifacts like server jars, the AutoPlug jar and Java archives,
+ * if enabled in the updater config.
+ */
+public class DeltaDownload {
+    public static final String QUERY_PARAM = "autoplug-delta-from";
+    public static final String CONTENT_TYPE = "application/x-autoplug-delta";
+    private static final OkHttpClient client = new OkHttpClient.Builder().followRedirects(true).build();
+
+    /**
+     * @param url      the regular download-url.
+     * @param expected the version or SHA-256 hash the url is expected to deliver, null if unknown, see {@link Mirror#url(String, String)}.
+     * @param base     the currently installed version of the file.
+     * @param dest     where to write the new version of the file. Only replaced (atomically if supported)
+     *                 once the delta was applied, thus a failed patch leaves the previous file untouched.
+     * @return the SHA-256 hash of the new file, or null if no delta is available or applying failed,
+     * in which case the full file should be downloaded.
+     */
+    @Nullable
+    public static String tryDownload(@NotNull String url, @Nullable String expected, @NotNull File base, @NotNull File dest) {
+        if (!base.isFile()) return null;
+        HttpUrl httpUrl = HttpUrl.parse(Mirror.url(url, expected));
+        if (httpUrl == null) return null;
+        String baseSha256 = UtilsCrypto.fastSHA256(base);
+        if (baseSha256 == null) return null;
+
+        Request request = new Request.Builder()
+                .url(httpUrl.newBuilder().addQueryParameter(QUERY_PARAM, baseSha256.toLowerCase()).build())
+                .header("User-Agent", "AutoPlug Client/" + new Random().nextInt() + " - https://autoplug.one")
+                .build();
+        File tmp = new File(dest.getAbsolutePath() + ".autoplug-delta-tmp");
+        try (Profiler.Span ignored = Profiler.start("http", "Delta download " + dest.getName());
+             Response response = client.newCall(request).execute()) {
+            ResponseBody body = response.body();
+            if (response.code() != 200 || body == null || body.contentType() == null
+                    || !CONTENT_TYPE.equals(body.contentType().type() + "/" + body.contentType().subtype())) {
+                AL.debug(DeltaDownload.class, "No delta available for " + dest.getName() + " at " + url);
+                return null;
+            }
+            String sha256;
+            try (InputStream in = body.byteStream();
+                 OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp))) {
+                sha256 = BinaryDelta.apply(base, in, out);
+            }
+            try {
+                Files.move(tmp.toPath(), dest.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (body.contentLength() > 0) Metrics.DOWNLOAD_BYTES.add(body.contentLength());
+            AL.debug(DeltaDownload.class, "Applied delta (" + body.contentLength() / 1024 + "kb) for " + dest.getName());
+            return sha256;
+        } catch (Exception e) {
+            tmp.delete();
+            AL.debug(DeltaDownload.class, "Failed to apply delta for " + dest.getName() + ", falling back to full download. " + e.getMessage());
+            return null;
+        }
+    }
+}
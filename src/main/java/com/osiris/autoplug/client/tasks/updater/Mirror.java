@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.tasks.updater;
+
+import com.osiris.autoplug.client.configs.UpdaterConfig;
+import com.osiris.jlib.logger.AL;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Redirects requests to update sources (metadata and downloads) to another AutoPlug instance
+ * on the same network, that runs the {@link com.osiris.autoplug.client.network.local.MirrorServer}. <br>
+ * If the mirror is not reachable the update sources are used directly.
+ */
+public class Mirror {
+    public static final String PATH = "/proxy";
+    /**
+     * Query parameter with the version or SHA-256 hash the url is expected to deliver,
+     * which the mirror uses as part of its cache key, since some urls always point to the latest version.
+     */
+    public static final String VERSION_PARAM = "autoplug-version";
+    /**
+     * Hosts of the update sources used by AutoPlug.
+     */
+    public static final List<String> DEFAULT_HOSTS = Arrays.asList(
+            "api.spiget.org", "www.spigotmc.org", "api.modrinth.com", "cdn.modrinth.com",
+            "api.curseforge.com", "edge.forgecdn.net", "mediafilez.forgecdn.net", "servermods.forgesvc.net",
+            "api.github.com", "github.com", "objects.githubusercontent.com", "raw.githubusercontent.com",
+            "api.adoptium.net");
+    private static final long MS_REACHABLE_CHECK_INTERVAL = 60000;
+    private static final Object reachableCheckLock = new Object();
+    private static volatile boolean isLoaded;
+    @Nullable
+    private static volatile String mirrorUrl;
+    private static volatile Set<String> hosts = new HashSet<>(DEFAULT_HOSTS);
+    private static volatile boolean isReachable;
+    private static volatile long msLastReachableCheck;
+
+    /**
+     * @return the url to use instead of the provided url of an update source,
+     * which is the provided url itself if no mirror is set, reachable or responsible for its host.
+     */
+    @NotNull
+    public static String url(@NotNull String url) {
+        return url(url, null);
+    }
+
+    /**
+     * Like {@link #url(String)}, for downloads.
+     *
+     * @param expected the version or SHA-256 hash the url is expected to deliver, null if unknown.
+     */
+    @NotNull
+    public static String url(@NotNull String url, @Nullable String expected) {
+        load();
+        String mirrorUrl = Mirror.mirrorUrl;
+        if (mirrorUrl == null) return url;
+        try {
+            String host = URI.create(url).getHost();
+            if (host == null || !hosts.contains(host.toLowerCase()) || !isReachable(mirrorUrl)) return url;
+            String mirroredUrl = mirrorUrl + PATH + "?url=" + URLEncoder.encode(url, "UTF-8");
+            if (expected != null && !expected.trim().isEmpty())
+                mirroredUrl += "&" + VERSION_PARAM + "=" + URLEncoder.encode(expected.trim(), "UTF-8");
+            return mirroredUrl;
+        } catch (IllegalArgumentException | UnsupportedEncodingException e) {
+            return url;
+        }
+    }
+
+    /**
+     * @return the hosts that are mirrored.
+     */
+    @NotNull
+    public static Set<String> getHosts() {
+        load();
+        return hosts;
+    }
+
+    /**
+     * Reloads the settings at the next {@link #url(String)}.
+     */
+    public static void reset() {
+        isLoaded = false;
+    }
+
+    /**
+     * Uses the provided settings instead of the updater config, until {@link #reset()}.
+     *
+     * @param mirrorUrl url of the mirror, null to not use a mirror.
+     */
+    public static synchronized void set(@Nullable String mirrorUrl, @NotNull Set<String> hosts) {
+        Mirror.mirrorUrl = mirrorUrl == null ? null : mirrorUrl.trim().replaceAll("/+$", "");
+        Set<String> lowerCaseHosts = new HashSet<>();
+        for (String host : hosts) {
+            lowerCaseHosts.add(host.trim().toLowerCase());
+        }
+        Mirror.hosts = lowerCaseHosts;
+        msLastReachableCheck = 0;
+        isLoaded = true;
+    }
+
+    private static void load() {
+        if (isLoaded) return;
+        synchronized (Mirror.class) {
+            if (isLoaded) return;
+            try {
+                UpdaterConfig config = new UpdaterConfig();
+                String url = config.global_mirror_url.asString();
+                mirrorUrl = url == null || url.trim().isEmpty() ? null : url.trim().replaceAll("/+$", "");
+                Set<String> hosts = new HashSet<>();
+                for (String host : config.global_mirror_hosts.asStringList()) {
+                    hosts.add(host.trim().toLowerCase());
+                }
+                Mirror.hosts = hosts;
+            } catch (Exception e) {
+                AL.warn("Failed to load mirror settings, the mirror is not used.", e);
+                mirrorUrl = null;
+            }
+            msLastReachableCheck = 0;
+            isLoaded = true;
+        }
+    }
+
+    /**
+     * Checks at most each {@link #MS_REACHABLE_CHECK_INTERVAL} if the mirror is reachable.
+     * Callers wait for a running check, instead of using the result of the previous one.
+     */
+    private static boolean isReachable(String mirrorUrl) {
+        if (System.currentTimeMillis() - msLastReachableCheck < MS_REACHABLE_CHECK_INTERVAL) return isReachable;
+        synchronized (reachableCheckLock) {
+            if (System.currentTimeMillis() - msLastReachableCheck < MS_REACHABLE_CHECK_INTERVAL) return isReachable;
+            URI uri = URI.create(mirrorUrl);
+            int port = uri.getPort() != -1 ? uri.getPort() : ("https".equals(uri.getScheme()) ? 443 : 80);
+            boolean reachable;
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress(uri.getHost(), port), 1000);
+                reachable = true;
+            } catch (Exception e) {
+                AL.debug(Mirror.class, "Mirror " + mirrorUrl + " is not reachable, using update sources directly. " + e.getMessage());
+                reachable = false;
+            }
+            // Result first, since callers read the timestamp first
+            isReachable = reachable;
+            msLastReachableCheck = System.currentTimeMillis();
+            return reachable;
+        }
+    }
+}
@@ -0,0 +1,390 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.tasks.updater;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.osiris.autoplug.client.configs.UpdaterConfig;
+import com.osiris.dyml.YamlSection;
+import com.osiris.jlib.logger.AL;
+import org.apache.commons.io.FileUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Installs downloaded updates. <br>
+ * Normally updates get installed right away, since the updaters run while the server is stopped.
+ * While {@link #isStaging()} (the server is still running, but a restart is being prepared)
+ * installs are only recorded and applied later via {@link #applyAll()}, once the server was stopped. <br>
+ * Recorded installs are saved to {@link #QUEUE_FILE_NAME} in the staging dir, thus if AutoPlug exits
+ * before applying them, they get applied before the next server start.
+ * Failed installs are retried at the next start, up to {@link #MAX_ATTEMPTS} times. <br>
+ * The new version of a staged install (see {@link #installFile(File, File, File, YamlSection, String)})
+ * is only stored in the {@link UpdaterConfig} once applied, thus if it never gets applied, the updater finds the update again.
+ */
+public class StagedInstalls {
+    public static final String QUEUE_FILE_NAME = "installs.json";
+    public static final int MAX_ATTEMPTS = 3;
+    private static final Gson gson = new Gson();
+    private static final AtomicBoolean isStaging = new AtomicBoolean(false);
+    private static final List<Install> installs = new ArrayList<>();
+    private static File dir = new File(System.getProperty("user.dir") + "/autoplug/staging");
+    private static boolean isLoaded;
+
+    public static boolean isStaging() {
+        return isStaging.get();
+    }
+
+    /**
+     * @return the dir containing the staged files and the queue.
+     */
+    public static File getDir() {
+        synchronized (installs) {
+            return dir;
+        }
+    }
+
+    /**
+     * Changes the staging dir, for example for tests. The queue gets loaded from the new dir at the next access.
+     */
+    public static void setDir(@NotNull File dir) {
+        synchronized (installs) {
+            StagedInstalls.dir = dir;
+            installs.clear();
+            isLoaded = false;
+        }
+    }
+
+    /**
+     * Enables/disables staging. Enabling it removes left-overs of previous stagings
+     * that are not in the queue.
+     */
+    public static void setStaging(boolean staging) throws IOException {
+        if (staging && isStaging.compareAndSet(false, true)) {
+            synchronized (installs) {
+                load();
+                if (installs.isEmpty() && dir.exists()) FileUtils.deleteDirectory(dir);
+                dir.mkdirs();
+            }
+        } else if (!staging) isStaging.set(false);
+    }
+
+    /**
+     * Installs the source file at the target location, or records it if {@link #isStaging()}.
+     * The target gets replaced atomically (if supported by the file system),
+     * thus there is never a half written file at the target location.
+     *
+     * @param toDelete file to delete once the target was installed, for example the old plugin jar with a different name.
+     * @return true if the file was installed, false if it was staged.
+     */
+    public static boolean installFile(@NotNull File source, @NotNull File target, @Nullable File toDelete) throws IOException {
+        return installFile(source, target, toDelete, null, null);
+    }
+
+    /**
+     * Like {@link #installFile(File, File, File)}, but also sets the new version in the {@link UpdaterConfig}.
+     * If installed, the version gets set right away (the caller must still save the config),
+     * if staged, it gets set and saved once the install was applied.
+     *
+     * @param version    section of the {@link UpdaterConfig} that holds the installed version.
+     * @param newVersion the version of the source file.
+     */
+    public static boolean installFile(@NotNull File source, @NotNull File target, @Nullable File toDelete,
+                                      @Nullable YamlSection version, @Nullable String newVersion) throws IOException {
+        if (isStaging()) {
+            // Copy into the staging dir, so that later downloads cannot modify it
+            File dir = getDir();
+            File staged = new File(dir, System.nanoTime() + "-" + source.getName());
+            if (!source.toPath().startsWith(dir.toPath()))
+                Files.copy(source.toPath(), staged.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            else staged = source;
+            add(new Install(staged, target, toDelete, false, false).setVersion(version, newVersion));
+            return false;
+        }
+        applyFile(source, target, toDelete);
+        if (version != null && newVersion != null) version.setValues(newVersion);
+        return true;
+    }
+
+    /**
+     * Installs the source directory at the target location, or records it if {@link #isStaging()}.
+     * Note that if staging the source directory is not copied and thus must not be modified until applied.
+     *
+     * @param isReplace if true the target directory gets replaced by the source directory,
+     *                  otherwise the source files get copied into the target directory.
+     * @return true if the directory was installed, false if it was staged.
+     */
+    public static boolean installDirectory(@NotNull File source, @NotNull File target, boolean isReplace) throws IOException {
+        return installDirectory(source, target, isReplace, null, null);
+    }
+
+    /**
+     * Like {@link #installDirectory(File, File, boolean)}, but also sets the new version in the {@link UpdaterConfig},
+     * see {@link #installFile(File, File, File, YamlSection, String)}.
+     */
+    public static boolean installDirectory(@NotNull File source, @NotNull File target, boolean isReplace,
+                                           @Nullable YamlSection version, @Nullable String newVersion) throws IOException {
+        if (isStaging()) {
+            add(new Install(source, target, null, true, isReplace).setVersion(version, newVersion));
+            return false;
+        }
+        applyDirectory(source, target, isReplace);
+        if (version != null && newVersion != null) version.setValues(newVersion);
+        return true;
+    }
+
+    /**
+     * @return the version of the latest recorded install for the provided {@link UpdaterConfig} section,
+     * or its current value if there is none. Used by the updaters to not stage the same update again.
+     */
+    @Nullable
+    public static String getVersion(@NotNull YamlSection version) {
+        List<String> keys = version.getKeys();
+        synchronized (installs) {
+            load();
+            for (int i = installs.size() - 1; i >= 0; i--) {
+                Install install = installs.get(i);
+                if (keys.equals(install.versionKeys)) return install.version;
+            }
+        }
+        return version.asString();
+    }
+
+    /**
+     * @return amount of recorded installs that are not applied yet.
+     */
+    public static int count() {
+        synchronized (installs) {
+            load();
+            return installs.size();
+        }
+    }
+
+    /**
+     * Applies all recorded installs in the order they were recorded, including the ones of previous runs.
+     * Failed installs stay recorded and are retried at the next call, up to {@link #MAX_ATTEMPTS} times.
+     * Must only be called while the server is stopped.
+     *
+     * @return amount of failed installs.
+     */
+    public static int applyAll() {
+        List<Install> list;
+        synchronized (installs) {
+            load();
+            list = new ArrayList<>(installs);
+        }
+        if (list.isEmpty()) return 0;
+        int failed = 0;
+        AL.info("Installing " + list.size() + " staged update(s)...");
+        List<Install> done = new ArrayList<>();
+        for (Install install : list) {
+            try {
+                if (install.isDirectory) applyDirectory(install.source, install.target, install.isReplace);
+                else applyFile(install.source, install.target, install.toDelete);
+                AL.debug(StagedInstalls.class, "Installed " + install.source + " into " + install.target);
+                done.add(install);
+                if (install.versionKeys != null) saveVersion(install);
+            } catch (Exception e) {
+                failed++;
+                install.attempts++;
+                if (install.attempts >= MAX_ATTEMPTS) {
+                    AL.warn("Failed to install staged update into " + install.target + ", giving up after " + install.attempts + " attempts.", e);
+                    done.add(install);
+                } else
+                    AL.warn("Failed to install staged update into " + install.target + ", retrying at the next start.", e);
+            }
+        }
+        synchronized (installs) {
+            installs.removeAll(done);
+            try {
+                save();
+            } catch (Exception e) {
+                AL.warn("Failed to save staged installs queue.", e);
+            }
+            if (installs.isEmpty() && !isStaging()) {
+                try {
+                    FileUtils.deleteDirectory(dir);
+                } catch (Exception e) {
+                    AL.debug(StagedInstalls.class, "Failed to delete staging dir: " + e.getMessage());
+                }
+            }
+        }
+        return failed;
+    }
+
+    private static void saveVersion(Install install) {
+        try {
+            UpdaterConfig updaterConfig = new UpdaterConfig();
+            updaterConfig.put(install.versionKeys.toArray(new String[0])).setValues(install.version);
+            updaterConfig.save();
+        } catch (Exception e) {
+            AL.warn("Installed staged update into " + install.target + ", but failed to save its version "
+                    + install.version + ", thus it might get downloaded again.", e);
+        }
+    }
+
+    private static void add(Install install) throws IOException {
+        synchronized (installs) {
+            load();
+            // A later install for the same target replaces the earlier one
+            installs.removeIf(i -> i.isDirectory == install.isDirectory && i.target.equals(install.target)
+                    && (!install.isDirectory || install.isReplace));
+            installs.add(install);
+            save();
+        }
+        AL.debug(StagedInstalls.class, "Staged install of " + install.source + " into " + install.target);
+    }
+
+    /**
+     * Loads the queue saved by a previous run, if not loaded yet. Installs whose staged files are gone are dropped.
+     * Must be called while holding the lock of {@link #installs}.
+     */
+    private static void load() {
+        if (isLoaded) return;
+        isLoaded = true;
+        File file = new File(dir, QUEUE_FILE_NAME);
+        if (!file.exists()) return;
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            JsonArray arr = gson.fromJson(reader, JsonArray.class);
+            if (arr == null) return;
+            for (JsonElement el : arr) {
+                JsonObject obj = el.getAsJsonObject();
+                Install install = new Install(new File(obj.get("source").getAsString()), new File(obj.get("target").getAsString()),
+                        obj.has("toDelete") ? new File(obj.get("toDelete").getAsString()) : null,
+                        obj.get("isDirectory").getAsBoolean(), obj.get("isReplace").getAsBoolean());
+                install.attempts = obj.has("attempts") ? obj.get("attempts").getAsInt() : 0;
+                if (obj.has("versionKeys")) {
+                    install.versionKeys = new ArrayList<>();
+                    for (JsonElement key : obj.getAsJsonArray("versionKeys")) install.versionKeys.add(key.getAsString());
+                    install.version = obj.get("version").getAsString();
+                }
+                if (install.source.exists()) installs.add(install);
+                else AL.warn("Dropped staged update into " + install.target + ", since its file " + install.source + " is missing.");
+            }
+            if (!installs.isEmpty())
+                AL.info("Found " + installs.size() + " staged update(s) of a previous run, they get installed before the next server start.");
+        } catch (Exception e) {
+            AL.warn("Failed to read staged installs queue " + file + ", ignoring it.", e);
+        }
+    }
+
+    /**
+     * Saves the queue, or deletes the file if empty.
+     * Must be called while holding the lock of {@link #installs}.
+     */
+    private static void save() throws IOException {
+        File file = new File(dir, QUEUE_FILE_NAME);
+        if (installs.isEmpty()) {
+            Files.deleteIfExists(file.toPath());
+            return;
+        }
+        JsonArray arr = new JsonArray();
+        for (Install install : installs) {
+            JsonObject obj = new JsonObject();
+            obj.addProperty("source", install.source.getAbsolutePath());
+            obj.addProperty("target", install.target.getAbsolutePath());
+            if (install.toDelete != null) obj.addProperty("toDelete", install.toDelete.getAbsolutePath());
+            obj.addProperty("isDirectory", install.isDirectory);
+            obj.addProperty("isReplace", install.isReplace);
+            obj.addProperty("attempts", install.attempts);
+            if (install.versionKeys != null) {
+                JsonArray keys = new JsonArray();
+                for (String key : install.versionKeys) keys.add(key);
+                obj.add("versionKeys", keys);
+                obj.addProperty("version", install.version);
+            }
+            arr.add(obj);
+        }
+        dir.mkdirs();
+        File tmp = new File(dir, QUEUE_FILE_NAME + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            gson.toJson(arr, writer);
+        }
+        move(tmp, file);
+    }
+
+    private static void applyFile(File source, File target, @Nullable File toDelete) throws IOException {
+        File parent = target.getAbsoluteFile().getParentFile();
+        if (parent != null) parent.mkdirs();
+        // Copy next to the target first, so that the final move is a rename on the same file system
+        File tmp = new File(parent, target.getName() + ".autoplug-tmp");
+        Files.copy(source.toPath(), tmp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        move(tmp, target);
+        if (toDelete != null && toDelete.exists() && !toDelete.getAbsoluteFile().equals(target.getAbsoluteFile()))
+            toDelete.delete();
+    }
+
+    private static void applyDirectory(File source, File target, boolean isReplace) throws IOException {
+        if (!isReplace) {
+            FileUtils.copyDirectory(source, target);
+            return;
+        }
+        File old = new File(target.getAbsolutePath() + ".autoplug-old");
+        if (old.exists()) FileUtils.deleteDirectory(old);
+        if (target.exists()) move(target, old);
+        try {
+            move(source, target);
+        } catch (IOException e) { // Different file system, copy instead
+            FileUtils.copyDirectory(source, target);
+        }
+        if (old.exists()) FileUtils.deleteDirectory(old);
+    }
+
+    private static void move(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static class Install {
+        final File source;
+        final File target;
+        @Nullable
+        final File toDelete;
+        final boolean isDirectory;
+        final boolean isReplace;
+        int attempts;
+        /**
+         * Keys of the {@link UpdaterConfig} section to set to {@link #version} once applied, or null.
+         */
+        @Nullable
+        List<String> versionKeys;
+        @Nullable
+        String version;
+
+        Install(File source, File target, @Nullable File toDelete, boolean isDirectory, boolean isReplace) {
+            this.source = source;
+            this.target = target;
+            this.toDelete = toDelete;
+            this.isDirectory = isDirectory;
+            this.isReplace = isReplace;
+        }
+
+        Install setVersion(@Nullable YamlSection section, @Nullable String version) {
+            if (section != null && version != null) {
+                this.versionKeys = new ArrayList<>(section.getKeys());
+                this.version = version;
+            }
+            return this;
+        }
+    }
+}
@@ -8,7 +8,11 @@
 
 package com.osiris.autoplug.client.tasks.updater;
 
+import com.osiris.autoplug.client.utils.Metrics;
+import com.osiris.autoplug.client.utils.Profiler;
+import com.osiris.autoplug.client.utils.UtilsByte;
 import com.osiris.autoplug.client.utils.UtilsCrypto;
+import com.osiris.autoplug.client.utils.tasks.TaskProgress;
 import com.osiris.betterthread.BThread;
 import com.osiris.betterthread.BThreadManager;
 import com.osiris.jlib.logger.AL;
@@ -16,19 +20,32 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.File;
-import java.io.FileOutputStream;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
 import java.util.Arrays;
 import java.util.Random;
 
-public class TaskDownloadBase extends BThread {
+public class TaskDownloadBase extends BThread implements TaskProgress.Owner {
+    protected static final int BUFFER_SIZE = 8192;
+    private final TaskProgress progress = new TaskProgress();
     private String url;
     private File destinationFile;
     private boolean ignoreContentType;
     private String[] allowedSubContentTypes;
+    /**
+     * SHA-256 hash of the downloaded bytes, calculated while streaming.
+     */
+    @Nullable
+    private volatile String sha256;
+    @Nullable
+    private File deltaBase;
+    @Nullable
+    private String expected;
 
     /**
      * Downloads a file from an url to the cache first and then
@@ -51,22 +68,54 @@ public class TaskDownloadBase extends BThread {
         this.allowedSubContentTypes = allowedSubContentTypes;
     }
 
-    private TaskDownloadBase(String name, BThreadManager manager) {
+    /**
+     * For subclasses that have their own download logic,
+     * since this does not download anything on its own.
+     */
+    protected TaskDownloadBase(String name, BThreadManager manager) {
         super(name, manager);
     }
 
     @Override
     public void runAtStart() throws Exception {
         super.runAtStart();
+        if (url == null) return;
 
         final String fileName = destinationFile.getName();
         setStatus("Downloading " + fileName + "... (0mb/0mb)");
         AL.debug(this.getClass(), "Downloading " + fileName + " from: " + url);
 
-        Request request = new Request.Builder().url(url)
+        ArtifactCache cache = ArtifactCache.get();
+        if (cache == null) {
+            download(fileName);
+            return;
+        }
+        ArtifactCache.Artifact artifact = cache.fetch(url, expected, destinationFile.getParentFile(), () -> {
+            download(fileName);
+            return new ArtifactCache.Artifact(destinationFile, sha256);
+        });
+        if (!artifact.file.equals(destinationFile))
+            Files.move(artifact.file.toPath(), destinationFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        sha256 = artifact.sha256;
+        setStatus("Downloaded " + fileName + ".");
+    }
+
+    private void download(String fileName) throws Exception {
+        if (deltaBase != null) {
+            String deltaSha256 = DeltaDownload.tryDownload(url, expected, deltaBase, destinationFile);
+            if (deltaSha256 != null) {
+                sha256 = deltaSha256;
+                setStatus("Downloaded " + fileName + " via delta update.");
+                return;
+            }
+        }
+
+        Request request = new Request.Builder().url(Mirror.url(url, expected))
                 .header("User-Agent", "AutoPlug Client/" + new Random().nextInt() + " - https://autoplug.one")
                 .build();
 
+        Profiler.Span span = Profiler.start("http", "Download " + fileName);
+
         Response response = new OkHttpClient.Builder().followRedirects(true).build().newCall(request).execute();
         ResponseBody body = null;
         try {
@@ -90,35 +139,81 @@ public class TaskDownloadBase extends BThread {
             }
 
             long completeFileSize = body.contentLength();
-            setMax(completeFileSize);
-
-            BufferedInputStream in = new BufferedInputStream(body.byteStream());
-            FileOutputStream fos = new FileOutputStream(destinationFile);
-            BufferedOutputStream bout = new BufferedOutputStream(fos, 1024);
-            byte[] data = new byte[1024];
-            long downloadedFileSize = 0;
-            int byteRead = 0;
-            while ((byteRead = in.read(data, 0, 1024)) >= 0) {
-                downloadedFileSize += byteRead;
-
-                setStatus("Downloading " + fileName + "... (" + downloadedFileSize / (1024 * 1024) + "mb/" + completeFileSize / (1024 * 1024) + "mb)");
-                setNow(downloadedFileSize);
-
-                bout.write(data, 0, byteRead);
-            }
+            destinationFile.delete();
+            MessageDigest digest = UtilsCrypto.getSHA256Digest();
+            long downloadedFileSize = writeBody(body, destinationFile, fileName, digest);
+            sha256 = UtilsByte.encode(digest.digest());
 
+            Metrics.DOWNLOAD_BYTES.add(downloadedFileSize);
             setStatus("Downloaded " + fileName + " (" + downloadedFileSize / (1024 * 1024) + "mb/" + completeFileSize / (1024 * 1024) + "mb)");
-            bout.close();
-            in.close();
             body.close();
             response.close();
         } catch (Exception e) {
             if (body != null) body.close();
             response.close();
             throw e;
+        } finally {
+            span.close();
+            Metrics.DOWNLOAD_DURATION.observe(span.getMs());
+        }
+    }
+
+    /**
+     * Writes the response body to the file and displays the download progress via {@link #getProgress()}.
+     * Only primitive values are updated per chunk, the status text is built when displayed.
+     *
+     * @param subject the name displayed for the download.
+     * @param digest  updated with the downloaded bytes, null to not hash them.
+     * @return the amount of downloaded bytes.
+     */
+    protected long writeBody(@NotNull ResponseBody body, @NotNull File dest, @NotNull String subject,
+                             @Nullable MessageDigest digest) throws IOException {
+        long completeFileSize = body.contentLength();
+        setMax(completeFileSize);
+        progress.start(TaskProgress.Phase.DOWNLOADING, subject, completeFileSize);
+        try (InputStream in = body.byteStream();
+             OutputStream out = new BufferedOutputStream(new FileOutputStream(dest), BUFFER_SIZE)) {
+            byte[] data = new byte[BUFFER_SIZE];
+            long downloadedFileSize = 0;
+            int count;
+            while ((count = in.read(data, 0, BUFFER_SIZE)) >= 0) {
+                downloadedFileSize += count;
+                progress.setNow(downloadedFileSize);
+                setNow(downloadedFileSize);
+                out.write(data, 0, count);
+                if (digest != null) digest.update(data, 0, count);
+            }
+            return downloadedFileSize;
+        } finally {
+            progress.stop();
         }
     }
 
+    /**
+     * @param expected the version or SHA-256 hash the url is expected to deliver, used as part of the
+     *                 {@link ArtifactCache} key, since some urls always point to the latest version. Null if unknown.
+     */
+    public TaskDownloadBase setExpected(@Nullable String expected) {
+        this.expected = expected;
+        return this;
+    }
+
+    /**
+     * Tries to only download the differences to the provided file first, see {@link DeltaDownload}.
+     *
+     * @param deltaBase the currently installed version of the file, null to always download the full file.
+     */
+    public TaskDownloadBase setDeltaBase(@Nullable File deltaBase) {
+        this.deltaBase = deltaBase;
+        return this;
+    }
+
+    @NotNull
+    @Override
+    public TaskProgress getProgress() {
+        return progress;
+    }
+
     /**
      * Only use this method after finishing the download.
      * It will get the hash for the newly downloaded file and
@@ -137,17 +232,28 @@ public class TaskDownloadBase extends BThread {
 
     /**
      * Only use this method after finishing the download.
-     * It will get the hash for the newly downloaded file and
-     * compare it with the given hash.
+     * Compares the hash calculated while downloading with the given hash,
+     * thus the file does not need to be read again.
      *
      * @return true if the hashes match
      */
     public boolean compareWithSHA256(String expectedHash) {
         expectedHash = expectedHash.trim().toLowerCase();
-        final String myHash = UtilsCrypto.fastSHA256(destinationFile).trim().toLowerCase();
+        String sha256 = this.sha256;
+        if (sha256 == null) sha256 = UtilsCrypto.fastSHA256(destinationFile);
+        final String myHash = sha256.trim().toLowerCase();
         boolean result = myHash.equals(expectedHash);
         AL.debug(this.getClass(), "Comparing hashes (SHA-256). Is equal? " +
                 result + " Excepted: \"" + expectedHash + "\" Actual: \"" + myHash + "\"");
         return result;
     }
+
+    /**
+     * @return the SHA-256 hash of the downloaded file, calculated while downloading,
+     * or null if the download did not finish.
+     */
+    @Nullable
+    public String getSha256() {
+        return sha256;
+    }
 }
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.tasks.updater;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.osiris.jlib.logger.AL;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * State of the updaters, like resolved ids, installed and latest versions and check results,
+ * that was previously written into the plugins.yml/mods.yml after each check. Those files are now
+ * only the layer the user edits, their values take precedence over the values in here. <br>
+ * All values are kept in memory, thus lookups don't touch the disk. Changes are appended to a log file,
+ * one JSON array per line: {@code [resource, field, value]} to set a value (null removes the field)
+ * and {@code [resource]} to remove a resource. The log is compacted once it contains mostly
+ * outdated lines. Resources are named by the updater, like {@code plugins/Essentials}.
+ */
+public class UpdateState {
+    public static final String PLUGINS = "plugins/";
+    public static final String MODS = "mods/";
+    public static final String LATEST_VERSION = "latest-version";
+    public static final String VERSION = "version";
+    public static final String AUTHOR = "author";
+    public static final String SPIGOT_ID = "spigot-id";
+    public static final String BUKKIT_ID = "bukkit-id";
+    public static final String MODRINTH_ID = "modrinth-id";
+    public static final String CURSEFORGE_ID = "curseforge-id";
+    public static final String JENKINS_BUILD_ID = "jenkins-build-id";
+    public static final String DOWNLOAD_URL = "download-url";
+    public static final String RESULT = "result";
+    public static final String DOWNLOAD_TYPE = "download-type";
+    public static final String LAST_CHECK = "last-check";
+    public static final String FIRST_CHECK = "first-check";
+    public static final String LAST_RELEASE = "last-release";
+    public static final String NEXT_CHECK = "next-check";
+    private static final Gson gson = new Gson();
+    @Nullable
+    private static UpdateState instance;
+
+    public final File file;
+    private final Map<String, Map<String, String>> resources = new HashMap<>();
+    private final List<String> pending = new ArrayList<>();
+    private int logLines;
+    private boolean isLoaded;
+
+    public UpdateState(@NotNull File file) {
+        this.file = file;
+    }
+
+    /**
+     * @return the state of this server, loaded at the first call.
+     */
+    @NotNull
+    public static synchronized UpdateState get() {
+        if (instance == null)
+            instance = new UpdateState(new File(System.getProperty("user.dir") + "/autoplug/system/update-state.log"));
+        return instance;
+    }
+
+    /**
+     * Reads the log into memory, lines that can't be parsed (like a partially written last line) are skipped.
+     * Does nothing if already loaded.
+     */
+    public synchronized UpdateState load() {
+        if (isLoaded) return this;
+        isLoaded = true;
+        if (!file.exists()) return this;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                logLines++;
+                try {
+                    apply(gson.fromJson(line, JsonArray.class));
+                } catch (Exception e) {
+                    AL.debug(this.getClass(), "Skipped invalid line " + logLines + " in " + file + ": " + e.getMessage());
+                }
+            }
+        } catch (Exception e) {
+            AL.warn("Failed to read " + file + ", the updaters start without state.", e);
+        }
+        return this;
+    }
+
+    private void apply(@Nullable JsonArray arr) {
+        if (arr == null || arr.size() == 0) return;
+        String resource = arr.get(0).getAsString();
+        if (arr.size() == 1) {
+            resources.remove(resource);
+            return;
+        }
+        String field = arr.get(1).getAsString();
+        JsonElement value = arr.size() > 2 ? arr.get(2) : null;
+        if (value == null || value.isJsonNull()) {
+            Map<String, String> fields = resources.get(resource);
+            if (fields != null) fields.remove(field);
+        } else
+            resources.computeIfAbsent(resource, k -> new HashMap<>()).put(field, value.getAsString());
+    }
+
+    @Nullable
+    public synchronized String get(@NotNull String resource, @NotNull String field) {
+        load();
+        Map<String, String> fields = resources.get(resource);
+        return fields == null ? null : fields.get(field);
+    }
+
+    public long getLong(@NotNull String resource, @NotNull String field, long def) {
+        String value = get(resource, field);
+        if (value == null) return def;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    /**
+     * @return copy of the fields of the provided resource, empty if not existing.
+     */
+    @NotNull
+    public synchronized Map<String, String> getAll(@NotNull String resource) {
+        load();
+        Map<String, String> fields = resources.get(resource);
+        return fields == null ? new HashMap<>() : new HashMap<>(fields);
+    }
+
+    /**
+     * @return names of the resources starting with the provided prefix, without the prefix, sorted.
+     */
+    @NotNull
+    public synchronized List<String> getNames(@NotNull String prefix) {
+        load();
+        List<String> names = new ArrayList<>();
+        for (String resource : resources.keySet()) {
+            if (resource.startsWith(prefix)) names.add(resource.substring(prefix.length()));
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Sets the value in memory, written to the log at the next {@link #save()}.
+     * Does nothing if the value didn't change.
+     *
+     * @param value null to remove the field.
+     */
+    public synchronized UpdateState put(@NotNull String resource, @NotNull String field, @Nullable Object value) {
+        load();
+        String s = value == null ? null : String.valueOf(value);
+        Map<String, String> fields = resources.get(resource);
+        String old = fields == null ? null : fields.get(field);
+        if (Objects.equals(old, s)) return this;
+        JsonArray arr = new JsonArray();
+        arr.add(resource);
+        arr.add(field);
+        arr.add(s);
+        apply(arr);
+        pending.add(gson.toJson(arr));
+        return this;
+    }
+
+    /**
+     * Removes the resource and all its fields, written to the log at the next {@link #save()}.
+     */
+    public synchronized UpdateState remove(@NotNull String resource) {
+        load();
+        if (resources.remove(resource) == null) return this;
+        JsonArray arr = new JsonArray();
+        arr.add(resource);
+        pending.add(gson.toJson(arr));
+        return this;
+    }
+
+    /**
+     * Appends the changes since the last save to the log, or rewrites
+     * it if most of its lines are outdated.
+     */
+    public synchronized void save() throws IOException {
+        if (pending.isEmpty()) return;
+        file.getParentFile().mkdirs();
+        int liveLines = 0;
+        for (Map<String, String> fields : resources.values()) {
+            liveLines += fields.size();
+        }
+        if (logLines + pending.size() > Math.max(1000, liveLines * 2)) {
+            compact();
+            return;
+        }
+        boolean isLastLineIncomplete = false;
+        if (file.length() > 0) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                raf.seek(raf.length() - 1);
+                isLastLineIncomplete = raf.read() != '\n';
+            }
+        }
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8))) {
+            if (isLastLineIncomplete) writer.write('\n'); // For example if the last write was interrupted
+            for (String line : pending) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        }
+        logLines += pending.size();
+        pending.clear();
+    }
+
+    private void compact() throws IOException {
+        File tmp = new File(file.getAbsolutePath() + ".tmp");
+        int lines = 0;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+            for (Map.Entry<String, Map<String, String>> resource : resources.entrySet()) {
+                for (Map.Entry<String, String> field : resource.getValue().entrySet()) {
+                    JsonArray arr = new JsonArray();
+                    arr.add(resource.getKey());
+                    arr.add(field.getKey());
+                    arr.add(field.getValue());
+                    writer.write(gson.toJson(arr));
+                    writer.write('\n');
+                    lines++;
+                }
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        AL.debug(this.getClass(), "Compacted " + file + " from " + (logLines + pending.size()) + " to " + lines + " lines.");
+        logLines = lines;
+        pending.clear();
+    }
+}
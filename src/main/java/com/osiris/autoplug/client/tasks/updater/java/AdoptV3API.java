@@ -10,6 +10,7 @@ package com.osiris.autoplug.client.tasks.updater.java;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.osiris.autoplug.client.tasks.updater.Mirror;
 import com.osiris.jlib.json.Json;
 import com.osiris.jlib.json.exceptions.HttpErrorException;
 import com.osiris.jlib.json.exceptions.WrongJsonTypeException;
@@ -68,10 +69,10 @@ public class AdoptV3API {
     public JsonArray getVersionInformation(String releaseVersionName, OperatingSystemArchitectureType osArchitectureType, boolean isLargeHeapSize, ImageType imageType,
                                            boolean isHotspotImpl, boolean isOnlyLTS, OperatingSystemType osType, int maxItems,
                                            VendorProjectType vendorProject, ReleaseType releaseType) throws WrongJsonTypeException, IOException, HttpErrorException {
-        return Json.getAsJsonArray(getVersionInformationUrl(
+        return Json.getAsJsonArray(Mirror.url(getVersionInformationUrl(
                 releaseVersionName, osArchitectureType, isLargeHeapSize, imageType, isHotspotImpl,
                 isOnlyLTS, osType, maxItems, vendorProject, releaseType
-        ));
+        )));
     }
 
     /**
@@ -113,7 +114,7 @@ public class AdoptV3API {
             while (true) { // Loop through all pages until last request gives 404 error code
                 url = getReleasesUrl(page, osArchitectureType, isLargeHeapSize, imageType,
                         isHotspotImpl, isOnlyLTS, osType, maxItems, vendorProject, releaseType);
-                Boolean shouldContinue = onNewPage.apply(Json.getAsObject(url));
+                Boolean shouldContinue = onNewPage.apply(Json.getAsObject(Mirror.url(url)));
                 if (!shouldContinue) break;
                 page++;
             }
@@ -8,6 +8,14 @@
 
 package com.osiris.autoplug.client.tasks.updater.java;
 
+import com.osiris.autoplug.client.tasks.updater.ArtifactCache;
+import com.osiris.autoplug.client.tasks.updater.DeltaDownload;
+import com.osiris.autoplug.client.tasks.updater.Mirror;
+import com.osiris.autoplug.client.utils.Metrics;
+import com.osiris.autoplug.client.utils.Profiler;
+import com.osiris.autoplug.client.utils.UtilsByte;
+import com.osiris.autoplug.client.utils.UtilsCrypto;
+import com.osiris.autoplug.client.utils.tasks.TaskProgress;
 import com.osiris.betterthread.BThread;
 import com.osiris.betterthread.BThreadManager;
 import com.osiris.betterthread.BWarning;
@@ -18,11 +26,9 @@ import okhttp3.Response;
 import okhttp3.ResponseBody;
 import org.apache.commons.io.FileUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.File;
-import java.io.FileOutputStream;
+import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.security.MessageDigest;
@@ -30,12 +36,23 @@ import java.util.Random;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class TaskJavaDownload extends BThread {
+public class TaskJavaDownload extends BThread implements TaskProgress.Owner {
+    private static final int BUFFER_SIZE = 8192;
+    private final TaskProgress progress = new TaskProgress();
     private final String url;
     private final AdoptV3API.OperatingSystemType osType;
     private final File dest;
     private File newDest;
     private boolean isTar;
+    @Nullable
+    private File deltaBase;
+    @Nullable
+    private String expected;
+    /**
+     * SHA-256 hash of the downloaded bytes, calculated while streaming.
+     */
+    @Nullable
+    private volatile String sha256;
 
     /**
      * Downloads a file from an url to the cache first and then
@@ -62,9 +79,41 @@ public class TaskJavaDownload extends BThread {
         setStatus("Downloading " + fileName + "... (0mb/0mb)");
         AL.debug(this.getClass(), "Downloading " + fileName + " from: " + url);
 
-        Request request = new Request.Builder().url(url)
+        ArtifactCache cache = ArtifactCache.get();
+        if (cache == null) {
+            download(fileName);
+            return;
+        }
+        ArtifactCache.Artifact artifact = cache.fetch(url, expected, dest.getParentFile(), () -> {
+            download(fileName);
+            return new ArtifactCache.Artifact(newDest, sha256);
+        });
+        newDest = artifact.file;
+        isTar = newDest.getName().endsWith(".tar.gz");
+        sha256 = artifact.sha256;
+        setStatus("Downloaded " + newDest.getName() + ".");
+    }
+
+    private void download(String fileName) throws Exception {
+        if (deltaBase != null) {
+            // Same archive type as the previous download
+            String extension = deltaBase.getName().endsWith(".tar.gz") ? ".tar.gz"
+                    : deltaBase.getName().substring(deltaBase.getName().lastIndexOf('.'));
+            File deltaDest = new File(dest.getParentFile().getAbsolutePath() + "/" + fileName.replace(".file", extension));
+            String deltaSha256 = DeltaDownload.tryDownload(url, expected, deltaBase, deltaDest);
+            if (deltaSha256 != null) {
+                newDest = deltaDest;
+                isTar = extension.equals(".tar.gz");
+                sha256 = deltaSha256;
+                setStatus("Downloaded " + deltaDest.getName() + " via delta update.");
+                return;
+            }
+        }
+
+        Request request = new Request.Builder().url(Mirror.url(url, expected))
                 .header("User-Agent", "AutoPlug Client/" + new Random().nextInt() + " - https://autoplug.one")
                 .build();
+        Profiler.Span span = Profiler.start("http", "Download " + fileName);
         Response response = new OkHttpClient().newCall(request).execute();
         ResponseBody body = null;
         try {
@@ -124,26 +173,31 @@ public class TaskJavaDownload extends BThread {
 
             long completeFileSize = body.contentLength();
             setMax(completeFileSize);
+            progress.start(TaskProgress.Phase.DOWNLOADING, fileName, completeFileSize);
 
-
-            BufferedInputStream in = new BufferedInputStream(body.byteStream());
-            FileOutputStream fos = new FileOutputStream(dest);
-            BufferedOutputStream bout = new BufferedOutputStream(fos, 1024);
-            byte[] data = new byte[1024];
+            MessageDigest digest = UtilsCrypto.getSHA256Digest();
             long downloadedFileSize = 0;
-            int x = 0;
-            while ((x = in.read(data, 0, 1024)) >= 0) {
-                downloadedFileSize += x;
+            try (InputStream in = body.byteStream();
+                 OutputStream out = new BufferedOutputStream(new FileOutputStream(dest), BUFFER_SIZE)) {
+                byte[] data = new byte[BUFFER_SIZE];
+                int count;
+                while ((count = in.read(data, 0, BUFFER_SIZE)) >= 0) {
+                    downloadedFileSize += count;
 
-                setStatus("Downloading " + fileName + "... (" + downloadedFileSize / (1024 * 1024) + "mb/" + completeFileSize / (1024 * 1024) + "mb)");
-                setNow(downloadedFileSize);
+                    // Only primitive writes here, the status text is built when displayed
+                    progress.setNow(downloadedFileSize);
+                    setNow(downloadedFileSize);
 
-                bout.write(data, 0, x);
+                    out.write(data, 0, count);
+                    digest.update(data, 0, count);
+                }
+            } finally {
+                progress.stop();
             }
+            sha256 = UtilsByte.encode(digest.digest());
 
+            Metrics.DOWNLOAD_BYTES.add(downloadedFileSize);
             setStatus("Downloaded " + fileName + " (" + downloadedFileSize / (1024 * 1024) + "mb/" + completeFileSize / (1024 * 1024) + "mb)");
-            bout.close();
-            in.close();
             body.close();
             response.close();
 
@@ -152,6 +206,9 @@ public class TaskJavaDownload extends BThread {
             if (body != null) body.close();
             response.close();
             throw e;
+        } finally {
+            span.close();
+            Metrics.DOWNLOAD_DURATION.observe(span.getMs());
         }
     }
 
@@ -166,6 +223,31 @@ public class TaskJavaDownload extends BThread {
         return newDest;
     }
 
+    /**
+     * @param expected the version or SHA-256 hash the url is expected to deliver, used as part of the
+     *                 {@link ArtifactCache} key, since some urls always point to the latest version. Null if unknown.
+     */
+    public TaskJavaDownload setExpected(@Nullable String expected) {
+        this.expected = expected;
+        return this;
+    }
+
+    /**
+     * Tries to only download the differences to the provided archive first, see {@link DeltaDownload}.
+     *
+     * @param deltaBase a previously downloaded archive, null to always download the full file.
+     */
+    public TaskJavaDownload setDeltaBase(@Nullable File deltaBase) {
+        this.deltaBase = deltaBase;
+        return this;
+    }
+
+    @NotNull
+    @Override
+    public TaskProgress getProgress() {
+        return progress;
+    }
+
     /**
      * Only use this method after finishing the download.
      * It will get the hash for the newly downloaded file and
@@ -176,10 +258,13 @@ public class TaskJavaDownload extends BThread {
      */
     public boolean compareWithSHA256(String sha256) {
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] encodedhash = digest.digest(
-                    FileUtils.readFileToByteArray(dest));
-            final String hashResult = bytesToHex(encodedhash);
+            String hashResult = this.sha256;
+            if (hashResult == null) {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                byte[] encodedhash = digest.digest(
+                        FileUtils.readFileToByteArray(dest));
+                hashResult = bytesToHex(encodedhash);
+            }
             AL.debug(this.getClass(), "Comparing hashes (SHA-256):");
             AL.debug(this.getClass(), "Input-Hash: " + sha256);
             AL.debug(this.getClass(), "File-Hash: " + hashResult);
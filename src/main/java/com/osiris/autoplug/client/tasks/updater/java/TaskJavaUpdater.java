@@ -13,11 +13,13 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.osiris.autoplug.client.Server;
 import com.osiris.autoplug.client.configs.UpdaterConfig;
+import com.osiris.autoplug.client.tasks.updater.StagedInstalls;
 import com.osiris.autoplug.client.utils.GD;
 import com.osiris.betterthread.BThread;
 import com.osiris.betterthread.BThreadManager;
 import com.osiris.jlib.logger.AL;
 import org.apache.commons.io.FileUtils;
+import org.jetbrains.annotations.Nullable;
 import org.rauschig.jarchivelib.ArchiveFormat;
 import org.rauschig.jarchivelib.Archiver;
 import org.rauschig.jarchivelib.ArchiverFactory;
@@ -45,7 +47,7 @@ public class TaskJavaUpdater extends BThread {
             skip();
             return;
         }
-        if (Server.isRunning()) throw new Exception("Cannot perform update while server is running!");
+        if (Server.isRunning() && !StagedInstalls.isStaging()) throw new Exception("Cannot perform update while server is running!");
 
         if (!updaterConfig.java_updater.asBoolean()) {
             skip();
@@ -107,8 +109,9 @@ public class TaskJavaUpdater extends BThread {
         boolean isLargeHeapSize = updaterConfig.java_updater_large_heap.asBoolean();
         String javaVersion = updaterConfig.java_updater_version.asString();
         int currentBuildId = 0;
-        if (updaterConfig.java_updater_build_id.asString() != null)
-            currentBuildId = updaterConfig.java_updater_build_id.asInt();
+        String stagedBuildId = StagedInstalls.getVersion(updaterConfig.java_updater_build_id);
+        if (stagedBuildId != null)
+            currentBuildId = Integer.parseInt(stagedBuildId);
         AdoptV3API.ImageType imageType = AdoptV3API.ImageType.JDK;
         // Using JRE here instead breaks the endpoint below somehow and returns 404
         // when onlyLTS is disabled. That's why we must use JDK currently.
@@ -222,6 +225,7 @@ public class TaskJavaUpdater extends BThread {
             // We enter a .file extension, cause that gets replaced with either .tar.gz or .zip by the download task
             File cache_dest = new File(GD.WORKING_DIR + "/autoplug/downloads/" + imageType + "-" + versionString + ".file");
             TaskJavaDownload download = new TaskJavaDownload("JavaDownloader", getManager(), downloadURL, cache_dest, osType);
+            download.setExpected(checksum);
             download.start();
 
             while (true) {
@@ -250,6 +254,9 @@ public class TaskJavaUpdater extends BThread {
             File final_dir_dest = new File(GD.WORKING_DIR + "/autoplug/system/jre");
             File cache_dest = new File(GD.WORKING_DIR + "/autoplug/downloads/" + imageType + "-" + versionString + ".file");
             TaskJavaDownload download = new TaskJavaDownload("JavaDownloader", getManager(), downloadURL, cache_dest, osType);
+            download.setExpected(checksum);
+            if (updaterConfig.global_delta_updates.asBoolean())
+                download.setDeltaBase(findPreviousArchive(cache_dest.getParentFile(), imageType + "-"));
             download.start();
 
             while (true) {
@@ -258,6 +265,25 @@ public class TaskJavaUpdater extends BThread {
                     if (download.isSuccess()) {
                         setStatus("Java update downloaded. Checking hash...");
                         if (download.compareWithSHA256(checksum)) {
+                            Archiver archiver;
+                            if (download.isTar())
+                                archiver = ArchiverFactory.createArchiver(ArchiveFormat.TAR, CompressionType.GZIP);
+                            else // A zip
+                                archiver = ArchiverFactory.createArchiver(ArchiveFormat.ZIP);
+
+                            if (StagedInstalls.isStaging()) { // The current installation is in use by the server
+                                File staged_dir_dest = new File(StagedInstalls.getDir() + "/jre");
+                                if (staged_dir_dest.exists()) FileUtils.deleteDirectory(staged_dir_dest);
+                                staged_dir_dest.mkdirs();
+                                archiver.extract(download.getNewCacheDest(), staged_dir_dest);
+                                // The build-id gets saved once installed
+                                StagedInstalls.installDirectory(staged_dir_dest, final_dir_dest, true,
+                                        updaterConfig.java_updater_build_id, String.valueOf(latestBuildId));
+                                setStatus("Java update was staged and gets installed at the next restart (" + currentBuildId + " -> " + latestBuildId + ")!");
+                                finish(true);
+                                break;
+                            }
+
                             setStatus("Java update downloaded. Removing old installation...");
                             if (final_dir_dest.exists()) {
                                 File[] files = final_dir_dest.listFiles();
@@ -271,13 +297,6 @@ public class TaskJavaUpdater extends BThread {
                                     }
                             }
                             final_dir_dest.mkdirs();
-
-                            Archiver archiver;
-                            if (download.isTar())
-                                archiver = ArchiverFactory.createArchiver(ArchiveFormat.TAR, CompressionType.GZIP);
-                            else // A zip
-                                archiver = ArchiverFactory.createArchiver(ArchiveFormat.ZIP);
-
                             archiver.extract(download.getNewCacheDest(), final_dir_dest);
                             setStatus("Java update was installed successfully (" + currentBuildId + " -> " + latestBuildId + ")!");
                             updaterConfig.java_updater_build_id.setValues(String.valueOf(latestBuildId));
@@ -298,4 +317,18 @@ public class TaskJavaUpdater extends BThread {
         }
     }
 
+    /**
+     * @return the most recently downloaded Java archive, which is kept in the downloads directory, or null.
+     */
+    @Nullable
+    private File findPreviousArchive(File downloadsDir, String prefix) {
+        File[] files = downloadsDir.listFiles((dir, name) -> name.startsWith(prefix)
+                && (name.endsWith(".tar.gz") || name.endsWith(".zip")));
+        if (files == null) return null;
+        File latest = null;
+        for (File file : files) {
+            if (latest == null || file.lastModified() > latest.lastModified()) latest = file;
+        }
+        return latest;
+    }
 }
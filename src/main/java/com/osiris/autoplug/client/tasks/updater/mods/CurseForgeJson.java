@@ -12,6 +12,7 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.osiris.autoplug.client.tasks.updater.Mirror;
 import com.osiris.autoplug.client.utils.GD;
 import com.osiris.jlib.json.exceptions.HttpErrorException;
 import com.osiris.jlib.json.exceptions.WrongJsonTypeException;
@@ -39,7 +40,7 @@ public class CurseForgeJson {
         HttpURLConnection con = null;
         JsonElement element;
         try {
-            con = (HttpURLConnection) new URL(input_url).openConnection();
+            con = (HttpURLConnection) new URL(Mirror.url(input_url)).openConnection();
             con.addRequestProperty("User-Agent", "AutoPlug-Client - Contact: " + GD.OFFICIAL_WEBSITE);
             con.addRequestProperty("x-api-key", key);
             con.setConnectTimeout(1000);
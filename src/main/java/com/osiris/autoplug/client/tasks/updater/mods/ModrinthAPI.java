@@ -9,6 +9,7 @@
 package com.osiris.autoplug.client.tasks.updater.mods;
 
 import com.google.gson.JsonObject;
+import com.osiris.autoplug.client.tasks.updater.Mirror;
 import com.osiris.autoplug.client.tasks.updater.plugins.MinecraftPlugin;
 import com.osiris.autoplug.client.tasks.updater.search.SearchResult;
 import com.osiris.autoplug.client.utils.UtilsURL;
@@ -61,7 +62,7 @@ public class ModrinthAPI {
             AL.debug(this.getClass(), url);
             JsonObject release;
             try {
-                release = Json.getAsJsonArray(url)
+                release = Json.getAsJsonArray(Mirror.url(url))
                         .get(0).getAsJsonObject();
             } catch (Exception e) {
                 if (!isInt(id)) { // Try another url, with slug replaced _ with -
@@ -69,7 +70,7 @@ public class ModrinthAPI {
                             + "/version?loaders=[\"" +
                             loader + "\"]" + (forceLatest ? "" : "&game_versions=[\"" + mcVersion + "\"]");
                     AL.debug(this.getClass(), url);
-                    release = Json.getAsJsonArray(url)
+                    release = Json.getAsJsonArray(Mirror.url(url))
                             .get(0).getAsJsonObject();
                 } else
                     throw e;
@@ -12,11 +12,17 @@ import com.osiris.autoplug.client.Server;
 import com.osiris.autoplug.client.configs.ModsConfig;
 import com.osiris.autoplug.client.configs.UpdaterConfig;
 import com.osiris.autoplug.client.managers.FileManager;
+import com.osiris.autoplug.client.tasks.updater.CheckSchedule;
+import com.osiris.autoplug.client.tasks.updater.StagedInstalls;
+import com.osiris.autoplug.client.tasks.updater.UpdateState;
 import com.osiris.autoplug.client.tasks.updater.plugins.ResourceFinder;
 import com.osiris.autoplug.client.tasks.updater.search.SearchResult;
 import com.osiris.autoplug.client.utils.GD;
+import com.osiris.autoplug.client.utils.Profiler;
+import com.osiris.autoplug.client.utils.Threads;
 import com.osiris.autoplug.client.utils.UtilsFile;
 import com.osiris.autoplug.client.utils.UtilsMinecraft;
+import com.osiris.autoplug.client.utils.tasks.TaskProgress;
 import com.osiris.betterthread.BThread;
 import com.osiris.betterthread.BThreadManager;
 import com.osiris.betterthread.BWarning;
@@ -34,7 +40,11 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
-public class TaskModsUpdater extends BThread {
+public class TaskModsUpdater extends BThread implements TaskProgress.Owner {
+    /**
+     * Max parallel update checks, if not running on virtual threads (see {@link Threads}).
+     */
+    private static final int MAX_PLATFORM_THREADS = 32;
     //private final ModsUpdateResultConnection con;
     private final String notifyProfile = "NOTIFY";
     private final String manualProfile = "MANUAL";
@@ -48,6 +58,15 @@ public class TaskModsUpdater extends BThread {
     @NotNull
     private final List<MinecraftMod> excludedMods = new ArrayList<>();
     ModsConfig modsConfig;
+    private final UpdateState state = UpdateState.get();
+    private final CheckSchedule schedule = CheckSchedule.get();
+    private final TaskProgress progress = new TaskProgress();
+    /**
+     * If true, all mods are checked, not only the ones that are due, see {@link CheckSchedule}.
+     */
+    public boolean ignoreSchedule = false;
+    @NotNull
+    private final List<MinecraftMod> notDueMods = new ArrayList<>();
     private UpdaterConfig updaterConfig;
     private String userProfile;
     private String modsConfigName;
@@ -68,7 +87,7 @@ public class TaskModsUpdater extends BThread {
             skip();
             return;
         }
-        if (Server.isRunning()) throw new Exception("Cannot perform mods update while server is running!");
+        if (Server.isRunning() && !StagedInstalls.isStaging()) throw new Exception("Cannot perform mods update while server is running!");
 
         modsConfig = new ModsConfig();
         modsConfig.load(); // No lock needed, since there are no other threads that access this file
@@ -91,8 +110,6 @@ public class TaskModsUpdater extends BThread {
                     throw new Exception("The mods name couldn't be determined for '" + installedMod.installationPath + "'!");
 
                 YamlSection exclude = modsConfig.put(name, plName, "exclude").setDefValues("false");
-                YamlSection version = modsConfig.put(name, plName, "version").setDefValues(installedMod.getVersion());
-                YamlSection latestVersion = modsConfig.put(name, plName, "latest-version");
                 YamlSection author = modsConfig.put(name, plName, "author").setDefValues(installedMod.getAuthor());
                 YamlSection modrinthId = modsConfig.put(name, plName, "modrinth-id");
                 YamlSection curseforgeId = modsConfig.put(name, plName, "curseforge-id");
@@ -112,9 +129,14 @@ public class TaskModsUpdater extends BThread {
                 if (installedMod.curseforgeId != null && curseforgeId.asString() == null)
                     curseforgeId.setValues(installedMod.curseforgeId);
 
+                // Ids found by previous checks, if not set by the user
+                String key = UpdateState.MODS + plName;
+                state.put(key, UpdateState.VERSION, installedMod.getVersion());
+                state.put(key, UpdateState.AUTHOR, installedMod.getAuthor());
+
                 // Update the detailed mods in-memory values
-                installedMod.modrinthId = (modrinthId.asString());
-                installedMod.curseforgeId = (curseforgeId.asString());
+                installedMod.modrinthId = modrinthId.asString() != null ? modrinthId.asString() : state.get(key, UpdateState.MODRINTH_ID);
+                installedMod.curseforgeId = curseforgeId.asString() != null ? curseforgeId.asString() : state.get(key, UpdateState.CURSEFORGE_ID);
                 installedMod.ignoreContentType = (ignoreContentType.asBoolean());
                 installedMod.forceLatest = (forceLatest.asBoolean());
                 installedMod.customCheckURL = (customCheckURL.asString());
@@ -123,21 +145,21 @@ public class TaskModsUpdater extends BThread {
                 installedMod.githubAssetName = (githubAssetName.asString());
                 installedMod.jenkinsProjectUrl = (jenkinsProjectUrl.asString());
                 installedMod.jenkinsArtifactName = (jenkinsArtifactName.asString());
-                installedMod.jenkinsBuildId = (jenkinsBuildId.asInt());
+                installedMod.jenkinsBuildId = (int) Math.max(jenkinsBuildId.asInt(), state.getLong(key, UpdateState.JENKINS_BUILD_ID, 0));
                 installedMod.forceUpdate = forceUpdate.asBoolean();
 
                 // Check for missing author in internal config
                 if ((installedMod.getVersion() == null)
-                        && (modrinthId.asString() == null)
-                        && (curseforgeId.asString() == null)) {
+                        && (installedMod.modrinthId == null)
+                        && (installedMod.curseforgeId == null)) {
                     exclude.setValues("true");
                     this.addWarning("Mod " + installedMod.getName() + " is missing 'version' in its internal config file and was excluded.");
                 }
 
                 // Check for missing version in internal config
                 if ((installedMod.getAuthor() == null)
-                        && (modrinthId.asString() == null)
-                        && (curseforgeId.asString() == null)
+                        && (installedMod.modrinthId == null)
+                        && (installedMod.curseforgeId == null)
                         && jenkinsArtifactName.asString() == null
                         && githubAssetName.asString() == null) {
                     exclude.setValues("true");
@@ -146,8 +168,10 @@ public class TaskModsUpdater extends BThread {
 
                 if (exclude.asBoolean())
                     excludedMods.add(installedMod);
-                else
+                else {
                     includedMods.add(installedMod);
+                    if (!ignoreSchedule && !schedule.isDue(key)) notDueMods.add(installedMod);
+                }
             } catch (DuplicateKeyException e) {
                 addWarning(new BWarning(this, e, "Duplicate mod '" + installedMod.getName() + "' (or mod name from its internal config) found in your mods directory. " +
                         "Its recommended to remove it."));
@@ -160,7 +184,15 @@ public class TaskModsUpdater extends BThread {
             modsConfig.save();
         else {
             modsConfig.save(true); // This overwrites the file and removes everything else that wasn't added via the add/put method before.
+            List<String> installedNames = new ArrayList<>();
+            for (MinecraftMod mod : allMods) {
+                installedNames.add(mod.getName());
+            }
+            for (String modName : state.getNames(UpdateState.MODS)) {
+                if (!installedNames.contains(modName)) state.remove(UpdateState.MODS + modName);
+            }
         }
+        state.save();
         modsConfigName = modsConfig.getFileNameWithoutExt();
 
         // TODO DO COOL-DOWN CHECK STUFF LOCALLY
@@ -176,6 +208,7 @@ public class TaskModsUpdater extends BThread {
         if (includedSize == 0)
             throw new Exception("No mods found in " + updaterConfig.mods_updater_path.asString() + "! Nothing to check...");
         setMax(includedSize);
+        progress.start(TaskProgress.Phase.CHECKING, "mods", includedSize);
 
         // TODO USE THIS FOR RESULT REPORT
         int sizeJenkinsMods = 0;
@@ -192,36 +225,46 @@ public class TaskModsUpdater extends BThread {
 
         ExecutorService executorService;
         if (updaterConfig.mods_updater_async.asBoolean())
-            executorService = Executors.newFixedThreadPool(includedSize);
+            executorService = Threads.newIoExecutor("ModsUpdater", Math.min(includedSize, MAX_PLATFORM_THREADS));
         else
             executorService = Executors.newSingleThreadExecutor();
         InstalledModLoader modLoader = new InstalledModLoader();
         List<Future<SearchResult>> activeFutures = new ArrayList<>();
+        List<SearchResult> results = new ArrayList<>();
         for (MinecraftMod mod :
                 includedMods) {
             try {
-                setStatus("Initialising update check for  " + mod.getName() + "...");
+                if (notDueMods.contains(mod)) { // Use the result of the last check
+                    String key = UpdateState.MODS + mod.getName();
+                    SearchResult result = new SearchResult(null, SearchResult.Type.UP_TO_DATE, state.get(key, UpdateState.LATEST_VERSION),
+                            state.get(key, UpdateState.DOWNLOAD_URL), state.get(key, UpdateState.DOWNLOAD_TYPE), null, null, false);
+                    result.mod = mod;
+                    results.add(result);
+                    continue;
+                }
                 if (mod.customCheckURL != null) { // Custom Check
                     sizeCustomMods++;
-                    activeFutures.add(executorService.submit(() -> new ResourceFinder().findByCustomCheckURL(mod)));
+                    activeFutures.add(executorService.submit(Profiler.traced("http", "Search " + mod.getName(), () -> new ResourceFinder().findByCustomCheckURL(mod))));
                 } else if (mod.jenkinsProjectUrl != null) { // JENKINS MOD
                     sizeJenkinsMods++;
-                    activeFutures.add(executorService.submit(() -> new ResourceFinder().findByJenkinsUrl(mod)));
+                    activeFutures.add(executorService.submit(Profiler.traced("http", "Search " + mod.getName(), () -> new ResourceFinder().findByJenkinsUrl(mod))));
                 } else if (mod.githubRepoName != null) { // GITHUB MOD
                     sizeGithubMods++;
-                    activeFutures.add(executorService.submit(() -> new ResourceFinder().findByGithubUrl(mod)));
+                    activeFutures.add(executorService.submit(Profiler.traced("http", "Search " + mod.getName(), () -> new ResourceFinder().findByGithubUrl(mod))));
                 } else {
                     sizeUnknownMods++; // MODRINTH OR CURSEFORGE MOD
                     mod.ignoreContentType = true; // TODO temporary workaround for xamazon-json content type curseforge/bukkit issue: https://github.com/Osiris-Team/AutoPlug-Client/issues/109
                     String finalMcVersion = mcVersion;
-                    activeFutures.add(executorService.submit(() -> new ResourceFinder().findByModrinthOrCurseforge(modLoader, mod, finalMcVersion, updaterConfig.mods_update_check_name_for_mod_loader.asBoolean())));
+                    activeFutures.add(executorService.submit(Profiler.traced("http", "Search " + mod.getName(), () -> new ResourceFinder().findByModrinthOrCurseforge(modLoader, mod, finalMcVersion, updaterConfig.mods_update_check_name_for_mod_loader.asBoolean()))));
                 }
             } catch (Exception e) {
                 this.getWarnings().add(new BWarning(this, e, "Critical error while searching for update for '" + mod.getName() + "' mod!"));
             }
         }
 
-        List<SearchResult> results = new ArrayList<>();
+        if (!notDueMods.isEmpty())
+            addInfo("Skipped " + notDueMods.size() + "/" + includedSize + " mods, since they are not due for a check yet.");
+        progress.setNow(results.size());
         while (!activeFutures.isEmpty()) {
             Thread.sleep(250);
             Future<SearchResult> finishedFuture = null;
@@ -244,7 +287,8 @@ public class TaskModsUpdater extends BThread {
                 String downloadUrl = result.getDownloadUrl(); // The download url for the latest version
                 String resultModrinthId = mod.modrinthId;
                 String resultCurseForgeId = mod.curseforgeId;
-                this.setStatus("Checked '" + mod.getName() + "' mod (" + results.size() + "/" + includedSize + ")");
+                progress.setNow(results.size());
+                progress.setDetail(mod.getName());
                 if (code == SearchResult.Type.UP_TO_DATE || code == SearchResult.Type.UPDATE_AVAILABLE) {
                     doDownloadLogic(mod, result);
                 } else if (code == SearchResult.Type.API_ERROR)
@@ -257,21 +301,20 @@ public class TaskModsUpdater extends BThread {
                 else
                     getWarnings().add(new BWarning(this, new Exception("Unknown error occurred! Code: " + code + "."), "Notify the developers. Fastest way is through discord (https://discord.gg/GGNmtCC)."));
 
-                try {
-                    YamlSection mModrinthId = modsConfig.get(modsConfigName, mod.getName(), "modrinth-id");
-                    if (resultModrinthId != null && mModrinthId.asString() == null) // Because we can get a "null" string from the server
-                        mModrinthId.setValues(resultModrinthId);
-
-                    YamlSection mCurseForgeId = modsConfig.get(modsConfigName, mod.getName(), "curseforge-id");
-                    if (resultCurseForgeId != null && mCurseForgeId.asString() == null) // Because we can get a "null" string from the server
-                        mCurseForgeId.setValues(resultCurseForgeId);
-
-                    // The config gets saved at the end of the runAtStart method.
-                } catch (Exception e) {
-                    getWarnings().add(new BWarning(this, e));
-                }
+                String key = UpdateState.MODS + mod.getName();
+                if (resultModrinthId != null && !resultModrinthId.equals("null")) // Because we can get a "null" string from the server
+                    state.put(key, UpdateState.MODRINTH_ID, resultModrinthId);
+                if (resultCurseForgeId != null && !resultCurseForgeId.equals("null"))
+                    state.put(key, UpdateState.CURSEFORGE_ID, resultCurseForgeId);
+                schedule.onChecked(key, code, latest);
+                if (downloadUrl != null) state.put(key, UpdateState.DOWNLOAD_URL, downloadUrl);
+                if (type != null) state.put(key, UpdateState.DOWNLOAD_TYPE, type);
+                // The state gets saved once all checks are done.
             }
         }
+        executorService.shutdown();
+        progress.stop();
+        state.save();
 
         // Wait until all download tasks have finished.
         while (!downloadTasksList.isEmpty()) {
@@ -303,18 +346,16 @@ public class TaskModsUpdater extends BThread {
 
                 if (download.isInstallSuccessful()) {
                     matchingResult.type = SearchResult.Type.UPDATE_INSTALLED;
-                    YamlSection jenkinsBuildId = modsConfig.get(
-                            modsConfigName, download.getPlName(), "alternatives", "jenkins", "build-id");
-                    jenkinsBuildId.setValues(String.valueOf(download.searchResult.jenkinsId));
-                    YamlSection version = modsConfig.get(
-                            modsConfigName, download.getPlName(), "version");
-                    version.setValues(download.searchResult.getLatestVersion());
+                    String key = UpdateState.MODS + download.getPlName();
+                    state.put(key, UpdateState.JENKINS_BUILD_ID, download.searchResult.jenkinsId);
+                    state.put(key, UpdateState.VERSION, download.searchResult.getLatestVersion());
+                    state.put(key, UpdateState.RESULT, matchingResult.type.name());
                 }
 
             }
         }
 
-        modsConfig.save();
+        state.save();
 
         /* // TODO
         if (new WebConfig().send_mods_updater_results.asBoolean()) {
@@ -352,14 +393,6 @@ public class TaskModsUpdater extends BThread {
         } else {
             updatesAvailable++;
 
-            try {
-                // Update the in-memory config
-                YamlSection mLatest = modsConfig.get(modsConfigName, mod.getName(), "latest-version");
-                mLatest.setValues(latest); // Gets saved later
-            } catch (Exception e) {
-                getWarnings().add(new BWarning(this, e));
-            }
-
             if (userProfile.equals(notifyProfile)) {
                 addInfo("NOTIFY: Mod '" + mod.getName() + "' has an update available (" + mod.getVersion() + " -> " + latest + "). Download url: " + downloadUrl);
             } else {
@@ -415,4 +448,10 @@ public class TaskModsUpdater extends BThread {
         return allMods;
     }
 
+    @NotNull
+    @Override
+    public TaskProgress getProgress() {
+        return progress;
+    }
+
 }
@@ -21,6 +21,9 @@ import com.osiris.autoplug.client.tasks.updater.search.bukkit.BukkitSearchById;
 import com.osiris.autoplug.client.tasks.updater.search.spigot.SpigotSearchByAuthor;
 import com.osiris.autoplug.client.tasks.updater.search.spigot.SpigotSearchById;
 import com.osiris.autoplug.client.tasks.updater.search.spigot.SpigotSearchByName;
+import com.osiris.autoplug.client.utils.Metrics;
+
+import java.util.function.Supplier;
 
 public class ResourceFinder {
 
@@ -30,13 +33,13 @@ public class ResourceFinder {
      */
     public SearchResult findUnknownSpigotPlugin(MinecraftPlugin plugin) {
         // Do spigot search by name
-        SearchResult sr = new SpigotSearchByName().search(plugin);
+        SearchResult sr = timed("spigot", () -> new SpigotSearchByName().search(plugin));
 
         SearchResult sr2 = null;
         if (!SearchResult.isMatchFound(sr)) {
             //Couldn't find author or resource via first search
             //Do alternative search:
-            sr2 = new SpigotSearchByAuthor().search(plugin);
+            sr2 = timed("spigot", () -> new SpigotSearchByAuthor().search(plugin));
             sr2.similarPlugins.addAll(sr.similarPlugins);
             sr = sr2;
         }
@@ -52,14 +55,14 @@ public class ResourceFinder {
      */
     public SearchResult findByModrinthOrCurseforge(InstalledModLoader modLoader, MinecraftMod mod, String mcVersion, boolean checkNameForModLoader) {
         // TODO actualy do search by name, since currently it still searches by id
-        SearchResult sr = new ModrinthAPI().searchUpdateMod(modLoader, mod, mcVersion);
+        SearchResult sr = timed("modrinth", () -> new ModrinthAPI().searchUpdateMod(modLoader, mod, mcVersion));
 
         boolean isErrorOrNotFound = sr == null ||
                 sr.type == SearchResult.Type.API_ERROR ||
                 sr.type == SearchResult.Type.RESOURCE_NOT_FOUND;
 
         if (isErrorOrNotFound) {
-            sr = new CurseForgeAPI().searchUpdate(modLoader, mod, mcVersion, checkNameForModLoader);
+            sr = timed("curseforge", () -> new CurseForgeAPI().searchUpdate(modLoader, mod, mcVersion, checkNameForModLoader));
         }
 
         sr.mod = mod;
@@ -67,71 +70,85 @@ public class ResourceFinder {
     }
 
     public SearchResult findPluginBySpigotId(MinecraftPlugin plugin) {
-        SearchResult sr = new SpigotSearchById().search(plugin);
+        SearchResult sr = timed("spigot", () -> new SpigotSearchById().search(plugin));
         plugin.setPremium(sr.isPremium);
         sr.plugin = plugin;
         return sr;
     }
 
     public SearchResult findPluginByBukkitId(MinecraftPlugin plugin) {
-        SearchResult sr = new BukkitSearchById().search(plugin);
+        SearchResult sr = timed("bukkit", () -> new BukkitSearchById().search(plugin));
         plugin.setPremium(sr.isPremium);
         sr.plugin = plugin;
         return sr;
     }
     public SearchResult findPluginByModrinthId(MinecraftPlugin plugin, String mcVersion) {
-        SearchResult sr = new ModrinthAPI().searchUpdatePlugin(plugin, mcVersion);
+        SearchResult sr = timed("modrinth", () -> new ModrinthAPI().searchUpdatePlugin(plugin, mcVersion));
         sr.plugin = plugin;
         return sr;
     }
 
     public SearchResult findModByModrinthId(InstalledModLoader modLoader, MinecraftMod mod, String mcVersion) {
-        SearchResult sr = new ModrinthAPI().searchUpdateMod(modLoader, mod, mcVersion);
+        SearchResult sr = timed("modrinth", () -> new ModrinthAPI().searchUpdateMod(modLoader, mod, mcVersion));
         sr.mod = mod;
         return sr;
     }
 
     public SearchResult findModByCurseforgeId(InstalledModLoader modLoader, MinecraftMod mod, String mcVersion, boolean checkNameForModLoader) {
-        SearchResult sr = new CurseForgeAPI().searchUpdate(modLoader, mod, mcVersion, checkNameForModLoader);
+        SearchResult sr = timed("curseforge", () -> new CurseForgeAPI().searchUpdate(modLoader, mod, mcVersion, checkNameForModLoader));
         sr.mod = mod;
         return sr;
     }
 
     public SearchResult findByGithubUrl(MinecraftMod mod) {
-        SearchResult sr = new GithubSearch().search(mod.githubRepoName, mod.githubAssetName, mod.getVersion());
+        SearchResult sr = timed("github", () -> new GithubSearch().search(mod.githubRepoName, mod.githubAssetName, mod.getVersion()));
         sr.mod = mod;
         return sr;
     }
 
     public SearchResult findByJenkinsUrl(MinecraftMod mod) {
-        SearchResult sr = new JenkinsSearch().search(mod.jenkinsProjectUrl, mod.jenkinsArtifactName, mod.jenkinsBuildId);
+        SearchResult sr = timed("jenkins", () -> new JenkinsSearch().search(mod.jenkinsProjectUrl, mod.jenkinsArtifactName, mod.jenkinsBuildId));
         sr.mod = mod;
         return sr;
     }
 
     public SearchResult findByGithubUrl(MinecraftPlugin plugin) {
-        SearchResult sr = new GithubSearch().search(plugin.getGithubRepoName(), plugin.getGithubAssetName(), plugin.getVersion());
+        SearchResult sr = timed("github", () -> new GithubSearch().search(plugin.getGithubRepoName(), plugin.getGithubAssetName(), plugin.getVersion()));
         plugin.setPremium(sr.isPremium);
         sr.plugin = plugin;
         return sr;
     }
 
     public SearchResult findByJenkinsUrl(MinecraftPlugin plugin) {
-        SearchResult sr = new JenkinsSearch().search(plugin.getJenkinsProjectUrl(), plugin.getJenkinsArtifactName(), plugin.getJenkinsBuildId());
+        SearchResult sr = timed("jenkins", () -> new JenkinsSearch().search(plugin.getJenkinsProjectUrl(), plugin.getJenkinsArtifactName(), plugin.getJenkinsBuildId()));
         plugin.setPremium(sr.isPremium);
         sr.plugin = plugin;
         return sr;
     }
 
     public SearchResult findByCustomCheckURL(MinecraftMod mod) {
-        SearchResult sr = new CustomCheckURL().doCustomCheck(mod.customCheckURL, mod.getVersion());
+        SearchResult sr = timed("custom", () -> new CustomCheckURL().doCustomCheck(mod.customCheckURL, mod.getVersion()));
         sr.mod = mod;
         return sr;
     }
 
     public SearchResult findByCustomCheckURL(MinecraftPlugin plugin) {
-        SearchResult sr = new CustomCheckURL().doCustomCheck(plugin.customCheckURL, plugin.getVersion());
+        SearchResult sr = timed("custom", () -> new CustomCheckURL().doCustomCheck(plugin.customCheckURL, plugin.getVersion()));
         sr.plugin = plugin;
         return sr;
     }
+
+    /**
+     * Records the duration and API errors of the provided search in {@link Metrics}.
+     *
+     * @param source for example "spigot" or "modrinth".
+     */
+    private SearchResult timed(String source, Supplier<SearchResult> search) {
+        long msStart = System.currentTimeMillis();
+        SearchResult sr = search.get();
+        Metrics.UPDATE_CHECK_DURATION.observe(source, System.currentTimeMillis() - msStart);
+        if (sr == null || sr.type == SearchResult.Type.API_ERROR)
+            Metrics.UPDATE_CHECK_ERRORS.increment(source);
+        return sr;
+    }
 }
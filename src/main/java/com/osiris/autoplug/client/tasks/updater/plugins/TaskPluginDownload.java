@@ -8,27 +8,32 @@
 
 package com.osiris.autoplug.client.tasks.updater.plugins;
 
+import com.osiris.autoplug.client.tasks.updater.ArtifactCache;
+import com.osiris.autoplug.client.tasks.updater.Mirror;
+import com.osiris.autoplug.client.tasks.updater.StagedInstalls;
 import com.osiris.autoplug.client.tasks.updater.TaskDownloadBase;
 import com.osiris.autoplug.client.tasks.updater.search.SearchResult;
 import com.osiris.autoplug.client.utils.GD;
+import com.osiris.autoplug.client.utils.Metrics;
+import com.osiris.autoplug.client.utils.Profiler;
 import com.osiris.autoplug.client.utils.StringComparator;
+import com.osiris.autoplug.client.utils.UtilsByte;
+import com.osiris.autoplug.client.utils.UtilsCrypto;
 import com.osiris.betterthread.BThreadManager;
 import com.osiris.jlib.UtilsFiles;
 import com.osiris.jlib.logger.AL;
+import java.security.MessageDigest;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
-import org.apache.commons.io.FileUtils;
+import org.jetbrains.annotations.Nullable;
 import org.rauschig.jarchivelib.ArchiveFormat;
 import org.rauschig.jarchivelib.Archiver;
 import org.rauschig.jarchivelib.ArchiverFactory;
 import org.rauschig.jarchivelib.CompressionType;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.util.Arrays;
 
 
@@ -86,7 +91,7 @@ public class TaskPluginDownload extends TaskDownloadBase {
                               String url, boolean ignoreContentType, String profile,
                               File finalDestination, File deleteDestination,
                               boolean isPremium) {
-        super(name, manager, url, finalDestination, ignoreContentType);
+        super(name, manager);
         this.plName = plName;
         this.plLatestVersion = plLatestVersion;
         this.url = url;
@@ -106,22 +111,45 @@ public class TaskPluginDownload extends TaskDownloadBase {
             setStatus("Your profile doesn't allow downloads! Profile: " + profile);
             finish(false);
         } else if (profile.equals("MANUAL")) {
-            download();
+            fetch();
             isDownloadSuccessful = true;
         } else {
-            download();
+            fetch();
             isDownloadSuccessful = true;
             AL.debug(this.getClass(), "Installing plugin into " + finalDestination.getAbsolutePath());
-            if (finalDestination.exists()) finalDestination.delete();
-            finalDestination.createNewFile();
-            if (deleteDestination != null && deleteDestination.exists()) deleteDestination.delete();
-            FileUtils.copyFile(destinationFile, finalDestination);
+            boolean isInstalled = StagedInstalls.installFile(destinationFile, finalDestination, deleteDestination);
             isInstallSuccessful = true;
-            setStatus("Installed update for " + plName + " successfully!");
+            if (isInstalled)
+                setStatus("Installed update for " + plName + " successfully!");
+            else
+                setStatus("Staged update for " + plName + ", gets installed at the next restart.");
+        }
+    }
+
+    /**
+     * Downloads the plugin, or links it from the {@link ArtifactCache} if enabled.
+     */
+    private void fetch() throws Exception {
+        ArtifactCache cache = ArtifactCache.get();
+        if (cache == null) {
+            download();
+            return;
         }
+        MessageDigest digest = UtilsCrypto.getSHA256Digest();
+        destinationFile = cache.fetch(url, plLatestVersion, new File(System.getProperty("user.dir") + "/autoplug/downloads"), () -> {
+            download(digest);
+            return new ArtifactCache.Artifact(destinationFile, UtilsByte.encode(digest.digest()));
+        }).file;
     }
 
     public void download() throws Exception {
+        download(null);
+    }
+
+    /**
+     * @param digest updated with the downloaded bytes, null to not hash them.
+     */
+    private void download(@Nullable MessageDigest digest) throws Exception {
         GD.WORKING_DIR = new File(System.getProperty("user.dir"));
         File dir = new File(GD.WORKING_DIR + "/autoplug/downloads");
         if (!dir.exists()) dir.mkdirs();
@@ -134,10 +162,12 @@ public class TaskPluginDownload extends TaskDownloadBase {
         final String fileName = destinationFile.getName();
         setStatus("Downloading " + fileName + "... (0kb/0kb)");
 
-        Request request = new Request.Builder().url(url)
+        Request request = new Request.Builder().url(Mirror.url(url, plLatestVersion))
                 .header("User-Agent", "AutoPlug-Client - https://autoplug.one")
                 .build();
 
+        Profiler.Span span = Profiler.start("http", "Download " + fileName);
+
         Response response = new OkHttpClient().newCall(request).execute();
         ResponseBody body = null;
         try {
@@ -163,26 +193,10 @@ public class TaskPluginDownload extends TaskDownloadBase {
             }
 
             long completeFileSize = body.contentLength();
-            setMax(completeFileSize);
-
-            BufferedInputStream in = new BufferedInputStream(body.byteStream());
-            FileOutputStream fos = new FileOutputStream(destinationFile);
-            BufferedOutputStream bout = new BufferedOutputStream(fos, 1024);
-            byte[] data = new byte[1024];
-            long downloadedFileSize = 0;
-            int x = 0;
-            while ((x = in.read(data, 0, 1024)) >= 0) {
-                downloadedFileSize += x;
-
-                setStatus("Downloading " + fileName + "... (" + downloadedFileSize / 1024 + "kb/" + completeFileSize / 1024 + "kb)");
-                setNow(downloadedFileSize);
-
-                bout.write(data, 0, x);
-            }
+            long downloadedFileSize = writeBody(body, destinationFile, fileName, digest);
 
+            Metrics.DOWNLOAD_BYTES.add(downloadedFileSize);
             setStatus("Downloaded " + fileName + " (" + downloadedFileSize / 1024 + "kb/" + completeFileSize / 1024 + "kb)");
-            bout.close();
-            in.close();
             body.close();
             response.close();
 
@@ -221,6 +235,9 @@ public class TaskPluginDownload extends TaskDownloadBase {
             if (body != null) body.close();
             response.close();
             throw e;
+        } finally {
+            span.close();
+            Metrics.DOWNLOAD_DURATION.observe(span.getMs());
         }
     }
 
@@ -310,6 +327,10 @@ public class TaskPluginDownload extends TaskDownloadBase {
         return isDownloadSuccessful;
     }
 
+    /**
+     * @return true if installed, or staged via {@link StagedInstalls}, which persists the install
+     * and applies it before the next server start.
+     */
     public boolean isInstallSuccessful() {
         return isInstallSuccessful;
     }
@@ -19,12 +19,18 @@ import com.osiris.autoplug.client.configs.UpdaterConfig;
 import com.osiris.autoplug.client.configs.WebConfig;
 import com.osiris.autoplug.client.managers.FileManager;
 import com.osiris.autoplug.client.network.online.connections.ConPluginsUpdateResult;
+import com.osiris.autoplug.client.tasks.updater.CheckSchedule;
+import com.osiris.autoplug.client.tasks.updater.StagedInstalls;
+import com.osiris.autoplug.client.tasks.updater.UpdateState;
 import com.osiris.autoplug.client.tasks.updater.UtilsUpdater;
 import com.osiris.autoplug.client.tasks.updater.search.SearchResult;
 import com.osiris.autoplug.client.utils.GD;
+import com.osiris.autoplug.client.utils.Profiler;
+import com.osiris.autoplug.client.utils.Threads;
 import com.osiris.autoplug.client.utils.UtilsFile;
 import com.osiris.autoplug.client.utils.UtilsLists;
 import com.osiris.autoplug.client.utils.UtilsMinecraft;
+import com.osiris.autoplug.client.utils.tasks.TaskProgress;
 import com.osiris.betterthread.BThread;
 import com.osiris.betterthread.BThreadManager;
 import com.osiris.betterthread.BWarning;
@@ -43,7 +49,11 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
-public class TaskPluginsUpdater extends BThread {
+public class TaskPluginsUpdater extends BThread implements TaskProgress.Owner {
+    /**
+     * Max parallel update checks, if not running on virtual threads (see {@link Threads}).
+     */
+    private static final int MAX_PLATFORM_THREADS = 32;
     private final String notifyProfile = "NOTIFY";
     private final String manualProfile = "MANUAL";
     private final String automaticProfile = "AUTOMATIC";
@@ -56,6 +66,15 @@ public class TaskPluginsUpdater extends BThread {
     private final List<MinecraftPlugin> excludedPlugins = new ArrayList<>();
     private final Gson gson = new GsonBuilder().create();
     PluginsConfig pluginsConfig;
+    private final UpdateState state = UpdateState.get();
+    private final CheckSchedule schedule = CheckSchedule.get();
+    private final TaskProgress progress = new TaskProgress();
+    /**
+     * If true, all plugins are checked, not only the ones that are due, see {@link CheckSchedule}.
+     */
+    public boolean ignoreSchedule = false;
+    @NotNull
+    private final List<MinecraftPlugin> notDuePlugins = new ArrayList<>();
     private UpdaterConfig updaterConfig;
     private String userProfile;
     private String pluginsConfigName;
@@ -81,7 +100,7 @@ public class TaskPluginsUpdater extends BThread {
             skip();
             return;
         }
-        if (Server.isRunning()) throw new Exception("Cannot perform plugins update while server is running!");
+        if (Server.isRunning() && !StagedInstalls.isStaging()) throw new Exception("Cannot perform plugins update while server is running!");
 
         boolean isPremiumServer = false;
         if (updaterConfig.plugins_updater_web_database.asBoolean()) {
@@ -123,8 +142,6 @@ public class TaskPluginsUpdater extends BThread {
                     excludedPlugins.add(installedPlugin);
                     continue;
                 }
-                YamlSection version = pluginsConfig.put(name, plName, "version").setDefValues(installedPlugin.getVersion());
-                YamlSection latestVersion = pluginsConfig.put(name, plName, "latest-version");
                 YamlSection author = pluginsConfig.put(name, plName, "author").setDefValues(installedPlugin.getAuthor());
                 YamlSection spigotId = pluginsConfig.put(name, plName, "spigot-id").setDefValues("0");
                 YamlSection modrinthId = pluginsConfig.put(name, plName, "modrinth-id");
@@ -145,8 +162,11 @@ public class TaskPluginsUpdater extends BThread {
                 if (installedPlugin.getBukkitId() != 0 && bukkitId.asString() != null && bukkitId.asInt() == 0)
                     bukkitId.setValues(String.valueOf(installedPlugin.getBukkitId()));
 
+                String key = UpdateState.PLUGINS + plName;
+                boolean isDue = ignoreSchedule || schedule.isDue(key);
+
                 // Fetch missing details from the AutoPlug-Web database
-                if (isPremiumServer) {
+                if (isPremiumServer && isDue) {
                     try {
                         if (plName != null && author.asString() != null && !author.asString().trim().isEmpty()) {
                             JsonObject request = new JsonObject();
@@ -198,9 +218,15 @@ public class TaskPluginsUpdater extends BThread {
                     }
                 }
 
+                // Ids found by previous checks, if not set by the user
+                int resolvedSpigotId = spigotId.asString() != null && spigotId.asInt() != 0 ? spigotId.asInt() : (int) state.getLong(key, UpdateState.SPIGOT_ID, 0);
+                int resolvedBukkitId = bukkitId.asString() != null && bukkitId.asInt() != 0 ? bukkitId.asInt() : (int) state.getLong(key, UpdateState.BUKKIT_ID, 0);
+                state.put(key, UpdateState.VERSION, installedPlugin.getVersion());
+                state.put(key, UpdateState.AUTHOR, installedPlugin.getAuthor());
+
                 // Update the detailed plugins in-memory values
-                installedPlugin.setSpigotId(spigotId.asInt());
-                installedPlugin.setBukkitId(bukkitId.asInt());
+                installedPlugin.setSpigotId(resolvedSpigotId);
+                installedPlugin.setBukkitId(resolvedBukkitId);
                 installedPlugin.setIgnoreContentType(ignoreContentType.asBoolean());
                 installedPlugin.setCustomDownloadURL(customDownloadURL.asString());
                 installedPlugin.setCustomCheckURL(customCheckURL.asString());
@@ -208,7 +234,7 @@ public class TaskPluginsUpdater extends BThread {
                 installedPlugin.setGithubAssetName(githubAssetName.asString());
                 installedPlugin.setJenkinsProjectUrl(jenkinsProjectUrl.asString());
                 installedPlugin.setJenkinsArtifactName(jenkinsArtifactName.asString());
-                installedPlugin.setJenkinsBuildId(jenkinsBuildId.asInt());
+                installedPlugin.setJenkinsBuildId((int) Math.max(jenkinsBuildId.asInt(), state.getLong(key, UpdateState.JENKINS_BUILD_ID, 0)));
                 installedPlugin.setModrinthId(modrinthId.asString());
                 installedPlugin.forceUpdate = forceUpdate.asBoolean();
 
@@ -217,9 +243,9 @@ public class TaskPluginsUpdater extends BThread {
                     exclude.setValues("false");
                 else if (githubAssetName.asString() != null && githubRepoName.asString() != null)
                     exclude.setValues("false");
-                else if (spigotId.asString() != null && spigotId.asInt() != 0)
+                else if (resolvedSpigotId != 0)
                     exclude.setValues("false");
-                else if (bukkitId.asString() != null && bukkitId.asInt() != 0)
+                else if (resolvedBukkitId != 0)
                     exclude.setValues("false");
                 else if (installedPlugin.getVersion() == null || installedPlugin.getVersion().trim().isEmpty()) {
                     exclude.setValues("true");
@@ -236,8 +262,10 @@ public class TaskPluginsUpdater extends BThread {
 
                 if (exclude.asBoolean())
                     excludedPlugins.add(installedPlugin);
-                else
+                else {
                     includedPlugins.add(installedPlugin);
+                    if (!isDue) notDuePlugins.add(installedPlugin);
+                }
             } catch (DuplicateKeyException e) {
                 addWarning(new BWarning(this, e, "Duplicate plugin '" + installedPlugin.getName() + "' (or plugin name from its plugin.yml) found in your plugins directory. " +
                         "Its recommended to remove it."));
@@ -250,7 +278,15 @@ public class TaskPluginsUpdater extends BThread {
             pluginsConfig.save();
         else {
             pluginsConfig.save(true); // This overwrites the file and removes everything else that wasn't added via the add method before.
+            List<String> installedNames = new ArrayList<>();
+            for (MinecraftPlugin pl : allPlugins) {
+                installedNames.add(pl.getName());
+            }
+            for (String plName : state.getNames(UpdateState.PLUGINS)) {
+                if (!installedNames.contains(plName)) state.remove(UpdateState.PLUGINS + plName);
+            }
         }
+        state.save();
 
         // TODO DO COOL-DOWN CHECK STUFF LOCALLY
         /*
@@ -270,6 +306,7 @@ public class TaskPluginsUpdater extends BThread {
         if (includedSize == 0)
             throw new Exception("No plugins found in " + updaterConfig.plugins_updater_path.asString() + "! Nothing to check...");
         setMax(includedSize);
+        progress.start(TaskProgress.Phase.CHECKING, "plugins", includedSize);
 
         // TODO USE THIS FOR RESULT REPORT
         int sizeCustomPlugins = 0;
@@ -282,7 +319,7 @@ public class TaskPluginsUpdater extends BThread {
 
         ExecutorService executorService;
         if (updaterConfig.plugins_updater_async.asBoolean())
-            executorService = Executors.newFixedThreadPool(includedSize);
+            executorService = Threads.newIoExecutor("PluginsUpdater", Math.min(includedSize, MAX_PLATFORM_THREADS));
         else
             executorService = Executors.newSingleThreadExecutor();
         List<Future<SearchResult>> activeFutures = new ArrayList<>();
@@ -292,41 +329,49 @@ public class TaskPluginsUpdater extends BThread {
         if (mcVersion == null) updaterConfig.server_updater_version.asString();
         if (mcVersion == null) mcVersion = Server.getMCVersion();
 
+        List<SearchResult> results = new ArrayList<>();
         for (MinecraftPlugin pl :
                 includedPlugins) {
             try {
-                setStatus("Initialising update check for  " + pl.getName() + "...");
+                if (notDuePlugins.contains(pl)) { // Use the result of the last check
+                    String key = UpdateState.PLUGINS + pl.getName();
+                    results.add(new SearchResult(pl, SearchResult.Type.UP_TO_DATE, state.get(key, UpdateState.LATEST_VERSION),
+                            state.get(key, UpdateState.DOWNLOAD_URL), state.get(key, UpdateState.DOWNLOAD_TYPE), null, null, false));
+                    continue;
+                }
                 if (pl.customCheckURL != null) { // Custom Check
                     sizeCustomPlugins++;
-                    activeFutures.add(executorService.submit(() -> new ResourceFinder().findByCustomCheckURL(pl)));
+                    activeFutures.add(executorService.submit(Profiler.traced("http", "Search " + pl.getName(), () -> new ResourceFinder().findByCustomCheckURL(pl))));
                 } else if (pl.getJenkinsProjectUrl() != null) { // JENKINS PLUGIN
                     sizeJenkinsPlugins++;
-                    activeFutures.add(executorService.submit(() -> new ResourceFinder().findByJenkinsUrl(pl)));
+                    activeFutures.add(executorService.submit(Profiler.traced("http", "Search " + pl.getName(), () -> new ResourceFinder().findByJenkinsUrl(pl))));
                 } else if (pl.getGithubRepoName() != null) { // GITHUB PLUGIN
                     sizeGithubPlugins++;
-                    activeFutures.add(executorService.submit(() -> new ResourceFinder().findByGithubUrl(pl)));
+                    activeFutures.add(executorService.submit(Profiler.traced("http", "Search " + pl.getName(), () -> new ResourceFinder().findByGithubUrl(pl))));
                 } else if (pl.getSpigotId() != 0) {
                     sizeSpigotPlugins++; // SPIGOT PLUGIN
-                    activeFutures.add(executorService.submit(() -> new ResourceFinder().findPluginBySpigotId(pl)));
+                    activeFutures.add(executorService.submit(Profiler.traced("http", "Search " + pl.getName(), () -> new ResourceFinder().findPluginBySpigotId(pl))));
                 } else if (pl.getBukkitId() != 0) {
                     sizeBukkitPlugins++; // BUKKIT PLUGIN
                     pl.setIgnoreContentType(true); // TODO temporary workaround for xamazon-json content type curseforge/bukkit issue: https://github.com/Osiris-Team/AutoPlug-Client/issues/109
-                    activeFutures.add(executorService.submit(() -> new ResourceFinder().findPluginByBukkitId(pl)));
+                    activeFutures.add(executorService.submit(Profiler.traced("http", "Search " + pl.getName(), () -> new ResourceFinder().findPluginByBukkitId(pl))));
                 } else if (pl.getModrinthId() != null) { // MODRINTH PLUGIN
                     sizeModrinthPlugins++;
                     String finalMcVersion = mcVersion;
-                    activeFutures.add(executorService.submit(() -> new ResourceFinder().findPluginByModrinthId(pl, finalMcVersion)));
+                    activeFutures.add(executorService.submit(Profiler.traced("http", "Search " + pl.getName(), () -> new ResourceFinder().findPluginByModrinthId(pl, finalMcVersion))));
                 } else {
                     sizeUnknownPlugins++; // UNKNOWN PLUGIN
                     pl.setIgnoreContentType(true); // TODO temporary workaround for xamazon-json content type curseforge/bukkit issue: https://github.com/Osiris-Team/AutoPlug-Client/issues/109
-                    activeFutures.add(executorService.submit(() -> new ResourceFinder().findUnknownSpigotPlugin(pl)));
+                    activeFutures.add(executorService.submit(Profiler.traced("http", "Search " + pl.getName(), () -> new ResourceFinder().findUnknownSpigotPlugin(pl))));
                 }
             } catch (Exception e) {
                 this.getWarnings().add(new BWarning(this, e, "Critical error while searching for update for '" + pl.getName() + "' plugin!"));
             }
         }
 
-        List<SearchResult> results = new ArrayList<>();
+        if (!notDuePlugins.isEmpty())
+            addInfo("Skipped " + notDuePlugins.size() + "/" + includedSize + " plugins, since they are not due for a check yet.");
+        progress.setNow(results.size());
         while (!activeFutures.isEmpty()) {
             Thread.sleep(250);
             Future<SearchResult> finishedFuture = null;
@@ -349,7 +394,8 @@ public class TaskPluginsUpdater extends BThread {
                 String downloadUrl = result.getDownloadUrl(); // The download url for the latest version
                 String resultSpigotId = result.getSpigotId();
                 String resultBukkitId = result.getBukkitId();
-                this.setStatus("Checked '" + pl.getName() + "' plugin (" + results.size() + "/" + includedSize + ")");
+                progress.setNow(results.size());
+                progress.setDetail(pl.getName());
                 if (code == SearchResult.Type.UP_TO_DATE || code == SearchResult.Type.UPDATE_AVAILABLE) {
 
                     if (code == SearchResult.Type.UPDATE_AVAILABLE && pl.isPremium())
@@ -368,25 +414,21 @@ public class TaskPluginsUpdater extends BThread {
                 else
                     getWarnings().add(new BWarning(this, new Exception("Unknown error occurred! Code: " + code + "."), "Notify the developers. Fastest way is through discord (https://discord.gg/GGNmtCC)."));
 
-                try {
-                    YamlSection mSpigotId = pluginsConfig.get(pluginsConfigName, pl.getName(), "spigot-id");
-                    if (resultSpigotId != null
-                            && (mSpigotId.asString() == null || mSpigotId.asInt() == 0)) // Because we can get a "null" string from the server
-                        mSpigotId.setValues(resultSpigotId);
-
-                    YamlSection mBukkitId = pluginsConfig.get(pluginsConfigName, pl.getName(), "bukkit-id");
-                    if (resultBukkitId != null
-                            && (mSpigotId.asString() == null || mSpigotId.asInt() == 0)) // Because we can get a "null" string from the server
-                        mBukkitId.setValues(resultBukkitId);
-
-                    // The config gets saved at the end of the runAtStart method.
-                } catch (Exception e) {
-                    getWarnings().add(new BWarning(this, e));
-                }
+                String key = UpdateState.PLUGINS + pl.getName();
+                if (resultSpigotId != null && pl.getSpigotId() == 0 && !resultSpigotId.equals("null")) // Because we can get a "null" string from the server
+                    state.put(key, UpdateState.SPIGOT_ID, resultSpigotId);
+                if (resultBukkitId != null && pl.getBukkitId() == 0 && !resultBukkitId.equals("null"))
+                    state.put(key, UpdateState.BUKKIT_ID, resultBukkitId);
+                schedule.onChecked(key, code, latest);
+                if (downloadUrl != null) state.put(key, UpdateState.DOWNLOAD_URL, downloadUrl);
+                if (type != null) state.put(key, UpdateState.DOWNLOAD_TYPE, type);
+                // The state gets saved once all checks are done.
             }
         }
 
-        pluginsConfig.save();
+        executorService.shutdown();
+        progress.stop();
+        state.save();
 
         // Wait until all download tasks have finished.
         while (!downloadTasksList.isEmpty()) {
@@ -418,18 +460,16 @@ public class TaskPluginsUpdater extends BThread {
 
                 if (finishedDownloadTask.isInstallSuccessful()) {
                     matchingResult.type = SearchResult.Type.UPDATE_INSTALLED;
-                    YamlSection jenkinsBuildId = pluginsConfig.get(
-                            pluginsConfigName, finishedDownloadTask.getPlName(), "alternatives", "jenkins", "build-id");
-                    jenkinsBuildId.setValues(String.valueOf(finishedDownloadTask.searchResult.jenkinsId));
-                    YamlSection version = pluginsConfig.get(
-                            pluginsConfigName, finishedDownloadTask.getPlName(), "version");
-                    version.setValues(finishedDownloadTask.searchResult.getLatestVersion());
+                    String key = UpdateState.PLUGINS + finishedDownloadTask.getPlName();
+                    state.put(key, UpdateState.JENKINS_BUILD_ID, finishedDownloadTask.searchResult.jenkinsId);
+                    state.put(key, UpdateState.VERSION, finishedDownloadTask.searchResult.getLatestVersion());
+                    state.put(key, UpdateState.RESULT, matchingResult.type.name());
                 }
 
             }
         }
 
-        if (new WebConfig().send_plugins_updater_results.asBoolean()) {
+        if (new WebConfig().send_plugins_updater_results.asBoolean() && notDuePlugins.size() < includedPlugins.size()) {
             setStatus("Sending update check results to AutoPlug-Web...");
             try {
                 new ConPluginsUpdateResult(results, excludedPlugins)
@@ -439,7 +479,7 @@ public class TaskPluginsUpdater extends BThread {
             }
         }
 
-        pluginsConfig.save();
+        state.save();
         if (excludedPlugins.size() > 0) {
             includedSize += excludedPlugins.size();
             finish("Checked " + results.size() + "/" + includedSize + " plugins. Some plugins were excluded.");
@@ -466,14 +506,6 @@ public class TaskPluginsUpdater extends BThread {
         } else {
             updatesAvailable++;
 
-            try {
-                // Update the in-memory config
-                YamlSection mLatest = pluginsConfig.get(pluginsConfigName, pl.getName(), "latest-version");
-                mLatest.setValues(latest); // Gets saved later
-            } catch (Exception e) {
-                getWarnings().add(new BWarning(this, e));
-            }
-
             if (userProfile.equals(notifyProfile)) {
                 addInfo("NOTIFY: Plugin '" + pl.getName() + "' has an update available (" + pl.getVersion() + " -> " + latest + "). Download url: " + downloadUrl);
             } else {
@@ -527,6 +559,12 @@ public class TaskPluginsUpdater extends BThread {
         return allPlugins;
     }
 
+    @NotNull
+    @Override
+    public TaskProgress getProgress() {
+        return progress;
+    }
+
     static class Entry {
         public String key;
         public int usage;
@@ -10,6 +10,7 @@ package com.osiris.autoplug.client.tasks.updater.search;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.osiris.autoplug.client.tasks.updater.Mirror;
 import com.osiris.jlib.json.Json;
 import com.osiris.jlib.search.Version;
 
@@ -29,7 +30,7 @@ public class GithubSearch {
         String latestVersion = null;
         String fileName = null;
         try {
-            JsonObject latestRelease = Json.getAsObject("https://api.github.com/repos/" + githubRepoName + "/releases/latest");
+            JsonObject latestRelease = Json.getAsObject(Mirror.url("https://api.github.com/repos/" + githubRepoName + "/releases/latest"));
             latestVersion = latestRelease.get("tag_name").getAsString();
             if (latestVersion != null)
                 latestVersion = latestVersion.replaceAll("[^0-9.]", ""); // Before passing over remove everything except numbers and dots
@@ -10,6 +10,7 @@ package com.osiris.autoplug.client.tasks.updater.search.bukkit;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.osiris.autoplug.client.tasks.updater.Mirror;
 import com.osiris.autoplug.client.tasks.updater.plugins.MinecraftPlugin;
 import com.osiris.autoplug.client.tasks.updater.search.SearchResult;
 import com.osiris.jlib.json.Json;
@@ -36,7 +37,7 @@ public class BukkitSearchById {
         String downloadType = "unknown";
         SearchResult.Type code = SearchResult.Type.UP_TO_DATE;
         try {
-            versions = Json.getAsJsonArray(url);
+            versions = Json.getAsJsonArray(Mirror.url(url));
             json = versions.get(versions.size() - 1).getAsJsonObject();
             latest = json.get("name").getAsString();
             if (latest != null)
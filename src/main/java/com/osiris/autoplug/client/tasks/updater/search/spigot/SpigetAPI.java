@@ -10,6 +10,7 @@ package com.osiris.autoplug.client.tasks.updater.search.spigot;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.osiris.autoplug.client.tasks.updater.Mirror;
 import com.osiris.jlib.json.Json;
 import com.osiris.jlib.json.exceptions.HttpErrorException;
 
@@ -42,7 +43,7 @@ public class SpigetAPI {
      */
     public JsonArray getPlugins(String queryPlName) throws Exception {
         try {
-            return Json.getAsJsonArray(LINK_SEARCH_RESOURCES + queryPlName + SORT_DESC_DOWNLOADS);
+            return Json.getAsJsonArray(Mirror.url(LINK_SEARCH_RESOURCES + queryPlName + SORT_DESC_DOWNLOADS));
         } catch (HttpErrorException e) {
             if (e.getHttpErrorCode() != 404)
                 throw e;
@@ -58,7 +59,7 @@ public class SpigetAPI {
      */
     public JsonArray getAuthors(String queryAuthorName) throws Exception {
         try {
-            return Json.getAsJsonArray(LINK_SEARCH_AUTHORS + queryAuthorName);
+            return Json.getAsJsonArray(Mirror.url(LINK_SEARCH_AUTHORS + queryAuthorName));
         } catch (HttpErrorException e) {
             if (e.getHttpErrorCode() != 404)
                 throw e;
@@ -76,7 +77,7 @@ public class SpigetAPI {
             throw new Exception("AuthorID is either null or equals '0'!"); // TODO ISSUE OPEN HERE: https://github.com/SpiGetOrg/Spiget/issues/32
 
         try {
-            return Json.getAsObject(LINK_AUTHORS + authorId);
+            return Json.getAsObject(Mirror.url(LINK_AUTHORS + authorId));
         } catch (HttpErrorException e) {
             if (e.getHttpErrorCode() != 404)
                 throw e;
@@ -91,7 +92,7 @@ public class SpigetAPI {
      */
     public JsonArray getAuthorResources(String authorId) throws Exception {
         try {
-            return Json.getAsJsonArray(LINK_AUTHORS + authorId + "/resources?size=100&sort=-downloads");
+            return Json.getAsJsonArray(Mirror.url(LINK_AUTHORS + authorId + "/resources?size=100&sort=-downloads"));
             // Limit the max size to 100 and sort by most downloads to increase the chance of a match.
         } catch (HttpErrorException e) {
             if (e.getHttpErrorCode() != 404)
@@ -104,7 +105,7 @@ public class SpigetAPI {
 
     public JsonObject getVersionDetails(String pluginId, String versionId) throws Exception {
         try {
-            return Json.getAsObject(LINK_API + "resources/" + pluginId + "/versions/" + versionId);
+            return Json.getAsObject(Mirror.url(LINK_API + "resources/" + pluginId + "/versions/" + versionId));
         } catch (HttpErrorException e) {
             if (e.getHttpErrorCode() != 404)
                 throw e;
@@ -118,8 +119,8 @@ public class SpigetAPI {
      * Get the latest version from this spigot plugin id.
      */
     public String getLatestVersion(String spigotId) throws Exception {
-        return Json.getAsJsonArray("https://api.spiget.org/v2/resources/" + spigotId +
-                "/versions?size=1&sort=-releaseDate").get(0).getAsJsonObject().get("name").getAsString();
+        return Json.getAsJsonArray(Mirror.url("https://api.spiget.org/v2/resources/" + spigotId +
+                "/versions?size=1&sort=-releaseDate")).get(0).getAsJsonObject().get("name").getAsString();
     }
 
     /**
@@ -134,7 +135,7 @@ public class SpigetAPI {
         List<JsonObject> objectList = new ArrayList<>();
         JsonArray ja = null;
         try {
-            ja = Json.getAsJsonArray(url);
+            ja = Json.getAsJsonArray(Mirror.url(url));
         } catch (HttpErrorException e) {
             if (e.getHttpErrorCode() != 404)
                 throw e;
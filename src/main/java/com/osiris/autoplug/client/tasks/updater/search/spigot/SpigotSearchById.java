@@ -9,6 +9,7 @@
 package com.osiris.autoplug.client.tasks.updater.search.spigot;
 
 import com.google.gson.JsonObject;
+import com.osiris.autoplug.client.tasks.updater.Mirror;
 import com.osiris.autoplug.client.tasks.updater.plugins.MinecraftPlugin;
 import com.osiris.autoplug.client.tasks.updater.search.SearchResult;
 import com.osiris.jlib.json.Json;
@@ -31,15 +32,15 @@ public class SpigotSearchById {
         boolean isPremium = false;
         try {
             // Get the latest version
-            latest = Json.getAsJsonArray(url).get(0).getAsJsonObject().get("name").getAsString();
+            latest = Json.getAsJsonArray(Mirror.url(url)).get(0).getAsJsonObject().get("name").getAsString();
             if (latest != null)
                 latest = latest.replaceAll("[^0-9.]", ""); // Before passing over remove everything except numbers and dots
 
             // Get the file type and downloadUrl
             String url1 = "https://api.spiget.org/v2/resources/" + spigotId;
             AL.debug(this.getClass(), "[" + plugin.getName() + "] Fetching resource details... (" + url1 + ")");
-            JsonObject json = Json.getAsObject(url1).getAsJsonObject("file");
-            isPremium = Boolean.parseBoolean(Json.getAsObject(url1).get("premium").getAsString());
+            JsonObject json = Json.getAsObject(Mirror.url(url1)).getAsJsonObject("file");
+            isPremium = Boolean.parseBoolean(Json.getAsObject(Mirror.url(url1)).get("premium").getAsString());
             type = json.get("type").getAsString();
             downloadUrl = "https://www.spigotmc.org/" + json.get("url").getAsString();
 
@@ -113,6 +113,7 @@ public class TaskSelfUpdater extends BThread {
             if (cache_dest.exists()) cache_dest.delete();
             cache_dest.createNewFile();
             TaskDownloadBase download = new TaskDownloadBase("Downloader", getManager(), downloadUrl, cache_dest);
+            download.setExpected(sha256);
             download.start();
 
             while (true) {
@@ -141,39 +142,29 @@ public class TaskSelfUpdater extends BThread {
         } else {
             setStatus("Update found (" + currentVersion + " -> " + version + "), started download!");
 
-            // Download the file
-            File cache_dest = new File(downloadsDir.getAbsolutePath() + "/" + installationFile.getName());
-            if (cache_dest.exists()) cache_dest.delete();
-            cache_dest.createNewFile();
-            TaskDownloadBase download = new TaskDownloadBase("Downloader", getManager(), downloadUrl, cache_dest);
+            // Download directly next to the installed jar, the hash is calculated while downloading
+            File installedJar = new UtilsJar().getThisJar();
+            File stagedJar = SelfInstaller.getStagedJar(installedJar);
+            File partJar = new File(stagedJar.getAbsolutePath() + ".part");
+            TaskDownloadBase download = new TaskDownloadBase("Downloader", getManager(), downloadUrl, partJar);
+            download.setExpected(sha256);
+            if (updaterConfig.global_delta_updates.asBoolean()) download.setDeltaBase(installedJar);
             download.start();
-
-            while (true) {
-                Thread.sleep(500);
-                if (download.isFinished()) {
-                    if (!download.isSuccess()) {
-                        finish("AutoPlug update failed!", false);
-                        return;
-                    }
-                    setStatus("AutoPlug update downloaded. Checking hash...");
-                    if (!download.compareWithSHA256(sha256)) {
-                        finish("Downloaded AutoPlug update is broken. Nothing changed!", false);
-                        return;
-                    }
-                    setStatus("Installing AutoPlug update (" + currentVersion + " -> " + version + ")...");
-                    // Create the actual update copy file, by simply copying the newly downloaded file.
-                    Files.copy(cache_dest.toPath(),
-                            new File(downloadsDir.getAbsolutePath() + "/AutoPlug-Client-Copy.jar").toPath(),
-                            StandardCopyOption.REPLACE_EXISTING);
-                    // Start that newly downloaded AutoPlug-Client.jar in the downloads dir.
-                    // That jar detects, that its started inside of the downloads dir and installs the AutoPlug-Client-Copy.jar and starts it
-                    new SelfInstaller().startJarFromPath(cache_dest, cache_dest.getParentFile());
-                    System.exit(0);
-                    finish(true);
-                    break;
-                }
-
+            download.join();
+            if (!download.isSuccess()) {
+                partJar.delete();
+                finish("AutoPlug update failed!", false);
+                return;
+            }
+            if (!download.compareWithSHA256(sha256)) {
+                partJar.delete();
+                finish("Downloaded AutoPlug update is broken. Nothing changed!", false);
+                return;
             }
+            Files.move(partJar.toPath(), stagedJar.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            setStatus("Installing AutoPlug update (" + currentVersion + " -> " + version + ")...");
+            new SelfInstaller().swapStagedUpdateAndRestart(installedJar);
+            finish(true);
         }
 
 
@@ -12,6 +12,7 @@ import com.osiris.autoplug.client.Server;
 import com.osiris.autoplug.client.configs.GeneralConfig;
 import com.osiris.autoplug.client.configs.UpdaterConfig;
 import com.osiris.autoplug.client.managers.FileManager;
+import com.osiris.autoplug.client.tasks.updater.StagedInstalls;
 import com.osiris.autoplug.client.tasks.updater.TaskDownloadBase;
 import com.osiris.autoplug.client.tasks.updater.search.GithubSearch;
 import com.osiris.autoplug.client.tasks.updater.search.JenkinsSearch;
@@ -28,7 +29,6 @@ import com.osiris.dyml.exceptions.*;
 import com.osiris.jlib.logger.AL;
 import me.hsgamer.mcserverupdater.UpdateBuilder;
 import me.hsgamer.mcserverupdater.UpdateStatus;
-import org.apache.commons.io.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
@@ -50,7 +50,7 @@ public class TaskServerUpdater extends BThread {
     @Override
     public void runAtStart() throws Exception {
         super.runAtStart();
-        if (Server.isRunning()) throw new Exception("Cannot perform update while server is running!");
+        if (Server.isRunning() && !StagedInstalls.isStaging()) throw new Exception("Cannot perform update while server is running!");
         updaterConfig = new UpdaterConfig();
         if (!updaterConfig.server_updater.asBoolean()) {
             skip();
@@ -92,7 +92,7 @@ public class TaskServerUpdater extends BThread {
         if (updaterConfig.server_github_repo_name.asString() != null) {
             sr = new GithubSearch().search(updaterConfig.server_github_repo_name.asString(),
                     updaterConfig.server_github_asset_name.asString(),
-                    updaterConfig.server_github_version.asString());
+                    StagedInstalls.getVersion(updaterConfig.server_github_version));
             if (sr.type == SearchResult.Type.UP_TO_DATE) {
                 setStatus("Your server is on the latest version!");
                 setSuccess(true);
@@ -104,7 +104,7 @@ public class TaskServerUpdater extends BThread {
         } else {
             sr = new JenkinsSearch().search(updaterConfig.server_jenkins_project_url.asString(),
                     updaterConfig.server_jenkins_artifact_name.asString(),
-                    updaterConfig.server_jenkins_build_id.asInt());
+                    Integer.parseInt(StagedInstalls.getVersion(updaterConfig.server_jenkins_build_id)));
 
             if (sr.type == SearchResult.Type.UP_TO_DATE) {
                 setStatus("Your server is on the latest version!");
@@ -128,6 +128,7 @@ public class TaskServerUpdater extends BThread {
             if (cache_dest.exists()) cache_dest.delete();
             cache_dest.createNewFile();
             TaskDownloadBase download = new TaskDownloadBase("ServerDownloader", getManager(), downloadUrl, cache_dest);
+            download.setExpected(latestVersion);
             download.start();
 
             while (true) {
@@ -151,6 +152,8 @@ public class TaskServerUpdater extends BThread {
             if (cache_dest.exists()) cache_dest.delete();
             cache_dest.createNewFile();
             TaskDownloadBase download = new TaskDownloadBase("ServerDownloader", getManager(), downloadUrl, cache_dest);
+            download.setExpected(latestVersion);
+            if (updaterConfig.global_delta_updates.asBoolean()) download.setDeltaBase(serverExe);
             download.start();
 
             while (true) {
@@ -160,11 +163,12 @@ public class TaskServerUpdater extends BThread {
                         File final_dest = serverExe;
                         if (final_dest == null)
                             final_dest = new File(GD.WORKING_DIR + "/" + onlineFileName);
-                        if (final_dest.exists()) final_dest.delete();
-                        final_dest.createNewFile();
-                        FileUtils.copyFile(cache_dest, final_dest);
-                        setStatus("Server update was installed successfully (" + version.asString() + " -> " + latestVersion + ")!");
-                        version.setValues(latestVersion);
+                        String currentVersion = version.asString();
+                        // If staged, the version gets saved once installed
+                        if (StagedInstalls.installFile(cache_dest, final_dest, null, version, latestVersion))
+                            setStatus("Server update was installed successfully (" + currentVersion + " -> " + latestVersion + ")!");
+                        else
+                            setStatus("Server update was staged and gets installed at the next restart (" + currentVersion + " -> " + latestVersion + ")!");
                         updaterConfig.save();
                         setSuccess(true);
                     } else {
@@ -195,6 +199,12 @@ public class TaskServerUpdater extends BThread {
         } else {
             outputFile = serverExe;
         }
+        // Download into the staging dir instead, if the server is running
+        File finalOutputFile = outputFile;
+        if (!profile.equals("MANUAL") && StagedInstalls.isStaging()) {
+            outputFile = new File(StagedInstalls.getDir() + "/" + finalOutputFile.getName());
+            if (outputFile.exists()) outputFile.delete();
+        }
         // The update process will create the output file if it doesn't exist.
         updateBuilder.outputFile(outputFile);
 
@@ -208,8 +218,15 @@ public class TaskServerUpdater extends BThread {
 
         // Use build-id from the config as the checksum.
         // Note that each software has a different form of checksum, so we just inspect the checksum as a string.
-        updateBuilder.checksumSupplier(updaterConfig.server_build_id::asString);
+        updateBuilder.checksumSupplier(() -> StagedInstalls.getVersion(updaterConfig.server_build_id));
+        // If staged, the build-id gets saved once installed
+        boolean isStaged = outputFile != finalOutputFile;
+        String[] stagedBuildId = {null};
         updateBuilder.checksumConsumer(checksum -> {
+            if (isStaged) {
+                stagedBuildId[0] = checksum;
+                return;
+            }
             updaterConfig.server_build_id.setValues(checksum);
             try {
                 updaterConfig.save();
@@ -227,6 +244,10 @@ public class TaskServerUpdater extends BThread {
         }
         if (status.getThrowable() != null)
             addWarning(new BWarning(this, status.getThrowable()));
+        if (status.isSuccessStatus() && isStaged && outputFile.length() > 0) {
+            StagedInstalls.installFile(outputFile, finalOutputFile, null, updaterConfig.server_build_id, stagedBuildId[0]);
+            setStatus("Server update was staged and gets installed at the next restart.");
+        }
         setSuccess(status.isSuccessStatus());
     }
 
@@ -256,7 +277,7 @@ public class TaskServerUpdater extends BThread {
         }
         if (profile.equals("AUTOMATIC")) {
             setStatus("Moving files, this might take a bit...");
-            FileUtils.copyDirectory(serverDir, GD.WORKING_DIR);
+            StagedInstalls.installDirectory(serverDir, GD.WORKING_DIR, false);
             if (isFirstInstall) { // Update start command
                 String startCommand = (isWindows ? ".\\" : "./");
                 GeneralConfig general = new GeneralConfig();
@@ -8,21 +8,15 @@
 
 package com.osiris.autoplug.client.ui;
 
+import com.osiris.autoplug.client.tasks.updater.UpdateState;
 import com.osiris.autoplug.client.ui.utils.MyMouseListener;
 import com.osiris.betterlayout.BLayout;
-import com.osiris.dyml.Yaml;
-import com.osiris.dyml.YamlSection;
-import com.osiris.dyml.exceptions.DuplicateKeyException;
-import com.osiris.dyml.exceptions.IllegalListException;
-import com.osiris.dyml.exceptions.YamlReaderException;
 import com.osiris.jlib.logger.AL;
 
 import javax.swing.*;
 import java.awt.*;
-import java.io.File;
-import java.io.IOException;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 
 public class MinecraftPluginsPanel extends BLayout {
     public JButton btnRefreshData = new JButton("Refresh");
@@ -42,29 +36,24 @@ public class MinecraftPluginsPanel extends BLayout {
         }));
     }
 
-    public void updateData() throws YamlReaderException, IOException, DuplicateKeyException, IllegalListException {
+    public void updateData() {
         // Fetch data
         int columnsCount = 4;
         String[] columnNames = {"Name", "Version", "Latest", "Author"};
         Object[][] data = null;
-        File yamlFile = new File(System.getProperty("user.dir") + "/autoplug/plugins.yml");
-        if (!yamlFile.exists()) {
+        List<String> names = UpdateState.get().getNames(UpdateState.PLUGINS);
+        if (names.isEmpty()) {
             data = new Object[][]{
                     {"-", "-", "-", "-"}
             };
         } else {
-            Yaml plConfig = new Yaml(yamlFile);
-            plConfig.load();
-            List<YamlSection> sections = Objects.requireNonNull(plConfig.get("plugins")).getChildSections();
-            sections.remove(0); // To skip first child, since that's no plugin data
-            data = new Object[sections.size()][columnsCount];
-            for (int i = 0; i < sections.size(); i++) {
-                YamlSection sec = sections.get(i);
-                String modName = sec.getLastKey();
-                data[i][0] = modName;
-                data[i][1] = plConfig.get("plugins", modName, "version").asString();
-                data[i][2] = plConfig.get("plugins", modName, "latest-version").asString();
-                data[i][3] = plConfig.get("plugins", modName, "author").asString();
+            data = new Object[names.size()][columnsCount];
+            for (int i = 0; i < names.size(); i++) {
+                Map<String, String> fields = UpdateState.get().getAll(UpdateState.PLUGINS + names.get(i));
+                data[i][0] = names.get(i);
+                data[i][1] = fields.get(UpdateState.VERSION);
+                data[i][2] = fields.get(UpdateState.LATEST_VERSION);
+                data[i][3] = fields.get(UpdateState.AUTHOR);
             }
         }
 
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Binary delta between two versions of a file, similar to rsync. <br>
+ * A patch contains instructions to copy ranges of the old file and literal bytes that are
+ * new, thus applying it to the old file restores the new file byte for byte. That's also why
+ * the patch contains the SHA-256 hash of the new file, which gets verified when applying. <br>
+ * Works well for jars and archives, since unchanged entries stay unchanged in the compressed form. <br>
+ * Format (gzipped): magic, new file length, new file SHA-256, then operations until {@link #OP_END}.
+ */
+public class BinaryDelta {
+    public static final int BLOCK_SIZE = 1024;
+    private static final byte[] MAGIC = {'A', 'P', 'D', 'E', 'L', 'T', 'A', '1'};
+    private static final int OP_END = 0;
+    private static final int OP_COPY = 1;
+    private static final int OP_DATA = 2;
+
+    /**
+     * Creates a patch that turns the old file into the new file. Both files are read fully into memory.
+     */
+    public static void create(@NotNull File oldFile, @NotNull File newFile, @NotNull File patchFile) throws IOException {
+        byte[] oldBytes = Files.readAllBytes(oldFile.toPath());
+        byte[] newBytes = Files.readAllBytes(newFile.toPath());
+        try (OutputStream out = new FileOutputStream(patchFile)) {
+            create(oldBytes, newBytes, out);
+        }
+    }
+
+    public static void create(@NotNull byte[] oldBytes, @NotNull byte[] newBytes, @NotNull OutputStream out) throws IOException {
+        DataOutputStream dout = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(out)));
+        dout.write(MAGIC);
+        dout.writeLong(newBytes.length);
+        dout.writeUTF(UtilsByte.encode(UtilsCrypto.getSHA256Digest().digest(newBytes)));
+
+        Map<Integer, List<Integer>> blocks = new HashMap<>();
+        for (int i = 0; i + BLOCK_SIZE <= oldBytes.length; i += BLOCK_SIZE) {
+            blocks.computeIfAbsent(checksum(oldBytes, i, BLOCK_SIZE), k -> new ArrayList<>(1)).add(i);
+        }
+
+        int literalStart = 0;
+        int n = 0;
+        int sum = newBytes.length >= BLOCK_SIZE ? checksum(newBytes, 0, BLOCK_SIZE) : 0;
+        while (n + BLOCK_SIZE <= newBytes.length) {
+            int match = findMatch(blocks.get(sum), oldBytes, newBytes, n);
+            if (match < 0) {
+                if (n + BLOCK_SIZE < newBytes.length)
+                    sum = roll(sum, newBytes[n], newBytes[n + BLOCK_SIZE]);
+                n++;
+                continue;
+            }
+            // Extend the match as far as possible, which also merges following blocks
+            int length = BLOCK_SIZE;
+            while (match + length < oldBytes.length && n + length < newBytes.length
+                    && oldBytes[match + length] == newBytes[n + length]) {
+                length++;
+            }
+            writeData(dout, newBytes, literalStart, n - literalStart);
+            dout.writeByte(OP_COPY);
+            dout.writeLong(match);
+            dout.writeInt(length);
+            n += length;
+            literalStart = n;
+            if (n + BLOCK_SIZE <= newBytes.length) sum = checksum(newBytes, n, BLOCK_SIZE);
+        }
+        writeData(dout, newBytes, literalStart, newBytes.length - literalStart);
+        dout.writeByte(OP_END);
+        dout.flush();
+        dout.close();
+    }
+
+    /**
+     * Applies the patch to the old file and writes the result to the output stream. <br>
+     * Note that the output is only valid if no exception was thrown.
+     *
+     * @return the SHA-256 hash of the written bytes.
+     * @throws IOException if the patch is invalid, or the result does not match the hash in the patch,
+     *                     for example because it was created for a different old file.
+     */
+    @NotNull
+    public static String apply(@NotNull File oldFile, @NotNull InputStream patch, @NotNull OutputStream out) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(patch)));
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (magic[i] != MAGIC[i]) throw new IOException("Not a delta patch!");
+        }
+        long expectedLength = in.readLong();
+        String expectedSha256 = in.readUTF();
+
+        MessageDigest digest = UtilsCrypto.getSHA256Digest();
+        byte[] buffer = new byte[65536];
+        long length = 0;
+        try (RandomAccessFile old = new RandomAccessFile(oldFile, "r")) {
+            int op;
+            while ((op = in.readUnsignedByte()) != OP_END) {
+                if (op == OP_COPY) {
+                    long offset = in.readLong();
+                    int remaining = in.readInt();
+                    if (offset < 0 || remaining < 0 || offset + remaining > old.length())
+                        throw new IOException("Delta patch does not match the old file!");
+                    old.seek(offset);
+                    while (remaining > 0) {
+                        int count = Math.min(remaining, buffer.length);
+                        old.readFully(buffer, 0, count);
+                        out.write(buffer, 0, count);
+                        digest.update(buffer, 0, count);
+                        remaining -= count;
+                        length += count;
+                    }
+                } else if (op == OP_DATA) {
+                    int remaining = in.readInt();
+                    while (remaining > 0) {
+                        int count = Math.min(remaining, buffer.length);
+                        in.readFully(buffer, 0, count);
+                        out.write(buffer, 0, count);
+                        digest.update(buffer, 0, count);
+                        remaining -= count;
+                        length += count;
+                    }
+                } else
+                    throw new IOException("Unknown delta patch operation: " + op);
+            }
+        }
+        out.flush();
+        String sha256 = UtilsByte.encode(digest.digest());
+        if (length != expectedLength || !sha256.equalsIgnoreCase(expectedSha256))
+            throw new IOException("Delta patch result does not match! Expected " + expectedLength + " bytes with SHA-256 "
+                    + expectedSha256 + " but got " + length + " bytes with " + sha256);
+        return sha256;
+    }
+
+    private static int findMatch(List<Integer> candidates, byte[] oldBytes, byte[] newBytes, int n) {
+        if (candidates == null) return -1;
+        for (int candidate : candidates) {
+            boolean isEqual = true;
+            for (int i = 0; i < BLOCK_SIZE; i++) {
+                if (oldBytes[candidate + i] != newBytes[n + i]) {
+                    isEqual = false;
+                    break;
+                }
+            }
+            if (isEqual) return candidate;
+        }
+        return -1;
+    }
+
+    private static void writeData(DataOutputStream dout, byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) return;
+        dout.writeByte(OP_DATA);
+        dout.writeInt(length);
+        dout.write(bytes, offset, length);
+    }
+
+    /**
+     * Weak rolling checksum (like Adler-32 without modulo prime), see {@link #roll(int, byte, byte)}.
+     */
+    private static int checksum(byte[] bytes, int offset, int length) {
+        int a = 0, b = 0;
+        for (int i = 0; i < length; i++) {
+            a += bytes[offset + i] & 0xff;
+            b += (length - i) * (bytes[offset + i] & 0xff);
+        }
+        return (a & 0xffff) | (b << 16);
+    }
+
+    /**
+     * @return the checksum of the block moved by one byte, without recalculating the whole block.
+     */
+    private static int roll(int sum, byte removed, byte added) {
+        int a = sum & 0xffff;
+        int b = (sum >>> 16) & 0xffff;
+        a = (a - (removed & 0xff) + (added & 0xff)) & 0xffff;
+        b = (b - BLOCK_SIZE * (removed & 0xff) + a) & 0xffff;
+        return a | (b << 16);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.utils;
+
+import com.osiris.autoplug.client.Server;
+import com.osiris.autoplug.client.configs.GeneralConfig;
+import com.osiris.jlib.logger.AL;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import oshi.SystemInfo;
+import oshi.hardware.CentralProcessor;
+import oshi.hardware.GlobalMemory;
+import oshi.software.os.OSProcess;
+import oshi.software.os.OperatingSystem;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the CPU and memory usage of this machine and of the server process in the background,
+ * so that AutoPlug-Web, the metrics and commands can read the latest {@link Snapshot} without waiting. <br>
+ * The CPU usage is calculated from the CPU ticks between two samples, instead of
+ * measuring for a second each time.
+ */
+public class HardwareSampler {
+    public static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0, 0, -1, 0, 0, 0);
+    private static volatile Snapshot last = EMPTY;
+    @Nullable
+    private static ScheduledExecutorService executor;
+
+    // Only accessed by the sampler thread:
+    private static CentralProcessor cpu;
+    private static GlobalMemory memory;
+    private static OperatingSystem os;
+    private static long cpuMaxSpeed;
+    private static long[] lastTicks;
+    @Nullable
+    private static OSProcess lastServerProcess;
+
+    /**
+     * @return the latest sample, starts the sampler if not running yet.
+     * {@link #EMPTY} until the first sample was taken, one interval after the start.
+     */
+    @NotNull
+    public static Snapshot get() {
+        start();
+        return last;
+    }
+
+    /**
+     * @return the latest sample, or {@link #EMPTY} if the sampler was not started or has no sample yet.
+     */
+    @NotNull
+    public static Snapshot getLast() {
+        return last;
+    }
+
+    public static synchronized void start() {
+        if (executor != null) return;
+        long msInterval = 5000;
+        try {
+            msInterval = Math.max(1, new GeneralConfig().autoplug_hardware_sampler_interval.asInt()) * 1000L;
+        } catch (Exception e) {
+            AL.warn("Failed to load hardware sampler interval, using the default.", e);
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(Threads.factory("HardwareSampler"));
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                sample();
+            } catch (Throwable e) {
+                AL.debug(HardwareSampler.class, "Failed to sample hardware: " + e.getMessage());
+            }
+        }, 0, msInterval, TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private static void sample() {
+        if (os == null) {
+            SystemInfo si = new SystemInfo();
+            cpu = si.getHardware().getProcessor();
+            memory = si.getHardware().getMemory();
+            os = si.getOperatingSystem();
+            cpuMaxSpeed = cpu.getMaxFreq();
+            lastTicks = cpu.getSystemCpuLoadTicks();
+            return; // The CPU usage is calculated from the ticks of two samples, thus publish the next sample
+        }
+
+        double cpuUsage = cpu.getSystemCpuLoadBetweenTicks(lastTicks);
+        lastTicks = cpu.getSystemCpuLoadTicks();
+        long cpuSpeed = 0;
+        long[] frequencies = cpu.getCurrentFreq();
+        for (long frequency : frequencies) {
+            cpuSpeed += frequency;
+        }
+        if (frequencies.length > 0) cpuSpeed /= frequencies.length;
+
+        long serverPid = Server.getPid();
+        long serverMemory = 0;
+        double serverCpuUsage = 0;
+        int serverThreads = 0;
+        OSProcess serverProcess = serverPid > 0 ? os.getProcess((int) serverPid) : null;
+        if (serverProcess != null) {
+            serverMemory = serverProcess.getResidentSetSize();
+            serverThreads = serverProcess.getThreadCount();
+            OSProcess lastServerProcess = HardwareSampler.lastServerProcess;
+            if (lastServerProcess != null && lastServerProcess.getProcessID() == serverProcess.getProcessID())
+                // Relative to all logical processors, like the system usage
+                serverCpuUsage = serverProcess.getProcessCpuLoadBetweenTicks(lastServerProcess) / cpu.getLogicalProcessorCount();
+        }
+        lastServerProcess = serverProcess;
+
+        last = new Snapshot(System.currentTimeMillis(), cpuUsage, cpuSpeed, Math.max(cpuMaxSpeed, cpuSpeed),
+                memory.getTotal(), memory.getAvailable(), serverPid, serverMemory, serverCpuUsage, serverThreads);
+    }
+
+    /**
+     * Immutable result of a sample.
+     */
+    public static class Snapshot {
+        public final long msTime;
+        /**
+         * Value between 0 and 1.
+         */
+        public final double cpuUsage;
+        /**
+         * Average current frequency of all processors in Hz.
+         */
+        public final long cpuSpeed;
+        public final long cpuMaxSpeed;
+        public final long memTotal;
+        public final long memAvailable;
+        /**
+         * -1 if the server is not running.
+         */
+        public final long serverPid;
+        /**
+         * Resident set size in bytes.
+         */
+        public final long serverMemory;
+        /**
+         * Value between 0 and 1, relative to all logical processors.
+         */
+        public final double serverCpuUsage;
+        public final int serverThreads;
+
+        public Snapshot(long msTime, double cpuUsage, long cpuSpeed, long cpuMaxSpeed, long memTotal, long memAvailable,
+                        long serverPid, long serverMemory, double serverCpuUsage, int serverThreads) {
+            this.msTime = msTime;
+            this.cpuUsage = cpuUsage;
+            this.cpuSpeed = cpuSpeed;
+            this.cpuMaxSpeed = cpuMaxSpeed;
+            this.memTotal = memTotal;
+            this.memAvailable = memAvailable;
+            this.serverPid = serverPid;
+            this.serverMemory = serverMemory;
+            this.serverCpuUsage = serverCpuUsage;
+            this.serverThreads = serverThreads;
+        }
+
+        public long getMemUsed() {
+            return memTotal - memAvailable;
+        }
+    }
+}
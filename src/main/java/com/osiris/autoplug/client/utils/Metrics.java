@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Counters, gauges and histograms of AutoPlug internals,
+ * exposed in the Prometheus text format via {@link #scrape()}. <br>
+ * Recording is cheap (a {@link LongAdder} increment), thus safe on hot paths
+ * and done regardless of the metrics endpoint being enabled.
+ */
+public class Metrics {
+    private static final List<Metric> metrics = new CopyOnWriteArrayList<>();
+
+    /**
+     * Bucket upper bounds in milliseconds for durations.
+     */
+    private static final long[] MS_BUCKETS = {50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000, 300000};
+
+    public static final Histogram UPDATE_CHECK_DURATION = add(new Histogram("autoplug_update_check_seconds",
+            "Duration of update checks per source.", "source", MS_BUCKETS));
+    public static final Counter UPDATE_CHECK_ERRORS = add(new Counter("autoplug_update_check_errors_total",
+            "Update checks that failed with an API error, per source.", "source"));
+    public static final Counter DOWNLOAD_BYTES = add(new Counter("autoplug_download_bytes_total",
+            "Downloaded bytes of updates.", null));
+    public static final Histogram DOWNLOAD_DURATION = add(new Histogram("autoplug_download_seconds",
+            "Duration of update downloads.", null, MS_BUCKETS));
+    public static final Histogram BACKUP_DURATION = add(new Histogram("autoplug_backup_seconds",
+            "Duration of creating the backup zip.", null, MS_BUCKETS));
+    public static final AtomicLong BACKUP_LAST_SIZE = new AtomicLong();
+    public static final Counter CONSOLE_LINES = add(new Counter("autoplug_console_lines_total",
+            "Lines read from the server process output.", null));
+    public static final Counter WEB_RECONNECTS = add(new Counter("autoplug_web_reconnects_total",
+            "Scheduled reconnects of the main AutoPlug-Web connection.", null));
+    public static final Counter SERVER_STARTS = add(new Counter("autoplug_server_starts_total",
+            "Server starts.", null));
+    public static final Counter SERVER_RESTARTS = add(new Counter("autoplug_server_restarts_total",
+            "Server restarts.", null));
+    public static final Counter SERVER_CRASHES = add(new Counter("autoplug_server_crashes_total",
+            "Server process exits with a non-zero exit code that were not caused by AutoPlug.", null));
+    public static final AtomicLong SSH_SESSIONS = new AtomicLong();
+    public static final Counter SSH_BYTES_SENT = add(new Counter("autoplug_ssh_sent_bytes_total",
+            "Console output bytes sent to SSH sessions.", null));
+    public static final Counter SSH_BYTES_DROPPED = add(new Counter("autoplug_ssh_dropped_bytes_total",
+            "Console output bytes skipped for SSH sessions that could not keep up.", null));
+
+    static {
+        add(new Gauge("autoplug_backup_last_size_bytes", "Size of the last created backup zip.", BACKUP_LAST_SIZE::get));
+        add(new Gauge("autoplug_ssh_sessions", "Active SSH console sessions.", SSH_SESSIONS::get));
+        add(new Gauge("autoplug_system_cpu_usage_percent", "CPU usage of this machine, see HardwareSampler.",
+                () -> Math.round(HardwareSampler.getLast().cpuUsage * 100)));
+        add(new Gauge("autoplug_system_memory_available_bytes", "Available memory of this machine.",
+                () -> HardwareSampler.getLast().memAvailable));
+        add(new Gauge("autoplug_system_memory_total_bytes", "Total memory of this machine.",
+                () -> HardwareSampler.getLast().memTotal));
+        add(new Gauge("autoplug_server_process_resident_memory_bytes", "Resident memory of the server process, 0 if not running.",
+                () -> HardwareSampler.getLast().serverMemory));
+        add(new Gauge("autoplug_server_process_cpu_usage_percent", "CPU usage of the server process, relative to all processors.",
+                () -> Math.round(HardwareSampler.getLast().serverCpuUsage * 100)));
+        add(new Gauge("autoplug_server_process_threads", "Threads of the server process, 0 if not running.",
+                () -> HardwareSampler.getLast().serverThreads));
+        add(new Gauge("jvm_memory_heap_used_bytes", "Used heap memory.",
+                () -> ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed()));
+        add(new Gauge("jvm_memory_heap_max_bytes", "Max heap memory, -1 if undefined.", () -> {
+            MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+            return heap.getMax();
+        }));
+        add(new Gauge("jvm_threads_live", "Live threads.", () -> ManagementFactory.getThreadMXBean().getThreadCount()));
+        add(new Gauge("jvm_gc_collections", "Garbage collections of all collectors since the start.", () -> {
+            long count = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(0, gc.getCollectionCount());
+            }
+            return count;
+        }));
+        add(new Gauge("jvm_uptime_seconds", "Uptime of AutoPlug.", () -> ManagementFactory.getRuntimeMXBean().getUptime() / 1000));
+    }
+
+    private static <T extends Metric> T add(T metric) {
+        metrics.add(metric);
+        return metric;
+    }
+
+    /**
+     * @return all metrics in the Prometheus text exposition format.
+     */
+    @NotNull
+    public static String scrape() {
+        StringBuilder sb = new StringBuilder(4096);
+        for (Metric metric : metrics) {
+            sb.append("# HELP ").append(metric.name).append(' ').append(metric.help).append('\n');
+            sb.append("# TYPE ").append(metric.name).append(' ').append(metric.type).append('\n');
+            metric.write(sb);
+        }
+        return sb.toString();
+    }
+
+    private static String label(String labelName, String labelValue) {
+        return labelName + "=\"" + labelValue.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    public static abstract class Metric {
+        public final String name;
+        public final String help;
+        final String type;
+
+        Metric(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        abstract void write(StringBuilder sb);
+    }
+
+    /**
+     * Monotonically increasing value, optionally with a single label.
+     */
+    public static class Counter extends Metric {
+        private final String labelName;
+        private final LongAdder value = new LongAdder();
+        private final Map<String, LongAdder> labeled = new ConcurrentHashMap<>();
+
+        Counter(String name, String help, String labelName) {
+            super(name, help, "counter");
+            this.labelName = labelName;
+        }
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public void increment(String labelValue) {
+            labeled.computeIfAbsent(labelValue, k -> new LongAdder()).increment();
+        }
+
+        @Override
+        void write(StringBuilder sb) {
+            if (labelName == null) {
+                sb.append(name).append(' ').append(value.sum()).append('\n');
+                return;
+            }
+            for (Map.Entry<String, LongAdder> e : labeled.entrySet()) {
+                sb.append(name).append('{').append(label(labelName, e.getKey())).append("} ").append(e.getValue().sum()).append('\n');
+            }
+        }
+    }
+
+    /**
+     * Value that is read when scraped.
+     */
+    public static class Gauge extends Metric {
+        private final LongSupplier supplier;
+
+        Gauge(String name, String help, LongSupplier supplier) {
+            super(name, help, "gauge");
+            this.supplier = supplier;
+        }
+
+        @Override
+        void write(StringBuilder sb) {
+            sb.append(name).append(' ').append(supplier.getAsLong()).append('\n');
+        }
+    }
+
+    /**
+     * Distribution of durations, recorded in milliseconds and exposed in seconds,
+     * optionally with a single label.
+     */
+    public static class Histogram extends Metric {
+        private final String labelName;
+        private final long[] msBuckets;
+        private final Buckets unlabeled;
+        private final Map<String, Buckets> labeled = new ConcurrentHashMap<>();
+
+        Histogram(String name, String help, String labelName, long[] msBuckets) {
+            super(name, help, "histogram");
+            this.labelName = labelName;
+            this.msBuckets = msBuckets;
+            this.unlabeled = new Buckets(msBuckets.length);
+        }
+
+        public void observe(long ms) {
+            unlabeled.observe(msBuckets, ms);
+        }
+
+        public void observe(String labelValue, long ms) {
+            labeled.computeIfAbsent(labelValue, k -> new Buckets(msBuckets.length)).observe(msBuckets, ms);
+        }
+
+        @Override
+        void write(StringBuilder sb) {
+            if (labelName == null) {
+                unlabeled.write(sb, name, msBuckets, "");
+                return;
+            }
+            for (Map.Entry<String, Buckets> e : labeled.entrySet()) {
+                e.getValue().write(sb, name, msBuckets, label(labelName, e.getKey()));
+            }
+        }
+    }
+
+    private static class Buckets {
+        /**
+         * Non-cumulative counts, the last one is for values above the highest bucket.
+         */
+        final LongAdder[] counts;
+        final LongAdder msSum = new LongAdder();
+
+        Buckets(int size) {
+            counts = new LongAdder[size + 1];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new LongAdder();
+            }
+        }
+
+        void observe(long[] msBuckets, long ms) {
+            int i = 0;
+            while (i < msBuckets.length && ms > msBuckets[i]) i++;
+            counts[i].increment();
+            msSum.add(ms);
+        }
+
+        void write(StringBuilder sb, String name, long[] msBuckets, String label) {
+            String prefix = label.isEmpty() ? "" : label + ",";
+            long cumulative = 0;
+            for (int i = 0; i < msBuckets.length; i++) {
+                cumulative += counts[i].sum();
+                sb.append(name).append("_bucket{").append(prefix).append("le=\"").append(msBuckets[i] / 1000.0)
+                        .append("\"} ").append(cumulative).append('\n');
+            }
+            cumulative += counts[msBuckets.length].sum();
+            sb.append(name).append("_bucket{").append(prefix).append("le=\"+Inf\"} ").append(cumulative).append('\n');
+            String labels = label.isEmpty() ? "" : "{" + label + "}";
+            sb.append(name).append("_sum").append(labels).append(' ').append(msSum.sum() / 1000.0).append('\n');
+            sb.append(name).append("_count").append(labels).append(' ').append(cumulative).append('\n');
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.utils;
+
+import com.osiris.jlib.logger.AL;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records spans (name, start and end) of the startup phases,
+ * like loading the configs, the pre-startup tasks or downloads. <br>
+ * Once the server was started the spans get written as timeline in the Chrome trace format to {@link #getFile()},
+ * which can be opened via chrome://tracing or https://ui.perfetto.dev. <br>
+ * The summary of the last startup is shown by the .profile command.
+ */
+public class Profiler {
+    public static final File DEFAULT_FILE = new File(System.getProperty("user.dir") + "/autoplug/logs/startup-trace.json");
+    /**
+     * Spans exceeding this amount are dropped, so that spans recorded between startups
+     * (for example by the recurring update checker) cannot use up memory.
+     */
+    public static final int MAX_SPANS = 10000;
+    private static final ConcurrentLinkedQueue<Span> spans = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger spansCount = new AtomicInteger();
+    private static volatile boolean isFirstStartup = true;
+    private static volatile long msStartupStart = System.currentTimeMillis();
+    @Nullable
+    private static volatile String lastSummary;
+    private static volatile File file = DEFAULT_FILE;
+
+    /**
+     * @return the file the timeline gets written to, {@link #DEFAULT_FILE} if not changed.
+     */
+    @NotNull
+    public static File getFile() {
+        return file;
+    }
+
+    /**
+     * Changes the file the timeline gets written to, for example for tests.
+     */
+    public static void setFile(@NotNull File file) {
+        Profiler.file = file;
+    }
+
+    /**
+     * Starts a span that ends once {@link Span#close()} is called,
+     * thus can be used with try-with-resources.
+     *
+     * @param category for example "init", "task" or "http".
+     */
+    @NotNull
+    public static Span start(@NotNull String category, @NotNull String name) {
+        return new Span(category, name, System.currentTimeMillis(), Thread.currentThread().getName());
+    }
+
+    /**
+     * Records an already finished span.
+     */
+    public static void record(@NotNull String category, @NotNull String name, long msStart, long msEnd, @NotNull String threadName) {
+        Span span = new Span(category, name, msStart, threadName);
+        span.msEnd = msEnd;
+        add(span);
+    }
+
+    /**
+     * @return the provided callable wrapped into a span.
+     */
+    @NotNull
+    public static <T> Callable<T> traced(@NotNull String category, @NotNull String name, @NotNull Callable<T> callable) {
+        return () -> {
+            try (Span ignored = start(category, name)) {
+                return callable.call();
+            }
+        };
+    }
+
+    /**
+     * Marks the start of a server startup. Spans recorded before are dropped,
+     * except for the first startup, which also includes the initialisation of AutoPlug.
+     */
+    public static void beginStartup() {
+        if (isFirstStartup) {
+            isFirstStartup = false;
+            return;
+        }
+        spans.clear();
+        spansCount.set(0);
+        msStartupStart = System.currentTimeMillis();
+    }
+
+    /**
+     * Marks the end of a server startup. Writes the timeline to {@link #getFile()} and creates the summary.
+     *
+     * @param criticalPath critical path of the pre-startup tasks, null if unknown.
+     */
+    public static void endStartup(@Nullable String criticalPath) {
+        long msEnd = System.currentTimeMillis();
+        List<Span> list = new ArrayList<>(spans);
+        spans.clear();
+        spansCount.set(0);
+        list.sort(Comparator.comparingLong(s -> s.msStart));
+
+        StringBuilder summary = new StringBuilder();
+        summary.append("Last startup took ").append(msEnd - msStartupStart).append("ms.\n");
+        if (criticalPath != null)
+            summary.append("Critical path of pre-startup tasks: ").append(criticalPath).append("\n");
+        summary.append("Slowest spans:\n");
+        List<Span> slowest = new ArrayList<>(list);
+        slowest.sort((s1, s2) -> Long.compare(s2.getMs(), s1.getMs()));
+        for (int i = 0; i < Math.min(10, slowest.size()); i++) {
+            Span s = slowest.get(i);
+            summary.append("  ").append(s.getMs()).append("ms ").append(s.category).append(" ").append(s.name).append("\n");
+        }
+        File file = Profiler.file;
+        summary.append("Full timeline: ").append(file.getAbsolutePath());
+        lastSummary = summary.toString();
+
+        try {
+            write(file, list);
+        } catch (Exception e) {
+            AL.warn("Failed to write startup trace to " + file, e);
+        }
+    }
+
+    /**
+     * @return the summary of the last startup, or null if there was no startup yet.
+     */
+    @Nullable
+    public static String getLastStartupSummary() {
+        return lastSummary;
+    }
+
+    private static void add(Span span) {
+        if (spansCount.incrementAndGet() > MAX_SPANS) {
+            spansCount.decrementAndGet();
+            return;
+        }
+        spans.add(span);
+    }
+
+    private static void write(File file, List<Span> list) throws IOException {
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        File tmp = new File(file.getAbsolutePath() + ".tmp");
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+            w.write("{\"traceEvents\":[");
+            boolean isFirst = true;
+            for (Span s : list) {
+                if (!isFirst) w.write(",");
+                isFirst = false;
+                // Complete event, timestamps are in microseconds
+                w.write("\n{\"name\":\"" + escape(s.name) + "\",\"cat\":\"" + escape(s.category)
+                        + "\",\"ph\":\"X\",\"ts\":" + ((s.msStart - msStartupStart) * 1000)
+                        + ",\"dur\":" + (s.getMs() * 1000)
+                        + ",\"pid\":1,\"tid\":\"" + escape(s.threadName) + "\"}");
+            }
+            w.write("\n]}");
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static String escape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    public static class Span implements AutoCloseable {
+        public final String category;
+        public final String name;
+        public final long msStart;
+        public final String threadName;
+        public volatile long msEnd;
+
+        Span(String category, String name, long msStart, String threadName) {
+            this.category = category;
+            this.name = name;
+            this.msStart = msStart;
+            this.threadName = threadName;
+        }
+
+        /**
+         * @return the duration in milliseconds, or the time since the start if not ended yet.
+         */
+        public long getMs() {
+            return (msEnd == 0 ? System.currentTimeMillis() : msEnd) - msStart;
+        }
+
+        /**
+         * Ends this span, does nothing if already ended.
+         */
+        @Override
+        public void close() {
+            if (msEnd != 0) return;
+            msEnd = System.currentTimeMillis();
+            add(this);
+        }
+    }
+}
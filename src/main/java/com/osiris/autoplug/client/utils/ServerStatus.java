@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.utils;
+
+import com.osiris.autoplug.client.Server;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Version and player counts of the server, without pinging it each time. <br>
+ * Player counts are taken from the servers' output (join/leave messages and the output of the list command),
+ * which costs nothing. The server list ping (see {@link MineStat}) is only done for the version and max players,
+ * and to correct the counts: each {@link #MS_MIN_PING_INTERVAL} while the status changes,
+ * twice as long each time nothing changed, up to {@link #MS_MAX_PING_INTERVAL},
+ * and directly once the server was started or stopped.
+ */
+public class ServerStatus {
+    public static final long MS_MIN_PING_INTERVAL = 5000;
+    public static final long MS_MAX_PING_INTERVAL = 60000;
+    /**
+     * The player name must directly follow the log prefix, thus chat messages like "<Player> Steve joined the game" do not match.
+     */
+    private static final Pattern JOIN_LEAVE = Pattern.compile("(?:^|]:? )(\\w{1,16}) (joined|left) the game\\s*$");
+    private static final Pattern LIST = Pattern.compile("There are (\\d+) (?:of a max(?:imum)? of |/ ?)(\\d+) players online");
+
+    public final String host;
+    public final int port;
+    /**
+     * {@link #onConsoleLine(String)} as a single instance, to be able to remove it from {@link Server#outputListeners}.
+     */
+    public final Consumer<String> consoleListener = this::onConsoleLine;
+    private Snapshot snapshot = new Snapshot(false, "-", 0, 0);
+    private int consolePlayersDelta;
+    private int consolePlayers = -1;
+    private int consoleMaxPlayers = -1;
+    private long msLastPing;
+    private long msPingInterval = MS_MIN_PING_INTERVAL;
+    private boolean isPinging;
+    @Nullable
+    private volatile MineStat lastPing;
+
+    public ServerStatus(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Should be called with each line of the servers' output, see {@link Server#outputListeners}.
+     */
+    public synchronized void onConsoleLine(@NotNull String line) {
+        Matcher list = LIST.matcher(line);
+        if (list.find()) {
+            consolePlayers = Integer.parseInt(list.group(1));
+            consoleMaxPlayers = Integer.parseInt(list.group(2));
+            consolePlayersDelta = 0;
+            return;
+        }
+        Matcher joinLeave = JOIN_LEAVE.matcher(line);
+        if (joinLeave.find()) {
+            consolePlayersDelta += "joined".equals(joinLeave.group(2)) ? 1 : -1;
+        }
+    }
+
+    /**
+     * @return the current status, pings the server only if needed.
+     * The ping is done without holding this objects' lock, since {@link #onConsoleLine(String)}
+     * is called by the thread reading the servers' output, which must never wait for a ping.
+     * While another thread is pinging, the status is taken from the servers' output.
+     */
+    @NotNull
+    public Snapshot update() {
+        long now = System.currentTimeMillis();
+        boolean isRunning = Server.isRunning();
+        int deltaBeforePing;
+        synchronized (this) {
+            if (isPinging || (isRunning == snapshot.isRunning && now - msLastPing < msPingInterval))
+                return updateFromConsole(isRunning);
+            isPinging = true;
+            deltaBeforePing = consolePlayersDelta;
+        }
+        Snapshot pinged = null;
+        try {
+            pinged = ping(isRunning);
+        } finally {
+            synchronized (this) {
+                isPinging = false;
+                if (pinged != null) {
+                    msPingInterval = pinged.equals(snapshot) ? Math.min(msPingInterval * 2, MS_MAX_PING_INTERVAL) : MS_MIN_PING_INTERVAL;
+                    msLastPing = now;
+                    consolePlayers = -1;
+                    consoleMaxPlayers = -1;
+                    // Keep joins/leaves that were printed while pinging, the ping might not include them
+                    consolePlayersDelta -= deltaBeforePing;
+                    snapshot = pinged;
+                }
+            }
+        }
+        return pinged;
+    }
+
+    private synchronized Snapshot updateFromConsole(boolean isRunning) {
+        int currentPlayers = consolePlayers >= 0 ? consolePlayers : snapshot.currentPlayers;
+        int maxPlayers = consoleMaxPlayers >= 0 ? consoleMaxPlayers : snapshot.maxPlayers;
+        currentPlayers = Math.max(0, currentPlayers + consolePlayersDelta);
+        if (maxPlayers > 0) currentPlayers = Math.min(currentPlayers, maxPlayers);
+        if (isPinging) // Leave the counts as they are, until the ping result was merged
+            return new Snapshot(isRunning, snapshot.version, currentPlayers, maxPlayers);
+        consolePlayers = currentPlayers;
+        consoleMaxPlayers = maxPlayers;
+        consolePlayersDelta = 0;
+        snapshot = new Snapshot(isRunning, snapshot.version, currentPlayers, maxPlayers);
+        return snapshot;
+    }
+
+    /**
+     * @return the result of the last server list ping, or null if not pinged yet.
+     */
+    @Nullable
+    public MineStat getLastPing() {
+        return lastPing;
+    }
+
+    Snapshot ping(boolean isRunning) {
+        MineStat mineStat = new MineStat(host, port);
+        lastPing = mineStat;
+        // mineStat.isServerUp(); // Not used to support mc proxies and other servers like steam game servers.
+        // This has one caveat since the server might be running, but we
+        // actually want to know if players can join it, since it might still be blocked
+        // by the firewall or another network issue.
+        String version = mineStat.getVersion();
+        if (version != null)
+            version = version.replaceAll("[a-zA-Z]", "").trim();
+        else
+            version = "-";
+        return new Snapshot(isRunning, version, mineStat.getCurrentPlayers(), mineStat.getMaximumPlayers());
+    }
+
+    public static class Snapshot {
+        public final boolean isRunning;
+        public final String version;
+        public final int currentPlayers;
+        public final int maxPlayers;
+
+        public Snapshot(boolean isRunning, String version, int currentPlayers, int maxPlayers) {
+            this.isRunning = isRunning;
+            this.version = version;
+            this.currentPlayers = currentPlayers;
+            this.maxPlayers = maxPlayers;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Snapshot)) return false;
+            Snapshot that = (Snapshot) o;
+            return isRunning == that.isRunning && currentPlayers == that.currentPlayers
+                    && maxPlayers == that.maxPlayers && Objects.equals(version, that.version);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(isRunning, version, currentPlayers, maxPlayers);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.utils;
+
+import com.osiris.autoplug.client.configs.GeneralConfig;
+import com.osiris.jlib.logger.AL;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the threads for tasks that mostly wait for I/O, like connections, process stream readers and update checks. <br>
+ * If enabled via {@link GeneralConfig#autoplug_virtual_threads} and running on Java 21 or newer, these are virtual threads,
+ * created via reflection since AutoPlug is compiled for Java 8. Otherwise regular threads
+ * and for executors a limited amount of them, see {@link #newIoExecutor(String, int)}. <br>
+ * Note that virtual threads are always daemon threads.
+ */
+public class Threads {
+    @Nullable
+    private static volatile Boolean isVirtual;
+    @Nullable
+    private static Method ofVirtual, builderName, builderNameCounter, builderUnstarted, builderFactory, newThreadPerTaskExecutor;
+
+    /**
+     * @return true if virtual threads are enabled and supported by this Java version.
+     */
+    public static boolean isVirtual() {
+        if (isVirtual == null) {
+            synchronized (Threads.class) {
+                if (isVirtual == null) {
+                    boolean enabled = false;
+                    try {
+                        enabled = new GeneralConfig().autoplug_virtual_threads.asBoolean();
+                    } catch (Exception e) {
+                        AL.warn("Failed to load virtual threads setting, using regular threads.", e);
+                    }
+                    isVirtual = enabled && loadVirtualThreadMethods();
+                    if (enabled && !isVirtual)
+                        AL.info("Virtual threads are enabled, but need Java 21 or newer, using regular threads.");
+                }
+            }
+        }
+        return isVirtual;
+    }
+
+    /**
+     * Overrides the setting of the config, for example in tests.
+     *
+     * @param virtual true to use virtual threads if supported, null to load the setting from the config again.
+     */
+    public static synchronized void setVirtual(@Nullable Boolean virtual) {
+        isVirtual = virtual == null ? null : virtual && loadVirtualThreadMethods();
+    }
+
+    private static boolean loadVirtualThreadMethods() {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            builderName = builderClass.getMethod("name", String.class);
+            builderNameCounter = builderClass.getMethod("name", String.class, long.class);
+            builderUnstarted = builderClass.getMethod("unstarted", Runnable.class);
+            builderFactory = builderClass.getMethod("factory");
+            newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return a new not started thread. If not virtual it has the same daemon status as a {@code new Thread()}.
+     */
+    @NotNull
+    public static Thread newThread(@NotNull String name, @NotNull Runnable runnable) {
+        if (isVirtual()) {
+            try {
+                Object builder = builderName.invoke(ofVirtual.invoke(null), name);
+                return (Thread) builderUnstarted.invoke(builder, runnable);
+            } catch (Exception e) {
+                AL.warn("Failed to create virtual thread, using a regular thread.", e);
+            }
+        }
+        return new Thread(runnable, name);
+    }
+
+    /**
+     * @return a new started daemon thread.
+     */
+    @NotNull
+    public static Thread start(@NotNull String name, @NotNull Runnable runnable) {
+        Thread thread = newThread(name, runnable);
+        if (!thread.isDaemon()) thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * @return factory for daemon threads named {@code <name>-<number>}.
+     */
+    @NotNull
+    public static ThreadFactory factory(@NotNull String name) {
+        if (isVirtual()) {
+            try {
+                Object builder = builderNameCounter.invoke(ofVirtual.invoke(null), name + "-", 1L);
+                return (ThreadFactory) builderFactory.invoke(builder);
+            } catch (Exception e) {
+                AL.warn("Failed to create virtual thread factory, using regular threads.", e);
+            }
+        }
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * @param maxPlatformThreads max amount of regular threads, if virtual threads are not used.
+     *                           Further tasks wait until a thread is free.
+     * @return executor that runs each task on a new virtual thread, or on a limited amount of regular daemon threads.
+     */
+    @NotNull
+    public static ExecutorService newIoExecutor(@NotNull String name, int maxPlatformThreads) {
+        ExecutorService virtual = newVirtualExecutor(name);
+        if (virtual != null) return virtual;
+        int max = Math.max(1, maxPlatformThreads);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(max, max, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), factory(name));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Like {@link #newIoExecutor(String, int)}, but without limit, for long-running tasks like reading a connection.
+     */
+    @NotNull
+    public static ExecutorService newCachedExecutor(@NotNull String name) {
+        ExecutorService virtual = newVirtualExecutor(name);
+        if (virtual != null) return virtual;
+        return Executors.newCachedThreadPool(factory(name));
+    }
+
+    @Nullable
+    private static ExecutorService newVirtualExecutor(String name) {
+        if (!isVirtual()) return null;
+        try {
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, factory(name));
+        } catch (Exception e) {
+            AL.warn("Failed to create virtual thread executor, using regular threads.", e);
+            return null;
+        }
+    }
+}
@@ -8,8 +8,11 @@
 
 package com.osiris.autoplug.client.utils;
 
+import com.osiris.autoplug.client.Server;
 import com.osiris.autoplug.client.configs.SystemConfig;
 import com.osiris.autoplug.client.configs.UpdaterConfig;
+import com.osiris.autoplug.client.tasks.PreparedRestart;
+import com.osiris.autoplug.client.tasks.updater.StagedInstalls;
 import com.osiris.autoplug.client.tasks.updater.java.TaskJavaUpdater;
 import com.osiris.autoplug.client.tasks.updater.mods.TaskModsUpdater;
 import com.osiris.autoplug.client.tasks.updater.plugins.TaskPluginsUpdater;
@@ -17,45 +20,103 @@ import com.osiris.autoplug.client.tasks.updater.self.TaskSelfUpdater;
 import com.osiris.autoplug.client.tasks.updater.server.TaskServerUpdater;
 import com.osiris.autoplug.client.utils.tasks.MyBThreadManager;
 import com.osiris.autoplug.client.utils.tasks.UtilsTasks;
+import com.osiris.betterthread.BThread;
 import com.osiris.jlib.logger.AL;
 
 import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Checks for updates regularly in the background, see {@link UpdaterConfig#global_recurring_checks}. <br>
+ * All updaters run each {@link UpdaterConfig#global_recurring_checks_intervall}. If {@link UpdaterConfig#global_adaptive_checks}
+ * is enabled, the plugins and mods updaters additionally run each {@link UpdaterConfig#global_adaptive_checks_min_interval},
+ * which only check the plugins and mods that are due. <br>
+ * While the server is running, updates are only downloaded and staged (see {@link PreparedRestart#prefetch(boolean)}),
+ * thus the next restart only has to install them, without waiting for the network.
+ */
 public class UpdateCheckerThread extends Thread {
-    public boolean isRunning = false;
+    private static final String DATE_FORMAT = "dd/MM/yyyy HH:mm:ss";
+    public volatile boolean isRunning = false;
+
+    public UpdateCheckerThread() {
+        setName("UpdateChecker");
+        setDaemon(true);
+        setPriority(Thread.MIN_PRIORITY); // The server is more important
+    }
 
     @Override
     public void run() {
-        try {
-            isRunning = true;
-            while (isRunning) {
-                long last = new SimpleDateFormat("dd/MM/yyyy HH:mm:ss")
+        isRunning = true;
+        while (isRunning) {
+            try {
+                UpdaterConfig updaterConfig = new UpdaterConfig();
+                long last = new SimpleDateFormat(DATE_FORMAT)
                         .parse(new SystemConfig().timestamp_last_updater_tasks.asString())
                         .getTime();
-                long now1 = System.currentTimeMillis();
-                long msSinceLast = now1 - last;
-                long msLeft = (new UpdaterConfig().global_recurring_checks_intervall.asInt() * 3600000L) // 1h in ms
+                long msSinceLast = System.currentTimeMillis() - last;
+                long msLeft = (updaterConfig.global_recurring_checks_intervall.asInt() * 3600000L) // 1h in ms
                         - msSinceLast;
-                if (msLeft > 0) Thread.sleep(msLeft);
-                AL.info("Running tasks from recurring update-checker thread.");
-                MyBThreadManager man = new UtilsTasks().createManagerAndPrinter();
-                TaskSelfUpdater selfUpdater = new TaskSelfUpdater("SelfUpdater", man.manager);
-                TaskJavaUpdater taskJavaUpdater = new TaskJavaUpdater("JavaUpdater", man.manager);
-                TaskServerUpdater taskServerUpdater = new TaskServerUpdater("ServerUpdater", man.manager);
-                TaskPluginsUpdater taskPluginsUpdater = new TaskPluginsUpdater("PluginsUpdater", man.manager);
-                TaskModsUpdater taskModsUpdater = new TaskModsUpdater("ModsUpdater", man.manager);
-                selfUpdater.start();
-                while (!selfUpdater.isFinished()) // Wait until the self updater finishes
-                    Thread.sleep(1000);
-                taskJavaUpdater.start();
-                taskServerUpdater.start();
-                taskPluginsUpdater.start();
-                taskModsUpdater.start();
-                while (!man.manager.isFinished())
-                    Thread.sleep(1000);
+                long msSleep = msLeft;
+                if (updaterConfig.global_adaptive_checks.asBoolean())
+                    msSleep = Math.min(msSleep, Math.max(1, updaterConfig.global_adaptive_checks_min_interval.asInt()) * 3600000L);
+                boolean isFull = msLeft <= msSleep;
+                Thread.sleep(Math.max(60000, msSleep)); // At least a minute, to not spin if the tasks could not run
+                if (!isRunning) break;
+                if (Server.isRunning()) {
+                    // Skipped if a restart is being prepared already, since that does the same
+                    if (PreparedRestart.prefetch(isFull) && isFull) runSelfUpdater(new UtilsTasks().createManagerAndPrinter());
+                } else runTasks(isFull);
+            } catch (InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                AL.warn(e);
             }
-        } catch (Exception e) {
-            AL.warn(e);
         }
     }
+
+    private void runTasks(boolean isFull) throws Exception {
+        AL.info("Running tasks from recurring update-checker thread.");
+        MyBThreadManager man = new UtilsTasks().createManagerAndPrinter();
+        List<BThread> tasks = new ArrayList<>();
+        if (isFull) {
+            runSelfUpdater(man);
+            tasks.add(new TaskJavaUpdater("JavaUpdater", man.manager));
+            tasks.add(new TaskServerUpdater("ServerUpdater", man.manager));
+        }
+        tasks.add(new TaskPluginsUpdater("PluginsUpdater", man.manager));
+        tasks.add(new TaskModsUpdater("ModsUpdater", man.manager));
+        for (BThread task : tasks) {
+            task.start();
+        }
+        for (BThread task : tasks) {
+            task.join();
+        }
+        if (isFull) {
+            SystemConfig systemConfig = new SystemConfig();
+            systemConfig.lockFile();
+            systemConfig.load();
+            systemConfig.timestamp_last_updater_tasks.setValues(LocalDateTime.now().format(DateTimeFormatter.ofPattern(DATE_FORMAT)));
+            systemConfig.save();
+            systemConfig.unlockFile();
+        }
+    }
+
+    /**
+     * Runs first and alone, since it might restart AutoPlug. <br>
+     * Postponed to the next check while updates are staged, since a restart
+     * of AutoPlug right after staging would delay installing them.
+     */
+    private void runSelfUpdater(MyBThreadManager man) throws InterruptedException {
+        int staged = StagedInstalls.count();
+        if (staged > 0) {
+            AL.info("Postponed AutoPlug self-update, since " + staged + " staged update(s) are not installed yet.");
+            return;
+        }
+        TaskSelfUpdater selfUpdater = new TaskSelfUpdater("SelfUpdater", man.manager);
+        selfUpdater.start();
+        selfUpdater.join();
+    }
 }
@@ -8,6 +8,9 @@
 
 package com.osiris.autoplug.client.utils.io;
 
+import com.osiris.autoplug.client.utils.Metrics;
+import com.osiris.autoplug.client.utils.Threads;
+
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
@@ -25,10 +28,11 @@ public class AsyncInputStream {
         this.inputStream = inputStream;
 
         Object o = this;
-        thread = new Thread(() -> {
+        thread = Threads.newThread("AsyncInputStream", () -> {
             String line = "";
             try (BufferedReader br = new BufferedReader(new InputStreamReader(inputStream))) {
                 while ((line = br.readLine()) != null) {
+                    Metrics.CONSOLE_LINES.increment();
                     for (Consumer<String> listener :
                             listeners) {
                         listener.accept(line);
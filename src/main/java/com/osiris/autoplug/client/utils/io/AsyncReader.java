@@ -8,6 +8,7 @@
 
 package com.osiris.autoplug.client.utils.io;
 
+import com.osiris.autoplug.client.utils.Threads;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
@@ -27,7 +28,7 @@ public class AsyncReader {
         this.inputStream = inputStream;
         if (listeners != null && listeners.length != 0) this.listeners.addAll(Arrays.asList(listeners));
         Object o = this;
-        thread = new Thread(() -> {
+        thread = Threads.newThread("AsyncReader", () -> {
             String line = "";
             try (BufferedReader br = new BufferedReader(new InputStreamReader(inputStream))) {
                 while ((line = br.readLine()) != null) {
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.utils.io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sorted snapshot of a directories' content, created by streaming
+ * the directory via {@link DirectoryStream} and reading the attributes
+ * of each entry exactly once. <br>
+ * Directories are always listed before files.
+ * Pages can be retrieved via {@link #page(int, int)}, continuation tokens via {@link #token(int)},
+ * which are only valid for listings of the same directory state.
+ */
+public class DirectoryListing {
+    public static final byte SORT_BY_NAME = 0;
+    public static final byte SORT_BY_SIZE = 1;
+    public static final byte SORT_BY_LAST_MODIFIED = 2;
+
+    public final Path dir;
+    /**
+     * Glob pattern, or null if all entries are listed.
+     */
+    @Nullable
+    public final String filter;
+    public final byte sortBy;
+    public final boolean descending;
+    /**
+     * Last modified time of {@link #dir} at creation,
+     * used to detect stale listings.
+     */
+    public final long dirLastModified;
+    public final List<Entry> entries;
+
+    public DirectoryListing(@NotNull Path dir, @Nullable String filter, byte sortBy, boolean descending) throws IOException {
+        this.dir = dir;
+        this.filter = filter == null || filter.isEmpty() ? null : filter;
+        this.sortBy = sortBy;
+        this.descending = descending;
+        this.dirLastModified = Files.getLastModifiedTime(dir).toMillis();
+        // On Windows the hidden flag is part of the dos attributes, thus read them instead to avoid another stat call
+        boolean isDos = dir.getFileSystem().supportedFileAttributeViews().contains("dos");
+        List<Entry> dirs = new ArrayList<>();
+        List<Entry> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = this.filter == null ? Files.newDirectoryStream(dir)
+                : Files.newDirectoryStream(dir, globIgnoreCase(this.filter))) {
+            for (Path p : stream) {
+                Entry entry;
+                try {
+                    entry = new Entry(p, isDos ? Files.readAttributes(p, DosFileAttributes.class)
+                            : Files.readAttributes(p, BasicFileAttributes.class));
+                } catch (IOException e) {
+                    continue; // Deleted in the meantime or not accessible
+                }
+                if (entry.isDir) dirs.add(entry);
+                else files.add(entry);
+            }
+        }
+        Comparator<Entry> comparator = comparator(sortBy);
+        if (descending) comparator = comparator.reversed();
+        dirs.sort(comparator);
+        files.sort(comparator);
+        dirs.addAll(files);
+        this.entries = Collections.unmodifiableList(dirs);
+    }
+
+    private static DirectoryStream.Filter<Path> globIgnoreCase(String glob) {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob.toLowerCase());
+        return p -> {
+            Path name = p.getFileName();
+            return name != null && matcher.matches(Paths.get(name.toString().toLowerCase()));
+        };
+    }
+
+    private static Comparator<Entry> comparator(byte sortBy) {
+        Comparator<Entry> byName = (e1, e2) -> e1.name.compareToIgnoreCase(e2.name);
+        if (sortBy == SORT_BY_SIZE)
+            return Comparator.<Entry>comparingLong(e -> e.size).thenComparing(byName);
+        if (sortBy == SORT_BY_LAST_MODIFIED)
+            return Comparator.<Entry>comparingLong(e -> e.lastModified).thenComparing(byName);
+        return byName;
+    }
+
+    /**
+     * Returns true if this listing was created with the same arguments
+     * and the directory was not modified since.
+     */
+    public boolean isReusableFor(@NotNull Path dir, @Nullable String filter, byte sortBy, boolean descending) {
+        if (filter != null && filter.isEmpty()) filter = null;
+        if (!this.dir.equals(dir) || sortBy != this.sortBy || descending != this.descending) return false;
+        if (this.filter == null ? filter != null : !this.filter.equals(filter)) return false;
+        try {
+            return Files.getLastModifiedTime(dir).toMillis() == dirLastModified;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param offset index of the first entry.
+     * @param limit  maximum amount of entries, or a value smaller than 1 for all remaining entries.
+     */
+    public List<Entry> page(int offset, int limit) {
+        if (offset < 0) offset = 0;
+        if (offset >= entries.size()) return Collections.emptyList();
+        int end = limit < 1 ? entries.size() : (int) Math.min(entries.size(), (long) offset + limit);
+        return entries.subList(offset, end);
+    }
+
+    /**
+     * @param offset index of the first entry of the next page.
+     * @return the continuation token for the next page.
+     */
+    public String token(int offset) {
+        return offset + ":" + dirLastModified;
+    }
+
+    /**
+     * @return the offset of the provided token, or -1 if it was created for another state of the directory
+     * (thus the offset would point to other entries) or is invalid.
+     */
+    public int offsetOf(@NotNull String token) {
+        int i = token.indexOf(':');
+        if (i < 0) return -1;
+        try {
+            int offset = Integer.parseInt(token.substring(0, i));
+            long tokenDirLastModified = Long.parseLong(token.substring(i + 1));
+            return offset >= 0 && tokenDirLastModified == dirLastModified ? offset : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public static class Entry {
+        public final Path path;
+        public final String name;
+        public final boolean isDir;
+        public final long size;
+        public final long lastModified;
+        public final boolean isHidden;
+
+        public Entry(Path path, BasicFileAttributes attrs) {
+            this.path = path;
+            Path fileName = path.getFileName();
+            this.name = fileName == null ? path.toString() : fileName.toString();
+            this.isDir = attrs.isDirectory();
+            this.size = attrs.size();
+            this.lastModified = attrs.lastModifiedTime().toMillis();
+            this.isHidden = attrs instanceof DosFileAttributes ? ((DosFileAttributes) attrs).isHidden()
+                    : name.startsWith(".");
+        }
+    }
+}
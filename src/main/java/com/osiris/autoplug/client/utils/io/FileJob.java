@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.utils.io;
+
+import com.osiris.autoplug.client.utils.Threads;
+import com.osiris.jlib.logger.AL;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.rauschig.jarchivelib.ArchiveFormat;
+import org.rauschig.jarchivelib.Archiver;
+import org.rauschig.jarchivelib.ArchiverFactory;
+import org.rauschig.jarchivelib.CompressionType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recursive copy/move/delete or archive extraction that runs in the background
+ * and can be queried for its progress via {@link #get(int)}. <br>
+ * The files of a job are processed in parallel by a shared thread pool.
+ */
+public class FileJob implements Runnable {
+    public static final byte TYPE_COPY = 0;
+    public static final byte TYPE_MOVE = 1;
+    public static final byte TYPE_DELETE = 2;
+    public static final byte TYPE_EXTRACT = 3;
+
+    public static final byte STATE_RUNNING = 0;
+    public static final byte STATE_SUCCESS = 1;
+    public static final byte STATE_FAILED = 2;
+
+    /**
+     * Finished jobs are kept this long, so that their result can still be queried.
+     */
+    private static final long MS_KEEP_FINISHED = TimeUnit.MINUTES.toMillis(10);
+    private static final AtomicInteger NEXT_ID = new AtomicInteger(1);
+    private static final Map<Integer, FileJob> JOBS = new ConcurrentHashMap<>();
+    private static final ExecutorService JOB_EXECUTOR = Threads.newCachedExecutor("FileJob");
+    /**
+     * Fixed size even with virtual threads, since it limits the parallel disk access.
+     */
+    private static final ExecutorService IO_EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors())), Threads.factory("FileJob-IO"));
+
+    public final int id = NEXT_ID.getAndIncrement();
+    public final byte type;
+    public final List<File> sources;
+    /**
+     * Target directory, null for {@link #TYPE_DELETE}.
+     */
+    @Nullable
+    public final File targetDir;
+    public final AtomicLong filesDone = new AtomicLong();
+    public final AtomicLong filesTotal = new AtomicLong();
+    public final AtomicLong bytesDone = new AtomicLong();
+    public volatile byte state = STATE_RUNNING;
+    public volatile String message = "";
+    public volatile long msFinished = 0;
+
+    public FileJob(byte type, @NotNull List<File> sources, @Nullable File targetDir) {
+        this.type = type;
+        this.sources = sources;
+        this.targetDir = targetDir;
+    }
+
+    /**
+     * Registers and starts the provided job in the background.
+     */
+    public static FileJob start(FileJob job) {
+        long now = System.currentTimeMillis();
+        JOBS.values().removeIf(j -> j.state != STATE_RUNNING && now - j.msFinished > MS_KEEP_FINISHED);
+        JOBS.put(job.id, job);
+        JOB_EXECUTOR.execute(job);
+        return job;
+    }
+
+    @Nullable
+    public static FileJob get(int id) {
+        return JOBS.get(id);
+    }
+
+    @Override
+    public void run() {
+        try {
+            if (type == TYPE_COPY) copy(false);
+            else if (type == TYPE_MOVE) copy(true);
+            else if (type == TYPE_DELETE) delete();
+            else if (type == TYPE_EXTRACT) extract();
+            else throw new IllegalArgumentException("Unknown file job type " + type);
+            state = STATE_SUCCESS;
+        } catch (Exception e) {
+            AL.warn("File job " + id + " failed.", e);
+            message = e.getMessage() == null ? e.toString() : e.getMessage();
+            state = STATE_FAILED;
+        } finally {
+            msFinished = System.currentTimeMillis();
+        }
+    }
+
+    private void copy(boolean isMove) throws Exception {
+        if (targetDir == null) throw new IllegalArgumentException("No target directory provided.");
+        Files.createDirectories(targetDir.toPath());
+        List<Path[]> filesToCopy = new ArrayList<>();
+        List<Path> sourcesToDelete = new ArrayList<>();
+        for (File source : sources) {
+            Path src = source.toPath();
+            Path dest = targetDir.toPath().resolve(src.getFileName().toString());
+            if (isMove) {
+                try { // Cheap rename if on the same file system
+                    Files.move(src, dest, StandardCopyOption.ATOMIC_MOVE);
+                    continue;
+                } catch (IOException ignored) {
+                }
+                sourcesToDelete.add(src);
+            }
+            // Create directories upfront, so that files can be copied in any order
+            Files.walkFileTree(src, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    Files.createDirectories(dest.resolve(src.relativize(dir).toString()));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    filesToCopy.add(new Path[]{file, src.equals(file) ? dest : dest.resolve(src.relativize(file).toString())});
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        filesTotal.set(filesToCopy.size());
+        runParallel(filesToCopy, paths -> {
+            Files.copy(paths[0], paths[1], StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+            bytesDone.addAndGet(Files.size(paths[1]));
+        });
+        for (Path src : sourcesToDelete) {
+            deleteRecursively(src);
+        }
+    }
+
+    private void delete() throws Exception {
+        List<Path> files = new ArrayList<>();
+        List<Path> dirs = new ArrayList<>();
+        for (File source : sources) {
+            Files.walkFileTree(source.toPath(), new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    files.add(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                    dirs.add(dir); // Children are always added before their parents
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        filesTotal.set(files.size());
+        runParallel(files, file -> {
+            long size = Files.size(file);
+            Files.deleteIfExists(file);
+            bytesDone.addAndGet(size);
+        });
+        for (Path dir : dirs) {
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    private void extract() throws Exception {
+        if (targetDir == null) throw new IllegalArgumentException("No target directory provided.");
+        filesTotal.set(sources.size());
+        for (File archive : sources) {
+            String name = archive.getName().toLowerCase();
+            Archiver archiver;
+            if (name.endsWith(".tar.gz") || name.endsWith(".tgz"))
+                archiver = ArchiverFactory.createArchiver(ArchiveFormat.TAR, CompressionType.GZIP);
+            else if (name.endsWith(".tar"))
+                archiver = ArchiverFactory.createArchiver(ArchiveFormat.TAR);
+            else if (name.endsWith(".zip") || name.endsWith(".jar"))
+                archiver = ArchiverFactory.createArchiver(ArchiveFormat.ZIP);
+            else
+                throw new IOException("Unsupported archive format of '" + archive.getName() + "', supported are: zip, jar, tar, tar.gz");
+            targetDir.mkdirs();
+            archiver.extract(archive, targetDir);
+            bytesDone.addAndGet(archive.length());
+            filesDone.incrementAndGet();
+        }
+    }
+
+    private <T> void runParallel(List<T> items, IOConsumer<T> action) throws Exception {
+        List<Future<?>> futures = new ArrayList<>(items.size());
+        for (T item : items) {
+            futures.add(IO_EXECUTOR.submit(() -> {
+                action.accept(item);
+                filesDone.incrementAndGet();
+                return null;
+            }));
+        }
+        Exception firstException = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (firstException == null && e.getCause() instanceof Exception)
+                    firstException = (Exception) e.getCause();
+            }
+        }
+        if (firstException != null) throw firstException;
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                paths.add(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                paths.add(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        for (Path p : paths) {
+            Files.deleteIfExists(p);
+        }
+    }
+
+    private interface IOConsumer<T> {
+        void accept(T t) throws IOException;
+    }
+}
@@ -97,6 +97,13 @@ public class UFDataIn {
         //read("\u001a") // Not needed here since already read above by read()
     }
 
+    /**
+     * Reads exactly len raw (not Base64 encoded) bytes into the provided buffer.
+     */
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        dis.readFully(b, off, len);
+    }
+
     public byte readByte() throws IOException {
         return dis.readByte();
     }
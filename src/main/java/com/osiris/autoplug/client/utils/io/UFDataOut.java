@@ -67,4 +67,62 @@ public class UFDataOut extends DataOutputStream {
         AL.debug(this.getClass(), "Bytes sent: " + totalCount);
         flush();
     }
+
+    /**
+     * Returns a stream that sends all data written to it in the same format as {@link #writeStream(InputStream)},
+     * which is useful when the data is generated on the fly (for example a zip) instead of being read from another stream.
+     * {@link OutputStream#close()} must be called once done, which sends the EOF marker,
+     * but does not close this {@link UFDataOut}.
+     */
+    public OutputStream openStream() {
+        return new OutputStream() {
+            private final Base64.Encoder encoder = Base64.getEncoder();
+            private final byte[] buffer = new byte[8192];
+            private int count = 0;
+            private long totalCount = 0;
+            private boolean isClosed = false;
+
+            @Override
+            public void write(int b) throws IOException {
+                if (count == buffer.length) flushBuffer();
+                buffer[count++] = (byte) b;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                while (len > 0) {
+                    if (count == buffer.length) flushBuffer();
+                    int n = Math.min(len, buffer.length - count);
+                    System.arraycopy(b, off, buffer, count, n);
+                    count += n;
+                    off += n;
+                    len -= n;
+                }
+            }
+
+            private void flushBuffer() throws IOException {
+                if (count == 0) return;
+                if (count == buffer.length) writeUTF(new String(encoder.encode(buffer), StandardCharsets.UTF_8));
+                else writeUTF(new String(encoder.encode(Arrays.copyOf(buffer, count)), StandardCharsets.UTF_8));
+                totalCount += count;
+                count = 0;
+            }
+
+            @Override
+            public void flush() throws IOException {
+                flushBuffer();
+                UFDataOut.this.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (isClosed) return;
+                isClosed = true;
+                flushBuffer();
+                writeUTF(EOF);
+                AL.debug(UFDataOut.class, "Bytes sent: " + totalCount);
+                UFDataOut.this.flush();
+            }
+        };
+    }
 }
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.utils.tasks;
+
+import com.osiris.betterthread.BThread;
+import com.osiris.betterthread.BThreadManager;
+import com.osiris.betterthread.BThreadPrinter;
+import com.osiris.betterthread.modules.Status;
+
+/**
+ * Displays the {@link TaskProgress} of running tasks that have one, and the regular status otherwise.
+ */
+public class ProgressStatus extends Status {
+    @Override
+    public void append(BThreadManager manager, BThreadPrinter printer, BThread thread, StringBuilder line) {
+        if (!thread.isFinished() && thread instanceof TaskProgress.Owner) {
+            TaskProgress progress = ((TaskProgress.Owner) thread).getProgress();
+            if (progress.isActive()) {
+                progress.append(line);
+                return;
+            }
+        }
+        super.append(manager, printer, thread, line);
+    }
+}
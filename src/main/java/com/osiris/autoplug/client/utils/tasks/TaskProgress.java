@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.utils.tasks;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Progress of a task, that gets updated often (like per downloaded chunk) and displayed rarely. <br>
+ * Updates only write primitive fields and references that already exist, the text is built by
+ * {@link #append(StringBuilder)} when a printer displays the task (see {@link ProgressStatus}),
+ * thus at the printers refresh rate, instead of a new status string per update. <br>
+ * Written by the task thread, read by the printer thread.
+ */
+public class TaskProgress {
+    private volatile Phase phase;
+    @Nullable
+    private volatile String subject;
+    @Nullable
+    private volatile Object detail;
+    private volatile long now;
+    /**
+     * Smaller or equal to 0 if unknown.
+     */
+    private volatile long max;
+    private volatile long msStart;
+
+    /**
+     * Starts a new phase, resets the current value and the time used for the rate.
+     *
+     * @param subject the file or resource this phase is about, null if none.
+     * @param max     the value when done, smaller or equal to 0 if unknown.
+     */
+    public TaskProgress start(@NotNull Phase phase, @Nullable String subject, long max) {
+        this.subject = subject;
+        this.detail = null;
+        this.now = 0;
+        this.max = max;
+        this.msStart = System.currentTimeMillis();
+        this.phase = phase;
+        return this;
+    }
+
+    /**
+     * Ends the current phase, thus the regular status of the task is displayed again.
+     */
+    public void stop() {
+        this.phase = null;
+    }
+
+    public boolean isActive() {
+        return phase != null;
+    }
+
+    @Nullable
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public long getNow() {
+        return now;
+    }
+
+    public void setNow(long now) {
+        this.now = now;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * If the max changes the current value belongs to a different operation
+     * (like the next file added to a zip), thus the time used for the rate is reset too.
+     */
+    public void set(long now, long max) {
+        if (max != this.max) {
+            this.max = max;
+            this.msStart = System.currentTimeMillis();
+        }
+        this.now = now;
+    }
+
+    public void setSubject(@Nullable String subject) {
+        this.subject = subject;
+    }
+
+    /**
+     * @param detail displayed after the progress via {@link Object#toString()}, which
+     *               is only called when displayed. Null to display nothing.
+     */
+    public void setDetail(@Nullable Object detail) {
+        this.detail = detail;
+    }
+
+    /**
+     * @return value between 0 and 100, or -1 if the max is unknown.
+     */
+    public int getPercent() {
+        long max = this.max;
+        if (max <= 0) return -1;
+        return (int) Math.min(100, now * 100 / max);
+    }
+
+    /**
+     * @return the average progress per second since the start, 0 if not measurable yet.
+     */
+    public double getRate() {
+        long ms = System.currentTimeMillis() - msStart;
+        if (ms <= 0) return 0;
+        return now * 1000.0 / ms;
+    }
+
+    /**
+     * @return the estimated milliseconds until done, or -1 if unknown.
+     */
+    public long getMsRemaining() {
+        long max = this.max;
+        double rate = getRate();
+        if (max <= 0 || rate <= 0) return -1;
+        return (long) (Math.max(0, max - now) * 1000 / rate);
+    }
+
+    /**
+     * Appends the progress, for example: {@code Downloading Essentials.jar... 3mb/10mb (30%, 1.2mb/s, 6s left)}.
+     */
+    public void append(@NotNull StringBuilder line) {
+        Phase phase = this.phase;
+        if (phase == null) return;
+        long now = this.now;
+        long max = this.max;
+        String subject = this.subject;
+        Object detail = this.detail;
+
+        line.append(phase.label);
+        if (subject != null) line.append(' ').append(subject);
+        line.append("... ");
+        appendAmount(line, phase, now);
+        if (max > 0) {
+            line.append('/');
+            appendAmount(line, phase, max);
+        }
+        line.append(" (");
+        int percent = getPercent();
+        if (percent >= 0) line.append(percent).append("%, ");
+        double rate = getRate();
+        if (phase.isBytes) {
+            appendAmount(line, phase, (long) rate);
+        } else
+            line.append((long) (rate * 10) / 10.0);
+        line.append("/s");
+        long msRemaining = getMsRemaining();
+        if (msRemaining >= 0) line.append(", ").append((msRemaining + 999) / 1000).append("s left");
+        line.append(')');
+        if (detail != null) line.append(" - ").append(detail);
+    }
+
+    private static void appendAmount(StringBuilder line, Phase phase, long amount) {
+        if (!phase.isBytes) {
+            line.append(amount);
+            return;
+        }
+        if (amount < 1024 * 1024)
+            line.append(amount / 1024).append("kb");
+        else
+            line.append(amount / (1024 * 1024)).append("mb");
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder line = new StringBuilder();
+        append(line);
+        return line.toString();
+    }
+
+    public enum Phase {
+        DOWNLOADING("Downloading", true),
+        BACKING_UP("Backing up", true),
+        CHECKING("Checking", false);
+
+        public final String label;
+        /**
+         * If true, the values are displayed as kb/mb.
+         */
+        public final boolean isBytes;
+
+        Phase(String label, boolean isBytes) {
+            this.label = label;
+            this.isBytes = isBytes;
+        }
+    }
+
+    /**
+     * Implemented by tasks that have a {@link TaskProgress}.
+     */
+    public interface Owner {
+        @NotNull
+        TaskProgress getProgress();
+    }
+}
@@ -40,7 +40,7 @@ public class UtilsTasks {
                     .space()
                     .spinner()
                     .text(Ansi.ansi().a(" > "))
-                    .status().build();
+                    .custom(new ProgressStatus()).build();
         } else {
             printer = new SerialBThreadPrinter(manager);
             printer.defaultPrinterModules = new BThreadModulesBuilder()
@@ -48,7 +48,7 @@ public class UtilsTasks {
                     .space()
                     .spinner()
                     .text(Ansi.ansi().a(" > "))
-                    .status().build();
+                    .custom(new ProgressStatus()).build();
         }
 
         printer.start();
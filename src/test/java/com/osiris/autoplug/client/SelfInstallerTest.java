@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2023 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SelfInstallerTest {
+
+    @Test
+    void installStagedUpdateKeepsStagedJarIfInstalledJarIsInUse(@TempDir Path dir) throws Exception {
+        File installedJar = dir.resolve("AutoPlug-Client.jar").toFile();
+        File stagedJar = SelfInstaller.getStagedJar(installedJar);
+        Files.write(installedJar.toPath(), "old".getBytes(StandardCharsets.UTF_8));
+        Files.write(stagedJar.toPath(), "new".getBytes(StandardCharsets.UTF_8));
+
+        boolean[] isStarted = {false};
+        SelfInstaller installer = new SelfInstaller() {
+            @Override
+            public boolean isFileInUse(File file) {
+                return true;
+            }
+
+            @Override
+            public void startJarFromPath(File jarToStart, File workingDir) {
+                isStarted[0] = true;
+            }
+        };
+        installer.maxInstallAttempts = 3;
+        installer.msBetweenInstallAttempts = 1;
+
+        assertThrows(Exception.class, () -> installer.installStagedUpdateAndStartIt(stagedJar));
+        assertFalse(isStarted[0]);
+        assertTrue(stagedJar.exists());
+        assertEquals("new", new String(Files.readAllBytes(stagedJar.toPath()), StandardCharsets.UTF_8));
+        assertEquals("old", new String(Files.readAllBytes(installedJar.toPath()), StandardCharsets.UTF_8));
+        assertFalse(new File(installedJar.getAbsolutePath() + ".tmp").exists());
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.network.local;
+
+import com.osiris.autoplug.client.tasks.updater.DeltaDownload;
+import com.osiris.autoplug.client.tasks.updater.Mirror;
+import com.osiris.autoplug.client.utils.BinaryDelta;
+import com.osiris.autoplug.client.utils.UtilsCrypto;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MirrorServerTest {
+    private final AtomicReference<String> latest = new AtomicReference<>("v1");
+    private final AtomicInteger upstreamRequests = new AtomicInteger();
+    private HttpServer upstream;
+    private String upstreamUrl;
+
+    @BeforeEach
+    void start(@TempDir File dir) throws IOException {
+        upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        upstream.createContext("/latest.jar", exchange -> {
+            upstreamRequests.incrementAndGet();
+            byte[] body = latest.get().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        upstream.createContext("/key", exchange -> {
+            byte[] body = String.valueOf(exchange.getRequestHeaders().getFirst("x-api-key")).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        upstream.createContext("/redirect", exchange -> {
+            exchange.getResponseHeaders().set("Location", "/latest.jar");
+            exchange.sendResponseHeaders(302, -1);
+            exchange.close();
+        });
+        upstream.createContext("/external", exchange -> {
+            exchange.getResponseHeaders().set("Location", "http://example.com/file.jar");
+            exchange.sendResponseHeaders(302, -1);
+            exchange.close();
+        });
+        upstream.start();
+        upstreamUrl = "http://127.0.0.1:" + upstream.getAddress().getPort();
+
+        MirrorServer.setDir(dir);
+        MirrorServer.start("127.0.0.1", 0, 0, Collections.singleton("127.0.0.1"));
+    }
+
+    @AfterEach
+    void stop() {
+        MirrorServer.stop();
+        upstream.stop(0);
+        MirrorServer.setDir(MirrorServer.DEFAULT_DIR);
+    }
+
+    @Test
+    void cachesPerVersion() throws IOException {
+        String url = upstreamUrl + "/latest.jar";
+        assertEquals("v1", get(url, "1.0", null).body);
+        latest.set("v2");
+        assertEquals("v1", get(url, "1.0", null).body); // Cached
+        assertEquals(1, upstreamRequests.get());
+        assertEquals("v2", get(url, "2.0", null).body);
+        assertEquals(2, upstreamRequests.get());
+
+        // Without version only cached for the ttl, which is 0 here
+        assertEquals("v2", get(url, null, null).body);
+        assertEquals("v2", get(url, null, null).body);
+        assertEquals(4, upstreamRequests.get());
+    }
+
+    @Test
+    void cachesPerApiKey() throws IOException {
+        String url = upstreamUrl + "/key";
+        assertEquals("a", get(url, "1.0", "a").body);
+        assertEquals("b", get(url, "1.0", "b").body);
+    }
+
+    @Test
+    void followsRedirectsOnlyToMirroredHosts() throws IOException {
+        assertEquals("v1", get(upstreamUrl + "/redirect", null, null).body);
+
+        Response external = get(upstreamUrl + "/external", null, null);
+        assertEquals(302, external.code);
+        assertEquals("http://example.com/file.jar", external.location);
+
+        assertEquals(403, get("http://example.com/file.jar", null, null).code);
+    }
+
+    @Test
+    void servesDeltas(@TempDir File dir) throws IOException {
+        String url = upstreamUrl + "/latest.jar";
+        StringBuilder v1 = new StringBuilder();
+        for (int i = 0; i < 10000; i++) v1.append(i).append('\n');
+        latest.set(v1.toString());
+        get(url, "1.0", null);
+        latest.set(v1 + "new");
+        File old = new File(dir, "old.jar");
+        Files.write(old.toPath(), v1.toString().getBytes(StandardCharsets.UTF_8));
+        String oldSha256 = UtilsCrypto.fastSHA256(old).toLowerCase();
+
+        HttpURLConnection con = open(url, "2.0", null, "&" + DeltaDownload.QUERY_PARAM + "=" + oldSha256);
+        assertEquals(200, con.getResponseCode());
+        assertEquals(DeltaDownload.CONTENT_TYPE, con.getContentType());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = con.getInputStream()) {
+            BinaryDelta.apply(old, in, out);
+        }
+        assertEquals(v1 + "new", new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+        String unknownSha256 = "0000000000000000000000000000000000000000000000000000000000000000";
+        con = open(url, "2.0", null, "&" + DeltaDownload.QUERY_PARAM + "=" + unknownSha256);
+        assertEquals(404, con.getResponseCode());
+    }
+
+    private HttpURLConnection open(String url, String version, String apiKey, String extraQuery) throws IOException {
+        String mirrorUrl = "http://127.0.0.1:" + MirrorServer.getPort() + Mirror.PATH + "?url=" + URLEncoder.encode(url, "UTF-8");
+        if (version != null) mirrorUrl += "&" + Mirror.VERSION_PARAM + "=" + version;
+        HttpURLConnection con = (HttpURLConnection) new URL(mirrorUrl + extraQuery).openConnection();
+        con.setInstanceFollowRedirects(false);
+        if (apiKey != null) con.setRequestProperty("x-api-key", apiKey);
+        return con;
+    }
+
+    private Response get(String url, String version, String apiKey) throws IOException {
+        HttpURLConnection con = open(url, version, apiKey, "");
+        Response response = new Response();
+        response.code = con.getResponseCode();
+        response.location = con.getHeaderField("Location");
+        if (response.code == 200) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (InputStream in = con.getInputStream()) {
+                byte[] buffer = new byte[8192];
+                int count;
+                while ((count = in.read(buffer)) != -1) out.write(buffer, 0, count);
+            }
+            response.body = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+        return response;
+    }
+
+    private static class Response {
+        int code;
+        String location;
+        String body;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.network.online;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionSchedulerTest {
+
+    @Test
+    void slowTaskDoesNotDelayOthers() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch ran = new CountDownLatch(1);
+        ConnectionScheduler.schedule(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+            }
+        }, 0);
+        ConnectionScheduler.schedule(ran::countDown, 10);
+        try {
+            assertTrue(ran.await(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void periodicStopsOnExceptionAndCancel() throws InterruptedException {
+        AtomicInteger failing = new AtomicInteger();
+        ConnectionScheduler.PeriodicTask failingTask = ConnectionScheduler.schedulePeriodic(() -> {
+            failing.incrementAndGet();
+            throw new RuntimeException("broken socket");
+        }, 10);
+
+        CountDownLatch threeRuns = new CountDownLatch(3);
+        ConnectionScheduler.PeriodicTask task = ConnectionScheduler.schedulePeriodic(threeRuns::countDown, 10);
+        assertTrue(threeRuns.await(5, TimeUnit.SECONDS));
+        task.cancel();
+        assertTrue(task.isDone());
+
+        assertTrue(failingTask.isDone());
+        assertEquals(1, failing.get());
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.network.online.connections;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuthThrottleTest {
+
+    @Test
+    void blocksAfterTooManyFailures() {
+        AuthThrottle throttle = new AuthThrottle(3, 1000);
+        throttle.onFailure("1.2.3.4", 0);
+        throttle.onFailure("1.2.3.4", 10);
+        assertFalse(throttle.isBlocked("1.2.3.4", 20));
+        throttle.onFailure("1.2.3.4", 20);
+        assertTrue(throttle.isBlocked("1.2.3.4", 30));
+        assertFalse(throttle.isBlocked("5.6.7.8", 30));
+        assertFalse(throttle.isBlocked("1.2.3.4", 1020));
+
+        // Blocked twice as long the next time
+        for (int i = 0; i < 3; i++) throttle.onFailure("1.2.3.4", 1100);
+        assertTrue(throttle.isBlocked("1.2.3.4", 3000));
+        assertFalse(throttle.isBlocked("1.2.3.4", 3100));
+    }
+
+    @Test
+    void failuresOutsideWindowAreForgotten() {
+        AuthThrottle throttle = new AuthThrottle(3, 1000);
+        throttle.onFailure("1.2.3.4", 0);
+        throttle.onFailure("1.2.3.4", 10);
+        throttle.onFailure("1.2.3.4", 2000);
+        assertFalse(throttle.isBlocked("1.2.3.4", 2010));
+    }
+
+    @Test
+    void successResetsFailures() {
+        AuthThrottle throttle = new AuthThrottle(2, 1000);
+        throttle.onFailure("1.2.3.4", 0);
+        throttle.onSuccess("1.2.3.4");
+        throttle.onFailure("1.2.3.4", 10);
+        assertFalse(throttle.isBlocked("1.2.3.4", 20));
+    }
+
+    @Test
+    void expiredBlocksKeepTheirCountWhenPruning() {
+        AuthThrottle throttle = new AuthThrottle(2, 1000);
+        throttle.onFailure("1.2.3.4", 0);
+        throttle.onFailure("1.2.3.4", 0); // Blocked for 1s
+        assertFalse(throttle.isBlocked("1.2.3.4", 1000));
+
+        // Fill the table with addresses that were never blocked, to trigger pruning
+        for (int i = 0; i < 10000; i++) throttle.onFailure("10.0." + (i / 256) + "." + (i % 256), 5000 + i);
+        assertTrue(throttle.getTrackedAddresses() < 10000);
+
+        // Blocked twice as long, thus the block count was kept
+        throttle.onFailure("1.2.3.4", 30000);
+        throttle.onFailure("1.2.3.4", 30000);
+        assertTrue(throttle.isBlocked("1.2.3.4", 31500));
+        assertFalse(throttle.isBlocked("1.2.3.4", 32000));
+    }
+
+    @Test
+    void forgetsAddressesIdleLongerThanTheLongestBlock() {
+        AuthThrottle throttle = new AuthThrottle(2, 1000);
+        throttle.onFailure("1.2.3.4", 0);
+        throttle.onFailure("1.2.3.4", 0);
+        long later = 2 * 24 * 60 * 60 * 1000L;
+        for (int i = 0; i < 10000; i++) throttle.onFailure("10.0." + (i / 256) + "." + (i % 256), later);
+
+        // Blocked for 1s again, like the first time
+        throttle.onFailure("1.2.3.4", later);
+        throttle.onFailure("1.2.3.4", later);
+        assertTrue(throttle.isBlocked("1.2.3.4", later + 500));
+        assertFalse(throttle.isBlocked("1.2.3.4", later + 1000));
+    }
+}
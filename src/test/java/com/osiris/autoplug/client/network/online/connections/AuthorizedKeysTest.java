@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.network.online.connections;
+
+import org.apache.sshd.common.config.keys.PublicKeyEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthorizedKeysTest {
+
+    @Test
+    void reload(@TempDir File dir) throws Exception {
+        PublicKey key1 = newKey();
+        PublicKey key2 = newKey();
+        Path path = new File(dir, "authorized_keys").toPath();
+        write(path, "# comment\n" + PublicKeyEntry.toString(key1) + "\ninvalid line\n");
+
+        AuthorizedKeys keys = new AuthorizedKeys(path);
+        assertEquals(1, keys.size());
+        assertTrue(keys.isAuthorized(key1));
+        assertFalse(keys.isAuthorized(key2));
+
+        write(path, PublicKeyEntry.toString(key2));
+        keys.reload();
+        assertFalse(keys.isAuthorized(key1));
+        assertTrue(keys.isAuthorized(key2));
+    }
+
+    @Test
+    void reloadsOnChange(@TempDir File dir) throws Exception {
+        PublicKey key1 = newKey();
+        PublicKey key2 = newKey();
+        Path path = new File(dir, "authorized_keys").toPath();
+        write(path, PublicKeyEntry.toString(key1));
+
+        try (AuthorizedKeys keys = AuthorizedKeys.watch(path)) {
+            assertTrue(keys.isAuthorized(key1));
+            write(path, PublicKeyEntry.toString(key1) + "\n" + PublicKeyEntry.toString(key2));
+            long msTimeout = System.currentTimeMillis() + 30000; // Some watch services poll every few seconds
+            while (!keys.isAuthorized(key2) && System.currentTimeMillis() < msTimeout) {
+                Thread.sleep(50);
+            }
+            assertTrue(keys.isAuthorized(key2));
+            assertTrue(keys.isAuthorized(key1));
+        }
+    }
+
+    private static PublicKey newKey() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair().getPublic();
+    }
+
+    private static void write(Path path, String content) throws Exception {
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.network.online.connections;
+
+import com.osiris.autoplug.client.tasks.updater.plugins.MinecraftPlugin;
+import com.osiris.autoplug.client.tasks.updater.search.SearchResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConPluginsUpdateResultTest {
+
+    @Test
+    void sendsOnlyChangedAndRemovedPlugins(@TempDir File dir) throws Exception {
+        File stateFile = new File(dir, "state.properties");
+        SearchResult a = result("PluginA", "1.0", SearchResult.Type.UP_TO_DATE, "1.0");
+        SearchResult b = result("PluginB", "2.0", SearchResult.Type.UPDATE_AVAILABLE, "2.1");
+        MinecraftPlugin excluded = new MinecraftPlugin("./plugins/C.jar", "PluginC", "3.0", null, 0, 0, null);
+
+        // First report contains all plugins
+        Report first = send(Arrays.asList(a, b), Collections.singletonList(excluded), stateFile, true, 0);
+        assertEquals(0, first.lastReportId);
+        assertEquals(Arrays.asList("PluginA", "PluginB", "PluginC"), first.names());
+        assertEquals(Collections.emptyList(), first.removed);
+        Entry entryB = first.entries.get(1);
+        assertEquals(SearchResult.Type.UPDATE_AVAILABLE.id, entryB.type);
+        assertEquals(Arrays.asList("PluginB", "Author", "2.0"), entryB.plugin);
+        assertEquals(Arrays.asList("jar", "2.1", "https://example.com/PluginB.jar", "1234", null,
+                "Owner/PluginB", "PluginB.jar", null, null), entryB.details);
+        Entry entryC = first.entries.get(2);
+        assertEquals(-1, entryC.type);
+        assertEquals(Arrays.asList("PluginC", null, "3.0"), entryC.plugin);
+        assertTrue(entryC.details.isEmpty());
+
+        // Second report only contains the changed plugin and the removed plugin
+        SearchResult bUpdated = result("PluginB", "2.0", SearchResult.Type.UPDATE_AVAILABLE, "2.2");
+        Report second = send(Arrays.asList(a, bUpdated), Collections.emptyList(), stateFile, true, 0);
+        assertEquals(first.reportId, second.lastReportId);
+        assertEquals(Collections.singletonList("PluginB"), second.names());
+        assertEquals("2.2", second.entries.get(0).details.get(1));
+        assertEquals(Collections.singletonList("PluginC"), second.removed);
+
+        // Nothing changed
+        Report third = send(Arrays.asList(a, bUpdated), Collections.emptyList(), stateFile, true, 0);
+        assertEquals(second.reportId, third.lastReportId);
+        assertTrue(third.entries.isEmpty());
+        assertTrue(third.removed.isEmpty());
+    }
+
+    @Test
+    void sendsAllIfWebDoesNotKnowLastReport(@TempDir File dir) throws Exception {
+        File stateFile = new File(dir, "state.properties");
+        List<SearchResult> results = Arrays.asList(
+                result("PluginA", "1.0", SearchResult.Type.UP_TO_DATE, "1.0"),
+                result("PluginB", "2.0", SearchResult.Type.UP_TO_DATE, "2.0"));
+        Report first = send(results, Collections.emptyList(), stateFile, true, 0);
+
+        Report second = send(results, Collections.emptyList(), stateFile, false, 0);
+        assertEquals(first.reportId, second.lastReportId);
+        assertEquals(Arrays.asList("PluginA", "PluginB"), second.names());
+        assertTrue(second.removed.isEmpty());
+    }
+
+    @Test
+    void failedReportIsNotUsedAsBase(@TempDir File dir) throws Exception {
+        File stateFile = new File(dir, "state.properties");
+        List<SearchResult> results = Collections.singletonList(result("PluginA", "1.0", SearchResult.Type.UP_TO_DATE, "1.0"));
+        Report first = send(results, Collections.emptyList(), stateFile, true, 0);
+
+        assertThrows(Exception.class, () -> send(results, Collections.emptyList(), stateFile, true, 1));
+        Report third = send(results, Collections.emptyList(), stateFile, true, 0);
+        assertEquals(first.reportId, third.lastReportId);
+    }
+
+    @Test
+    void legacyFormatIfCompactDisabled(@TempDir File dir) throws Exception {
+        SearchResult a = result("PluginA", "1.0", SearchResult.Type.UPDATE_AVAILABLE, "1.1");
+        MinecraftPlugin excluded = new MinecraftPlugin("./plugins/C.jar", "PluginC", "3.0", null, 0, 0, null);
+        ConPluginsUpdateResult con = new ConPluginsUpdateResult(Collections.singletonList(a),
+                Collections.singletonList(excluded), false);
+        con.stateFile = new File(dir, "state.properties");
+        assertEquals(ConPluginsUpdateResult.CON_TYPE_LEGACY, con.conType);
+        ByteArrayOutputStream web = new ByteArrayOutputStream();
+        DataOutputStream webOut = new DataOutputStream(web);
+        webOut.writeLong(0); // No cool-down
+        con.in = new DataInputStream(new ByteArrayInputStream(web.toByteArray()));
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        con.out = new DataOutputStream(sent);
+        con.sendResults();
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(sent.toByteArray()));
+        assertEquals(1, in.readInt());
+        assertEquals("PluginA", in.readUTF());
+        assertEquals("Author", in.readUTF());
+        assertEquals("1.0", in.readUTF());
+        assertEquals(SearchResult.Type.UPDATE_AVAILABLE.id, in.readByte());
+        assertEquals("jar", in.readUTF());
+        assertEquals("1.1", in.readUTF());
+        assertEquals("https://example.com/PluginA.jar", in.readUTF());
+        assertEquals("1234", in.readUTF());
+        assertEquals("0", in.readUTF()); // Bukkit id
+        assertEquals("Owner/PluginA", in.readUTF());
+        assertEquals("PluginA.jar", in.readUTF());
+        assertEquals("null", in.readUTF());
+        assertEquals("null", in.readUTF());
+        assertEquals(1, in.readInt());
+        assertEquals("PluginC", in.readUTF());
+        assertEquals("null", in.readUTF());
+        assertEquals("3.0", in.readUTF());
+        assertEquals(0, in.available());
+        assertFalse(con.stateFile.exists());
+    }
+
+    private static SearchResult result(String name, String version, SearchResult.Type type, String latestVersion) {
+        MinecraftPlugin plugin = new MinecraftPlugin("./plugins/" + name + ".jar", name, version, "Author", 1234, 0, null);
+        plugin.setGithubRepoName("Owner/" + name);
+        plugin.setGithubAssetName(name + ".jar");
+        return new SearchResult(plugin, type, latestVersion, "https://example.com/" + name + ".jar",
+                "jar", "1234", null, false);
+    }
+
+    /**
+     * Sends a compact report, with the provided answers of AutoPlug-Web.
+     */
+    private static Report send(List<SearchResult> results, List<MinecraftPlugin> excluded, File stateFile,
+                               boolean isLastReportKnown, int resultCode) throws Exception {
+        ConPluginsUpdateResult con = new ConPluginsUpdateResult(results, excluded, true);
+        con.stateFile = stateFile;
+        assertEquals(ConPluginsUpdateResult.CON_TYPE_COMPACT, con.conType);
+        ByteArrayOutputStream web = new ByteArrayOutputStream();
+        DataOutputStream webOut = new DataOutputStream(web);
+        webOut.writeLong(0); // No cool-down
+        webOut.writeBoolean(isLastReportKnown);
+        webOut.writeByte(resultCode);
+        con.in = new DataInputStream(new ByteArrayInputStream(web.toByteArray()));
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        con.out = new DataOutputStream(sent);
+        con.sendResults();
+        return Report.decode(sent.toByteArray());
+    }
+
+    private static class Report {
+        long lastReportId;
+        long reportId;
+        List<Entry> entries = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+
+        static Report decode(byte[] sent) throws IOException {
+            Report report = new Report();
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(sent));
+            report.lastReportId = in.readLong();
+            byte[] batch = new byte[in.readInt()];
+            in.readFully(batch);
+            assertEquals(0, in.available());
+
+            DataInputStream b = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(batch)));
+            assertEquals(1, b.readByte()); // Format version
+            report.reportId = b.readLong();
+            assertNotEquals(0, report.reportId);
+            int count = b.readInt();
+            for (int i = 0; i < count; i++) {
+                Entry entry = new Entry();
+                for (int j = 0; j < 3; j++) entry.plugin.add(readNullable(b));
+                entry.type = b.readByte();
+                if (entry.type != -1)
+                    for (int j = 0; j < 9; j++) entry.details.add(readNullable(b));
+                report.entries.add(entry);
+            }
+            int removed = b.readInt();
+            for (int i = 0; i < removed; i++) report.removed.add(b.readUTF());
+            assertEquals(-1, b.read());
+            return report;
+        }
+
+        List<String> names() {
+            List<String> names = new ArrayList<>();
+            for (Entry entry : entries) names.add(entry.plugin.get(0));
+            return names;
+        }
+
+        private static String readNullable(DataInputStream in) throws IOException {
+            return in.readBoolean() ? in.readUTF() : null;
+        }
+    }
+
+    private static class Entry {
+        List<String> plugin = new ArrayList<>();
+        byte type;
+        List<String> details = new ArrayList<>();
+    }
+}
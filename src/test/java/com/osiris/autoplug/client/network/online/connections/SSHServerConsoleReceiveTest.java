@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.network.online.connections;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SSHServerConsoleReceiveTest {
+
+    @Test
+    void slowSessionDoesNotBlockOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingOutputStream slowOut = new BlockingOutputStream(release);
+        Session slow = new Session(slowOut);
+        Session fast = new Session(new ByteArrayOutputStream());
+        try {
+            slow.console.start(null, null);
+            fast.console.start(null, null);
+            slowOut.isBlocking = true; // After the welcome message
+            String line = new String(new char[1023]).replace('\0', 'x');
+            long total = 2048 * 1024L; // Twice the max queued per session
+            for (int i = 0; i < 2048; i++) {
+                SSHServerConsoleReceive.broadcastToAll(line);
+            }
+            waitFor(() -> fast.console.getSentBytes() + fast.console.getDroppedBytes() == total);
+            assertTrue(fast.console.getSentBytes() > 0);
+            assertTrue(slow.console.getDroppedBytes() > 0);
+
+            release.countDown();
+            waitFor(() -> slowOut.toString().contains("[Skipped "));
+        } finally {
+            release.countDown();
+            slow.end();
+            fast.end();
+        }
+    }
+
+    @Test
+    void brokenSessionGetsRemoved() throws Exception {
+        BrokenOutputStream brokenOut = new BrokenOutputStream();
+        Session broken = new Session(brokenOut);
+        int sessionsBefore = SSHServerConsoleReceive.getActiveSessionsCount();
+        try {
+            broken.console.start(null, null);
+            brokenOut.isBroken = true; // After the welcome message
+            assertEquals(sessionsBefore + 1, SSHServerConsoleReceive.getActiveSessionsCount());
+
+            SSHServerConsoleReceive.broadcastToAll("hello");
+            waitFor(() -> broken.exits.get() > 0);
+            assertEquals(sessionsBefore, SSHServerConsoleReceive.getActiveSessionsCount());
+
+            broken.console.broadcast("hello"); // Ignored, since closed
+            Thread.sleep(100);
+            assertEquals(1, broken.exits.get());
+        } finally {
+            broken.end();
+        }
+    }
+
+    private static void waitFor(Condition condition) throws Exception {
+        long msTimeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (!condition.isTrue()) {
+            assertTrue(System.currentTimeMillis() < msTimeout, "Timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    private interface Condition {
+        boolean isTrue();
+    }
+
+    private static class Session {
+        final SSHServerConsoleReceive console = new SSHServerConsoleReceive();
+        final PipedOutputStream input = new PipedOutputStream();
+        final AtomicInteger exits = new AtomicInteger();
+
+        Session(OutputStream out) throws IOException {
+            console.setInputStream(new PipedInputStream(input));
+            console.setOutputStream(out);
+            console.setErrorStream(new ByteArrayOutputStream());
+            console.setExitCallback((exitValue, exitMessage, closeImmediately) -> exits.incrementAndGet());
+        }
+
+        void end() throws IOException {
+            input.close();
+            console.destroy(null);
+        }
+    }
+
+    private static class BlockingOutputStream extends ByteArrayOutputStream {
+        final CountDownLatch release;
+        volatile boolean isBlocking;
+
+        BlockingOutputStream(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (isBlocking) {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+            synchronized (this) {
+                super.write(b, off, len);
+            }
+        }
+    }
+
+    private static class BrokenOutputStream extends OutputStream {
+        volatile boolean isBroken;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (isBroken) throw new IOException("Broken pipe");
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.tasks;
+
+import com.osiris.betterthread.BThread;
+import com.osiris.betterthread.BThreadManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StartupTaskGraphTest {
+
+    private static BThread task(String name, BThreadManager manager, long msSleep, List<String> events) {
+        return new BThread(name, manager) {
+            @Override
+            public void runAtStart() throws Exception {
+                super.runAtStart();
+                events.add("start " + name);
+                Thread.sleep(msSleep);
+                events.add("end " + name);
+                finish(true);
+            }
+        };
+    }
+
+    @Test
+    void startsTasksOnceDependenciesFinished() throws Exception {
+        BThreadManager manager = new BThreadManager();
+        List<String> events = new CopyOnWriteArrayList<>();
+        BThread a = task("A", manager, 200, events);
+        BThread b = task("B", manager, 200, events);
+        BThread c = task("C", manager, 50, events);
+
+        StartupTaskGraph graph = new StartupTaskGraph()
+                .add(a)
+                .add(b, a)
+                .add(c)
+                .add(null, a); // Disabled tasks are ignored
+        graph.run();
+
+        assertTrue(events.indexOf("end A") < events.indexOf("start B"));
+        assertTrue(events.indexOf("start C") < events.indexOf("end A")); // Independent, thus in parallel
+        assertEquals(Arrays.asList(a, b), graph.getCriticalPath());
+        assertTrue(graph.getMsTotal() < 1000);
+    }
+
+    @Test
+    void dependenciesMustBeAddedFirst() {
+        BThreadManager manager = new BThreadManager();
+        BThread a = task("A", manager, 0, new CopyOnWriteArrayList<>());
+        BThread b = task("B", manager, 0, new CopyOnWriteArrayList<>());
+        assertThrows(IllegalArgumentException.class, () -> new StartupTaskGraph().add(b, a));
+    }
+}
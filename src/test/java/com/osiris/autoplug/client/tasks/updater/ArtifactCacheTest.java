@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.tasks.updater;
+
+import com.osiris.autoplug.client.utils.UtilsCrypto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArtifactCacheTest {
+
+    @Test
+    void secondInstanceLinksInsteadOfDownloading(@TempDir File dir) throws Exception {
+        ArtifactCache cache = new ArtifactCache(new File(dir, "cache"), TimeUnit.HOURS.toMillis(1));
+        AtomicInteger downloads = new AtomicInteger();
+        String url = "https://example.com/plugin.jar";
+
+        File serverA = new File(dir, "a/autoplug/downloads");
+        ArtifactCache.Artifact a = cache.fetch(url, serverA, () -> {
+            downloads.incrementAndGet();
+            serverA.mkdirs();
+            File f = new File(serverA, "Plugin-[1.0].jar");
+            Files.write(f.toPath(), "content".getBytes(StandardCharsets.UTF_8));
+            return new ArtifactCache.Artifact(f, null);
+        });
+        File serverB = new File(dir, "b/autoplug/downloads");
+        ArtifactCache.Artifact b = cache.fetch(url, serverB, () -> {
+            downloads.incrementAndGet();
+            throw new IllegalStateException("Should be cached");
+        });
+
+        assertEquals(1, downloads.get());
+        assertEquals(new File(serverB, "Plugin-[1.0].jar"), b.file);
+        assertEquals("content", new String(Files.readAllBytes(b.file.toPath()), StandardCharsets.UTF_8));
+        assertEquals(a.sha256, b.sha256);
+
+        // Modified cached artifacts are detected and downloaded again
+        b.file.delete();
+        File cached = new File(dir, "cache/sha256/" + a.sha256.substring(0, 2) + "/" + a.sha256);
+        Files.write(cached.toPath(), "corrupted".getBytes(StandardCharsets.UTF_8));
+        cache.fetch(url, serverB, () -> {
+            downloads.incrementAndGet();
+            File f = new File(serverB, "Plugin-[1.0].jar");
+            Files.write(f.toPath(), "content".getBytes(StandardCharsets.UTF_8));
+            return new ArtifactCache.Artifact(f, null);
+        });
+        assertEquals(2, downloads.get());
+
+        // Owners replace their files instead of writing in place, thus the cached artifact isn't modified
+        b.file.delete();
+        Files.write(b.file.toPath(), "modified".getBytes(StandardCharsets.UTF_8));
+        File serverC = new File(dir, "c/autoplug/downloads");
+        ArtifactCache.Artifact c = cache.fetch(url, serverC, () -> {
+            throw new IllegalStateException("Should be cached");
+        });
+        assertEquals("content", new String(Files.readAllBytes(c.file.toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void sameUrlDifferentVersions(@TempDir File dir) throws Exception {
+        ArtifactCache cache = new ArtifactCache(new File(dir, "cache"), TimeUnit.HOURS.toMillis(1));
+        String url = "https://api.spiget.org/v2/resources/1234/download"; // Always the latest version
+        File downloads = new File(dir, "autoplug/downloads");
+
+        cache.fetch(url, "1.0", downloads, () -> write(downloads, "Plugin.jar", "v1"));
+        ArtifactCache.Artifact v2 = cache.fetch(url, "2.0", downloads, () -> write(downloads, "Plugin.jar", "v2"));
+        assertEquals("v2", new String(Files.readAllBytes(v2.file.toPath()), StandardCharsets.UTF_8));
+
+        ArtifactCache.Artifact cachedV2 = cache.fetch(url, "2.0", new File(dir, "b"), () -> {
+            throw new IllegalStateException("Should be cached");
+        });
+        assertEquals(v2.sha256, cachedV2.sha256);
+    }
+
+    @Test
+    void expectedHashMustMatch(@TempDir File dir) throws Exception {
+        ArtifactCache cache = new ArtifactCache(new File(dir, "cache"), TimeUnit.HOURS.toMillis(1));
+        String url = "https://example.com/AutoPlug-Client.jar";
+        File downloads = new File(dir, "autoplug/downloads");
+        String wrongHash = "0000000000000000000000000000000000000000000000000000000000000000";
+        AtomicInteger downloads1 = new AtomicInteger();
+
+        // Broken downloads are returned, but not cached
+        ArtifactCache.Artifact broken = cache.fetch(url, wrongHash, downloads, () -> {
+            downloads1.incrementAndGet();
+            return write(downloads, "AutoPlug-Client.jar", "broken");
+        });
+        assertNotEquals(wrongHash, broken.sha256);
+        cache.fetch(url, wrongHash, downloads, () -> {
+            downloads1.incrementAndGet();
+            return write(downloads, "AutoPlug-Client.jar", "broken");
+        });
+        assertEquals(2, downloads1.get());
+
+        String hash = broken.sha256;
+        cache.fetch(url, hash, downloads, () -> write(downloads, "AutoPlug-Client.jar", "broken"));
+        ArtifactCache.Artifact cached = cache.fetch(url, hash.toUpperCase(), new File(dir, "b"), () -> {
+            throw new IllegalStateException("Should be cached");
+        });
+        assertEquals(hash, cached.sha256);
+    }
+
+    @Test
+    void usesHashCalculatedWhileDownloading(@TempDir File dir) throws Exception {
+        ArtifactCache cache = new ArtifactCache(new File(dir, "cache"), TimeUnit.HOURS.toMillis(1));
+        String url = "https://example.com/plugin.jar";
+        File downloads = new File(dir, "autoplug/downloads");
+        String sha256 = write(downloads, "Plugin.jar", "content").sha256;
+
+        ArtifactCache.Artifact a = cache.fetch(url, "1.0", downloads,
+                () -> new ArtifactCache.Artifact(new File(downloads, "Plugin.jar"), sha256.toUpperCase()));
+        assertEquals(sha256, a.sha256);
+        assertTrue(new File(dir, "cache/sha256/" + sha256.substring(0, 2) + "/" + sha256).exists());
+    }
+
+    private static ArtifactCache.Artifact write(File dir, String name, String content) throws Exception {
+        dir.mkdirs();
+        File f = new File(dir, name);
+        Files.deleteIfExists(f.toPath()); // Might be linked to the cache
+        Files.write(f.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return new ArtifactCache.Artifact(f, UtilsCrypto.fastSHA256(f).toLowerCase());
+    }
+}
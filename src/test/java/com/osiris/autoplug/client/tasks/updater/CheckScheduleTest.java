@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.tasks.updater;
+
+import com.osiris.autoplug.client.tasks.updater.search.SearchResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckScheduleTest {
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @Test
+    void checksRecentlyReleasedMoreOften(@TempDir Path dir) {
+        UpdateState state = new UpdateState(dir.resolve("update-state.log").toFile());
+        CheckSchedule schedule = new CheckSchedule(state, true, HOUR, 24 * HOUR);
+        String pl = UpdateState.PLUGINS + "Essentials";
+        assertTrue(schedule.isDue(pl, 0));
+
+        schedule.onChecked(pl, SearchResult.Type.UP_TO_DATE, "1.0", 0);
+        assertFalse(schedule.isDue(pl, HOUR / 2));
+        assertTrue(schedule.isDue(pl, HOUR));
+
+        // No release for 20 days, thus the max interval
+        schedule.onChecked(pl, SearchResult.Type.UP_TO_DATE, "1.0", 480 * HOUR);
+        assertFalse(schedule.isDue(pl, 503 * HOUR));
+        assertTrue(schedule.isDue(pl, 504 * HOUR));
+
+        // New release, thus the min interval again
+        schedule.onChecked(pl, SearchResult.Type.UP_TO_DATE, "1.1", 504 * HOUR);
+        assertTrue(schedule.isDue(pl, 505 * HOUR));
+
+        // Errors are always due
+        schedule.onChecked(pl, SearchResult.Type.API_ERROR, null, 505 * HOUR);
+        assertTrue(schedule.isDue(pl, 505 * HOUR));
+
+        assertTrue(new CheckSchedule(state, false, HOUR, HOUR).isDue(UpdateState.PLUGINS + "Vault", 0));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.tasks.updater;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MirrorTest {
+    private static final String URL = "https://api.spiget.org/v2/resources/1234/download";
+
+    @AfterEach
+    void reset() {
+        Mirror.reset();
+    }
+
+    @Test
+    void redirectsMirroredHostsWithVersion() throws IOException {
+        try (ServerSocket mirror = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"))) {
+            String mirrorUrl = "http://127.0.0.1:" + mirror.getLocalPort();
+            Mirror.set(mirrorUrl + "/", Collections.singleton("API.spiget.org"));
+
+            assertEquals(mirrorUrl + Mirror.PATH + "?url=" + URLEncoder.encode(URL, "UTF-8")
+                    + "&" + Mirror.VERSION_PARAM + "=2.0", Mirror.url(URL, "2.0"));
+            assertEquals(mirrorUrl + Mirror.PATH + "?url=" + URLEncoder.encode(URL, "UTF-8"), Mirror.url(URL));
+            assertEquals("https://github.com/file.jar", Mirror.url("https://github.com/file.jar", "2.0"));
+        }
+    }
+
+    @Test
+    void concurrentCallersWaitForReachableCheck() throws Exception {
+        try (ServerSocket mirror = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"))) {
+            String mirrorUrl = "http://127.0.0.1:" + mirror.getLocalPort();
+            Mirror.set(mirrorUrl, Collections.singleton("api.spiget.org"));
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<String>> urls = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    urls.add(executor.submit(() -> {
+                        start.await();
+                        return Mirror.url(URL);
+                    }));
+                }
+                start.countDown();
+                for (Future<String> url : urls) {
+                    assertTrue(url.get(10, TimeUnit.SECONDS).startsWith(mirrorUrl));
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    void usesSourceIfMirrorNotReachable() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"))) {
+            port = socket.getLocalPort();
+        }
+        Mirror.set("http://127.0.0.1:" + port, Collections.singleton("api.spiget.org"));
+        assertEquals(URL, Mirror.url(URL, "2.0"));
+    }
+
+    @Test
+    void noMirror() {
+        Mirror.set(null, Collections.singleton("api.spiget.org"));
+        assertEquals(URL, Mirror.url(URL, "2.0"));
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.tasks.updater;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StagedInstallsTest {
+
+    @BeforeEach
+    void useTempDir(@TempDir Path staging) {
+        StagedInstalls.setDir(staging.resolve("staging").toFile());
+    }
+
+    @Test
+    void installsRightAwayIfNotStaging(@TempDir Path dir) throws IOException {
+        File source = Files.write(dir.resolve("Plugin-[2.0].jar"), "new".getBytes()).toFile();
+        File old = Files.write(dir.resolve("Plugin-1.0.jar"), "old".getBytes()).toFile();
+        File target = dir.resolve("Plugin.jar").toFile();
+
+        assertTrue(StagedInstalls.installFile(source, target, old));
+        assertEquals("new", new String(Files.readAllBytes(target.toPath())));
+        assertFalse(old.exists());
+        assertFalse(new File(target.getAbsolutePath() + ".autoplug-tmp").exists());
+    }
+
+    @Test
+    void appliesStagedInstallsLater(@TempDir Path dir) throws IOException {
+        File source = Files.write(dir.resolve("download.jar"), "new".getBytes()).toFile();
+        File target = Files.write(dir.resolve("Plugin.jar"), "old".getBytes()).toFile();
+        try {
+            StagedInstalls.setStaging(true);
+            assertFalse(StagedInstalls.installFile(source, target, null));
+            source.delete(); // Staged file is a copy
+            assertEquals("old", new String(Files.readAllBytes(target.toPath())));
+            assertEquals(1, StagedInstalls.count());
+        } finally {
+            StagedInstalls.setStaging(false);
+        }
+        assertEquals(0, StagedInstalls.applyAll());
+        assertEquals(0, StagedInstalls.count());
+        assertEquals("new", new String(Files.readAllBytes(target.toPath())));
+        assertFalse(StagedInstalls.getDir().exists());
+    }
+
+    @Test
+    void appliesQueueOfPreviousRun(@TempDir Path dir) throws IOException {
+        File source = Files.write(dir.resolve("download.jar"), "new".getBytes()).toFile();
+        File target = Files.write(dir.resolve("Plugin.jar"), "old".getBytes()).toFile();
+        try {
+            StagedInstalls.setStaging(true);
+            assertFalse(StagedInstalls.installFile(source, target, null));
+        } finally {
+            StagedInstalls.setStaging(false);
+        }
+        assertTrue(new File(StagedInstalls.getDir(), StagedInstalls.QUEUE_FILE_NAME).exists());
+
+        StagedInstalls.setDir(StagedInstalls.getDir()); // Like a restart of AutoPlug, memory is cleared
+        assertEquals(1, StagedInstalls.count());
+        assertEquals(0, StagedInstalls.applyAll());
+        assertEquals("new", new String(Files.readAllBytes(target.toPath())));
+        assertFalse(StagedInstalls.getDir().exists());
+    }
+
+    @Test
+    void retriesFailedInstalls(@TempDir Path dir) throws IOException {
+        File source = Files.write(dir.resolve("download.jar"), "new".getBytes()).toFile();
+        File blocker = Files.write(dir.resolve("not-a-dir"), "".getBytes()).toFile();
+        File target = new File(blocker, "Plugin.jar"); // Parent is a file, thus install fails
+        try {
+            StagedInstalls.setStaging(true);
+            StagedInstalls.installFile(source, target, null);
+        } finally {
+            StagedInstalls.setStaging(false);
+        }
+        for (int i = 1; i < StagedInstalls.MAX_ATTEMPTS; i++) {
+            assertEquals(1, StagedInstalls.applyAll());
+            StagedInstalls.setDir(StagedInstalls.getDir());
+            assertEquals(1, StagedInstalls.count());
+        }
+        assertEquals(1, StagedInstalls.applyAll());
+        assertEquals(0, StagedInstalls.count()); // Gave up
+    }
+
+    @Test
+    void applyingWhileStagingKeepsLaterInstalls(@TempDir Path dir) throws IOException {
+        File first = Files.write(dir.resolve("first.jar"), "first".getBytes()).toFile();
+        File second = Files.write(dir.resolve("second.jar"), "second".getBytes()).toFile();
+        File target = Files.write(dir.resolve("Plugin.jar"), "old".getBytes()).toFile();
+        File otherTarget = Files.write(dir.resolve("Other.jar"), "old".getBytes()).toFile();
+        try {
+            StagedInstalls.setStaging(true);
+            StagedInstalls.installFile(first, target, null);
+            // Server was started while the preparation is still running
+            assertEquals(0, StagedInstalls.applyAll());
+            assertEquals("first", new String(Files.readAllBytes(target.toPath())));
+            assertTrue(StagedInstalls.isStaging());
+
+            assertFalse(StagedInstalls.installFile(second, otherTarget, null));
+            assertEquals("old", new String(Files.readAllBytes(otherTarget.toPath())));
+        } finally {
+            StagedInstalls.setStaging(false);
+        }
+        assertEquals(1, StagedInstalls.count());
+        assertEquals(0, StagedInstalls.applyAll());
+        assertEquals("second", new String(Files.readAllBytes(otherTarget.toPath())));
+    }
+}
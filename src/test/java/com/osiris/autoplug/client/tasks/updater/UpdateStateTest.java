@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.tasks.updater;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpdateStateTest {
+
+    @Test
+    void replaysLogAndSkipsBrokenLines(@TempDir Path dir) throws IOException {
+        File file = dir.resolve("update-state.log").toFile();
+        UpdateState state = new UpdateState(file);
+        state.put("plugins/Essentials", UpdateState.LATEST_VERSION, "2.20")
+                .put("plugins/Essentials", UpdateState.SPIGOT_ID, 9089)
+                .put("plugins/Vault", UpdateState.LATEST_VERSION, "1.7")
+                .remove("plugins/Vault");
+        state.save();
+        state.put("plugins/Essentials", UpdateState.LATEST_VERSION, "2.21");
+        state.put("plugins/Essentials", UpdateState.SPIGOT_ID, 9089); // Unchanged, not written
+        state.save();
+        assertEquals(5, Files.readAllLines(file.toPath()).size());
+        Files.write(file.toPath(), "[\"plugins/Vault\",\"vers".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        UpdateState loaded = new UpdateState(file).load();
+        assertEquals("2.21", loaded.get("plugins/Essentials", UpdateState.LATEST_VERSION));
+        assertEquals(9089, loaded.getLong("plugins/Essentials", UpdateState.SPIGOT_ID, 0));
+        assertNull(loaded.get("plugins/Vault", UpdateState.LATEST_VERSION));
+        assertEquals(1, loaded.getNames(UpdateState.PLUGINS).size());
+    }
+
+    @Test
+    void compactsOutdatedLines(@TempDir Path dir) throws IOException {
+        File file = dir.resolve("update-state.log").toFile();
+        UpdateState state = new UpdateState(file);
+        for (int i = 0; i < 1500; i++) {
+            state.put("mods/Sodium", UpdateState.LAST_CHECK, i);
+            state.save();
+        }
+        assertTrue(Files.readAllLines(file.toPath()).size() <= 1000);
+        assertEquals(1499, new UpdateState(file).getLong("mods/Sodium", UpdateState.LAST_CHECK, 0));
+    }
+}
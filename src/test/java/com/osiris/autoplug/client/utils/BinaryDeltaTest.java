@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryDeltaTest {
+
+    @Test
+    void restoresNewFileFromSmallPatch(@TempDir File dir) throws Exception {
+        Random random = new Random(1);
+        byte[] oldBytes = new byte[1_000_000];
+        random.nextBytes(oldBytes);
+        // Same as old, but with a changed region in the middle and shifted content after it
+        byte[] newBytes = new byte[1_010_000];
+        System.arraycopy(oldBytes, 0, newBytes, 0, 400_000);
+        for (int i = 400_000; i < 420_000; i++) newBytes[i] = (byte) random.nextInt();
+        System.arraycopy(oldBytes, 410_000, newBytes, 420_000, 590_000);
+        File oldFile = new File(dir, "old.jar");
+        Files.write(oldFile.toPath(), oldBytes);
+
+        ByteArrayOutputStream patch = new ByteArrayOutputStream();
+        BinaryDelta.create(oldBytes, newBytes, patch);
+        assertTrue(patch.size() < 30_000);
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        String sha256 = BinaryDelta.apply(oldFile, new ByteArrayInputStream(patch.toByteArray()), result);
+        assertArrayEquals(newBytes, result.toByteArray());
+        assertEquals(UtilsCrypto.calculateSHA256Hash(newBytes).toLowerCase(), sha256.toLowerCase());
+
+        // Applying to a different old file must fail
+        oldBytes[5]++;
+        Files.write(oldFile.toPath(), oldBytes);
+        assertThrows(IOException.class, () -> BinaryDelta.apply(oldFile,
+                new ByteArrayInputStream(patch.toByteArray()), new ByteArrayOutputStream()));
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsTest {
+
+    @Test
+    void scrapeUsesPrometheusTextFormat() {
+        Metrics.UPDATE_CHECK_DURATION.observe("modrinth", 70);
+        Metrics.UPDATE_CHECK_DURATION.observe("modrinth", 400000);
+        Metrics.UPDATE_CHECK_ERRORS.increment("sp\"igot");
+        Metrics.SERVER_STARTS.increment();
+
+        String text = Metrics.scrape();
+        assertTrue(text.contains("# TYPE autoplug_update_check_seconds histogram\n"));
+        assertTrue(text.contains("autoplug_update_check_seconds_bucket{source=\"modrinth\",le=\"0.05\"} 0\n"));
+        assertTrue(text.contains("autoplug_update_check_seconds_bucket{source=\"modrinth\",le=\"0.1\"} 1\n"));
+        assertTrue(text.contains("autoplug_update_check_seconds_bucket{source=\"modrinth\",le=\"+Inf\"} 2\n"));
+        assertTrue(text.contains("autoplug_update_check_seconds_count{source=\"modrinth\"} 2\n"));
+        assertTrue(text.contains("autoplug_update_check_errors_total{source=\"sp\\\"igot\"} 1\n"));
+        assertTrue(text.contains("# TYPE autoplug_server_starts_total counter\n"));
+        assertTrue(text.contains("# TYPE jvm_threads_live gauge\n"));
+    }
+
+    @Test
+    void onlyCountersEndWithTotal() {
+        for (String line : Metrics.scrape().split("\n")) {
+            if (line.startsWith("# TYPE ") && line.endsWith(" gauge"))
+                assertFalse(line.contains("_total "), line);
+        }
+    }
+}
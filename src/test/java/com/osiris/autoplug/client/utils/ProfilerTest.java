@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfilerTest {
+
+    @Test
+    void writesTimelineAndSummary(@TempDir Path dir) throws Exception {
+        File file = dir.resolve("startup-trace.json").toFile();
+        Profiler.setFile(file);
+        Profiler.beginStartup();
+        try (Profiler.Span ignored = Profiler.start("init", "Load \"configs\"")) {
+            Thread.sleep(20);
+        }
+        long now = System.currentTimeMillis();
+        Profiler.record("task", "BackupTask", now, now + 50, "BackupTask");
+        assertEquals("result", Profiler.traced("http", "Search", () -> "result").call());
+        Profiler.endStartup("BackupTask (50ms)");
+
+        String summary = Profiler.getLastStartupSummary();
+        assertNotNull(summary);
+        assertTrue(summary.contains("Critical path of pre-startup tasks: BackupTask (50ms)"));
+        assertTrue(summary.contains("50ms task BackupTask"));
+        assertTrue(summary.indexOf("50ms task BackupTask") < summary.indexOf("init Load \"configs\"")); // Slowest first
+
+        assertTrue(summary.contains(file.getAbsolutePath()));
+        String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertTrue(json.startsWith("{\"traceEvents\":["));
+        assertTrue(json.contains("\"name\":\"Load \\\"configs\\\"\""));
+        assertTrue(json.contains("\"dur\":50000"));
+    }
+
+    @Test
+    void tracedRecordsFailedCalls(@TempDir Path dir) throws Exception {
+        Profiler.setFile(dir.resolve("startup-trace.json").toFile());
+        Profiler.beginStartup();
+        assertThrows(IllegalStateException.class, () -> Profiler.traced("http", "Failing search", () -> {
+            throw new IllegalStateException();
+        }).call());
+        Profiler.endStartup(null);
+        assertTrue(Profiler.getLastStartupSummary().contains("http Failing search"));
+    }
+}
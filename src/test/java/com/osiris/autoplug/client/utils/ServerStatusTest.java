@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServerStatusTest {
+
+    @Test
+    void playerCountsFromConsoleWithoutPinging() {
+        AtomicInteger pings = new AtomicInteger();
+        ServerStatus status = new ServerStatus("127.0.0.1", 25565) {
+            @Override
+            Snapshot ping(boolean isRunning) {
+                pings.incrementAndGet();
+                return new Snapshot(isRunning, "1.20.4", 2, 20);
+            }
+        };
+        assertEquals(2, status.update().currentPlayers);
+        assertEquals(1, pings.get());
+
+        status.onConsoleLine("[12:00:00 INFO]: Steve joined the game");
+        status.onConsoleLine("[12:00:01] [Server thread/INFO]: Alex joined the game");
+        status.onConsoleLine("[12:00:02 INFO]: <Steve> Notch joined the game"); // Chat
+        assertEquals(4, status.update().currentPlayers);
+
+        status.onConsoleLine("[12:00:03 INFO]: Steve left the game");
+        ServerStatus.Snapshot snapshot = status.update();
+        assertEquals(3, snapshot.currentPlayers);
+        assertEquals("1.20.4", snapshot.version);
+
+        status.onConsoleLine("[12:00:04 INFO]: There are 7 of a max of 30 players online: Steve, Alex");
+        snapshot = status.update();
+        assertEquals(7, snapshot.currentPlayers);
+        assertEquals(30, snapshot.maxPlayers);
+        assertEquals(1, pings.get());
+    }
+
+    @Test
+    void consoleLinesAreNotBlockedByPing() throws Exception {
+        CountDownLatch isPinging = new CountDownLatch(1);
+        CountDownLatch finishPing = new CountDownLatch(1);
+        AtomicInteger pings = new AtomicInteger();
+        ServerStatus status = new ServerStatus("127.0.0.1", 25565) {
+            @Override
+            Snapshot ping(boolean isRunning) {
+                pings.incrementAndGet();
+                isPinging.countDown();
+                try {
+                    finishPing.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return new Snapshot(isRunning, "1.20.4", 2, 20);
+            }
+        };
+        Thread pinger = new Thread(status::update);
+        pinger.start();
+        assertTrue(isPinging.await(10, TimeUnit.SECONDS));
+
+        // Would block until the ping finished, if the ping held the lock
+        CompletableFuture<ServerStatus.Snapshot> duringPing = CompletableFuture.supplyAsync(() -> {
+            status.onConsoleLine("[12:00:00 INFO]: Steve joined the game");
+            return status.update();
+        });
+        assertEquals(1, duringPing.get(10, TimeUnit.SECONDS).currentPlayers);
+
+        finishPing.countDown();
+        pinger.join(10000);
+        assertEquals(1, pings.get());
+        // The join printed while pinging is kept
+        assertEquals(3, status.update().currentPlayers);
+    }
+}
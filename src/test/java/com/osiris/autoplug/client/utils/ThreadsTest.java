@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ThreadsTest {
+
+    @AfterEach
+    void reset() {
+        Threads.setVirtual(null);
+    }
+
+    @Test
+    void virtualThreadsOnJava21() throws Exception {
+        assumeTrue(getJavaVersion() >= 21, "Virtual threads need Java 21 or newer");
+        Threads.setVirtual(true);
+        assertTrue(Threads.isVirtual());
+
+        AtomicReference<Thread> ran = new AtomicReference<>();
+        Thread thread = Threads.start("test", () -> ran.set(Thread.currentThread()));
+        thread.join(5000);
+        assertSame(thread, ran.get());
+        assertEquals("test", thread.getName());
+        assertTrue(isVirtual(thread));
+
+        ExecutorService executor = Threads.newIoExecutor("test-executor", 1);
+        try {
+            Thread executorThread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+            assertTrue(isVirtual(executorThread));
+            assertEquals("test-executor-1", executorThread.getName());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void regularThreadsBeforeJava21() throws Exception {
+        assumeFalse(getJavaVersion() >= 21);
+        Threads.setVirtual(true);
+        assertFalse(Threads.isVirtual());
+        regularThreads();
+    }
+
+    @Test
+    void regularThreadsIfDisabled() throws Exception {
+        Threads.setVirtual(false);
+        assertFalse(Threads.isVirtual());
+        regularThreads();
+    }
+
+    private static void regularThreads() throws Exception {
+        Thread thread = Threads.start("test", () -> {
+        });
+        thread.join(5000);
+        assertTrue(thread.isDaemon());
+        assertFalse(isVirtual(thread));
+
+        ExecutorService executor = Threads.newIoExecutor("test-executor", 1);
+        try {
+            Thread executorThread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+            assertTrue(executorThread.isDaemon());
+            assertEquals("test-executor-1", executorThread.getName());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static boolean isVirtual(Thread thread) throws Exception {
+        if (getJavaVersion() < 21) return false;
+        return (boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    }
+
+    private static int getJavaVersion() {
+        String version = System.getProperty("java.specification.version");
+        if (version.startsWith("1.")) version = version.substring(2);
+        return Integer.parseInt(version);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.utils.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DirectoryListingTest {
+
+    @Test
+    void dirsFirstSortedAndPaged(@TempDir Path dir) throws IOException {
+        Files.createDirectory(dir.resolve("b-dir"));
+        Files.createDirectory(dir.resolve("a-dir"));
+        Files.write(dir.resolve("c.log"), new byte[10]);
+        Files.write(dir.resolve("a.log"), new byte[20]);
+        Files.write(dir.resolve("b.txt"), new byte[5]);
+
+        DirectoryListing listing = new DirectoryListing(dir, null, DirectoryListing.SORT_BY_NAME, false);
+        assertEquals(5, listing.entries.size());
+        assertEquals("a-dir", listing.entries.get(0).name);
+        assertEquals("b-dir", listing.entries.get(1).name);
+        assertEquals("a.log", listing.entries.get(2).name);
+
+        List<DirectoryListing.Entry> page = listing.page(3, 10);
+        assertEquals(2, page.size());
+        assertEquals("b.txt", page.get(0).name);
+        assertTrue(listing.page(5, 10).isEmpty());
+
+        DirectoryListing filtered = new DirectoryListing(dir, "*.LOG", DirectoryListing.SORT_BY_SIZE, true);
+        assertEquals(2, filtered.entries.size());
+        assertEquals("a.log", filtered.entries.get(0).name);
+        assertTrue(filtered.isReusableFor(dir, "*.LOG", DirectoryListing.SORT_BY_SIZE, true));
+        assertFalse(filtered.isReusableFor(dir, "", DirectoryListing.SORT_BY_SIZE, true));
+    }
+
+    @Test
+    void tokensOfChangedDirectoryAreRejected(@TempDir Path dir) throws IOException {
+        Files.write(dir.resolve("a.txt"), new byte[1]);
+        Files.write(dir.resolve("b.txt"), new byte[1]);
+        Files.setLastModifiedTime(dir, FileTime.fromMillis(1000000));
+        DirectoryListing listing = new DirectoryListing(dir, null, DirectoryListing.SORT_BY_NAME, false);
+        String token = listing.token(1);
+        assertEquals(1, listing.offsetOf(token));
+        assertEquals(1, new DirectoryListing(dir, null, DirectoryListing.SORT_BY_NAME, false).offsetOf(token));
+
+        Files.write(dir.resolve("0.txt"), new byte[1]); // Shifts the following entries
+        Files.setLastModifiedTime(dir, FileTime.fromMillis(2000000));
+        DirectoryListing changed = new DirectoryListing(dir, null, DirectoryListing.SORT_BY_NAME, false);
+        assertFalse(listing.isReusableFor(dir, null, DirectoryListing.SORT_BY_NAME, false));
+        assertEquals(-1, changed.offsetOf(token));
+        assertEquals(-1, changed.offsetOf("invalid"));
+        assertEquals(-1, changed.offsetOf("1:abc"));
+    }
+}
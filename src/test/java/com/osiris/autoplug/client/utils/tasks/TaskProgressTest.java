@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2024 Osiris-Team.
+ * All rights reserved.
+ *
+ * This software is copyrighted work, licensed under the terms
+ * of the MIT-License. Consult the "LICENSE" file for details.
+ */
+
+package com.osiris.autoplug.client.utils.tasks;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskProgressTest {
+
+    @Test
+    void rendersOnlyWhileActive() {
+        TaskProgress progress = new TaskProgress();
+        assertFalse(progress.isActive());
+        assertEquals("", progress.toString());
+
+        progress.start(TaskProgress.Phase.DOWNLOADING, "Essentials.jar", 10 * 1024 * 1024);
+        progress.setNow(3 * 1024 * 1024);
+        assertEquals(30, progress.getPercent());
+        assertTrue(progress.toString().startsWith("Downloading Essentials.jar... 3mb/10mb (30%, "));
+
+        progress.stop();
+        assertFalse(progress.isActive());
+        assertEquals("", progress.toString());
+    }
+
+    @Test
+    void unknownMax() {
+        TaskProgress progress = new TaskProgress().start(TaskProgress.Phase.DOWNLOADING, "server.jar", -1);
+        progress.setNow(512 * 1024);
+        assertEquals(-1, progress.getPercent());
+        assertEquals(-1, progress.getMsRemaining());
+        assertTrue(progress.toString().startsWith("Downloading server.jar... 512kb ("));
+    }
+
+    @Test
+    void detailAndCounts() {
+        TaskProgress progress = new TaskProgress().start(TaskProgress.Phase.CHECKING, "plugins", 40);
+        progress.setNow(12);
+        progress.setDetail("Vault");
+        String s = progress.toString();
+        assertTrue(s.startsWith("Checking plugins... 12/40 (30%, "), s);
+        assertTrue(s.endsWith(" - Vault"), s);
+    }
+}